@@ -29,6 +29,60 @@ android {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
     }
+
+    // Build-time assets (the interaction index and drug-name dictionary below)
+    sourceSets.getByName("main").assets.srcDir(layout.buildDirectory.dir("generated/bundledAssets"))
+    // Stored uncompressed so Interactions and DrugNames can memory-map them straight out of the APK
+    androidResources {
+        noCompress += "idx"
+    }
+}
+
+// Plain-Java writers for the bundled indexes, the same ones the unit tests use, so the app never
+// parses the source CSV files at run time
+val assetTools = tasks.register<JavaCompile>("compileAssetTools") {
+    source(fileTree("src/main/java") {
+        include(
+            "data/DrugNameIndex.java",
+            "data/DrugNameIndexWriter.java",
+            "data/InteractionIndex.java",
+            "data/InteractionIndexWriter.java",
+        )
+    })
+    classpath = files()
+    destinationDirectory.set(layout.buildDirectory.dir("assetTools"))
+    sourceCompatibility = "11"
+    targetCompatibility = "11"
+}
+
+// Drug-interaction dataset (src/main/interactions/*.csv) -> assets/interactions.idx
+val compileInteractions = tasks.register<JavaExec>("compileInteractions") {
+    val dataset = file("src/main/interactions")
+    val out = layout.buildDirectory.file("generated/bundledAssets/interactions.idx")
+    inputs.dir(dataset)
+    outputs.file(out)
+    classpath(assetTools.flatMap { it.destinationDirectory })
+    mainClass.set("data.InteractionIndexWriter")
+    argumentProviders.add(CommandLineArgumentProvider {
+        listOf(dataset.resolve("names.csv").path, dataset.resolve("interactions.csv").path, out.get().asFile.path)
+    })
+}
+
+// Drug-name dictionary (src/main/dictionary/drug_names.csv) -> assets/drug_names.idx
+val compileDrugNames = tasks.register<JavaExec>("compileDrugNames") {
+    val names = file("src/main/dictionary/drug_names.csv")
+    val out = layout.buildDirectory.file("generated/bundledAssets/drug_names.idx")
+    inputs.file(names)
+    outputs.file(out)
+    classpath(assetTools.flatMap { it.destinationDirectory })
+    mainClass.set("data.DrugNameIndexWriter")
+    argumentProviders.add(CommandLineArgumentProvider {
+        listOf(names.path, out.get().asFile.path)
+    })
+}
+
+tasks.named("preBuild") {
+    dependsOn(compileInteractions, compileDrugNames)
 }
 
 dependencies {
@@ -41,6 +95,9 @@ dependencies {
     implementation("androidx.lifecycle:lifecycle-viewmodel:2.8.4")
     implementation("androidx.lifecycle:lifecycle-livedata:2.8.4")
 
+    // Paging (Java-friendly ItemKeyedDataSource / PagedListAdapter)
+    implementation("androidx.paging:paging-runtime:2.1.2")
+
     // Room (Java)
     implementation("androidx.room:room-runtime:2.6.1")
     annotationProcessor("androidx.room:room-compiler:2.6.1")
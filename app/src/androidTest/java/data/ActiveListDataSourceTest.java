@@ -0,0 +1,137 @@
+package data;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.paging.PagedList;
+import androidx.room.Room;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumented check of the keyset-paged active list against a 50k-row fixture:
+ * order, page boundaries across terms, time-to-first-page and heap growth.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ActiveListDataSourceTest {
+
+    private static final String TAG = "PAGING";
+    private static final int ROWS = 50_000;
+    private static final int OTHER_PATIENT = 2;
+    private static final int OTHER_ROWS = 1_000; // all active; must never show up in the default patient's list
+
+    private AppDatabase db;
+
+    @Before
+    public void setUp() {
+        Context ctx = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        db = Room.inMemoryDatabaseBuilder(ctx, AppDatabase.class).build();
+        db.timeTermDao().insertAll(
+                new TimeTerm(1, "before-breakfast", 1), new TimeTerm(2, "at-breakfast", 2),
+                new TimeTerm(3, "after-breakfast", 3), new TimeTerm(4, "before-lunch", 4),
+                new TimeTerm(5, "at-lunch", 5), new TimeTerm(6, "after-lunch", 6),
+                new TimeTerm(7, "before-dinner", 7), new TimeTerm(8, "at-dinner", 8),
+                new TimeTerm(9, "after-dinner", 9));
+        TimeTermLoader.attach(db); // in-memory DB: no open callback, load the registry by hand
+        TimeTermRegistry.reload();
+        db.patientDao().insert(new Patient(Patient.DEFAULT_ID, Patient.DEFAULT_NAME));
+        db.patientDao().insert(new Patient(OTHER_PATIENT, "Other"));
+
+        // Every 3rd row inactive; terms spread round-robin
+        List<PrescriptionDrug> batch = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            PrescriptionDrug d = new PrescriptionDrug();
+            d.shortName = "Drug " + i;
+            d.description = "Fixture row " + i;
+            d.startDateEpoch = 19_000;
+            d.endDateEpoch = 30_000;
+            d.timeTermId = 1 + (i % 9);
+            d.isActive = (i % 3) != 0;
+            batch.add(d);
+        }
+        db.prescriptionDao().insertAll(batch);
+
+        List<PrescriptionDrug> other = new ArrayList<>(OTHER_ROWS);
+        for (int i = 0; i < OTHER_ROWS; i++) {
+            PrescriptionDrug d = new PrescriptionDrug();
+            d.shortName = "Other " + i;
+            d.startDateEpoch = 19_000;
+            d.endDateEpoch = 30_000;
+            d.timeTermId = 1 + (i % 9);
+            d.isActive = true;
+            d.patientId = OTHER_PATIENT;
+            other.add(d);
+        }
+        db.prescriptionDao().insertAll(other);
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    @Test
+    public void firstPage_isSmallFastAndOrdered() {
+        Runtime rt = Runtime.getRuntime();
+        rt.gc();
+        long heapBefore = rt.totalMemory() - rt.freeMemory();
+        long t0 = System.nanoTime();
+
+        PagedList<PrescriptionWithTerm> list = build();
+
+        long firstPageMs = (System.nanoTime() - t0) / 1_000_000;
+        long heapAfter = rt.totalMemory() - rt.freeMemory();
+        Log.i(TAG, "rows=" + ROWS + " firstPage=" + list.size() + " items in " + firstPageMs
+                + " ms, heap +" + (heapAfter - heapBefore) / 1024 + " KiB");
+
+        assertEquals(PrescriptionRepository.PAGE_SIZE * 2, list.size());
+        assertOrdered(list);
+    }
+
+    @Test
+    public void walkingAllPages_returnsEveryActiveRowOnceInOrder() {
+        PagedList<PrescriptionWithTerm> list = build();
+        // Keep asking for the page after the last loaded item until nothing more arrives
+        int last = -1;
+        while (list.size() != last) {
+            last = list.size();
+            list.loadAround(list.size() - 1);
+        }
+        int expectedActive = ROWS - (ROWS + 2) / 3;
+        assertEquals(expectedActive, list.size());
+        assertOrdered(list);
+        for (PrescriptionWithTerm it : list) assertEquals(Patient.DEFAULT_ID, it.drug.patientId);
+    }
+
+    private PagedList<PrescriptionWithTerm> build() {
+        PagedList.Config cfg = new PagedList.Config.Builder()
+                .setPageSize(PrescriptionRepository.PAGE_SIZE)
+                .setInitialLoadSizeHint(PrescriptionRepository.PAGE_SIZE * 2)
+                .setEnablePlaceholders(false)
+                .build();
+        return new PagedList.Builder<>(new ActiveListDataSource.Factory(db, Patient.DEFAULT_ID).create(), cfg)
+                .setFetchExecutor(Runnable::run)   // load synchronously on the test thread
+                .setNotifyExecutor(Runnable::run)
+                .build();
+    }
+
+    private static void assertOrdered(List<PrescriptionWithTerm> list) {
+        for (int i = 1; i < list.size(); i++) {
+            PrescriptionWithTerm a = list.get(i - 1), b = list.get(i);
+            assertTrue(b.drug.isActive);
+            boolean inOrder = a.termOrder < b.termOrder
+                    || (a.termOrder == b.termOrder && a.drug.uid < b.drug.uid);
+            assertTrue("out of order at " + i, inOrder);
+        }
+    }
+}
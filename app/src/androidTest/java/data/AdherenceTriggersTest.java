@@ -0,0 +1,130 @@
+package data;
+
+import android.content.Context;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumented check that the adherence triggers follow inserts, intakes, date edits (Room @Update,
+ * as saveEdit does) and deletes, and that AdherenceRebuild finds and repairs drift.
+ */
+@RunWith(AndroidJUnit4.class)
+public class AdherenceTriggersTest {
+
+    private static final long JAN_21 = AdherenceStats.firstDay(202401) + 20;
+    private static final long FEB_10 = AdherenceStats.firstDay(202402) + 9;
+    private static final long MAR_5 = AdherenceStats.firstDay(202403) + 4;
+
+    private AppDatabase db;
+
+    @Before
+    public void setUp() {
+        Context ctx = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        db = Room.inMemoryDatabaseBuilder(ctx, AppDatabase.class).build();
+        // Same setup as the app's onCreate/onOpen callbacks
+        SupportSQLiteDatabase w = db.getOpenHelper().getWritableDatabase();
+        w.execSQL(AdherenceStats.SEED_CALENDAR);
+        AppDatabase.createChangeTriggers(w);
+        AppDatabase.createAdherenceTriggers(w);
+        db.timeTermDao().insertAll(new TimeTerm(1, "before-breakfast", 1));
+        db.patientDao().insert(new Patient(Patient.DEFAULT_ID, Patient.DEFAULT_NAME));
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    private PrescriptionDrug insert(long start, long end) {
+        PrescriptionDrug d = new PrescriptionDrug();
+        d.shortName = "Drug";
+        d.startDateEpoch = start;
+        d.endDateEpoch = end;
+        d.timeTermId = 1;
+        d.uid = (int) db.prescriptionDao().insert(d);
+        return d;
+    }
+
+    private static void assertStat(AdherenceStat s, int month, int courseDays, int taken) {
+        assertEquals(month, s.month);
+        assertEquals("courseDays " + month, courseDays, s.courseDays);
+        assertEquals("taken " + month, taken, s.taken);
+    }
+
+    @Test
+    public void countersFollowEveryWrite() {
+        PrescriptionDrug d = insert(JAN_21, FEB_10);
+        List<AdherenceStat> s = db.adherenceStatDao().forDrug(d.uid, 202301, 202412);
+        assertEquals(2, s.size());
+        assertStat(s.get(0), 202401, 11, 0);
+        assertStat(s.get(1), 202402, 10, 0);
+
+        // Marked twice on one day: still one day taken
+        DoseIntakeDao intakes = db.doseIntakeDao();
+        intakes.logFor(d.uid, JAN_21 + 4, 1);
+        intakes.logFor(d.uid, JAN_21 + 4, 2);
+        intakes.logFor(d.uid, FEB_10, 3);
+        intakes.logFor(d.uid, MAR_5, 4); // outside the course: taken, no course day
+
+        // Course extended into March (2024 is a leap year)
+        d.endDateEpoch = MAR_5;
+        assertEquals(1, db.prescriptionDao().update(d));
+        s = db.adherenceStatDao().forDrug(d.uid, 202301, 202412);
+        assertEquals(3, s.size());
+        assertStat(s.get(0), 202401, 11, 1);
+        assertStat(s.get(1), 202402, 29, 1);
+        assertStat(s.get(2), 202403, 5, 1);
+
+        // Course moved into February only: January has no doses left, so its row goes
+        d.startDateEpoch = AdherenceStats.firstDay(202402);
+        d.endDateEpoch = FEB_10;
+        db.prescriptionDao().update(d);
+        s = db.adherenceStatDao().forDrug(d.uid, 202301, 202412);
+        assertEquals(3, s.size());
+        assertStat(s.get(0), 202401, 0, 1);
+        assertStat(s.get(1), 202402, 10, 1);
+        assertStat(s.get(2), 202403, 0, 1);
+
+        PrescriptionDrug other = insert(FEB_10, MAR_5);
+        List<AdherenceStatDao.MonthTotals> totals =
+                db.adherenceStatDao().totalsByMonth(Patient.DEFAULT_ID, 202402, 202402);
+        assertEquals(1, totals.size());
+        assertEquals(10 + 20, totals.get(0).courseDays);
+        assertEquals(1, totals.get(0).taken);
+        assertEquals(0, AdherenceRebuild.run(db, false));
+
+        db.prescriptionDao().deleteById(d.uid);
+        assertTrue(db.adherenceStatDao().forDrug(d.uid, 202301, 202412).isEmpty());
+        assertEquals(2, db.adherenceStatDao().forDrug(other.uid, 202301, 202412).size());
+        assertEquals(0, AdherenceRebuild.run(db, false));
+    }
+
+    @Test
+    public void rebuild_findsAndRepairsDrift() {
+        PrescriptionDrug d = insert(JAN_21, MAR_5);
+        db.doseIntakeDao().logFor(d.uid, FEB_10, 1);
+        SupportSQLiteDatabase w = db.getOpenHelper().getWritableDatabase();
+        w.execSQL("UPDATE adherence_stats SET taken = 7 WHERE month = 202402");
+        w.execSQL("DELETE FROM adherence_stats WHERE month = 202403");
+
+        assertEquals(2, AdherenceRebuild.run(db, false)); // check only
+        assertEquals(2, AdherenceRebuild.run(db, true));
+        assertEquals(0, AdherenceRebuild.run(db, false));
+        List<AdherenceStat> s = db.adherenceStatDao().forDrug(d.uid, 202401, 202403);
+        assertEquals(3, s.size());
+        assertStat(s.get(1), 202402, 29, 1);
+        assertStat(s.get(2), 202403, 5, 0);
+    }
+}
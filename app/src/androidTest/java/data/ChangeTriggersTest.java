@@ -0,0 +1,124 @@
+package data;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumented check that the prescription_changes triggers keep one row per prescription with a
+ * rising sequence through inserts, Room @Update (OR ABORT) on an existing row, and deletes, and
+ * leave it alone on day-state writes (rollover flags, "received today").
+ */
+@RunWith(AndroidJUnit4.class)
+public class ChangeTriggersTest {
+
+    private AppDatabase db;
+    private PrescriptionDao dao;
+
+    @Before
+    public void setUp() {
+        Context ctx = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        db = Room.inMemoryDatabaseBuilder(ctx, AppDatabase.class).build();
+        // Same setup as the app's onOpen callback
+        SupportSQLiteDatabase w = db.getOpenHelper().getWritableDatabase();
+        AppDatabase.createChangeTriggers(w);
+        db.timeTermDao().insertAll(new TimeTerm(1, "before-breakfast", 1));
+        db.patientDao().insert(new Patient(Patient.DEFAULT_ID, Patient.DEFAULT_NAME));
+        dao = db.prescriptionDao();
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    private PrescriptionDrug insert(String name) {
+        PrescriptionDrug d = new PrescriptionDrug();
+        d.shortName = name;
+        d.startDateEpoch = 20000;
+        d.endDateEpoch = 20030;
+        d.timeTermId = 1;
+        d.uid = (int) dao.insert(d);
+        return d;
+    }
+
+    // {seq, deleted} of a row's change entry, or null if it has none
+    private long[] change(int uid) {
+        try (Cursor c = db.query("SELECT seq, deleted FROM prescription_changes WHERE uid = ?", new Object[]{uid})) {
+            return c.moveToFirst() ? new long[]{c.getLong(0), c.getLong(1)} : null;
+        }
+    }
+
+    private long changeRows() {
+        try (Cursor c = db.query("SELECT COUNT(*) FROM prescription_changes", null)) {
+            c.moveToFirst();
+            return c.getLong(0);
+        }
+    }
+
+    @Test
+    public void updateOfExistingRow_bumpsItsSequence() {
+        PrescriptionDrug a = insert("Amoxil");
+        PrescriptionDrug b = insert("Zoloft");
+        assertArrayEquals(new long[]{1, 0}, change(a.uid));
+        assertArrayEquals(new long[]{2, 0}, change(b.uid));
+
+        // The row already has a change entry: the trigger must update it, not fail on the key
+        a.description = "with food";
+        assertEquals(1, dao.update(a));
+        assertArrayEquals(new long[]{3, 0}, change(a.uid));
+        assertEquals(2, changeRows());
+
+        // @Update sets every column, content ones included
+        b.isActive = false;
+        a.hasReceivedToday = true;
+        assertEquals(2, dao.updateAll(Arrays.asList(a, b)));
+        assertEquals(5, dao.maxChangeSeq());
+        assertEquals(2, changeRows());
+        assertEquals("with food", dao.getByIdSync(a.uid).description);
+
+        dao.deleteByIds(Arrays.asList(b.uid));
+        assertArrayEquals(new long[]{6, 1}, change(b.uid));
+        assertEquals(6, dao.maxChangeSeq());
+    }
+
+    @Test
+    public void rolloverAndReceivedFlags_leaveTheSequenceAlone() {
+        PrescriptionDrug a = insert("Amoxil");
+        PrescriptionDrug b = insert("Zoloft");
+        long seq = dao.maxChangeSeq();
+
+        // Day rollover: a starts today (20000), b was received yesterday with a stale flag
+        assertEquals(1, dao.markReceivedToday(b.uid, 19999));
+        assertEquals(seq, dao.maxChangeSeq());
+        assertEquals(2, dao.activateStarted(20000, 100));
+        assertEquals(1, dao.clearStaleReceived(20000, 100));
+        assertEquals(0, dao.deactivateEnded(20000, 100));
+        assertEquals(1, dao.markReceivedToday(a.uid, 20000));
+        assertEquals(2, dao.markAllReceivedToday(Arrays.asList(a.uid, b.uid), 20000));
+
+        assertEquals(seq, dao.maxChangeSeq());
+        assertArrayEquals(new long[]{1, 0}, change(a.uid));
+        assertArrayEquals(new long[]{2, 0}, change(b.uid));
+        assertTrue(dao.getByIdSync(a.uid).isActive);
+
+        // A content edit still counts
+        a = dao.getByIdSync(a.uid);
+        a.doctorName = "Dr. Ng";
+        dao.update(a);
+        assertArrayEquals(new long[]{seq + 1, 0}, change(a.uid));
+    }
+}
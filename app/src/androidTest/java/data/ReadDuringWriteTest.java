@@ -0,0 +1,130 @@
+package data;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.room.Room;
+import androidx.room.RoomDatabase;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumented check that, in WAL mode, reads (provider pool and Room) complete while a
+ * full recompute holds the write transaction open, and see the last committed snapshot.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ReadDuringWriteTest {
+
+    private static final String TAG = "WAL";
+    private static final String NAME = "wal-test.db";
+    private static final int ROWS = 20_000;
+    private static final long TODAY = 20_000;
+
+    private Context ctx;
+    private AppDatabase db;
+    private ReaderPool reader;
+
+    @Before
+    public void setUp() {
+        ctx = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        ctx.deleteDatabase(NAME);
+        db = Room.databaseBuilder(ctx, AppDatabase.class, NAME)
+                .setJournalMode(RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING)
+                .build();
+        db.timeTermDao().insertAll(new TimeTerm(1, "before-breakfast", 1));
+        db.patientDao().insert(new Patient(Patient.DEFAULT_ID, Patient.DEFAULT_NAME));
+
+        // Every row active "yesterday"; the recompute for TODAY deactivates half of them
+        List<PrescriptionDrug> batch = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            PrescriptionDrug d = new PrescriptionDrug();
+            d.shortName = "Drug " + i;
+            d.startDateEpoch = TODAY - 10;
+            d.endDateEpoch = (i % 2 == 0) ? TODAY + 10 : TODAY - 1;
+            d.timeTermId = 1;
+            d.isActive = true;
+            batch.add(d);
+        }
+        db.prescriptionDao().insertAll(batch);
+
+        File path = ctx.getDatabasePath(NAME);
+        reader = new ReaderPool(path);
+    }
+
+    @After
+    public void tearDown() {
+        reader.close();
+        db.close();
+        ctx.deleteDatabase(NAME);
+    }
+
+    @Test
+    public void readsDoNotWaitForAnOpenRecomputeTransaction() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);   // recompute ran, transaction still open
+        CountDownLatch readsDone = new CountDownLatch(1); // readers finished
+        AtomicBoolean writerTimedOut = new AtomicBoolean(false);
+        AtomicReference<Throwable> writerError = new AtomicReference<>();
+
+        Thread writer = new Thread(() -> {
+            try {
+                db.runInTransaction(() -> {
+                    db.prescriptionDao().recomputeForToday(TODAY);
+                    writing.countDown();
+                    // Hold the write lock until the readers are done (or give up)
+                    try {
+                        if (!readsDone.await(10, TimeUnit.SECONDS)) writerTimedOut.set(true);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            } catch (Throwable t) {
+                writerError.set(t);
+                writing.countDown();
+            }
+        }, "recompute");
+        writer.start();
+        assertTrue(writing.await(30, TimeUnit.SECONDS));
+        assertNull(writerError.get());
+
+        // Provider path (read-only pool) and Room path, while the write is uncommitted
+        long maxNanos = 0;
+        for (int i = 0; i < 20; i++) {
+            long t0 = System.nanoTime();
+            try (Cursor c = reader.query("SELECT COUNT(*) FROM prescription_drugs WHERE isActive = ?", new Object[]{1})) {
+                assertTrue(c.moveToFirst());
+                assertEquals("reader must see the last committed snapshot", ROWS, c.getInt(0));
+            }
+            assertNotNull(db.prescriptionDao().getByIdSync(1 + i));
+            maxNanos = Math.max(maxNanos, System.nanoTime() - t0);
+        }
+        readsDone.countDown();
+        writer.join(30_000);
+
+        long maxMs = maxNanos / 1_000_000;
+        Log.i(TAG, "rows=" + ROWS + " slowest read during open write: " + maxMs + " ms");
+        assertFalse("readers blocked until the writer gave up", writerTimedOut.get());
+        assertTrue("slowest read " + maxMs + " ms", maxMs < 1_000);
+
+        // After commit the new flags are visible to the pool
+        try (Cursor c = reader.query("SELECT COUNT(*) FROM prescription_drugs WHERE isActive = ?", new Object[]{1})) {
+            assertTrue(c.moveToFirst());
+            assertEquals(ROWS / 2, c.getInt(0));
+        }
+    }
+}
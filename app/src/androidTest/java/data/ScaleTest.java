@@ -0,0 +1,286 @@
+package data;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.os.Build;
+import android.os.Bundle;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import provider.MedContract;
+import provider.MedProvider;
+import provider.ProviderSql;
+import ui.Export;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumented scale suite: fills prescription_drugs with LoadGenerator rows (through the DAO, and
+ * through MedProvider) and logs latency and heap for the main read/write paths at each size.
+ * Everything runs on its own database file, built the way the app builds meds.db (seeding and triggers).
+ * Sizes default to 1k and 10k; larger runs are opt-in:
+ * {@code -e scaleRows 1000,10000,100000,1000000 -e providerRows 10000}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ScaleTest {
+
+    private static final String TAG = "SCALE";
+    private static final String NAME = "scale-test.db";
+    private static final String MARKER = "ScaleTest ";
+    private static final long TODAY = 20_000;
+    private static final int[] TERMS = {1, 2, 3, 4, 5, 6, 7, 8, 9};
+    private static final int CHUNK = 5_000;
+    private static final int RUNS = 3; // timed runs per path (after one warm-up); the median is logged
+
+    private Context ctx;
+    private AppDatabase db;
+    private AppDatabase previous; // the app instance, put back by close()
+    private ReaderPool reader;
+
+    @Before
+    public void setUp() {
+        ctx = InstrumentationRegistry.getInstrumentation().getTargetContext();
+    }
+
+    @After
+    public void tearDown() {
+        close();
+        ctx.deleteDatabase(NAME);
+    }
+
+    @Test
+    public void readAndWritePathsAtEachSize() throws Exception {
+        Assume.assumeTrue("Export needs API 26", Build.VERSION.SDK_INT >= Build.VERSION_CODES.O);
+        LoadGenerator gen = new LoadGenerator(TODAY, TERMS);
+        Log.i(TAG, gen.describe());
+        for (int rows : sizes("scaleRows", "1000,10000")) {
+            open();
+            long t0 = System.nanoTime();
+            fillViaDao(db, gen, 0, rows);
+            log(rows, "fill via PrescriptionDao", t0, -1, rows);
+
+            int expectedActive = 0;
+            for (int i = 0; i < rows; i++) if (gen.drug(i).isActive) expectedActive++;
+
+            // getActiveWithTermNow: latency, and the heap the returned list holds on to
+            List<PrescriptionWithTerm> active = null;
+            long[] ms = new long[RUNS];
+            for (int i = -1; i < RUNS; i++) {
+                active = null;
+                long heap = usedHeap();
+                long t = System.nanoTime();
+                active = db.prescriptionDao().getActiveWithTermNow(Patient.DEFAULT_ID);
+                if (i >= 0) ms[i] = System.nanoTime() - t;
+                if (i == RUNS - 1) log(rows, "getActiveWithTermNow", ms, usedHeap() - heap, active.size());
+            }
+            assertEquals(expectedActive, active.size());
+
+            // Export.toHtml of that list: latency, and the size of the string it builds
+            String html = null;
+            for (int i = -1; i < RUNS; i++) {
+                html = null;
+                long heap = usedHeap();
+                long t = System.nanoTime();
+                html = Export.toHtml(active);
+                if (i >= 0) ms[i] = System.nanoTime() - t;
+                if (i == RUNS - 1) log(rows, "Export.toHtml", ms, usedHeap() - heap, html.length());
+            }
+            active = null;
+            html = null;
+
+            // recomputeForToday: same day each run, so every run rewrites the same flags
+            for (int i = -1; i < RUNS; i++) {
+                long t = System.nanoTime();
+                db.prescriptionDao().recomputeForToday(TODAY);
+                if (i >= 0) ms[i] = System.nanoTime() - t;
+            }
+            log(rows, "recomputeForToday", ms, -1, rows);
+
+            // recomputeForPatient: same day again, so it only finds rows and writes none
+            int changed = 0;
+            for (int i = -1; i < RUNS; i++) {
+                long t = System.nanoTime();
+                changed = db.prescriptionDao().recomputeForPatient(Patient.DEFAULT_ID, TODAY);
+                if (i >= 0) ms[i] = System.nanoTime() - t;
+            }
+            log(rows, "recomputeForPatient", ms, -1, changed);
+            assertEquals(0, changed);
+
+            // Provider queries: the SQL and read-only pool MedProvider.query uses, without the binder hop
+            ProviderSql sql = new ProviderSql();
+            providerQuery(rows, "provider: all rows", sql,
+                    new ProviderSql.Shape(ProviderSql.PRESCRIPTIONS, false, null, null, null, false, false, false),
+                    null, null, null, null, rows);
+            providerQuery(rows, "provider: isActive = ?", sql,
+                    new ProviderSql.Shape(ProviderSql.PRESCRIPTIONS, false, null, "isActive = ?", null,
+                            false, false, false),
+                    null, new String[]{"1"}, null, null, expectedActive);
+            providerQuery(rows, "provider: keyset page of 50", sql,
+                    new ProviderSql.Shape(ProviderSql.PRESCRIPTIONS, false,
+                            new String[]{MedContract.Prescriptions._ID, MedContract.Prescriptions.COL_SHORT},
+                            null, null, true, true, false),
+                    null, null, (long) rows / 2, 50L, Math.min(50, rows - rows / 2));
+            providerQuery(rows, "provider: patient keyset page of 50", sql,
+                    new ProviderSql.Shape(ProviderSql.PRESCRIPTIONS, false, true,
+                            new String[]{MedContract.Prescriptions._ID, MedContract.Prescriptions.COL_SHORT},
+                            null, null, true, true, false),
+                    (long) Patient.DEFAULT_ID, null, (long) rows / 2, 50L, Math.min(50, rows - rows / 2));
+            providerQuery(rows, "provider: search page of 50", sql,
+                    new ProviderSql.Shape(ProviderSql.PRESCRIPTION_SEARCH, false, null, null, null,
+                            false, true, false),
+                    SearchQuery.match("ermou"), null, null, 50L, -1);
+
+            Log.i(TAG, String.format(Locale.ROOT, "rows=%d db file %.1f MiB", rows,
+                    ctx.getDatabasePath(NAME).length() / 1048576.0));
+            close();
+            ctx.deleteDatabase(NAME);
+        }
+    }
+
+    // Rows written through MedProvider.bulkInsert: a provider instance of its own writes to the test
+    // database (installed as the app instance), so meds.db is never touched
+    @Test
+    public void providerFill_matchesTheGenerator() throws Exception {
+        int rows = sizes("providerRows", "1000")[0];
+        LoadGenerator gen = new LoadGenerator(TODAY, TERMS);
+        open();
+        MedProvider provider = new MedProvider();
+        provider.attachInfo(ctx, null);
+        try {
+            long t0 = System.nanoTime();
+            assertEquals(rows, fillViaProvider(provider, gen, 0, rows));
+            log(rows, "fill via MedProvider.bulkInsert", t0, -1, rows);
+        } finally {
+            provider.shutdown();
+        }
+
+        try (Cursor c = reader.query("SELECT shortName, endDateEpoch, isActive FROM prescription_drugs " +
+                "ORDER BY uid", new Object[0])) {
+            assertEquals(rows, c.getCount());
+            for (int i = 0; c.moveToNext(); i++) {
+                PrescriptionDrug d = gen.drug(i);
+                assertEquals(MARKER + d.shortName, c.getString(0));
+                assertEquals(d.endDateEpoch, c.getLong(1));
+                assertEquals(d.isActive ? 1 : 0, c.getInt(2));
+            }
+        }
+    }
+
+    // ---- fills ----
+
+    // Rows [from, to) through PrescriptionDao.insertAll, one transaction per chunk
+    static void fillViaDao(AppDatabase db, LoadGenerator gen, int from, int to) throws Exception {
+        gen.generate(from, to, CHUNK, chunk -> db.runInTransaction(() -> {
+            db.prescriptionDao().insertAll(chunk);
+        }));
+    }
+
+    // Rows [from, to) through MedProvider.bulkInsert (one transaction per chunk), names prefixed with MARKER
+    static int fillViaProvider(MedProvider provider, LoadGenerator gen, int from, int to) throws Exception {
+        int[] inserted = {0};
+        gen.generate(from, to, CHUNK, chunk -> {
+            ContentValues[] values = new ContentValues[chunk.size()];
+            for (int i = 0; i < values.length; i++) values[i] = toValues(chunk.get(i));
+            inserted[0] += provider.bulkInsert(MedContract.Prescriptions.CONTENT_URI, values);
+        });
+        return inserted[0];
+    }
+
+    private static ContentValues toValues(PrescriptionDrug d) {
+        ContentValues v = new ContentValues();
+        v.put(MedContract.Prescriptions.COL_SHORT, MARKER + d.shortName);
+        v.put(MedContract.Prescriptions.COL_DESC, d.description);
+        v.put(MedContract.Prescriptions.COL_START, d.startDateEpoch);
+        v.put(MedContract.Prescriptions.COL_END, d.endDateEpoch);
+        v.put(MedContract.Prescriptions.COL_TERM, d.timeTermId);
+        v.put(MedContract.Prescriptions.COL_DOC, d.doctorName);
+        v.put(MedContract.Prescriptions.COL_LOC, d.doctorLocation);
+        v.put(MedContract.Prescriptions.COL_ACTIVE, d.isActive ? 1 : 0);
+        v.put(MedContract.Prescriptions.COL_TODAY, d.hasReceivedToday ? 1 : 0);
+        v.put(MedContract.Prescriptions.COL_LAST, d.lastDateReceivedEpoch);
+        return v;
+    }
+
+    // ---- helpers ----
+
+    // A fresh file with the app's setup (seeded terms 1-9 and patient, change/adherence/FTS triggers,
+    // pragmas), installed as the app instance so the term registry and MedProvider use it
+    private void open() {
+        ctx.deleteDatabase(NAME);
+        db = AppDatabase.openForTest(ctx, NAME);
+        previous = AppDatabase.replaceInstance(db);
+        db.getOpenHelper().getWritableDatabase(); // create and seed before the readers open the file
+        File path = ctx.getDatabasePath(NAME);
+        reader = new ReaderPool(path);
+    }
+
+    private void close() {
+        if (reader != null) reader.close();
+        if (db != null) {
+            AppDatabase.replaceInstance(previous);
+            db.close();
+        }
+        reader = null;
+        db = null;
+        previous = null;
+    }
+
+    private void providerQuery(int rows, String what, ProviderSql sql, ProviderSql.Shape shape, Object key,
+                               String[] selectionArgs, Long afterUid, Long limit, int expected) {
+        Object[] args = ProviderSql.args(shape, key, selectionArgs, afterUid, limit, null);
+        long[] ms = new long[RUNS];
+        int count = 0;
+        for (int i = -1; i < RUNS; i++) {
+            long t = System.nanoTime();
+            try (Cursor c = reader.query(sql.sql(shape), args)) {
+                count = 0;
+                while (c.moveToNext()) count++; // walk every window, as a client reading all rows would
+            }
+            if (i >= 0) ms[i] = System.nanoTime() - t;
+        }
+        if (expected >= 0) assertEquals(what, expected, count);
+        log(rows, what, ms, -1, count);
+    }
+
+    private static int[] sizes(String arg, String fallback) {
+        Bundle args = InstrumentationRegistry.getArguments();
+        String[] parts = args.getString(arg, fallback).split(",");
+        int[] out = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) out[i] = Integer.parseInt(parts[i].trim());
+        return out;
+    }
+
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        rt.gc();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    // One timed call
+    private static void log(int rows, String what, long startNanos, long heapBytes, long count) {
+        log(rows, what, new long[]{System.nanoTime() - startNanos}, heapBytes, count);
+    }
+
+    // Median of the runs, heap kept by the result (or -1), and a count (rows / chars)
+    private static void log(int rows, String what, long[] nanos, long heapBytes, long count) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        String heap = heapBytes < 0 ? "" : String.format(Locale.ROOT, ", heap +%.1f MiB", heapBytes / 1048576.0);
+        Log.i(TAG, String.format(Locale.ROOT, "rows=%d %s: %.1f ms%s (%d)", rows, what,
+                sorted[sorted.length / 2] / 1e6, heap, count));
+    }
+}
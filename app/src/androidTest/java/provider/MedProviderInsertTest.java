@@ -0,0 +1,97 @@
+package provider;
+
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.content.Context;
+import android.net.Uri;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.TimeZone;
+
+import data.AppDatabase;
+import data.PrescriptionDrug;
+import data.ReminderQueue;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumented check that rows inserted through MedProvider without isActive/hasReceivedToday get
+ * today's flags (the day rollover has already run and will not look at them again today).
+ */
+@RunWith(AndroidJUnit4.class)
+public class MedProviderInsertTest {
+
+    private static final String NAME = "provider-test.db";
+
+    private Context ctx;
+    private AppDatabase db;
+    private AppDatabase previous;
+    private MedProvider provider;
+    private long today;
+
+    @Before
+    public void setUp() {
+        ctx = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        ctx.deleteDatabase(NAME);
+        db = AppDatabase.openForTest(ctx, NAME);
+        previous = AppDatabase.replaceInstance(db);
+        provider = new MedProvider();
+        provider.attachInfo(ctx, null);
+        today = ReminderQueue.epochDay(System.currentTimeMillis(), TimeZone.getDefault());
+    }
+
+    @After
+    public void tearDown() {
+        provider.shutdown();
+        AppDatabase.replaceInstance(previous);
+        db.close();
+        ctx.deleteDatabase(NAME);
+    }
+
+    private PrescriptionDrug insert(long start, long end, Long lastReceived) {
+        ContentValues v = new ContentValues();
+        v.put(MedContract.Prescriptions.COL_SHORT, "Amoxil");
+        v.put(MedContract.Prescriptions.COL_START, start);
+        v.put(MedContract.Prescriptions.COL_END, end);
+        v.put(MedContract.Prescriptions.COL_TERM, 1);
+        if (lastReceived != null) v.put(MedContract.Prescriptions.COL_LAST, lastReceived);
+        Uri uri = provider.insert(MedContract.Prescriptions.CONTENT_URI, v);
+        assertNotNull(uri);
+        return db.prescriptionDao().getByIdSync((int) ContentUris.parseId(uri));
+    }
+
+    @Test
+    public void insertWithoutFlags_getsTodaysFlags() {
+        PrescriptionDrug current = insert(today - 1, today + 7, today);
+        assertTrue(current.isActive);
+        assertTrue(current.hasReceivedToday);
+
+        PrescriptionDrug future = insert(today + 1, today + 7, today - 1);
+        assertFalse(future.isActive);
+        assertFalse(future.hasReceivedToday);
+
+        PrescriptionDrug ended = insert(today - 7, today - 1, null);
+        assertFalse(ended.isActive);
+        assertFalse(ended.hasReceivedToday);
+    }
+
+    @Test
+    public void flagsTheClientSends_areKept() {
+        ContentValues v = new ContentValues();
+        v.put(MedContract.Prescriptions.COL_SHORT, "Zoloft");
+        v.put(MedContract.Prescriptions.COL_START, today);
+        v.put(MedContract.Prescriptions.COL_END, today);
+        v.put(MedContract.Prescriptions.COL_TERM, 1);
+        v.put(MedContract.Prescriptions.COL_ACTIVE, 0);
+        Uri uri = provider.insert(MedContract.Prescriptions.CONTENT_URI, v);
+        assertNotNull(uri);
+        assertFalse(db.prescriptionDao().getByIdSync((int) ContentUris.parseId(uri)).isActive);
+    }
+}
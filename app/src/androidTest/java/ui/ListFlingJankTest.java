@@ -0,0 +1,148 @@
+package ui;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.os.Build;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.core.app.ActivityScenario;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.mymedapp.R;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import data.AppDatabase;
+import data.PrescriptionDrug;
+import data.RowChanges;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumented jank check: flings the main list from top to bottom across 10k active rows
+ * and reads the FrameMetrics counters of MainActivity's window.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ListFlingJankTest {
+
+    private static final String TAG = "FRAMES";
+    private static final String NAME = "jank-test.db";
+    private static final int ROWS = 10_000;
+    private static final String MARKER = "JankTest ";
+    private static final long TODAY = java.util.concurrent.TimeUnit.MILLISECONDS.toDays(System.currentTimeMillis());
+
+    // Generous bounds so emulators pass; regressions (e.g. allocation-heavy binds) blow well past them
+    private static final double MAX_JANK_RATIO = 0.25;
+    private static final long FLING_TIMEOUT_MS = 120_000;
+
+    private Context ctx;
+    private AppDatabase db;
+    private AppDatabase previous; // the app's own database, put back in tearDown
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue("FrameMetrics needs API 24", Build.VERSION.SDK_INT >= Build.VERSION_CODES.N);
+        ctx = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        // Own file, seeded like a fresh install: the rows never touch meds.db
+        ctx.deleteDatabase(NAME);
+        db = AppDatabase.openForTest(ctx, NAME);
+        previous = AppDatabase.replaceInstance(db);
+
+        int termId = firstTermId();
+        List<PrescriptionDrug> batch = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            PrescriptionDrug d = new PrescriptionDrug();
+            d.shortName = MARKER + i;
+            d.description = "";
+            d.startDateEpoch = TODAY - 1;
+            d.endDateEpoch = TODAY + 30;
+            d.timeTermId = termId;
+            d.isActive = true;
+            d.hasReceivedToday = (i % 3 == 0); // exercise both row states
+            batch.add(d);
+        }
+        RowChanges.get().publish(RowChanges.STRUCTURAL, db.prescriptionDao().insertAll(batch));
+    }
+
+    @After
+    public void tearDown() {
+        if (db == null) return;
+        AppDatabase.replaceInstance(previous);
+        db.close();
+        ctx.deleteDatabase(NAME);
+    }
+
+    @Test
+    public void flingAcross10kRows_staysWithinFrameBudget() {
+        try (ActivityScenario<MainActivity> scenario = ActivityScenario.launch(MainActivity.class)) {
+            waitForItems(scenario, 1);
+            scenario.onActivity(a -> a.frameStats().reset()); // ignore the first layout
+
+            // Fling down until the last row of the (paged, growing) list is on screen
+            AtomicBoolean atEnd = new AtomicBoolean(false);
+            AtomicInteger count = new AtomicInteger();
+            long deadline = SystemClock.uptimeMillis() + FLING_TIMEOUT_MS;
+            while (!atEnd.get() && SystemClock.uptimeMillis() < deadline) {
+                scenario.onActivity(a -> {
+                    RecyclerView rv = a.findViewById(R.id.recycler);
+                    count.set(rv.getAdapter() == null ? 0 : rv.getAdapter().getItemCount());
+                    if (count.get() >= ROWS && !rv.canScrollVertically(1)) atEnd.set(true);
+                    else rv.fling(0, 12_000);
+                });
+                SystemClock.sleep(500); // let the fling run and the next pages load
+            }
+
+            long[] s = new long[5];
+            double[] ratio = new double[1];
+            String[] summary = new String[1];
+            scenario.onActivity(a -> {
+                FrameStats fs = a.frameStats();
+                System.arraycopy(fs.snapshot(), 0, s, 0, s.length);
+                ratio[0] = fs.jankRatio();
+                summary[0] = fs.summary();
+            });
+            Log.i(TAG, "fling across " + count.get() + " rows: " + summary[0]);
+
+            assertTrue("did not reach the end of the list", atEnd.get());
+            assertTrue("no frames recorded", s[0] > 0);
+            assertEquals("frozen frames", 0, s[2]);
+            assertTrue("jank ratio " + ratio[0] + " > " + MAX_JANK_RATIO, ratio[0] <= MAX_JANK_RATIO);
+        }
+    }
+
+    // ---- helpers ----
+
+    // A seeded term id (seeded when the database file is created)
+    private int firstTermId() {
+        try (Cursor c = db.query("SELECT id FROM time_terms ORDER BY sortOrder LIMIT 1", null)) {
+            assertTrue("time_terms were not seeded", c.moveToFirst());
+            return c.getInt(0);
+        }
+    }
+
+    private static void waitForItems(ActivityScenario<MainActivity> scenario, int n) {
+        AtomicInteger count = new AtomicInteger();
+        long deadline = SystemClock.uptimeMillis() + 10_000;
+        do {
+            scenario.onActivity(a -> {
+                RecyclerView rv = a.findViewById(R.id.recycler);
+                count.set(rv.getAdapter() == null ? 0 : rv.getAdapter().getItemCount());
+            });
+            if (count.get() >= n) return;
+            SystemClock.sleep(100);
+        } while (SystemClock.uptimeMillis() < deadline);
+        fail("list never loaded");
+    }
+}
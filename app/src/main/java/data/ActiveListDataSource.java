@@ -0,0 +1,151 @@
+package data;
+
+import androidx.annotation.NonNull;
+import androidx.paging.DataSource;
+import androidx.paging.ItemKeyedDataSource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Keyset-paged source for one patient's ACTIVE list, ordered by (term sortOrder, uid).
+// Each page walks the time terms in order and seeks inside one term at a time,
+// so a page costs O(page size) no matter how many rows the table has.
+public class ActiveListDataSource extends ItemKeyedDataSource<ActiveListDataSource.Key, PrescriptionWithTerm> {
+
+    // Position of an item in the list: its term and uid
+    public static final class Key {
+        final int termOrder;
+        final int termId;
+        final int uid;
+
+        Key(int termOrder, int termId, int uid) {
+            this.termOrder = termOrder;
+            this.termId = termId;
+            this.uid = uid;
+        }
+    }
+
+    private final PrescriptionDao dao;
+    private final int patientId;
+    private volatile List<TimeTerm> terms; // registry snapshot, ordered by (sortOrder, id); set on first page
+
+    // Invalidate this source on structural row changes (Paging then creates a fresh one).
+    // In-place changes keep the loaded pages; the screen patches those rows from a delta instead.
+    // Term edits arrive as RowChanges.publishAll (see TimeTermLoader.attach).
+    private final AtomicBoolean registered = new AtomicBoolean(false);
+    private final RowChanges.ListListener listener = new Listener(this);
+
+    ActiveListDataSource(AppDatabase db, int patientId) {
+        this.dao = db.prescriptionDao();
+        this.patientId = patientId;
+        addInvalidatedCallback(() -> RowChanges.get().removeListListener(listener));
+    }
+
+    @Override
+    public void loadInitial(@NonNull LoadInitialParams<Key> params,
+                            @NonNull LoadInitialCallback<PrescriptionWithTerm> callback) {
+        registerObserverIfNeeded();
+        terms = TimeTermRegistry.loaded().ordered;
+
+        Key k = params.requestedInitialKey;
+        List<PrescriptionWithTerm> page = (k == null)
+                ? loadForward(0, Integer.MIN_VALUE, params.requestedLoadSize)
+                : loadForward(k, k.uid - 1, params.requestedLoadSize); // start at the key itself
+        callback.onResult(page);
+    }
+
+    @Override
+    public void loadAfter(@NonNull LoadParams<Key> params, @NonNull LoadCallback<PrescriptionWithTerm> callback) {
+        Key k = params.key;
+        callback.onResult(loadForward(k, k.uid, params.requestedLoadSize));
+    }
+
+    @Override
+    public void loadBefore(@NonNull LoadParams<Key> params, @NonNull LoadCallback<PrescriptionWithTerm> callback) {
+        Key k = params.key;
+        int idx = termIndex(k);
+        boolean sameTerm = idx < terms.size() && terms.get(idx).id == k.termId;
+        // If the key's term is gone, termIndex points past it; start at the end of the term before
+        if (!sameTerm) idx--;
+        callback.onResult(loadBackward(idx, sameTerm ? k.uid : Integer.MAX_VALUE, params.requestedLoadSize));
+    }
+
+    @NonNull @Override
+    public Key getKey(@NonNull PrescriptionWithTerm item) {
+        return new Key(item.termOrder, item.termId, item.drug.uid);
+    }
+
+    // ---- helpers ----
+
+    // Rows after 'afterUid' in the key's term; if that term is gone, start at the next one from its beginning
+    private List<PrescriptionWithTerm> loadForward(Key k, int afterUid, int limit) {
+        int idx = termIndex(k);
+        boolean sameTerm = idx < terms.size() && terms.get(idx).id == k.termId;
+        return loadForward(idx, sameTerm ? afterUid : Integer.MIN_VALUE, limit);
+    }
+
+    // Rows after 'afterUid' in terms[from], then from the following terms until 'limit' is reached
+    private List<PrescriptionWithTerm> loadForward(int from, int afterUid, int limit) {
+        List<PrescriptionWithTerm> out = new ArrayList<>(limit);
+        for (int i = from; i < terms.size() && out.size() < limit; i++) {
+            int after = (i == from) ? afterUid : Integer.MIN_VALUE;
+            out.addAll(dao.activePageAfter(patientId, terms.get(i).id, after, limit - out.size()));
+        }
+        return out;
+    }
+
+    // Rows before 'beforeUid' in terms[from], then from the previous terms; returned in list order
+    private List<PrescriptionWithTerm> loadBackward(int from, int beforeUid, int limit) {
+        List<PrescriptionWithTerm> out = new ArrayList<>(limit);
+        for (int i = from; i >= 0 && out.size() < limit; i--) {
+            int before = (i == from) ? beforeUid : Integer.MAX_VALUE;
+            out.addAll(dao.activePageBefore(patientId, terms.get(i).id, before, limit - out.size()));
+        }
+        Collections.reverse(out);
+        return out;
+    }
+
+    // Index of the key's term; if it no longer exists, the first term ordered after it
+    private int termIndex(Key k) {
+        for (int i = 0; i < terms.size(); i++) {
+            TimeTerm t = terms.get(i);
+            if (t.id == k.termId) return i;
+            if (t.sortOrder > k.termOrder) return i;
+        }
+        return terms.size();
+    }
+
+    private void registerObserverIfNeeded() {
+        if (registered.compareAndSet(false, true)) {
+            RowChanges.get().addListListener(listener);
+        }
+    }
+
+    // Weak: a source dropped with its factory (patient switched, search shown) may never see a
+    // structural change, and RowChanges lives as long as the process
+    private static final class Listener extends RowChanges.WeakListListener<ActiveListDataSource> {
+        Listener(ActiveListDataSource source) { super(source); }
+
+        @Override protected void onRowsChanged(ActiveListDataSource source, int kind, int[] uids) {
+            if (kind == RowChanges.STRUCTURAL) source.invalidate();
+        }
+    }
+
+    // Creates a fresh source (same patient) for every invalidation
+    public static class Factory extends DataSource.Factory<Key, PrescriptionWithTerm> {
+        private final AppDatabase db;
+        private final int patientId;
+
+        public Factory(AppDatabase db, int patientId) {
+            this.db = db;
+            this.patientId = patientId;
+        }
+
+        @NonNull @Override
+        public DataSource<Key, PrescriptionWithTerm> create() {
+            return new ActiveListDataSource(db, patientId);
+        }
+    }
+}
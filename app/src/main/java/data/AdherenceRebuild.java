@@ -0,0 +1,51 @@
+package data;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+// Safety net for the trigger-maintained adherence counters: compares adherence_stats with a full
+// recount and, only if they differ, rewrites the table in one transaction. Counters can drift if a
+// write bypassed the triggers (foreign keys off during a migration, a restored file, a bug).
+public final class AdherenceRebuild {
+    private AdherenceRebuild() {}
+
+    private static final String STORED = "SELECT uid, month, courseDays, taken FROM adherence_stats";
+
+    // (uid, month) keys whose row is wrong, missing or extra
+    private static final String DRIFT = "SELECT COUNT(*) FROM (" +
+            "SELECT uid, month FROM (" + STORED + " EXCEPT " + AdherenceStats.RECOUNT + ") UNION " +
+            "SELECT uid, month FROM (" + AdherenceStats.RECOUNT + " EXCEPT " + STORED + "))";
+
+    // Check the counters and repair them if 'repair'; returns the number of drifted (uid, month) rows.
+    // The check is a single read (no write lock); the repair re-checks inside its transaction.
+    public static int run(Context ctx, boolean repair) {
+        return run(AppDatabase.getInstance(ctx), repair);
+    }
+
+    static int run(AppDatabase db, boolean repair) {
+        SupportSQLiteDatabase sql = db.getOpenHelper().getWritableDatabase();
+        int drift = drift(sql);
+        if (drift == 0 || !repair) return drift;
+        db.runInTransaction(() -> {
+            if (drift(sql) == 0) return;
+            rebuild(sql);
+        });
+        DbTuning.afterWrite(sql, drift);
+        return drift;
+    }
+
+    // Refill adherence_stats from scratch (caller holds a transaction; migrations reuse it)
+    static void rebuild(SupportSQLiteDatabase sql) {
+        sql.execSQL(AdherenceStats.SEED_CALENDAR); // no-op unless the calendar is empty
+        sql.execSQL("DELETE FROM adherence_stats");
+        sql.execSQL("INSERT INTO adherence_stats (uid, month, courseDays, taken) " + AdherenceStats.RECOUNT);
+    }
+
+    static int drift(SupportSQLiteDatabase sql) {
+        try (Cursor c = sql.query(DRIFT)) {
+            return c.moveToFirst() ? c.getInt(0) : 0;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package data;
+
+import androidx.room.Entity;
+
+// Adherence counters of one prescription in one calendar month, kept by triggers
+// (see AdherenceStats). No FK: the delete trigger removes a prescription's rows.
+@Entity(tableName = "adherence_stats", primaryKeys = {"uid", "month"})
+public class AdherenceStat {
+
+    public int uid;            // PrescriptionDrug.uid
+    public int month;          // yyyymm
+    public int courseDays;     // days of the course in the month
+    public int taken;          // distinct days with a logged intake
+
+    public AdherenceStat(int uid, int month, int courseDays, int taken) {
+        this.uid = uid;
+        this.month = month;
+        this.courseDays = courseDays;
+        this.taken = taken;
+    }
+}
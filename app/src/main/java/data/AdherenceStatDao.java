@@ -0,0 +1,31 @@
+package data;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Dao;
+import androidx.room.Query;
+
+import java.util.List;
+
+// Reads of the trigger-maintained adherence counters (writes: AdherenceStats triggers, AdherenceRebuild)
+@Dao
+public interface AdherenceStatDao {
+
+    // One drug, months [fromMonth, toMonth] (yyyymm) on the primary key; months without doses are absent
+    @Query("SELECT * FROM adherence_stats " +
+            "WHERE uid = :uid AND month BETWEEN :fromMonth AND :toMonth ORDER BY month")
+    List<AdherenceStat> forDrug(int uid, int fromMonth, int toMonth);
+
+    // One patient's totals per month in [fromMonth, toMonth]
+    @Query("SELECT s.month AS month, SUM(s.courseDays) AS courseDays, SUM(s.taken) AS taken " +
+            "FROM prescription_drugs p JOIN adherence_stats s ON s.uid = p.uid " +
+            "WHERE p.patientId = :patientId AND s.month BETWEEN :fromMonth AND :toMonth " +
+            "GROUP BY s.month ORDER BY s.month")
+    List<MonthTotals> totalsByMonth(int patientId, int fromMonth, int toMonth);
+
+    // Result row: one month summed over drugs
+    class MonthTotals {
+        @ColumnInfo(name = "month")      public int month;
+        @ColumnInfo(name = "courseDays") public int courseDays;
+        @ColumnInfo(name = "taken")      public int taken;
+    }
+}
@@ -0,0 +1,154 @@
+package data;
+
+// Adherence counters per (prescription, calendar month), kept in adherence_stats by SQLite triggers
+// so every write path (repository, provider, bulk import, cascades) keeps them current:
+//   courseDays = days of the course [startDateEpoch, endDateEpoch] in that month
+//   taken      = distinct days in that month with a logged intake (same rule as countDaysTaken)
+// The schema has no dosing frequency: a course day stands for one expected dose, so taken/courseDays
+// is a per-day rate, not a per-dose one.
+// A stats screen reads O(months) rows instead of scanning the intake history.
+// AdherenceRebuild compares them with a full recount (RECOUNT) and repairs drift.
+// No conflict clauses in trigger bodies: the outer statement's (OR ABORT from Room) would win.
+// Plain Java (no android.* imports) so the bench module can compile it.
+public final class AdherenceStats {
+    private AdherenceStats() {}
+
+    // calendar_months covers 1970-01 .. 2199-12; course days outside it are not counted
+    public static final int FIRST_YEAR = 1970;
+    public static final int CALENDAR_MONTHS = 230 * 12;
+
+    // One row per month: first and last epoch day (range lookups go through index_calendar_months_firstDay)
+    public static final String SEED_CALENDAR = "WITH RECURSIVE m(i) AS " +
+            "(SELECT 0 UNION ALL SELECT i + 1 FROM m WHERE i < " + (CALENDAR_MONTHS - 1) + ") " +
+            "INSERT INTO calendar_months (month, firstDay, lastDay) " +
+            "SELECT CAST(strftime('%Y%m', '" + FIRST_YEAR + "-01-01', '+' || i || ' months') AS INTEGER), " +
+            "CAST(julianday('" + FIRST_YEAR + "-01-01', '+' || i || ' months') - 2440587.5 AS INTEGER), " +
+            "CAST(julianday('" + FIRST_YEAR + "-01-01', '+' || (i + 1) || ' months') - 2440587.5 AS INTEGER) - 1 " +
+            "FROM m WHERE NOT EXISTS (SELECT 1 FROM calendar_months)";
+
+    // Every counter recomputed from prescription_drugs and dose_intakes: (uid, month, courseDays, taken)
+    public static final String RECOUNT = "SELECT uid, month, SUM(courseDays) AS courseDays, SUM(taken) AS taken FROM (" +
+            "SELECT p.uid AS uid, c.month AS month, " +
+            days("c", "p") + " AS courseDays, 0 AS taken " +
+            "FROM prescription_drugs p JOIN calendar_months c ON " + inCourse("c", "p") + " " +
+            "UNION ALL " +
+            "SELECT uid, " + monthOf("epochDay") + " AS month, 0, COUNT(DISTINCT epochDay) " +
+            "FROM dose_intakes GROUP BY uid, month" +
+            ") GROUP BY uid, month";
+
+    // Triggers (CREATE ... IF NOT EXISTS; run on every open like the other trigger sets)
+    public static final String[] TRIGGERS = {
+            // New course: one row per month, course days only (a new uid has no rows or intakes yet;
+            // one statement per row keeps bulk imports cheap)
+            "CREATE TRIGGER IF NOT EXISTS adherence_stats_AFTER_INSERT AFTER INSERT ON `prescription_drugs` BEGIN " +
+                    "INSERT INTO adherence_stats (uid, month, courseDays, taken) " +
+                    "SELECT NEW.uid, c.month, " + days("c", "NEW") + ", 0 FROM calendar_months c " +
+                    "WHERE " + inCourse("c", "NEW") + " AND NOT EXISTS (SELECT 1 FROM adherence_stats s " +
+                    "WHERE s.uid = NEW.uid AND s.month = c.month); END",
+            // Dates edited: take the old course out, put the new one in
+            "CREATE TRIGGER IF NOT EXISTS adherence_stats_AFTER_UPDATE AFTER UPDATE OF startDateEpoch, endDateEpoch " +
+                    "ON `prescription_drugs` WHEN OLD.startDateEpoch <> NEW.startDateEpoch " +
+                    "OR OLD.endDateEpoch <> NEW.endDateEpoch BEGIN " +
+                    courseDays("OLD", "-") + " " + addCourse("NEW") + " " + dropEmpty("NEW.uid") + " END",
+            // Deleted prescription (its intakes go by FK cascade)
+            "CREATE TRIGGER IF NOT EXISTS adherence_stats_AFTER_DELETE AFTER DELETE ON `prescription_drugs` BEGIN " +
+                    "DELETE FROM adherence_stats WHERE uid = OLD.uid; END",
+            // First intake of a day (marking twice on one day is still one day taken)
+            "CREATE TRIGGER IF NOT EXISTS adherence_stats_intake_AFTER_INSERT AFTER INSERT ON `dose_intakes` " +
+                    "WHEN NOT EXISTS (SELECT 1 FROM dose_intakes WHERE uid = NEW.uid AND epochDay = NEW.epochDay " +
+                    "AND id <> NEW.id) BEGIN " +
+                    "INSERT INTO adherence_stats (uid, month, courseDays, taken) " +
+                    "SELECT NEW.uid, " + monthOf("NEW.epochDay") + ", 0, 0 WHERE NOT EXISTS (SELECT 1 FROM adherence_stats " +
+                    "WHERE uid = NEW.uid AND month = " + monthOf("NEW.epochDay") + "); " +
+                    "UPDATE adherence_stats SET taken = taken + 1 " +
+                    "WHERE uid = NEW.uid AND month = " + monthOf("NEW.epochDay") + "; END",
+            // Last intake of a day gone
+            "CREATE TRIGGER IF NOT EXISTS adherence_stats_intake_AFTER_DELETE AFTER DELETE ON `dose_intakes` " +
+                    "WHEN NOT EXISTS (SELECT 1 FROM dose_intakes WHERE uid = OLD.uid AND epochDay = OLD.epochDay) BEGIN " +
+                    "UPDATE adherence_stats SET taken = taken - 1 " +
+                    "WHERE uid = OLD.uid AND month = " + monthOf("OLD.epochDay") + "; " +
+                    dropEmpty("OLD.uid") + " END",
+    };
+
+    // Month key (yyyymm) of an epoch day; same value as monthOf() in SQL
+    public static int month(long epochDay) {
+        // Days-to-civil (H. Hinnant), proleptic Gregorian like strftime; java.time needs API 26
+        long z = epochDay + 719468;
+        long era = floorDiv(z, 146097);
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        long m = mp < 10 ? mp + 3 : mp - 9;
+        long y = yoe + era * 400 + (m <= 2 ? 1 : 0);
+        return (int) (y * 100 + m);
+    }
+
+    // First epoch day of a yyyymm month
+    public static long firstDay(int month) {
+        long y = month / 100, m = month % 100;
+        y -= m <= 2 ? 1 : 0;
+        long era = floorDiv(y, 400);
+        long yoe = y - era * 400;
+        long doy = (153 * (m > 2 ? m - 3 : m + 9) + 2) / 5;
+        long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - 719468;
+    }
+
+    // Month key after 'months' more months (negative goes back)
+    public static int plusMonths(int month, int months) {
+        long i = (month / 100) * 12L + month % 100 - 1 + months;
+        long y = floorDiv(i, 12);
+        return (int) (y * 100 + (i - y * 12) + 1);
+    }
+
+    // Days of [fromDay, toDay] a dose was due: inside the course [startDay, endDay] and not after
+    // today (later days can't be missed yet). {first, last}, or null when there are none.
+    public static long[] dueRange(long fromDay, long toDay, long startDay, long endDay, long today) {
+        long first = Math.max(fromDay, startDay);
+        long last = Math.min(Math.min(toDay, endDay), today);
+        return last < first ? null : new long[]{first, last};
+    }
+
+    // Math.floorDiv is API 24
+    private static long floorDiv(long a, long b) {
+        return a >= 0 ? a / b : (a - b + 1) / b;
+    }
+
+    // yyyymm of an epoch-day expression, in SQL
+    static String monthOf(String epochDay) {
+        return "CAST(strftime('%Y%m', " + epochDay + " * 86400, 'unixepoch') AS INTEGER)";
+    }
+
+    // Calendar rows 'c' overlapping the course of row 'p' (firstDay > start - 31: index range on firstDay)
+    private static String inCourse(String c, String p) {
+        return c + ".firstDay > " + p + ".startDateEpoch - 31 AND " + c + ".firstDay <= " + p + ".endDateEpoch " +
+                "AND " + c + ".lastDay >= " + p + ".startDateEpoch";
+    }
+
+    // Days of the course of row 'p' in calendar month 'c'
+    private static String days(String c, String p) {
+        return "MIN(" + c + ".lastDay, " + p + ".endDateEpoch) - MAX(" + c + ".firstDay, " + p + ".startDateEpoch) + 1";
+    }
+
+    // Make sure the course's months have rows, then add its days
+    private static String addCourse(String row) {
+        return "INSERT INTO adherence_stats (uid, month, courseDays, taken) " +
+                "SELECT " + row + ".uid, c.month, 0, 0 FROM calendar_months c WHERE " + inCourse("c", row) + " " +
+                "AND NOT EXISTS (SELECT 1 FROM adherence_stats s WHERE s.uid = " + row + ".uid AND s.month = c.month); " +
+                courseDays(row, "+");
+    }
+
+    // Add (or subtract) a course's days per month; rows are found on the (uid, month) key
+    private static String courseDays(String row, String sign) {
+        return "UPDATE adherence_stats SET courseDays = courseDays " + sign + " IFNULL((" +
+                "SELECT " + days("c", row) + " " +
+                "FROM calendar_months c WHERE c.month = adherence_stats.month AND " + inCourse("c", row) + "), 0) " +
+                "WHERE uid = " + row + ".uid AND month BETWEEN " + monthOf(row + ".startDateEpoch") +
+                " AND " + monthOf(row + ".endDateEpoch") + ";";
+    }
+
+    private static String dropEmpty(String uid) {
+        return "DELETE FROM adherence_stats WHERE uid = " + uid + " AND courseDays = 0 AND taken = 0;";
+    }
+}
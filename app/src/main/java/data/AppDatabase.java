@@ -2,53 +2,320 @@ package data;
 
 import android.content.Context;
 import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
 import androidx.room.Database;
+import androidx.room.InvalidationTracker;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
+import androidx.room.migration.Migration;
 import androidx.sqlite.db.SupportSQLiteDatabase;
-import java.util.concurrent.Executors;
+import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory;
 
-@Database(entities = {PrescriptionDrug.class, TimeTerm.class}, version = 1, exportSchema = false)
+import java.util.Set;
+
+@Database(entities = {PrescriptionDrug.class, TimeTerm.class, DoseIntake.class, PrescriptionFts.class,
+        GeocodeEntry.class, PrescriptionChange.class, Patient.class, AdherenceStat.class, CalendarMonth.class},
+        version = 12, exportSchema = false)
 public abstract class AppDatabase extends RoomDatabase {
 
+    // Database file name (also opened read-only by ReaderPool)
+    static final String NAME = "meds.db";
+
+    // Tables announced on the ChangeBus
+    static final String[] TABLES = {"prescription_drugs", "time_terms", "dose_intakes", "patients"};
+
+    // Default time terms, written when the database file is created
+    static final String SEED_TIME_TERMS = "INSERT INTO time_terms (id, code, sortOrder, minuteOfDay) VALUES " +
+            "(1, 'before-breakfast', 1, 450), (2, 'at-breakfast', 2, 480), (3, 'after-breakfast', 3, 510), " +
+            "(4, 'before-lunch', 4, 750), (5, 'at-lunch', 5, 780), (6, 'after-lunch', 6, 810), " +
+            "(7, 'before-dinner', 7, 1170), (8, 'at-dinner', 8, 1200), (9, 'after-dinner', 9, 1230)";
+
+    // The patient every pre-v9 row belongs to (and the first one on a fresh install)
+    static final String SEED_PATIENT = "INSERT OR IGNORE INTO patients (id, name) VALUES (" +
+            Patient.DEFAULT_ID + ", '" + Patient.DEFAULT_NAME + "')";
+
     // Single Room DB instance for the app
     private static volatile AppDatabase INSTANCE;
 
+    private boolean observed; // registry and ChangeBus observers added (see install)
+
+    // v1 -> v2: indices used by the incremental day rollover
+    static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_prescription_drugs_isActive_startDateEpoch` " +
+                    "ON `prescription_drugs` (`isActive`, `startDateEpoch`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_prescription_drugs_isActive_endDateEpoch` " +
+                    "ON `prescription_drugs` (`isActive`, `endDateEpoch`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_prescription_drugs_hasReceivedToday_lastDateReceivedEpoch` " +
+                    "ON `prescription_drugs` (`hasReceivedToday`, `lastDateReceivedEpoch`)");
+        }
+    };
+
+    // v2 -> v3: append-only dose intake log
+    static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `dose_intakes` (" +
+                    "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `uid` INTEGER NOT NULL, " +
+                    "`epochDay` INTEGER NOT NULL, `timeTermId` INTEGER NOT NULL, `timestamp` INTEGER NOT NULL, " +
+                    "FOREIGN KEY(`uid`) REFERENCES `prescription_drugs`(`uid`) ON UPDATE NO ACTION ON DELETE CASCADE)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_dose_intakes_uid_epochDay` " +
+                    "ON `dose_intakes` (`uid`, `epochDay`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_dose_intakes_epochDay_uid` " +
+                    "ON `dose_intakes` (`epochDay`, `uid`)");
+        }
+    };
+
+    // v3 -> v4: index for keyset-paged active list
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_prescription_drugs_isActive_timeTermId` " +
+                    "ON `prescription_drugs` (`isActive`, `timeTermId`)");
+        }
+    };
+
+    // v4 -> v5: full-text index over prescriptions (external content, filled from existing rows)
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `prescription_fts` USING FTS4(" +
+                    "`shortName` TEXT, `description` TEXT, `doctorName` TEXT, `doctorLocation` TEXT, " +
+                    "tokenize=unicode61, content=`prescription_drugs`, prefix=`2,3`)");
+            createFtsTriggers(db);
+            db.execSQL("INSERT INTO prescription_fts(prescription_fts) VALUES('rebuild')");
+        }
+    };
+
+    // v5 -> v6: dose time per term (reminders); seeded terms get their usual times
+    static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `time_terms` ADD COLUMN `minuteOfDay` INTEGER NOT NULL DEFAULT " + TimeTerm.DEFAULT_MINUTE);
+            db.execSQL("UPDATE time_terms SET minuteOfDay = CASE code " +
+                    "WHEN 'before-breakfast' THEN 450 WHEN 'at-breakfast' THEN 480 WHEN 'after-breakfast' THEN 510 " +
+                    "WHEN 'before-lunch' THEN 750 WHEN 'at-lunch' THEN 780 WHEN 'after-lunch' THEN 810 " +
+                    "WHEN 'before-dinner' THEN 1170 WHEN 'at-dinner' THEN 1200 WHEN 'after-dinner' THEN 1230 " +
+                    "ELSE minuteOfDay END");
+        }
+    };
+
+    // v6 -> v7: persistent geocoder cache for the doctor map
+    static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `geocode_cache` (`key` TEXT NOT NULL, `lat` REAL NOT NULL, " +
+                    "`lng` REAL NOT NULL, `found` INTEGER NOT NULL, `resolvedAt` INTEGER NOT NULL, PRIMARY KEY(`key`))");
+        }
+    };
+
+    // v7 -> v8: change sequence per prescription (archive exports write only what changed).
+    // Existing rows get seq = uid; with no high-water mark yet, the first export is a full one anyway.
+    static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `prescription_changes` (`uid` INTEGER NOT NULL, " +
+                    "`seq` INTEGER NOT NULL, `deleted` INTEGER NOT NULL, PRIMARY KEY(`uid`))");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_prescription_changes_seq` ON `prescription_changes` (`seq`)");
+            db.execSQL("INSERT OR IGNORE INTO prescription_changes (uid, seq, deleted) " +
+                    "SELECT uid, uid, 0 FROM prescription_drugs");
+            createChangeTriggers(db);
+        }
+    };
+
+    // v8 -> v9: patients; every existing prescription goes to the default patient.
+    // ADD COLUMN ... REFERENCES keeps the table (and its FTS index) as is instead of copying it;
+    // SQLite only accepts a non-null default there while foreign keys are off, which they are until onOpen.
+    // Keyset/list queries now filter on patientId first, so the (isActive, timeTermId) index leads with it.
+    static final Migration MIGRATION_8_9 = new Migration(8, 9) {
+        @Override public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `patients` (" +
+                    "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `name` TEXT NOT NULL)");
+            db.execSQL(SEED_PATIENT);
+            db.execSQL("ALTER TABLE `prescription_drugs` ADD COLUMN `patientId` INTEGER NOT NULL DEFAULT " +
+                    Patient.DEFAULT_ID + " REFERENCES `patients`(`id`) ON UPDATE NO ACTION ON DELETE CASCADE");
+            db.execSQL("DROP INDEX IF EXISTS `index_prescription_drugs_isActive_timeTermId`");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_prescription_drugs_patientId_isActive_timeTermId` " +
+                    "ON `prescription_drugs` (`patientId`, `isActive`, `timeTermId`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_prescription_drugs_patientId` " +
+                    "ON `prescription_drugs` (`patientId`)");
+        }
+    };
+
+    // v9 -> v10: per-month adherence counters (see AdherenceStats), filled from the existing history
+    static final Migration MIGRATION_9_10 = new Migration(9, 10) {
+        @Override public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `calendar_months` (`month` INTEGER NOT NULL, " +
+                    "`firstDay` INTEGER NOT NULL, `lastDay` INTEGER NOT NULL, PRIMARY KEY(`month`))");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_calendar_months_firstDay` ON `calendar_months` (`firstDay`)");
+            createAdherenceStats(db);
+        }
+    };
+
+    // v10 -> v11: the change sequence moves on content edits only, not on day-state flag writes
+    static final Migration MIGRATION_10_11 = new Migration(10, 11) {
+        @Override public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("DROP TRIGGER IF EXISTS prescription_changes_AFTER_UPDATE");
+            createChangeTriggers(db);
+        }
+    };
+
+    // v11 -> v12: adherence_stats.expected is renamed courseDays (no dosing frequency in the schema).
+    // The counters are derived data, so the table and its triggers are rebuilt rather than copied
+    // (RENAME COLUMN needs SQLite 3.25, API 30).
+    // Newest migration: it also puts back the FTS triggers Room dropped (see createFtsTriggers).
+    static final Migration MIGRATION_11_12 = new Migration(11, 12) {
+        @Override public void migrate(@NonNull SupportSQLiteDatabase db) {
+            for (String name : new String[]{"adherence_stats_AFTER_INSERT", "adherence_stats_AFTER_UPDATE",
+                    "adherence_stats_AFTER_DELETE", "adherence_stats_intake_AFTER_INSERT",
+                    "adherence_stats_intake_AFTER_DELETE"}) {
+                db.execSQL("DROP TRIGGER IF EXISTS " + name);
+            }
+            db.execSQL("DROP TABLE IF EXISTS `adherence_stats`");
+            createAdherenceStats(db);
+            createFtsTriggers(db);
+        }
+    };
+
+    // adherence_stats filled from the existing history, then kept by its triggers
+    private static void createAdherenceStats(SupportSQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS `adherence_stats` (`uid` INTEGER NOT NULL, `month` INTEGER NOT NULL, " +
+                "`courseDays` INTEGER NOT NULL, `taken` INTEGER NOT NULL, PRIMARY KEY(`uid`, `month`))");
+        AdherenceRebuild.rebuild(db);
+        createAdherenceTriggers(db);
+    }
+
+    // Keep adherence_stats current on every prescription/intake write
+    static void createAdherenceTriggers(SupportSQLiteDatabase db) {
+        for (String trigger : AdherenceStats.TRIGGERS) db.execSQL(trigger);
+    }
+
+    // Columns whose update counts as a change. isActive, hasReceivedToday and lastDateReceivedEpoch are
+    // day state (DayRollover, "received" taps) that an import recomputes from the dates and intakes.
+    static final String CHANGE_COLUMNS =
+            "shortName, description, startDateEpoch, endDateEpoch, timeTermId, doctorName, doctorLocation, patientId";
+
+    // Bump the change sequence of a row on every insert/delete of prescription_drugs and on updates
+    // that set a CHANGE_COLUMNS column. Writes go to the side table (not back into prescription_drugs),
+    // so FTS triggers don't fire twice. MAX(seq) is one step down index_prescription_changes_seq.
+    static void createChangeTriggers(SupportSQLiteDatabase db) {
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS prescription_changes_AFTER_INSERT " +
+                "AFTER INSERT ON `prescription_drugs` BEGIN " + bumpChange("NEW", 0) + " END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS prescription_changes_AFTER_UPDATE " +
+                "AFTER UPDATE OF " + CHANGE_COLUMNS + " ON `prescription_drugs` BEGIN " + bumpChange("NEW", 0) + " END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS prescription_changes_AFTER_DELETE " +
+                "AFTER DELETE ON `prescription_drugs` BEGIN " + bumpChange("OLD", 1) + " END");
+    }
+
+    // Update-then-insert with no conflict clause, so it works under any outer OR ABORT/OR FAIL
+    private static String bumpChange(String row, int deleted) {
+        String next = "(SELECT IFNULL(MAX(seq), 0) + 1 FROM prescription_changes)";
+        return "UPDATE prescription_changes SET seq = " + next + ", deleted = " + deleted +
+                " WHERE uid = " + row + ".uid; " +
+                "INSERT INTO prescription_changes (uid, seq, deleted) SELECT " + row + ".uid, " + next + ", " + deleted +
+                " WHERE NOT EXISTS (SELECT 1 FROM prescription_changes WHERE uid = " + row + ".uid);";
+    }
+
+    // Sync triggers for prescription_fts (same names/bodies Room generates for the @Fts4 entity).
+    // Created with the table (onCreate, v4 -> v5). Room drops its FTS triggers before running any
+    // migration, so the newest migration creates them again; move the call when adding one.
+    static void createFtsTriggers(SupportSQLiteDatabase db) {
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_prescription_fts_BEFORE_UPDATE " +
+                "BEFORE UPDATE ON `prescription_drugs` BEGIN " +
+                "DELETE FROM `prescription_fts` WHERE `docid`=OLD.`rowid`; END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_prescription_fts_BEFORE_DELETE " +
+                "BEFORE DELETE ON `prescription_drugs` BEGIN " +
+                "DELETE FROM `prescription_fts` WHERE `docid`=OLD.`rowid`; END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_prescription_fts_AFTER_UPDATE " +
+                "AFTER UPDATE ON `prescription_drugs` BEGIN " +
+                "INSERT INTO `prescription_fts`(`docid`, `shortName`, `description`, `doctorName`, `doctorLocation`) " +
+                "VALUES (NEW.`rowid`, NEW.`shortName`, NEW.`description`, NEW.`doctorName`, NEW.`doctorLocation`); END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_prescription_fts_AFTER_INSERT " +
+                "AFTER INSERT ON `prescription_drugs` BEGIN " +
+                "INSERT INTO `prescription_fts`(`docid`, `shortName`, `description`, `doctorName`, `doctorLocation`) " +
+                "VALUES (NEW.`rowid`, NEW.`shortName`, NEW.`description`, NEW.`doctorName`, NEW.`doctorLocation`); END");
+    }
+
+    // Room invalidations go out on the ChangeBus (install points the bus back at the current instance,
+    // so external writes on the bus make Room re-check its tables)
+    private static void attachChangeBus(AppDatabase db) {
+        ChangeBus bus = ChangeBus.get();
+        db.getInvalidationTracker().addObserver(new InvalidationTracker.Observer(TABLES) {
+            @Override public void onInvalidated(@NonNull Set<String> tables) {
+                bus.publish(ChangeBus.ROOM, tables);
+            }
+        });
+    }
+
     public abstract PrescriptionDao prescriptionDao();
     public abstract TimeTermDao timeTermDao();
+    public abstract DoseIntakeDao doseIntakeDao();
+    public abstract GeocodeDao geocodeDao();
+    public abstract PatientDao patientDao();
+    public abstract AdherenceStatDao adherenceStatDao();
 
     // Get the DB instance (build it once)
     public static AppDatabase getInstance(Context ctx) {
         if (INSTANCE == null) {
             synchronized (AppDatabase.class) {
                 if (INSTANCE == null) {
-                    INSTANCE = Room.databaseBuilder(
-                            ctx.getApplicationContext(),
-                            AppDatabase.class,
-                            "meds.db"
-                    ).addCallback(new Callback() {
-                        @Override public void onCreate(@NonNull SupportSQLiteDatabase db) {
-                            super.onCreate(db);
-                            // Seed time_terms on first creation (run off the main thread)
-                            Executors.newSingleThreadExecutor().execute(() -> {
-                                TimeTermDao dao = getInstance(ctx).timeTermDao();
-                                dao.insertAll(
-                                        new TimeTerm(1, "before-breakfast", 1),
-                                        new TimeTerm(2, "at-breakfast", 2),
-                                        new TimeTerm(3, "after-breakfast", 3),
-                                        new TimeTerm(4, "before-lunch", 4),
-                                        new TimeTerm(5, "at-lunch", 5),
-                                        new TimeTerm(6, "after-lunch", 6),
-                                        new TimeTerm(7, "before-dinner", 7),
-                                        new TimeTerm(8, "at-dinner", 8),
-                                        new TimeTerm(9, "after-dinner", 9)
-                                );
-                            });
-                        }
-                    }).build();
+                    INSTANCE = build(ctx, NAME);
+                    install(INSTANCE);
                 }
             }
         }
         return INSTANCE;
     }
+
+    // A database under another file name with the app's full setup (seeding, triggers, term registry
+    // load on open), for instrumented tests that drive the UI; install it with replaceInstance
+    @VisibleForTesting
+    public static AppDatabase openForTest(Context ctx, String name) {
+        return build(ctx, name);
+    }
+
+    // Make 'db' the process-wide instance and return the previous one (may be null).
+    // Only what is created afterwards (view models, repositories) sees it; call before launching screens.
+    @VisibleForTesting
+    public static synchronized AppDatabase replaceInstance(AppDatabase db) {
+        AppDatabase previous = INSTANCE;
+        INSTANCE = db;
+        if (db != null) install(db);
+        return previous;
+    }
+
+    // Point the term registry and the ChangeBus at an instance (observers are added once per instance)
+    private static void install(AppDatabase db) {
+        if (!db.observed) {
+            db.observed = true;
+            TimeTermLoader.attach(db); // reload terms when time_terms changes
+            attachChangeBus(db);
+        }
+        TimeTermLoader.use(db);
+        ChangeBus.get().setRoomRefresher(db.getInvalidationTracker()::refreshVersionsAsync);
+    }
+
+    private static AppDatabase build(Context ctx, String name) {
+        return Room.databaseBuilder(
+                ctx.getApplicationContext(),
+                AppDatabase.class,
+                name
+        ).setJournalMode(JournalMode.WRITE_AHEAD_LOGGING) // readers use pooled connections, never wait for writes
+        // Per-statement latency for every DAO method (QueryMetrics; near free while disabled)
+        .openHelperFactory(new MeteredOpenHelper.Factory(new FrameworkSQLiteOpenHelperFactory()))
+        .addMigrations(MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5, MIGRATION_5_6, MIGRATION_6_7, MIGRATION_7_8,
+                MIGRATION_8_9, MIGRATION_9_10, MIGRATION_10_11, MIGRATION_11_12).addCallback(new Callback() {
+            @Override public void onCreate(@NonNull SupportSQLiteDatabase db) {
+                super.onCreate(db);
+                // Seed time_terms inside the creation transaction, so no query can see an empty table
+                db.execSQL(SEED_TIME_TERMS);
+                db.execSQL(SEED_PATIENT);
+                db.execSQL(AdherenceStats.SEED_CALENDAR);
+                createFtsTriggers(db);
+            }
+
+            @Override public void onOpen(@NonNull SupportSQLiteDatabase db) {
+                super.onOpen(db);
+                DbTuning.get().apply(db); // synchronous / cache / mmap / checkpoint pragmas
+                createChangeTriggers(db); // no-op after the first open
+                createAdherenceTriggers(db); // same
+                // Load the in-memory term registry before any query runs
+                TimeTermLoader.loadFrom(db);
+            }
+        }).build();
+    }
 }
@@ -0,0 +1,167 @@
+package data;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// App-wide executors for database work:
+//  - one ordered writer queue (all inserts/updates/deletes run here, in submit order)
+//  - a small reader pool (exports and other blocking reads)
+//  - one cached main-thread executor for posting results back to the UI
+public final class AppExecutors {
+
+    // Number of reader threads
+    private static final int READ_THREADS = 2;
+
+    // Single app-wide instance
+    private static volatile AppExecutors INSTANCE;
+
+    private final Lane diskWrite;
+    private final Lane diskRead;
+    private volatile Executor mainThread; // created on first use (needs a Looper)
+
+    // Get the shared instance (created once)
+    public static AppExecutors get() {
+        if (INSTANCE == null) {
+            synchronized (AppExecutors.class) {
+                if (INSTANCE == null) INSTANCE = new AppExecutors(READ_THREADS);
+            }
+        }
+        return INSTANCE;
+    }
+
+    // Package-private so tests can create (and shut down) their own instance
+    AppExecutors(int readThreads) {
+        diskWrite = new Lane("db-write", 1);
+        diskRead  = new Lane("db-read", readThreads);
+    }
+
+    // Ordered, single-threaded queue for writes
+    public Lane diskWrite() { return diskWrite; }
+
+    // Small pool for blocking reads
+    public Lane diskRead() { return diskRead; }
+
+    // Runs tasks on the main thread (one cached Handler for the whole app)
+    public Executor mainThread() {
+        if (mainThread == null) {
+            synchronized (this) {
+                if (mainThread == null) {
+                    Handler h = new Handler(Looper.getMainLooper());
+                    mainThread = h::post;
+                }
+            }
+        }
+        return mainThread;
+    }
+
+    // Stop accepting work; queued writes still run to completion
+    public void shutdown() {
+        diskWrite.pool.shutdown();
+        diskRead.pool.shutdown();
+    }
+
+    // Wait for queued work after shutdown(); returns false on timeout
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        boolean w = diskWrite.pool.awaitTermination(timeout, unit);
+        long left = Math.max(0, deadline - System.nanoTime());
+        boolean r = diskRead.pool.awaitTermination(left, TimeUnit.NANOSECONDS);
+        return w && r;
+    }
+
+    // Compact one-line summary of both lanes (for logs / debug screens)
+    @Override public String toString() {
+        return diskWrite + " | " + diskRead;
+    }
+
+    // An instrumented executor: counts submitted/completed tasks, queue depth and latency
+    public static final class Lane implements Executor {
+        private final String name;
+        final ThreadPoolExecutor pool;
+
+        private final AtomicLong submitted = new AtomicLong();
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong failed    = new AtomicLong();
+        private final AtomicLong waitNanos = new AtomicLong(); // time spent queued
+        private final AtomicLong runNanos  = new AtomicLong(); // time spent running
+        private final AtomicLong maxLatencyNanos = new AtomicLong(); // queued + running, worst case
+
+        Lane(String name, int threads) {
+            this.name = name;
+            this.pool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), new NamedThreadFactory(name));
+            this.pool.allowCoreThreadTimeOut(true); // no idle threads kept around
+        }
+
+        @Override public void execute(Runnable task) {
+            final long queuedAt = System.nanoTime();
+            submitted.incrementAndGet();
+            pool.execute(() -> {
+                long startedAt = System.nanoTime();
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    failed.incrementAndGet();
+                    throw e;
+                } finally {
+                    long endedAt = System.nanoTime();
+                    waitNanos.addAndGet(startedAt - queuedAt);
+                    runNanos.addAndGet(endedAt - startedAt);
+                    long total = endedAt - queuedAt;
+                    long max;
+                    do {
+                        max = maxLatencyNanos.get();
+                    } while (total > max && !maxLatencyNanos.compareAndSet(max, total));
+                    completed.incrementAndGet();
+                }
+            });
+        }
+
+        public String name()        { return name; }
+        public int queueDepth()     { return pool.getQueue().size(); }
+        public long submitted()     { return submitted.get(); }
+        public long completed()     { return completed.get(); }
+        public long failed()        { return failed.get(); }
+        public long maxLatencyMicros() { return maxLatencyNanos.get() / 1_000; }
+
+        // Average time a task waited in the queue before running
+        public long avgWaitMicros() {
+            long n = completed.get();
+            return n == 0 ? 0 : waitNanos.get() / n / 1_000;
+        }
+
+        // Average time a task spent running
+        public long avgRunMicros() {
+            long n = completed.get();
+            return n == 0 ? 0 : runNanos.get() / n / 1_000;
+        }
+
+        @Override public String toString() {
+            return name + ": queued=" + queueDepth() + " done=" + completed() + "/" + submitted()
+                    + " failed=" + failed() + " avgWait=" + avgWaitMicros() + "us avgRun="
+                    + avgRunMicros() + "us maxLatency=" + maxLatencyMicros() + "us";
+        }
+    }
+
+    // Gives pool threads readable names (shows up in traces and ANR dumps)
+    private static final class NamedThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger seq = new AtomicInteger();
+
+        NamedThreadFactory(String prefix) { this.prefix = prefix; }
+
+        @Override public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, prefix + "-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
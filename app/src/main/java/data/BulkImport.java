@@ -0,0 +1,555 @@
+package data;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+// Bulk import of prescriptions from a CSV or JSON document (JSON when it starts with '[').
+// CSV: a header row, then one prescription per row. JSON: an array of flat objects.
+// Fields are matched by name, case-insensitively; unknown ones are ignored, so an archive export
+// reads back as is: shortName, description, start/startDateEpoch, end/endDateEpoch,
+// timeTerm (code) or timeTermId, doctorName, doctorLocation. Dates: yyyy-MM-dd or epoch days.
+// Rows are checked with the same rules as the Add screen (name required, end >= start) plus a
+// known time term, de-duplicated by content hash against the table and the file itself, and
+// handed to the Sink in chunks (one transaction each on devices). The input is streamed: only
+// the current chunk and one 64-bit hash per known row are held in memory.
+// (Plain Java on purpose: no android.* imports, so it can be tested and benchmarked on the JVM.)
+public final class BulkImport {
+
+    // Rows per Sink call (= per transaction). Each chunk adds one FTS segment: at 100k rows 5000
+    // is ~1.6x faster than 1000, and a chunk still commits in well under a second.
+    public static final int CHUNK_ROWS = 5000;
+
+    // Invalid rows listed in the report; the count goes on past this
+    static final int MAX_ERRORS = 200;
+
+    // Rows are written in two steps per chunk: each row into a TEMP staging table through one
+    // reused statement, then the whole chunk into prescription_drugs with one INSERT ... SELECT.
+    // The table's triggers still fire per row, but the FTS index gets one segment per chunk
+    // instead of one per statement (~5x faster than a plain INSERT per row at 100k rows).
+    // Create the staging table once per connection (TEMP tables are per connection).
+    public static final String STAGE_CREATE_SQL = "CREATE TEMP TABLE IF NOT EXISTS import_rows (" +
+            "shortName TEXT, description TEXT, startDateEpoch INTEGER, endDateEpoch INTEGER, " +
+            "timeTermId INTEGER, doctorName TEXT, doctorLocation TEXT, isActive INTEGER)";
+    // Bind order: shortName, description, startDateEpoch, endDateEpoch, timeTermId, doctorName,
+    // doctorLocation, isActive
+    public static final String STAGE_INSERT_SQL = "INSERT INTO temp.import_rows VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    // New uids are contiguous (AUTOINCREMENT, one statement): last_insert_rowid() - n + 1 .. last.
+    // Bind: patientId (once per import; the binding stays across executions)
+    public static final String STAGE_MOVE_SQL = "INSERT INTO prescription_drugs (patientId, shortName, description, " +
+            "startDateEpoch, endDateEpoch, timeTermId, doctorName, doctorLocation, isActive, " +
+            "lastDateReceivedEpoch, hasReceivedToday) " +
+            "SELECT ?, shortName, description, startDateEpoch, endDateEpoch, timeTermId, doctorName, " +
+            "doctorLocation, isActive, NULL, 0 FROM temp.import_rows ORDER BY rowid";
+    public static final String STAGE_CLEAR_SQL = "DELETE FROM temp.import_rows";
+    public static final String STAGE_DROP_SQL = "DROP TABLE IF EXISTS temp.import_rows";
+
+    private static final int BUFFER_CHARS = 16 * 1024;
+
+    // Field slots of a parsed row
+    static final int NAME = 0, DESCRIPTION = 1, START = 2, END = 3, TERM = 4, TERM_ID = 5,
+            DOCTOR = 6, LOCATION = 7, FIELDS = 8;
+
+    // Accepted field names (as normalized by slotOf) -> slot
+    private static final Map<String, Integer> FIELD_NAMES = new HashMap<>();
+    static {
+        for (String n : new String[]{"shortname", "name"}) FIELD_NAMES.put(n, NAME);
+        FIELD_NAMES.put("description", DESCRIPTION);
+        for (String n : new String[]{"start", "startdate", "startdateepoch"}) FIELD_NAMES.put(n, START);
+        for (String n : new String[]{"end", "enddate", "enddateepoch"}) FIELD_NAMES.put(n, END);
+        for (String n : new String[]{"timeterm", "term", "termcode", "timetermcode"}) FIELD_NAMES.put(n, TERM);
+        for (String n : new String[]{"timetermid", "termid"}) FIELD_NAMES.put(n, TERM_ID);
+        for (String n : new String[]{"doctorname", "doctor"}) FIELD_NAMES.put(n, DOCTOR);
+        for (String n : new String[]{"doctorlocation", "location"}) FIELD_NAMES.put(n, LOCATION);
+    }
+
+    // Slot for a field name, or -1: case, spaces, '_' and '-' don't matter ("Time term" = "time_term")
+    static int slotOf(String name) {
+        StringBuilder sb = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c != ' ' && c != '_' && c != '-') sb.append(Character.toLowerCase(c));
+        }
+        Integer slot = FIELD_NAMES.get(sb.toString());
+        return slot != null ? slot : -1;
+    }
+
+    // Writes one chunk of valid, new rows (all or nothing)
+    public interface Sink {
+        void insert(List<PrescriptionDrug> chunk) throws IOException;
+    }
+
+    // Called after every chunk and once at the end
+    public interface Progress {
+        void onProgress(int rowsRead, int rowsInserted);
+    }
+
+    // A skipped row; 'row' counts data rows from 1 (the CSV header is not a row)
+    public static final class RowError {
+        public final int row;
+        public final String message;
+
+        RowError(int row, String message) {
+            this.row = row;
+            this.message = message;
+        }
+
+        @Override public String toString() { return "Row " + row + ": " + message; }
+    }
+
+    public static final class Report {
+        public int rows;       // data rows read
+        public int inserted;   // rows written
+        public int duplicates; // already in the table or earlier in the file
+        public int invalid;    // rows that failed validation
+        public final List<RowError> errors = new ArrayList<>(); // the first MAX_ERRORS invalid rows
+        public String aborted; // why the import stopped early (malformed file, write error), or null
+
+        public static Report failed(String why) {
+            Report r = new Report();
+            r.aborted = why;
+            return r;
+        }
+
+        void invalid(String message) {
+            invalid++;
+            if (errors.size() < MAX_ERRORS) errors.add(new RowError(rows, message));
+        }
+
+        // One line for a toast or a dialog title
+        public String summary() {
+            String s = "Imported " + inserted + " of " + rows + " rows";
+            if (duplicates > 0 || invalid > 0) s += " (" + duplicates + " duplicates, " + invalid + " invalid)";
+            return aborted == null ? s : s + "; stopped: " + aborted;
+        }
+    }
+
+    private final Map<String, Integer> termIds = new HashMap<>(); // lower-case code -> id
+    private final Set<Integer> knownIds = new HashSet<>();
+    private final Set<Long> seen = new HashSet<>();               // content hashes
+    private final long today;
+    int chunkRows = CHUNK_ROWS;
+
+    public BulkImport(Collection<TimeTerm> terms, long today) {
+        for (TimeTerm t : terms) {
+            if (t.code != null) termIds.put(t.code.toLowerCase(Locale.ROOT), t.id);
+            knownIds.add(t.id);
+        }
+        this.today = today;
+    }
+
+    // Register a row already in the table, so the same content is not imported twice
+    public void addExisting(String shortName, String description, long startDateEpoch, long endDateEpoch,
+                            int timeTermId, String doctorName, String doctorLocation) {
+        seen.add(contentHash(shortName, description, startDateEpoch, endDateEpoch,
+                timeTermId, doctorName, doctorLocation));
+    }
+
+    // Read everything from 'source' (not closed here). Rows before a fatal error stay imported.
+    public Report run(Reader source, Sink sink, Progress progress) {
+        Report r = new Report();
+        List<PrescriptionDrug> chunk = new ArrayList<>(chunkRows);
+        boolean writing = true;
+        try {
+            Records in = open(new Text(source));
+            String[] f;
+            while (writing && (f = in.next()) != null) {
+                r.rows++;
+                PrescriptionDrug d;
+                try {
+                    d = toDrug(f);
+                } catch (IllegalArgumentException e) {
+                    r.invalid(e.getMessage());
+                    continue;
+                }
+                if (!seen.add(contentHash(d.shortName, d.description, d.startDateEpoch, d.endDateEpoch,
+                        d.timeTermId, d.doctorName, d.doctorLocation))) {
+                    r.duplicates++;
+                    continue;
+                }
+                chunk.add(d);
+                if (chunk.size() == chunkRows) writing = flush(chunk, sink, r, progress);
+            }
+        } catch (IOException e) {
+            r.aborted = "row " + (r.rows + 1) + ": " + e.getMessage();
+        }
+        if (writing) flush(chunk, sink, r, progress);
+        return r;
+    }
+
+    private static boolean flush(List<PrescriptionDrug> chunk, Sink sink, Report r, Progress progress) {
+        if (!chunk.isEmpty()) {
+            try {
+                sink.insert(chunk);
+                r.inserted += chunk.size();
+            } catch (IOException e) {
+                r.aborted = "write failed: " + e.getMessage();
+                return false;
+            } finally {
+                chunk.clear();
+            }
+        }
+        if (progress != null) progress.onProgress(r.rows, r.inserted);
+        return true;
+    }
+
+    // Validate one row (same rules as MedViewModel.addDrug) and build the entity
+    private PrescriptionDrug toDrug(String[] f) {
+        String name = trim(f[NAME]);
+        if (name.isEmpty()) throw new IllegalArgumentException("shortName is required");
+        long start = day(f[START], "start");
+        long end = day(f[END], "end");
+        if (end < start) throw new IllegalArgumentException("end date is before start date");
+
+        PrescriptionDrug d = new PrescriptionDrug();
+        d.shortName = name;
+        d.description = trim(f[DESCRIPTION]);
+        d.startDateEpoch = start;
+        d.endDateEpoch = end;
+        d.timeTermId = term(f[TERM], f[TERM_ID]);
+        d.doctorName = trim(f[DOCTOR]);
+        d.doctorLocation = trim(f[LOCATION]);
+        d.isActive = d.isActiveOn(today);
+        d.hasReceivedToday = false;
+        d.lastDateReceivedEpoch = null;
+        return d;
+    }
+
+    private int term(String code, String id) {
+        String c = trim(code);
+        if (!c.isEmpty()) {
+            Integer t = termIds.get(c.toLowerCase(Locale.ROOT));
+            if (t == null) throw new IllegalArgumentException("unknown time term '" + c + "'");
+            return t;
+        }
+        String i = trim(id);
+        if (i.isEmpty()) throw new IllegalArgumentException("time term is required");
+        try {
+            int t = Integer.parseInt(i);
+            if (knownIds.contains(t)) return t;
+        } catch (NumberFormatException ignored) {
+            // reported below
+        }
+        throw new IllegalArgumentException("unknown time term id '" + i + "'");
+    }
+
+    // yyyy-MM-dd or an epoch day number
+    static long day(String value, String field) {
+        String s = trim(value);
+        if (s.isEmpty()) throw new IllegalArgumentException(field + " date is required");
+        if (s.length() == 10 && s.charAt(4) == '-' && s.charAt(7) == '-') {
+            int y = digits(s, 0, 4), m = digits(s, 5, 7), d = digits(s, 8, 10);
+            if (y > 0 && m >= 1 && m <= 12 && d >= 1 && d <= daysInMonth(y, m)) return epochDay(y, m, d);
+        } else {
+            try {
+                return Long.parseLong(s);
+            } catch (NumberFormatException ignored) {
+                // reported below
+            }
+        }
+        throw new IllegalArgumentException("bad " + field + " date '" + s + "' (use yyyy-MM-dd)");
+    }
+
+    private static int digits(String s, int from, int to) {
+        int v = 0;
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            v = v * 10 + (c - '0');
+        }
+        return v;
+    }
+
+    private static int daysInMonth(int y, int m) {
+        if (m == 2) return (y % 4 == 0 && (y % 100 != 0 || y % 400 == 0)) ? 29 : 28;
+        return (m == 4 || m == 6 || m == 9 || m == 11) ? 30 : 31;
+    }
+
+    // Days since 1970-01-01 for a proleptic Gregorian date, year >= 1 (no java.time: API 26+)
+    static long epochDay(int y, int m, int d) {
+        if (m <= 2) y--;
+        long era = y / 400;
+        long yoe = y - era * 400;
+        long doy = (153L * (m > 2 ? m - 3 : m + 9) + 2) / 5 + d - 1;
+        long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - 719468;
+    }
+
+    private static String trim(String s) {
+        return s == null ? "" : s.trim();
+    }
+
+    // 64-bit FNV-1a over the user-visible content (text trimmed, null = empty). Flags and the uid
+    // are not content. At 64 bits a false "duplicate" among a million rows is ~1e-7 likely.
+    static long contentHash(String shortName, String description, long start, long end,
+                            int timeTermId, String doctorName, String doctorLocation) {
+        long h = 0xcbf29ce484222325L;
+        h = mix(h, shortName);
+        h = mix(h, description);
+        h = mix(h, start);
+        h = mix(h, end);
+        h = mix(h, timeTermId);
+        h = mix(h, doctorName);
+        return mix(h, doctorLocation);
+    }
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static long mix(long h, String s) {
+        if (s != null) {
+            int from = 0, to = s.length();
+            while (from < to && s.charAt(from) <= ' ') from++;
+            while (to > from && s.charAt(to - 1) <= ' ') to--;
+            for (int i = from; i < to; i++) h = (h ^ s.charAt(i)) * FNV_PRIME;
+        }
+        return (h ^ 0xFFFF) * FNV_PRIME; // field separator (not a character)
+    }
+
+    private static long mix(long h, long v) {
+        for (int i = 0; i < 8; i++, v >>>= 8) h = (h ^ (v & 0xFF)) * FNV_PRIME;
+        return h;
+    }
+
+    // ---- input ----
+
+    // Parsed rows: one String per field slot (null = not given), null at the end
+    private interface Records {
+        String[] next() throws IOException;
+    }
+
+    private static Records open(Text in) throws IOException {
+        if (in.peek() == '\uFEFF') in.read(); // byte order mark
+        int c = in.peek();
+        while (c == ' ' || c == '\t' || c == '\r' || c == '\n') {
+            in.read();
+            c = in.peek();
+        }
+        if (c == '[') {
+            in.read();
+            return new JsonRecords(in);
+        }
+        return new CsvRecords(in);
+    }
+
+    // Buffered characters with one char of lookahead
+    private static final class Text {
+        private final Reader in;
+        private final char[] buf = new char[BUFFER_CHARS];
+        private int pos, len;
+        long offset; // characters consumed
+
+        Text(Reader in) {
+            this.in = in;
+        }
+
+        int read() throws IOException {
+            int c = peek();
+            if (c >= 0) {
+                pos++;
+                offset++;
+            }
+            return c;
+        }
+
+        int peek() throws IOException {
+            if (pos == len) {
+                len = in.read(buf, 0, buf.length);
+                pos = 0;
+                if (len <= 0) {
+                    len = 0;
+                    return -1;
+                }
+            }
+            return buf[pos];
+        }
+    }
+
+    // RFC 4180: quoted values may hold commas, doubled quotes and line breaks; blank lines are skipped
+    private static final class CsvRecords implements Records {
+        private final Text in;
+        private final int[] slots; // column -> field slot, -1 = ignored
+        private final List<String> cells = new ArrayList<>();
+        private final StringBuilder cell = new StringBuilder();
+
+        CsvRecords(Text in) throws IOException {
+            this.in = in;
+            if (!readRow()) throw new IOException("empty file");
+            slots = new int[cells.size()];
+            boolean hasName = false;
+            for (int i = 0; i < slots.length; i++) {
+                slots[i] = slotOf(cells.get(i));
+                hasName |= slots[i] == NAME;
+            }
+            if (!hasName) throw new IOException("no shortName column in the CSV header");
+        }
+
+        @Override public String[] next() throws IOException {
+            do {
+                if (!readRow()) return null;
+            } while (cells.size() == 1 && cells.get(0).isEmpty());
+            String[] f = new String[FIELDS];
+            for (int i = 0; i < cells.size() && i < slots.length; i++) {
+                if (slots[i] >= 0) f[slots[i]] = cells.get(i);
+            }
+            return f;
+        }
+
+        // One record into 'cells'; false at the end of the input
+        private boolean readRow() throws IOException {
+            cells.clear();
+            int c = in.read();
+            if (c < 0) return false;
+            cell.setLength(0);
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c < 0) throw new IOException("unterminated quoted value");
+                    if (c == '"') {
+                        if (in.peek() == '"') {
+                            in.read();
+                            cell.append('"');
+                        } else {
+                            quoted = false;
+                        }
+                    } else {
+                        cell.append((char) c);
+                    }
+                } else if (c == '"' && cell.length() == 0) {
+                    quoted = true;
+                } else if (c == ',') {
+                    cells.add(cell.toString());
+                    cell.setLength(0);
+                } else if (c == '\n' || c == '\r' || c < 0) {
+                    if (c == '\r' && in.peek() == '\n') in.read();
+                    cells.add(cell.toString());
+                    return true;
+                } else {
+                    cell.append((char) c);
+                }
+                c = in.read();
+            }
+        }
+    }
+
+    // The rest of a top-level array of flat objects (the '[' is already read).
+    // Values: strings, numbers, true/false (as text) and null; nested values are an error.
+    private static final class JsonRecords implements Records {
+        private final Text in;
+        private final StringBuilder sb = new StringBuilder();
+        private int count;
+        private boolean done;
+
+        JsonRecords(Text in) {
+            this.in = in;
+        }
+
+        @Override public String[] next() throws IOException {
+            if (done) return null;
+            int c = skipSpace();
+            if (c == ']') {
+                done = true;
+                return null;
+            }
+            if (count > 0) {
+                if (c != ',') throw syntax("',' or ']'", c);
+                c = skipSpace();
+            }
+            if (c != '{') throw syntax("'{'", c);
+            String[] f = new String[FIELDS];
+            c = skipSpace();
+            if (c != '}') {
+                while (true) {
+                    if (c != '"') throw syntax("a field name", c);
+                    String key = string();
+                    c = skipSpace();
+                    if (c != ':') throw syntax("':'", c);
+                    String value = value();
+                    int slot = slotOf(key);
+                    if (slot >= 0) f[slot] = value;
+                    c = skipSpace();
+                    if (c == '}') break;
+                    if (c != ',') throw syntax("',' or '}'", c);
+                    c = skipSpace();
+                }
+            }
+            count++;
+            return f;
+        }
+
+        private String value() throws IOException {
+            int c = skipSpace();
+            if (c == '"') return string();
+            if (c == '{' || c == '[') throw new IOException("nested values are not supported");
+            if (c < 0) throw syntax("a value", c);
+            sb.setLength(0);
+            sb.append((char) c);
+            for (int p = in.peek(); p >= 0 && p != ',' && p != '}' && p != ']' && p > ' '; p = in.peek()) {
+                sb.append((char) in.read());
+            }
+            String word = sb.toString();
+            if (word.equals("null")) return null;
+            if (word.equals("true") || word.equals("false") || isNumber(word)) return word;
+            throw new IOException("bad value '" + word + "' at character " + in.offset);
+        }
+
+        // After the opening quote
+        private String string() throws IOException {
+            sb.setLength(0);
+            while (true) {
+                int c = in.read();
+                if (c < 0) throw new IOException("unterminated string");
+                if (c == '"') return sb.toString();
+                if (c != '\\') {
+                    sb.append((char) c);
+                    continue;
+                }
+                c = in.read();
+                switch (c) {
+                    case '"': case '\\': case '/': sb.append((char) c); break;
+                    case 'b': sb.append('\b'); break;
+                    case 'f': sb.append('\f'); break;
+                    case 'n': sb.append('\n'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'u':
+                        int u = 0;
+                        for (int i = 0; i < 4; i++) {
+                            int h = Character.digit(in.read(), 16);
+                            if (h < 0) throw new IOException("bad \\u escape at character " + in.offset);
+                            u = u * 16 + h;
+                        }
+                        sb.append((char) u);
+                        break;
+                    default:
+                        throw new IOException("bad escape at character " + in.offset);
+                }
+            }
+        }
+
+        private static boolean isNumber(String s) {
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if ((c < '0' || c > '9') && c != '-' && c != '+' && c != '.' && c != 'e' && c != 'E') return false;
+            }
+            return true;
+        }
+
+        private int skipSpace() throws IOException {
+            int c = in.read();
+            while (c == ' ' || c == '\t' || c == '\r' || c == '\n') c = in.read();
+            return c;
+        }
+
+        private IOException syntax(String expected, int got) {
+            return new IOException("malformed JSON at character " + in.offset + ": expected " + expected +
+                    (got < 0 ? ", got the end of the file" : ", got '" + (char) got + "'"));
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package data;
+
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+// Fixed month table (1970-01 .. 2199-12, seeded with the database) so triggers can split a course
+// into months with an index range instead of date arithmetic per day.
+@Entity(tableName = "calendar_months", indices = @Index("firstDay"))
+public class CalendarMonth {
+
+    @PrimaryKey
+    public int month;          // yyyymm
+    public long firstDay;      // epoch day of the 1st
+    public long lastDay;       // epoch day of the last day
+
+    public CalendarMonth(int month, long firstDay, long lastDay) {
+        this.month = month;
+        this.firstDay = firstDay;
+        this.lastDay = lastDay;
+    }
+}
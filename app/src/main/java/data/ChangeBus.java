@@ -0,0 +1,154 @@
+package data;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// One place where every database write is announced, whichever path made it.
+//   - Room writes arrive through an InvalidationTracker observer (wired in AppDatabase).
+//   - MedProvider writes are published directly; they also nudge Room's tracker right away,
+//     so Room LiveData refreshes too (the provider writes through Room's connection, but Room
+//     only looks at its modification log after its own transactions).
+// Publications inside one window are coalesced: sinks (e.g. provider URI notifications) get one
+// call per window with the union of tables, so a 500-row batch is one notification, not 500.
+// Plain Java (no android.* imports) so it can be unit tested on the JVM.
+public final class ChangeBus {
+
+    // Who made the change
+    public static final int ROOM     = 0; // seen by Room's InvalidationTracker
+    public static final int EXTERNAL = 1; // written outside Room's transactions (ContentProvider)
+
+    // Default coalescing window
+    static final long DEFAULT_WINDOW_MS = 100;
+
+    // Receives the set of tables changed during one window
+    public interface Sink { void onChanged(Set<String> tables); }
+
+    private static final Logger LOG = Logger.getLogger("ChangeBus"); // logcat on devices
+
+    private static volatile ChangeBus INSTANCE;
+
+    private final ScheduledExecutorService timer;
+    private final List<Sink> sinks = new CopyOnWriteArrayList<>();
+    private volatile Runnable roomRefresher; // InvalidationTracker.refreshVersionsAsync
+    private volatile long windowMs = DEFAULT_WINDOW_MS;
+
+    private final Object lock = new Object();
+    private Set<String> pending = new HashSet<>(); // guarded by lock
+    private boolean scheduled;                     // guarded by lock
+
+    // Counters
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong suppressed = new AtomicLong();
+    private final AtomicLong roomRefreshes = new AtomicLong();
+    private final AtomicLong sinkFailures = new AtomicLong();
+
+    ChangeBus(ScheduledExecutorService timer) {
+        this.timer = timer;
+    }
+
+    public static ChangeBus get() {
+        if (INSTANCE == null) {
+            synchronized (ChangeBus.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new ChangeBus(Executors.newSingleThreadScheduledExecutor(r -> {
+                        Thread t = new Thread(r, "db-notify");
+                        t.setDaemon(true);
+                        return t;
+                    }));
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    // Coalescing window for later publications (0 = deliver on the next timer tick)
+    public void setWindowMs(long ms) {
+        if (ms < 0) throw new IllegalArgumentException("window must be >= 0");
+        windowMs = ms;
+    }
+
+    public long windowMs() { return windowMs; }
+
+    public void addSink(Sink sink) { sinks.add(sink); }
+
+    public void removeSink(Sink sink) { sinks.remove(sink); }
+
+    // Hook that makes Room re-check its modification log (set once by AppDatabase)
+    void setRoomRefresher(Runnable refresher) { roomRefresher = refresher; }
+
+    // Announce that 'tables' changed. Cheap and non-blocking; call after the write committed.
+    public void publish(int origin, String... tables) {
+        publish(origin, Arrays.asList(tables));
+    }
+
+    public void publish(int origin, Iterable<String> tables) {
+        published.incrementAndGet();
+        if (origin == EXTERNAL) {
+            Runnable r = roomRefresher;
+            if (r != null) {
+                r.run(); // Room coalesces refresh requests itself; its echo lands in the open window
+                roomRefreshes.incrementAndGet();
+            }
+        }
+        boolean schedule;
+        synchronized (lock) {
+            for (String t : tables) pending.add(t);
+            schedule = !scheduled;
+            scheduled = true;
+        }
+        if (schedule) {
+            timer.schedule(this::flush, windowMs, TimeUnit.MILLISECONDS);
+        } else {
+            suppressed.incrementAndGet(); // folded into the delivery already scheduled
+        }
+    }
+
+    // Deliver everything collected in the window. Runs as a timer task, where a thrown exception
+    // would only end up in a Future nobody reads: a failing sink is logged and counted instead.
+    void flush() {
+        Set<String> tables;
+        synchronized (lock) {
+            tables = pending;
+            pending = new HashSet<>();
+            scheduled = false;
+        }
+        if (tables.isEmpty()) return;
+        delivered.incrementAndGet();
+        Set<String> view = Collections.unmodifiableSet(tables);
+        for (Sink s : sinks) {
+            try {
+                s.onChanged(view);
+            } catch (RuntimeException e) { // one failing sink must not starve the others
+                sinkFailures.incrementAndGet();
+                LOG.log(Level.WARNING, "sink failed for " + view, e);
+            }
+        }
+    }
+
+    // ---- counters ----
+
+    public long published()     { return published.get(); }     // publish() calls
+    public long delivered()     { return delivered.get(); }     // windows delivered to sinks
+    public long suppressed()    { return suppressed.get(); }    // publications folded into a pending window
+    public long roomRefreshes() { return roomRefreshes.get(); } // Room tracker nudges for external writes
+    public long sinkFailures()  { return sinkFailures.get(); }  // sink calls that threw
+
+    // One-line summary for logs
+    public String stats() {
+        return "published=" + published() + " delivered=" + delivered() + " suppressed=" + suppressed()
+                + " roomRefreshes=" + roomRefreshes() + " sinkFailures=" + sinkFailures() + " windowMs=" + windowMs;
+    }
+
+    void shutdown() { timer.shutdownNow(); }
+}
@@ -0,0 +1,41 @@
+package data;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+// Incremental recompute of the stored isActive/hasReceivedToday flags.
+// Remembers the last processed epoch day and does nothing until the day changes;
+// on a new day it only rewrites rows whose flags actually flip, in small chunks.
+public final class DayRollover {
+    private DayRollover() {}
+
+    // Rows per UPDATE statement (each chunk is its own short transaction)
+    static final int CHUNK = 500;
+
+    private static final String PREFS = "day_rollover";
+    private static final String KEY_LAST_DAY = "last_epoch_day";
+
+    // Run the rollover for 'today'. Returns the number of rows changed,
+    // or -1 if the day was already processed (and force is false).
+    public static int run(Context ctx, long today, boolean force) {
+        SharedPreferences prefs = ctx.getApplicationContext()
+                .getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        if (!force && prefs.getLong(KEY_LAST_DAY, Long.MIN_VALUE) == today) return -1;
+
+        AppDatabase db = AppDatabase.getInstance(ctx);
+        PrescriptionDao dao = db.prescriptionDao();
+        int changed = 0;
+        int n;
+        do { n = dao.deactivateEnded(today, CHUNK);     changed += n; } while (n == CHUNK);
+        do { n = dao.activateStarted(today, CHUNK);     changed += n; } while (n == CHUNK);
+        do { n = dao.clearStaleReceived(today, CHUNK);  changed += n; } while (n == CHUNK);
+        do { n = dao.setMissingReceived(today, CHUNK);  changed += n; } while (n == CHUNK);
+
+        if (changed > 0) RowChanges.get().publishAll(); // flags flipped on rows we did not collect
+        DbTuning.afterWrite(db.getOpenHelper().getWritableDatabase(), changed);
+
+        // Only remember the day once every chunk went through
+        prefs.edit().putLong(KEY_LAST_DAY, today).apply();
+        return changed;
+    }
+}
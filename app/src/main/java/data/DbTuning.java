@@ -0,0 +1,108 @@
+package data;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.Build;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+// Connection settings for meds.db (runs in WAL mode) and the WAL checkpoint policy.
+// Set a custom instance with DbTuning.set(...) before the database is first opened.
+public final class DbTuning {
+
+    // Checkpoint modes used by the app
+    public static final String PASSIVE  = "PASSIVE";  // copy what it can, never waits for readers or the writer
+    public static final String TRUNCATE = "TRUNCATE"; // full checkpoint, then shrink the -wal file to zero
+
+    private static final List<String> SYNC_MODES = Arrays.asList("OFF", "NORMAL", "FULL", "EXTRA");
+
+    public final String synchronous;          // NORMAL: in WAL a crash may drop the last commits but never corrupts
+    public final int cacheSizeKib;            // page cache per connection
+    public final long mmapSizeBytes;          // memory-mapped I/O per connection (0 = off)
+    public final int walAutoCheckpointPages;  // SQLite checkpoints by itself once the WAL reaches this many pages
+    public final long journalSizeLimitBytes;  // -wal file is truncated back to this size after a checkpoint
+    public final int checkpointAfterRows;     // bulk writes at least this big run a PASSIVE checkpoint right away
+
+    public static final DbTuning DEFAULT =
+            new DbTuning("NORMAL", 4096, 16L * 1024 * 1024, 1000, 4L * 1024 * 1024, 2000);
+
+    private static volatile DbTuning current = DEFAULT;
+
+    public DbTuning(String synchronous, int cacheSizeKib, long mmapSizeBytes,
+                    int walAutoCheckpointPages, long journalSizeLimitBytes, int checkpointAfterRows) {
+        String sync = synchronous.toUpperCase(Locale.ROOT);
+        if (!SYNC_MODES.contains(sync)) throw new IllegalArgumentException("Unknown synchronous mode: " + synchronous);
+        if (cacheSizeKib <= 0 || mmapSizeBytes < 0 || walAutoCheckpointPages <= 0 || journalSizeLimitBytes < 0) {
+            throw new IllegalArgumentException("Invalid database tuning");
+        }
+        this.synchronous = sync;
+        this.cacheSizeKib = cacheSizeKib;
+        this.mmapSizeBytes = mmapSizeBytes;
+        this.walAutoCheckpointPages = walAutoCheckpointPages;
+        this.journalSizeLimitBytes = journalSizeLimitBytes;
+        this.checkpointAfterRows = checkpointAfterRows;
+    }
+
+    public static DbTuning get() { return current; }
+
+    // Replace the settings (takes effect for connections opened afterwards)
+    public static void set(DbTuning tuning) { current = tuning; }
+
+    // Per-connection pragmas (negative cache_size = KiB)
+    List<String> connectionPragmas() {
+        List<String> out = new ArrayList<>();
+        out.add("PRAGMA cache_size = -" + cacheSizeKib);
+        out.add("PRAGMA mmap_size = " + mmapSizeBytes);
+        return out;
+    }
+
+    // Pragmas that only matter on the connection that writes
+    List<String> writerPragmas() {
+        List<String> out = new ArrayList<>();
+        out.add("PRAGMA synchronous = " + synchronous);
+        out.add("PRAGMA wal_autocheckpoint = " + walAutoCheckpointPages);
+        out.add("PRAGMA journal_size_limit = " + journalSizeLimitBytes);
+        return out;
+    }
+
+    // Room's database (from the open callback). On API 30+ the per-connection pragmas reach
+    // every pooled reader too; before that only the connection running them gets them.
+    void apply(SupportSQLiteDatabase db) {
+        for (String sql : writerPragmas()) pragma(db, sql);
+        for (String sql : connectionPragmas()) {
+            if (Build.VERSION.SDK_INT >= 30) db.execPerConnectionSQL(sql, null);
+            else pragma(db, sql);
+        }
+    }
+
+    // A read-only handle opened outside Room (see ReaderPool)
+    void applyReader(SQLiteDatabase db) {
+        for (String sql : connectionPragmas()) {
+            if (Build.VERSION.SDK_INT >= 30) db.execPerConnectionSQL(sql, null);
+            else db.rawQuery(sql, null).close();
+        }
+    }
+
+    // Checkpoint the WAL now (PASSIVE or TRUNCATE); call on the writer lane
+    public static void checkpoint(SupportSQLiteDatabase db, String mode) {
+        pragma(db, "PRAGMA wal_checkpoint(" + mode + ")");
+    }
+
+    // Checkpoint policy for bulk writes: big batches are folded back into the main file
+    // right away, so the WAL (and every reader's lookup through it) stays short
+    public static void afterWrite(SupportSQLiteDatabase db, int rows) {
+        if (rows >= current.checkpointAfterRows) checkpoint(db, PASSIVE);
+    }
+
+    // Several pragmas answer with a row, so run them as queries
+    private static void pragma(SupportSQLiteDatabase db, String sql) {
+        try (Cursor c = db.query(sql)) {
+            c.moveToFirst();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package data;
+
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+// One logged dose (append-only): written every time a prescription is marked as received
+@Entity(
+        tableName = "dose_intakes",
+        foreignKeys = @ForeignKey(
+                entity = PrescriptionDrug.class,
+                parentColumns = "uid",
+                childColumns = "uid",
+                onDelete = ForeignKey.CASCADE // history goes away with its prescription
+        ),
+        indices = {
+                @Index({"uid", "epochDay"}), // covering index for per-drug adherence ranges
+                @Index({"epochDay", "uid"})  // covering index for per-day adherence ranges
+        }
+)
+public class DoseIntake {
+
+    @PrimaryKey(autoGenerate = true)
+    public long id;            // auto id
+
+    public int uid;            // FK -> PrescriptionDrug.uid
+    public long epochDay;      // LocalDate.toEpochDay() of the intake
+    public int timeTermId;     // term the dose belonged to (copied at intake time)
+    public long timestamp;     // wall-clock millis when it was logged
+
+    public DoseIntake(int uid, long epochDay, int timeTermId, long timestamp) {
+        this.uid = uid;
+        this.epochDay = epochDay;
+        this.timeTermId = timeTermId;
+        this.timestamp = timestamp;
+    }
+}
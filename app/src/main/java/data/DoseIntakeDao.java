@@ -0,0 +1,60 @@
+package data;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.Query;
+
+import java.util.List;
+
+@Dao
+public interface DoseIntakeDao {
+
+    // Append one intake (rows are never updated)
+    @Insert
+    long insert(DoseIntake intake);
+
+    // Log an intake for a prescription, copying its current time term
+    @Query("INSERT INTO dose_intakes (uid, epochDay, timeTermId, timestamp) " +
+            "SELECT uid, :epochDay, timeTermId, :timestamp FROM prescription_drugs WHERE uid = :uid")
+    long logFor(int uid, long epochDay, long timestamp);
+
+    // Log one intake for each of the given prescriptions
+    @Query("INSERT INTO dose_intakes (uid, epochDay, timeTermId, timestamp) " +
+            "SELECT uid, :epochDay, timeTermId, :timestamp FROM prescription_drugs WHERE uid IN (:uids)")
+    void logForAll(List<Integer> uids, long epochDay, long timestamp);
+
+    // Distinct days a drug was taken in [fromDay, toDay] (index-only on uid, epochDay)
+    @Query("SELECT COUNT(DISTINCT epochDay) FROM dose_intakes " +
+            "WHERE uid = :uid AND epochDay BETWEEN :fromDay AND :toDay")
+    int countDaysTaken(int uid, long fromDay, long toDay);
+
+    // Days taken per drug in [fromDay, toDay]
+    @Query("SELECT uid, COUNT(DISTINCT epochDay) AS days FROM dose_intakes " +
+            "WHERE epochDay BETWEEN :fromDay AND :toDay " +
+            "GROUP BY uid ORDER BY uid")
+    List<DrugDays> daysTakenPerDrug(long fromDay, long toDay);
+
+    // Drugs taken per day in [fromDay, toDay] (index-only on epochDay, uid)
+    @Query("SELECT epochDay, COUNT(DISTINCT uid) AS drugs FROM dose_intakes " +
+            "WHERE epochDay BETWEEN :fromDay AND :toDay " +
+            "GROUP BY epochDay ORDER BY epochDay")
+    List<DayDrugs> drugsTakenPerDay(long fromDay, long toDay);
+
+    // Taken days for one drug (ascending), e.g. for a calendar view
+    @Query("SELECT DISTINCT epochDay FROM dose_intakes " +
+            "WHERE uid = :uid AND epochDay BETWEEN :fromDay AND :toDay ORDER BY epochDay")
+    List<Long> daysTaken(int uid, long fromDay, long toDay);
+
+    // Result row: days taken for one drug
+    class DrugDays {
+        @ColumnInfo(name = "uid")  public int uid;
+        @ColumnInfo(name = "days") public int days;
+    }
+
+    // Result row: drugs taken on one day
+    class DayDrugs {
+        @ColumnInfo(name = "epochDay") public long epochDay;
+        @ColumnInfo(name = "drugs")    public int drugs;
+    }
+}
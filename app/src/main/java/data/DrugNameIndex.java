@@ -0,0 +1,191 @@
+package data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+
+// Read side of the bundled drug-name dictionary (written at build time by DrugNameIndexWriter from
+// src/main/dictionary), for autocomplete. Read in place from a (memory-mapped) buffer like
+// InteractionIndex: a lookup touches O(log n) blocks and decodes only the names it returns.
+//
+// Names are sorted case-insensitively, so the names starting with a prefix are one contiguous range
+// (two binary searches). Within it the top k by rank (most common first) come from a min-rank tree
+// over blocks, expanded best-first: O(k log n) however many names share the prefix.
+//
+// Layout (big-endian):
+//   header   MAGIC, VERSION, count, blockCount, treeLeaves, then one offset per section
+//   blocks   int[blockCount + 1] offsets into the block bytes; BLOCK names per block, front-coded:
+//            the first as (length, ASCII bytes), the rest as (shared prefix length, suffix length,
+//            suffix bytes) against the previous name (lengths are unsigned bytes)
+//   ranks    int[count], by position: 0 = most common
+//   tree     int[2 * treeLeaves], node i has children 2i, 2i + 1; leaf treeLeaves + b holds the
+//            lowest rank in block b (Integer.MAX_VALUE past the last block)
+// Plain Java (no android.* imports) so the bench module and the build-time writer can compile it.
+public final class DrugNameIndex {
+
+    public static final int MAGIC = 0x4D444E4D; // "MDNM"
+    public static final int VERSION = 1;
+
+    // Longest name in chars (lengths are stored in one byte)
+    public static final int MAX_LENGTH = 100;
+
+    static final int BLOCK_SHIFT = 4;
+    static final int BLOCK = 1 << BLOCK_SHIFT;
+    static final int HEADER_INTS = 9;
+
+    private static final long ENTRY = 1L << 31; // queue tag: a name position, not a tree node
+
+    private final ByteBuffer buf;
+    private final int count, blockCount, treeLeaves;
+    private final int blockIndex, ranks, tree, blockBytes;
+
+    public DrugNameIndex(ByteBuffer buf) throws IOException {
+        this.buf = buf;
+        if (buf.capacity() < HEADER_INTS * 4 || buf.getInt(0) != MAGIC) throw new IOException("Not a drug-name index");
+        if (buf.getInt(4) != VERSION) throw new IOException("Unsupported drug-name index version " + buf.getInt(4));
+        count = buf.getInt(8);
+        blockCount = buf.getInt(12);
+        treeLeaves = buf.getInt(16);
+        blockIndex = buf.getInt(20);
+        ranks = buf.getInt(24);
+        tree = buf.getInt(28);
+        blockBytes = buf.getInt(32);
+        if (blockBytes + buf.getInt(blockIndex + 4 * blockCount) > buf.capacity()) {
+            throw new IOException("Truncated drug-name index");
+        }
+    }
+
+    // Map 'length' bytes of a file from 'offset' (an uncompressed APK asset, or a plain file)
+    public static DrugNameIndex map(FileChannel ch, long offset, long length) throws IOException {
+        return new DrugNameIndex(ch.map(FileChannel.MapMode.READ_ONLY, offset, length));
+    }
+
+    public int count() { return count; }
+
+    // Typed text as a lookup key: leading blanks dropped, runs of blanks as one space, lower case.
+    // A trailing blank stays ("isosorbide " only completes two-word names).
+    public static String normalize(String typed) {
+        StringBuilder sb = new StringBuilder(typed.length());
+        for (int i = 0; i < typed.length(); i++) {
+            char c = typed.charAt(i);
+            if (Character.isWhitespace(c)) {
+                if (sb.length() > 0 && sb.charAt(sb.length() - 1) != ' ') sb.append(' ');
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString().toLowerCase(Locale.ROOT);
+    }
+
+    // Up to 'k' names starting with 'prefix' (case-insensitive), most common first
+    public List<String> complete(String prefix, int k) {
+        String p = normalize(prefix);
+        if (p.isEmpty() || k <= 0 || count == 0) return Collections.emptyList();
+        byte[] name = new byte[MAX_LENGTH];
+        int lo = seek(p, false, name), hi = seek(p, true, name);
+        if (lo >= hi) return Collections.emptyList();
+
+        // Best-first over rank: the range as whole-block tree nodes plus the names of partial blocks
+        PriorityQueue<Long> queue = new PriorityQueue<>();
+        int firstFull = (lo + BLOCK - 1) >> BLOCK_SHIFT, endFull = hi >> BLOCK_SHIFT;
+        if (firstFull >= endFull) {
+            for (int i = lo; i < hi; i++) queue.add(entry(i));
+        } else {
+            for (int i = lo; i < firstFull << BLOCK_SHIFT; i++) queue.add(entry(i));
+            for (int i = endFull << BLOCK_SHIFT; i < hi; i++) queue.add(entry(i));
+            for (int l = firstFull + treeLeaves, r = endFull + treeLeaves; l < r; l >>= 1, r >>= 1) {
+                if ((l & 1) != 0) queue.add(node(l++));
+                if ((r & 1) != 0) queue.add(node(--r));
+            }
+        }
+        List<String> out = new ArrayList<>(Math.min(k, hi - lo));
+        while (out.size() < k && !queue.isEmpty()) {
+            long top = queue.poll();
+            int i = (int) (top & (ENTRY - 1));
+            if ((top & ENTRY) != 0) {
+                out.add(name(i, name));
+            } else if (i >= treeLeaves) {
+                int from = (i - treeLeaves) << BLOCK_SHIFT;
+                for (int e = from; e < Math.min(from + BLOCK, count); e++) queue.add(entry(e));
+            } else {
+                if (buf.getInt(tree + 8 * i) != Integer.MAX_VALUE) queue.add(node(2 * i));
+                if (buf.getInt(tree + 8 * i + 4) != Integer.MAX_VALUE) queue.add(node(2 * i + 1));
+            }
+        }
+        return out;
+    }
+
+    // Name at a sorted position
+    public String name(int position) {
+        return name(position, new byte[MAX_LENGTH]);
+    }
+
+    private long entry(int position) {
+        return (long) buf.getInt(ranks + 4 * position) << 32 | ENTRY | position;
+    }
+
+    private long node(int i) {
+        return (long) buf.getInt(tree + 4 * i) << 32 | i;
+    }
+
+    private String name(int position, byte[] name) {
+        int len = decode(position >> BLOCK_SHIFT, position & (BLOCK - 1), name);
+        return new String(name, 0, len, StandardCharsets.US_ASCII);
+    }
+
+    // First position whose name is not before 'p': at or after it (past = false), or after every
+    // name starting with it (past = true). Binary search on block heads, then a scan of one block.
+    private int seek(String p, boolean past, byte[] name) {
+        int lo = 0, hi = blockCount; // first block whose head is not before p
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (before(name, decode(mid, 0, name), p, past)) lo = mid + 1;
+            else hi = mid;
+        }
+        if (lo == 0) return 0;
+        int block = lo - 1, end = Math.min(BLOCK, count - (block << BLOCK_SHIFT));
+        int o = blockBytes + buf.getInt(blockIndex + 4 * block);
+        int len = 0;
+        for (int e = 0; e < end; e++) {
+            int shared = e == 0 ? 0 : buf.get(o++) & 0xFF;
+            int suffix = buf.get(o++) & 0xFF;
+            for (int k = 0; k < suffix; k++) name[shared + k] = buf.get(o++);
+            len = shared + suffix;
+            if (e > 0 && !before(name, len, p, past)) return (block << BLOCK_SHIFT) + e;
+        }
+        return Math.min(lo << BLOCK_SHIFT, count);
+    }
+
+    // Decode name 'e' of a block into 'name'; returns its length
+    private int decode(int block, int e, byte[] name) {
+        int o = blockBytes + buf.getInt(blockIndex + 4 * block);
+        int len = 0;
+        for (int i = 0; i <= e; i++) {
+            int shared = i == 0 ? 0 : buf.get(o++) & 0xFF;
+            int suffix = buf.get(o++) & 0xFF;
+            for (int k = 0; k < suffix; k++) name[shared + k] = buf.get(o++);
+            len = shared + suffix;
+        }
+        return len;
+    }
+
+    // Whether name[0, len) sorts before prefix p (or, with 'past', starts with it)
+    private static boolean before(byte[] name, int len, String p, boolean past) {
+        int n = Math.min(len, p.length());
+        for (int i = 0; i < n; i++) {
+            int c = lower(name[i]) - p.charAt(i);
+            if (c != 0) return c < 0;
+        }
+        return len < p.length() || past;
+    }
+
+    private static int lower(byte b) {
+        return b >= 'A' && b <= 'Z' ? b + ('a' - 'A') : b;
+    }
+}
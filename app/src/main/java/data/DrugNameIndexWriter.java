@@ -0,0 +1,176 @@
+package data;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Compiles the drug-name dictionary into the layout DrugNameIndex reads. Runs at build time
+// (app/build.gradle.kts, task compileDrugNames), in tests and in the benchmark, on one CSV file:
+//
+//   name[,weight]   (weight: how common the name is, default 0; higher completes first)
+//
+// '#' starts a comment line. Names are trimmed with inner blanks collapsed, must be printable ASCII
+// and at most MAX_LENGTH chars; names equal ignoring case are one entry (first spelling, highest
+// weight). Rank ties go to the shorter name, then alphabetical, so output is deterministic.
+// Plain Java (no android.* imports).
+public final class DrugNameIndexWriter {
+
+    private final Map<String, Object[]> names = new TreeMap<>(); // key (lower case) -> {name, weight}
+
+    // Usage: DrugNameIndexWriter <names.csv> <out.idx>
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) throw new IllegalArgumentException("Usage: <names.csv> <out.idx>");
+        DrugNameIndexWriter w = new DrugNameIndexWriter();
+        try (Reader in = new InputStreamReader(Files.newInputStream(new File(args[0]).toPath()), StandardCharsets.UTF_8)) {
+            w.readNames(in);
+        }
+        File out = new File(args[1]);
+        File dir = out.getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+        try (OutputStream os = new FileOutputStream(out)) {
+            w.write(os);
+        }
+    }
+
+    public void readNames(Reader in) throws IOException {
+        BufferedReader r = new BufferedReader(in);
+        String line;
+        int n = 0; // line number, for messages
+        while ((line = r.readLine()) != null) {
+            n++;
+            String t = line.trim();
+            if (t.isEmpty() || t.startsWith("#")) continue;
+            int comma = t.lastIndexOf(',');
+            int weight = 0;
+            if (comma >= 0) {
+                try {
+                    weight = Integer.parseInt(t.substring(comma + 1).trim());
+                } catch (NumberFormatException e) {
+                    throw new IOException("Line " + n + ": bad weight: " + t);
+                }
+                t = t.substring(0, comma);
+            }
+            add(t, weight, n);
+        }
+    }
+
+    public void add(String name, int weight) throws IOException {
+        add(name, weight, 0);
+    }
+
+    private void add(String raw, int weight, int line) throws IOException {
+        String name = DrugNameIndex.normalize(raw.trim()); // for the blanks; the spelling is kept below
+        if (name.isEmpty()) throw new IOException("Line " + line + ": empty name");
+        if (name.length() > DrugNameIndex.MAX_LENGTH) throw new IOException("Line " + line + ": name too long: " + raw);
+        if (weight < 0) throw new IOException("Line " + line + ": negative weight: " + raw);
+        StringBuilder spelled = new StringBuilder(name.length());
+        for (String word : raw.trim().split("\\s+")) {
+            for (int i = 0; i < word.length(); i++) {
+                char c = word.charAt(i);
+                if (c < 0x21 || c > 0x7E) throw new IOException("Line " + line + ": non-ASCII name " + raw);
+            }
+            if (spelled.length() > 0) spelled.append(' ');
+            spelled.append(word);
+        }
+        Object[] e = names.get(name);
+        if (e == null) names.put(name, new Object[]{spelled.toString(), weight});
+        else if ((Integer) e[1] < weight) e[1] = weight;
+    }
+
+    public void write(OutputStream os) throws IOException {
+        int count = names.size();
+        String[] sorted = new String[count]; // spellings, by key (TreeMap: ascending)
+        String[] keys = names.keySet().toArray(new String[0]);
+        int[] weights = new int[count];
+        int i = 0;
+        for (Object[] e : names.values()) {
+            sorted[i] = (String) e[0];
+            weights[i++] = (Integer) e[1];
+        }
+
+        // Ranks: weight descending, then shorter, then by key
+        List<Integer> order = new ArrayList<>(count);
+        for (i = 0; i < count; i++) order.add(i);
+        Collections.sort(order, (a, b) -> weights[a] != weights[b] ? Integer.compare(weights[b], weights[a])
+                : keys[a].length() != keys[b].length() ? Integer.compare(keys[a].length(), keys[b].length())
+                : keys[a].compareTo(keys[b]));
+        int[] ranks = new int[count];
+        for (i = 0; i < count; i++) ranks[order.get(i)] = i;
+
+        // Front-coded blocks
+        int blockCount = (count + DrugNameIndex.BLOCK - 1) >> DrugNameIndex.BLOCK_SHIFT;
+        int[] blockOffsets = new int[blockCount + 1];
+        ByteArrayOutputStream blocks = new ByteArrayOutputStream();
+        byte[] prev = new byte[0];
+        for (i = 0; i < count; i++) {
+            byte[] b = sorted[i].getBytes(StandardCharsets.US_ASCII);
+            if ((i & (DrugNameIndex.BLOCK - 1)) == 0) {
+                blockOffsets[i >> DrugNameIndex.BLOCK_SHIFT] = blocks.size();
+                blocks.write(b.length);
+                blocks.write(b, 0, b.length);
+            } else {
+                int shared = 0;
+                while (shared < Math.min(b.length, prev.length) && b[shared] == prev[shared]) shared++;
+                blocks.write(shared);
+                blocks.write(b.length - shared);
+                blocks.write(b, shared, b.length - shared);
+            }
+            prev = b;
+        }
+        blockOffsets[blockCount] = blocks.size();
+
+        // Min-rank tree over blocks
+        int leaves = 1;
+        while (leaves < blockCount) leaves <<= 1;
+        int[] tree = new int[2 * leaves];
+        Arrays.fill(tree, Integer.MAX_VALUE);
+        for (i = 0; i < count; i++) {
+            int leaf = leaves + (i >> DrugNameIndex.BLOCK_SHIFT);
+            tree[leaf] = Math.min(tree[leaf], ranks[i]);
+        }
+        for (i = leaves - 1; i > 0; i--) tree[i] = Math.min(tree[2 * i], tree[2 * i + 1]);
+
+        // Header offsets, in section order (int sections first, so they stay 4-byte aligned)
+        int off = DrugNameIndex.HEADER_INTS * 4;
+        int blockIndex = off;   off += 4 * blockOffsets.length;
+        int rankOff = off;      off += 4 * ranks.length;
+        int treeOff = off;      off += 4 * tree.length;
+        int blockBytes = off;
+
+        DataOutputStream out = new DataOutputStream(os);
+        for (int v : new int[]{DrugNameIndex.MAGIC, DrugNameIndex.VERSION, count, blockCount, leaves,
+                blockIndex, rankOff, treeOff, blockBytes}) {
+            out.writeInt(v);
+        }
+        writeInts(out, blockOffsets);
+        writeInts(out, ranks);
+        writeInts(out, tree);
+        blocks.writeTo(out);
+        out.flush();
+    }
+
+    // Whole dictionary to bytes (tests, benchmarks)
+    public byte[] toBytes() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        write(bytes);
+        return bytes.toByteArray();
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        for (int v : values) out.writeInt(v);
+    }
+}
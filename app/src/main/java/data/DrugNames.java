@@ -0,0 +1,34 @@
+package data;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+
+// The bundled drug-name dictionary (assets/drug_names.idx, compiled from src/main/dictionary at
+// build time), memory-mapped on first use like Interactions: the heap holds only the header fields,
+// and a lookup pages in just the blocks it touches.
+public final class DrugNames {
+    private DrugNames() {}
+
+    static final String ASSET = "drug_names.idx";
+
+    private static volatile DrugNameIndex index;
+
+    // The dictionary (maps it on the first call; call off the main thread)
+    public static DrugNameIndex get(Context ctx) throws IOException {
+        DrugNameIndex i = index;
+        if (i != null) return i;
+        synchronized (DrugNames.class) {
+            if (index == null) {
+                try (AssetFileDescriptor afd = ctx.getApplicationContext().getAssets().openFd(ASSET);
+                     FileInputStream in = afd.createInputStream()) {
+                    // The mapping outlives the channel
+                    index = DrugNameIndex.map(in.getChannel(), afd.getStartOffset(), afd.getDeclaredLength());
+                }
+            }
+            return index;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package data;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+// Location text -> coordinates, in three tiers: in-memory LRU, geocode_cache table, geocoder.
+// Hits are answered from memory with no I/O (peek); misses go to the table and only then to the
+// geocoder, whose answer (including "no match") is stored with a timestamp and expires after a TTL.
+// Lookup errors (no backend, offline) are remembered in memory only, so the next process retries.
+public final class GeocodeCache {
+
+    // Positive answers rarely change; misses are retried sooner (the text may have been fixed)
+    public static final long FOUND_TTL_MS = 30L * 24 * 60 * 60 * 1000;
+    public static final long MISS_TTL_MS = 24L * 60 * 60 * 1000;
+    // Lookup errors: don't retry on every tap
+    static final long ERROR_TTL_MS = 60L * 60 * 1000;
+
+    static final int MEMORY_ENTRIES = 128;
+
+    // Keys per table read (one IN (...) list), as PrescriptionRepository.MAX_BIND_ARGS
+    static final int MAX_BIND_ARGS = 500;
+
+    // Max geocoder calls per prefetch run (each is a network round trip)
+    static final int PREFETCH_MAX_LOOKUPS = 20;
+
+    // Platform geocoder; returns {lat, lng}, or null when nothing matches
+    public interface Geocoder {
+        double[] lookup(String location) throws IOException;
+    }
+
+    // Persistent tier (the geocode_cache table on devices)
+    public interface Store {
+        GeocodeEntry get(String key);
+        List<GeocodeEntry> getAll(List<String> keys);
+        void put(GeocodeEntry e);
+    }
+
+    private final Geocoder geocoder;
+    private final Store store;
+
+    // Access-ordered LRU; guarded by itself
+    private final LinkedHashMap<String, GeocodeEntry> memory =
+            new LinkedHashMap<String, GeocodeEntry>(MEMORY_ENTRIES, 0.75f, true) {
+                @Override protected boolean removeEldestEntry(Map.Entry<String, GeocodeEntry> e) {
+                    return size() > MEMORY_ENTRIES;
+                }
+            };
+
+    private long memoryHits, storeHits, lookups, lookupErrors; // guarded by memory
+
+    public GeocodeCache(Geocoder geocoder, Store store) {
+        this.geocoder = geocoder;
+        this.store = store;
+    }
+
+    // Cache key: case, surrounding/repeated spaces and spacing around commas don't matter
+    public static String normalize(String text) {
+        if (text == null) return "";
+        return text.trim().toLowerCase(Locale.ROOT)
+                .replaceAll("\\s+", " ")
+                .replaceAll(" ?, ?", ", ");
+    }
+
+    public static boolean isFresh(GeocodeEntry e, long now) {
+        long ttl = e.failed ? ERROR_TTL_MS : e.found ? FOUND_TTL_MS : MISS_TTL_MS;
+        return now - e.resolvedAt < ttl;
+    }
+
+    // Memory only (safe on the main thread): a fresh entry, or null if a lookup is needed
+    public GeocodeEntry peek(String location, long now) {
+        String key = normalize(location);
+        synchronized (memory) {
+            GeocodeEntry e = memory.get(key);
+            if (e == null || !isFresh(e, now)) return null;
+            memoryHits++;
+            return e;
+        }
+    }
+
+    // Full lookup (background thread): memory, then the table, then the geocoder.
+    // Never null; found == false means "no pin, use a text search".
+    public GeocodeEntry resolve(String location, long now) {
+        String key = normalize(location);
+        GeocodeEntry e = peek(location, now);
+        if (e != null) return e;
+
+        e = store.get(key);
+        if (e != null && isFresh(e, now)) {
+            remember(e);
+            synchronized (memory) { storeHits++; }
+            return e;
+        }
+        return lookup(key, location.trim(), now);
+    }
+
+    // Warm memory for many locations: batched table reads (MAX_BIND_ARGS keys each), then at most
+    // PREFETCH_MAX_LOOKUPS geocoder calls for what is missing or stale. Returns geocoder calls made.
+    public int prefetch(Collection<String> locations, long now) {
+        Set<String> keys = new LinkedHashSet<>();
+        Map<String, String> original = new LinkedHashMap<>();
+        for (String loc : locations) {
+            String key = normalize(loc);
+            if (key.isEmpty() || peek(loc, now) != null) continue;
+            if (keys.add(key)) original.put(key, loc.trim());
+        }
+        if (keys.isEmpty()) return 0;
+
+        List<String> all = new ArrayList<>(keys);
+        for (int i = 0; i < all.size(); i += MAX_BIND_ARGS) {
+            List<String> chunk = all.subList(i, Math.min(all.size(), i + MAX_BIND_ARGS));
+            for (GeocodeEntry e : store.getAll(chunk)) {
+                if (!isFresh(e, now)) continue;
+                remember(e);
+                keys.remove(e.key);
+            }
+        }
+        int calls = 0;
+        for (String key : keys) {
+            if (calls == PREFETCH_MAX_LOOKUPS) break;
+            calls++;
+            if (lookup(key, original.get(key), now).failed) break; // offline / no backend: stop here
+        }
+        return calls;
+    }
+
+    // Counters: {memory hits, table hits, geocoder calls, geocoder errors}
+    public long[] stats() {
+        synchronized (memory) {
+            return new long[]{memoryHits, storeHits, lookups, lookupErrors};
+        }
+    }
+
+    private GeocodeEntry lookup(String key, String text, long now) {
+        GeocodeEntry e;
+        try {
+            double[] ll = geocoder.lookup(text);
+            e = ll != null ? new GeocodeEntry(key, ll[0], ll[1], true, now)
+                    : new GeocodeEntry(key, 0, 0, false, now);
+            store.put(e);
+            synchronized (memory) { lookups++; }
+        } catch (IOException | RuntimeException ex) {
+            e = new GeocodeEntry(key, 0, 0, false, now);
+            e.failed = true;
+            synchronized (memory) { lookups++; lookupErrors++; }
+        }
+        remember(e);
+        return e;
+    }
+
+    private void remember(GeocodeEntry e) {
+        synchronized (memory) {
+            memory.put(e.key, e);
+        }
+    }
+}
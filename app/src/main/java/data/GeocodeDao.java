@@ -0,0 +1,31 @@
+package data;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import java.util.List;
+
+@Dao
+public interface GeocodeDao {
+
+    @Query("SELECT * FROM geocode_cache WHERE `key` = :key LIMIT 1")
+    GeocodeEntry get(String key);
+
+    @Query("SELECT * FROM geocode_cache WHERE `key` IN (:keys)")
+    List<GeocodeEntry> getAll(List<String> keys);
+
+    // Insert or replace (a refreshed lookup overwrites the old one)
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void put(GeocodeEntry e);
+
+    // Drop entries past every TTL; returns rows removed
+    @Query("DELETE FROM geocode_cache WHERE resolvedAt < :cutoff")
+    int deleteOlderThan(long cutoff);
+
+    // Distinct, non-empty doctor locations of ACTIVE prescriptions (for prefetch)
+    @Query("SELECT DISTINCT doctorLocation FROM prescription_drugs " +
+            "WHERE isActive = 1 AND doctorLocation IS NOT NULL AND doctorLocation != ''")
+    List<String> activeLocations();
+}
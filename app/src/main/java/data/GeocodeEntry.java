@@ -0,0 +1,29 @@
+package data;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.PrimaryKey;
+
+// Cached geocoder answer for one doctor location (key = GeocodeCache.normalize(text)).
+// found == false is a negative result: the geocoder had no match, so taps go straight to a text search.
+@Entity(tableName = "geocode_cache")
+public class GeocodeEntry {
+
+    @PrimaryKey @NonNull
+    public String key;       // normalized location text
+    public double lat;
+    public double lng;
+    public boolean found;    // false: no match (lat/lng unused)
+    public long resolvedAt;  // wall-clock millis of the lookup (TTL base)
+    @Ignore
+    public boolean failed;   // the lookup itself failed (kept in memory only, never stored)
+
+    public GeocodeEntry(@NonNull String key, double lat, double lng, boolean found, long resolvedAt) {
+        this.key = key;
+        this.lat = lat;
+        this.lng = lng;
+        this.found = found;
+        this.resolvedAt = resolvedAt;
+    }
+}
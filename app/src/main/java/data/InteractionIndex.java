@@ -0,0 +1,236 @@
+package data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+// Read side of the bundled drug-interaction index (written at build time by InteractionIndexWriter
+// from src/main/interactions). Everything is read in place from a (memory-mapped) buffer with
+// absolute gets: opening it reads only the header, and nothing is decoded into objects except
+// the hits of a check.
+//
+// Layout (big-endian):
+//   header    MAGIC, VERSION, nameCount, ingredientCount, pairCount, then one offset per section
+//   names     int[nameCount + 1] offsets into ASCII bytes, sorted; one entry per known name (drug,
+//             brand or class alias, normalized like normalize())
+//   nameIngs  int[nameCount + 1] offsets into a char[] of ingredient ids (a name can map to several,
+//             e.g. a combination product, or an ingredient plus its class)
+//   ingNames  int[ingredientCount + 1] offsets into UTF-8 bytes, by ingredient id
+//   pairs     int[pairCount] keys (a << 16 | b, a <= b), sorted; byte[pairCount] severities;
+//             int[pairCount + 1] offsets into UTF-8 notes
+// Plain Java (no android.* imports) so the bench module and the build-time writer can compile it.
+public final class InteractionIndex {
+
+    public static final int MAGIC = 0x4D444958; // "MDIX"
+    public static final int VERSION = 1;
+
+    // Severities, most serious last
+    public static final int MINOR = 1;
+    public static final int MODERATE = 2;
+    public static final int MAJOR = 3;
+
+    // Longest name in words (names are looked up longest first at each word of a drug name)
+    public static final int MAX_WORDS = 3;
+    // Ingredient ids must fit the 16-bit halves of a pair key
+    public static final int MAX_INGREDIENTS = 0x7FFF;
+
+    static final int HEADER_INTS = 14;
+
+    // One interaction between the drug being saved and another one
+    public static final class Hit {
+        public final int other;          // index into the checked list of other drug names
+        public final String ingredient;  // of the drug being saved
+        public final String otherIngredient;
+        public final int severity;       // MINOR .. MAJOR
+        public final String note;
+
+        Hit(int other, String ingredient, String otherIngredient, int severity, String note) {
+            this.other = other;
+            this.ingredient = ingredient;
+            this.otherIngredient = otherIngredient;
+            this.severity = severity;
+            this.note = note;
+        }
+    }
+
+    private final ByteBuffer buf;
+    private final int nameCount, ingredientCount, pairCount;
+    private final int nameIndex, nameBytes, nameIngIndex, nameIngs;
+    private final int ingNameIndex, ingNameBytes, pairKeys, pairSeverity, noteIndex, noteBytes;
+
+    public InteractionIndex(ByteBuffer buf) throws IOException {
+        this.buf = buf;
+        if (buf.capacity() < HEADER_INTS * 4 || buf.getInt(0) != MAGIC) throw new IOException("Not an interaction index");
+        if (buf.getInt(4) != VERSION) throw new IOException("Unsupported interaction index version " + buf.getInt(4));
+        nameCount = buf.getInt(8);
+        ingredientCount = buf.getInt(12);
+        pairCount = buf.getInt(16);
+        nameIndex = buf.getInt(20);
+        nameBytes = buf.getInt(24);
+        nameIngIndex = buf.getInt(28);
+        nameIngs = buf.getInt(32);
+        ingNameIndex = buf.getInt(36);
+        ingNameBytes = buf.getInt(40);
+        pairKeys = buf.getInt(44);
+        pairSeverity = buf.getInt(48);
+        noteIndex = buf.getInt(52);
+        noteBytes = noteIndex + 4 * (pairCount + 1);
+        if (noteBytes > buf.capacity()) throw new IOException("Truncated interaction index");
+    }
+
+    // Map 'length' bytes of a file from 'offset' (an uncompressed APK asset, or a plain file)
+    public static InteractionIndex map(FileChannel ch, long offset, long length) throws IOException {
+        return new InteractionIndex(ch.map(FileChannel.MapMode.READ_ONLY, offset, length));
+    }
+
+    public int nameCount() { return nameCount; }
+    public int ingredientCount() { return ingredientCount; }
+    public int pairCount() { return pairCount; }
+
+    // Lower-case ASCII words of a drug name, single-spaced ("Co-Amoxiclav 625mg" -> "co amoxiclav 625mg")
+    public static String normalize(String name) {
+        StringBuilder sb = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                sb.append(c);
+            } else if (sb.length() > 0 && sb.charAt(sb.length() - 1) != ' ') {
+                sb.append(' ');
+            }
+        }
+        int n = sb.length();
+        if (n > 0 && sb.charAt(n - 1) == ' ') sb.setLength(n - 1);
+        return sb.toString().toLowerCase(Locale.ROOT);
+    }
+
+    // Ingredient ids in a drug name, in order and without repeats; at each word the longest known
+    // name (up to MAX_WORDS words) wins, so "isosorbide mononitrate 20" finds the two-word name
+    public int[] ingredientsOf(String drugName) {
+        String s = normalize(drugName);
+        int[] out = new int[4];
+        int count = 0;
+        int start = 0;
+        while (start < s.length()) {
+            int matched = -1, matchedEnd = -1;
+            int end = start;
+            for (int words = 1; words <= MAX_WORDS && end < s.length(); words++) {
+                end = s.indexOf(' ', end + 1);
+                if (end < 0) end = s.length();
+                int name = findName(s, start, end);
+                if (name >= 0) {
+                    matched = name;
+                    matchedEnd = end;
+                }
+            }
+            if (matched >= 0) {
+                int from = buf.getInt(nameIngIndex + 4 * matched), to = buf.getInt(nameIngIndex + 4 * matched + 4);
+                for (int k = from; k < to; k++) {
+                    int id = buf.getChar(nameIngs + 2 * k);
+                    if (contains(out, count, id)) continue;
+                    if (count == out.length) out = Arrays.copyOf(out, count * 2);
+                    out[count++] = id;
+                }
+                start = matchedEnd + 1;
+            } else {
+                int next = s.indexOf(' ', start);
+                start = next < 0 ? s.length() : next + 1;
+            }
+        }
+        return Arrays.copyOf(out, count);
+    }
+
+    // Severity of a pair of ingredients (either order), 0 = none known
+    public int severity(int a, int b) {
+        int pair = find(a, b);
+        return pair < 0 ? 0 : buf.get(pairSeverity + pair);
+    }
+
+    // Note of a pair, or null
+    public String note(int a, int b) {
+        int pair = find(a, b);
+        return pair < 0 ? null : utf8(noteIndex, noteBytes, pair);
+    }
+
+    public String ingredientName(int id) {
+        return utf8(ingNameIndex, ingNameBytes, id);
+    }
+
+    // Every known interaction between 'drugName' and each of 'others' (e.g. the patient's active
+    // drugs), most serious first; ingredient lists of the others are looked up as they come
+    public List<Hit> check(String drugName, List<String> others) {
+        int[] mine = ingredientsOf(drugName);
+        if (mine.length == 0) return Collections.emptyList();
+        List<Hit> hits = new ArrayList<>();
+        for (int i = 0; i < others.size(); i++) {
+            int[] theirs = ingredientsOf(others.get(i));
+            for (int a : mine) {
+                for (int b : theirs) {
+                    int pair = find(a, b);
+                    if (pair < 0) continue;
+                    hits.add(new Hit(i, ingredientName(a), ingredientName(b), buf.get(pairSeverity + pair),
+                            utf8(noteIndex, noteBytes, pair)));
+                }
+            }
+        }
+        // Stable: same severity keeps list order
+        Collections.sort(hits, (x, y) -> Integer.compare(y.severity, x.severity));
+        return hits;
+    }
+
+    // Sorted-pair binary search; -1 when absent
+    private int find(int a, int b) {
+        int key = a <= b ? a << 16 | b : b << 16 | a;
+        int lo = 0, hi = pairCount - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int k = buf.getInt(pairKeys + 4 * mid);
+            if (k < key) lo = mid + 1;
+            else if (k > key) hi = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    // Binary search of s[start, end) in the sorted name table; -1 when absent
+    private int findName(String s, int start, int end) {
+        int lo = 0, hi = nameCount - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int c = compareName(mid, s, start, end);
+            if (c < 0) lo = mid + 1;
+            else if (c > 0) hi = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    // Name 'i' vs s[start, end), as unsigned bytes vs chars (names are ASCII)
+    private int compareName(int i, String s, int start, int end) {
+        int from = nameBytes + buf.getInt(nameIndex + 4 * i);
+        int to = nameBytes + buf.getInt(nameIndex + 4 * i + 4);
+        int n = Math.min(to - from, end - start);
+        for (int k = 0; k < n; k++) {
+            int c = (buf.get(from + k) & 0xFF) - s.charAt(start + k);
+            if (c != 0) return c;
+        }
+        return (to - from) - (end - start);
+    }
+
+    private String utf8(int index, int bytes, int i) {
+        int from = buf.getInt(index + 4 * i), to = buf.getInt(index + 4 * i + 4);
+        byte[] b = new byte[to - from];
+        for (int k = 0; k < b.length; k++) b[k] = buf.get(bytes + from + k);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    private static boolean contains(int[] a, int n, int v) {
+        for (int i = 0; i < n; i++) if (a[i] == v) return true;
+        return false;
+    }
+}
@@ -0,0 +1,214 @@
+package data;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+// Compiles the interaction dataset into the binary layout InteractionIndex reads. Runs at build
+// time (app/build.gradle.kts, task compileInteractions) and in tests, on two CSV files:
+//
+//   names:        name[,ingredient|ingredient...]   (no ingredients: the name is an ingredient itself)
+//   interactions: ingredient,ingredient,minor|moderate|major,note
+//
+// '#' starts a comment line. Names are normalized like InteractionIndex.normalize and must be
+// ASCII, at most MAX_WORDS words. Output is deterministic (ids follow sorted ingredient names).
+// Plain Java (no android.* imports).
+public final class InteractionIndexWriter {
+
+    private final Map<String, Set<String>> names = new TreeMap<>(); // name -> ingredients
+    private final List<String[]> interactions = new ArrayList<>();  // {a, b, severity, note}
+
+    // Usage: InteractionIndexWriter <names.csv> <interactions.csv> <out.idx>
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) throw new IllegalArgumentException("Usage: <names.csv> <interactions.csv> <out.idx>");
+        InteractionIndexWriter w = new InteractionIndexWriter();
+        try (Reader n = reader(new File(args[0])); Reader i = reader(new File(args[1]))) {
+            w.readNames(n);
+            w.readInteractions(i);
+        }
+        File out = new File(args[2]);
+        File dir = out.getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+        try (OutputStream os = new FileOutputStream(out)) {
+            w.write(os);
+        }
+    }
+
+    private static Reader reader(File f) throws IOException {
+        return new InputStreamReader(Files.newInputStream(f.toPath()), StandardCharsets.UTF_8);
+    }
+
+    public void readNames(Reader in) throws IOException {
+        int line = 0; // entry number, for messages
+        for (String[] f : lines(in, 2)) {
+            line++;
+            String name = name(f[0], line);
+            Set<String> ings = names.computeIfAbsent(name, k -> new LinkedHashSet<>());
+            if (f.length < 2 || f[1].trim().isEmpty()) {
+                ings.add(name);
+            } else {
+                for (String ing : f[1].split("\\|")) ings.add(name(ing, line));
+            }
+        }
+    }
+
+    public void readInteractions(Reader in) throws IOException {
+        int line = 0;
+        for (String[] f : lines(in, 4)) {
+            line++;
+            if (f.length < 3) throw new IOException("Entry " + line + ": need a,b,severity[,note]");
+            interactions.add(new String[]{name(f[0], line), name(f[1], line), f[2].trim().toLowerCase(Locale.ROOT),
+                    f.length > 3 ? f[3].trim() : ""});
+        }
+    }
+
+    public void write(OutputStream os) throws IOException {
+        // Ingredients: everything a name maps to, plus everything an interaction mentions
+        TreeMap<String, Integer> ids = new TreeMap<>();
+        for (Set<String> ings : names.values()) for (String ing : ings) ids.put(ing, 0);
+        for (String[] p : interactions) {
+            ids.put(p[0], 0);
+            ids.put(p[1], 0);
+        }
+        if (ids.size() > InteractionIndex.MAX_INGREDIENTS) throw new IOException("Too many ingredients: " + ids.size());
+        int next = 0;
+        for (Map.Entry<String, Integer> e : ids.entrySet()) e.setValue(next++);
+        // Every ingredient can be looked up by its own name
+        for (String ing : ids.keySet()) names.computeIfAbsent(ing, k -> new LinkedHashSet<>()).add(ing);
+
+        TreeMap<Integer, Object[]> pairs = new TreeMap<>(); // key -> {severity, note}
+        for (String[] p : interactions) {
+            int a = ids.get(p[0]), b = ids.get(p[1]);
+            int key = a <= b ? a << 16 | b : b << 16 | a;
+            if (pairs.put(key, new Object[]{severity(p[2]), p[3]}) != null) {
+                throw new IOException("Duplicate interaction: " + p[0] + ", " + p[1]);
+            }
+        }
+
+        // Sections
+        ByteArrayOutputStream nameBytes = new ByteArrayOutputStream();
+        int[] nameOffsets = new int[names.size() + 1];
+        int[] ingOffsets = new int[names.size() + 1];
+        ByteArrayOutputStream nameIngs = new ByteArrayOutputStream();
+        DataOutputStream nameIngsOut = new DataOutputStream(nameIngs);
+        int i = 0, ingCount = 0;
+        for (Map.Entry<String, Set<String>> e : names.entrySet()) {
+            nameBytes.write(e.getKey().getBytes(StandardCharsets.US_ASCII));
+            for (String ing : e.getValue()) {
+                nameIngsOut.writeChar(ids.get(ing));
+                ingCount++;
+            }
+            i++;
+            nameOffsets[i] = nameBytes.size();
+            ingOffsets[i] = ingCount;
+        }
+        ByteArrayOutputStream ingNames = new ByteArrayOutputStream();
+        int[] ingNameOffsets = new int[ids.size() + 1];
+        i = 0;
+        for (String ing : ids.keySet()) {
+            ingNames.write(ing.getBytes(StandardCharsets.UTF_8));
+            ingNameOffsets[++i] = ingNames.size();
+        }
+        ByteArrayOutputStream notes = new ByteArrayOutputStream();
+        int[] keys = new int[pairs.size()];
+        byte[] severities = new byte[pairs.size()];
+        int[] noteOffsets = new int[pairs.size() + 1];
+        i = 0;
+        for (Map.Entry<Integer, Object[]> e : pairs.entrySet()) { // TreeMap: keys ascending
+            keys[i] = e.getKey();
+            severities[i] = ((Integer) e.getValue()[0]).byteValue();
+            notes.write(((String) e.getValue()[1]).getBytes(StandardCharsets.UTF_8));
+            noteOffsets[++i] = notes.size();
+        }
+
+        // Header offsets, in section order
+        int off = InteractionIndex.HEADER_INTS * 4;
+        int nameIndex = off;      off += 4 * nameOffsets.length;
+        int nameBytesOff = off;   off += nameBytes.size();
+        int nameIngIndex = off;   off += 4 * ingOffsets.length;
+        int nameIngsOff = off;    off += nameIngs.size();
+        int ingNameIndex = off;   off += 4 * ingNameOffsets.length;
+        int ingNameBytes = off;   off += ingNames.size();
+        int pairKeys = off;       off += 4 * keys.length;
+        int pairSeverity = off;   off += severities.length;
+        int noteIndex = off;
+
+        DataOutputStream out = new DataOutputStream(os);
+        for (int v : new int[]{InteractionIndex.MAGIC, InteractionIndex.VERSION, names.size(), ids.size(),
+                keys.length, nameIndex, nameBytesOff, nameIngIndex, nameIngsOff, ingNameIndex, ingNameBytes,
+                pairKeys, pairSeverity, noteIndex}) {
+            out.writeInt(v);
+        }
+        writeInts(out, nameOffsets);
+        nameBytes.writeTo(out);
+        writeInts(out, ingOffsets);
+        nameIngs.writeTo(out);
+        writeInts(out, ingNameOffsets);
+        ingNames.writeTo(out);
+        writeInts(out, keys);
+        out.write(severities);
+        writeInts(out, noteOffsets);
+        notes.writeTo(out);
+        out.flush();
+    }
+
+    // Whole dataset to bytes (tests, benchmarks)
+    public byte[] toBytes() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        write(bytes);
+        return bytes.toByteArray();
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        for (int v : values) out.writeInt(v);
+    }
+
+    private static int severity(String s) throws IOException {
+        switch (s) {
+            case "minor": return InteractionIndex.MINOR;
+            case "moderate": return InteractionIndex.MODERATE;
+            case "major": return InteractionIndex.MAJOR;
+            default: throw new IOException("Unknown severity: " + s);
+        }
+    }
+
+    private static String name(String raw, int line) throws IOException {
+        String n = InteractionIndex.normalize(raw);
+        if (n.isEmpty()) throw new IOException("Entry " + line + ": empty name");
+        for (int i = 0; i < n.length(); i++) {
+            if (n.charAt(i) >= 0x80) throw new IOException("Entry " + line + ": non-ASCII name " + raw);
+        }
+        if (n.split(" ").length > InteractionIndex.MAX_WORDS) {
+            throw new IOException("Entry " + line + ": more than " + InteractionIndex.MAX_WORDS + " words: " + raw);
+        }
+        return n;
+    }
+
+    // Non-blank, non-comment lines split on commas (at most 'fields'; the last keeps its commas)
+    private static List<String[]> lines(Reader in, int fields) throws IOException {
+        List<String[]> out = new ArrayList<>();
+        BufferedReader r = new BufferedReader(in);
+        String line;
+        while ((line = r.readLine()) != null) {
+            String t = line.trim();
+            if (t.isEmpty() || t.startsWith("#")) continue;
+            out.add(t.split(",", fields));
+        }
+        return out;
+    }
+}
@@ -0,0 +1,34 @@
+package data;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+
+// The bundled interaction index (assets/interactions.idx, compiled from src/main/interactions at
+// build time), memory-mapped on first use. The asset is stored uncompressed (noCompress "idx"), so
+// it is mapped straight out of the APK: nothing is parsed or copied onto the heap.
+public final class Interactions {
+    private Interactions() {}
+
+    static final String ASSET = "interactions.idx";
+
+    private static volatile InteractionIndex index;
+
+    // The index (maps it on the first call; call off the main thread)
+    public static InteractionIndex get(Context ctx) throws IOException {
+        InteractionIndex i = index;
+        if (i != null) return i;
+        synchronized (Interactions.class) {
+            if (index == null) {
+                try (AssetFileDescriptor afd = ctx.getApplicationContext().getAssets().openFd(ASSET);
+                     FileInputStream in = afd.createInputStream()) {
+                    // The mapping outlives the channel
+                    index = InteractionIndex.map(in.getChannel(), afd.getStartOffset(), afd.getDeclaredLength());
+                }
+            }
+            return index;
+        }
+    }
+}
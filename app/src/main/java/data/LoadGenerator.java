@@ -0,0 +1,201 @@
+package data;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+// Deterministic synthetic prescriptions for scale tests (caregiver installs hold tens of thousands
+// of historical rows). Row i depends only on (seed, i), so any range can be generated on its own
+// and the DAO fill, the provider fill and the JVM benchmarks all see the same data.
+// Plain Java (no android.* imports) so the bench module can compile it.
+public final class LoadGenerator {
+
+    // Receives generated rows, one chunk at a time (the list is reused: copy what you keep)
+    public interface Sink {
+        void insert(List<PrescriptionDrug> chunk) throws IOException;
+    }
+
+    // Knobs; change them before generating
+    public long seed = 42;
+    public double activeRatio = 0.3;     // rows with today in [start, end]
+    public double futureRatio = 0.05;    // rows not started yet; the rest ended in the past
+    public double receivedRatio = 0.5;   // active rows already taken today
+    public int historyDays = 3 * 365;    // ended rows end this far back, at most
+    public int nameLength = 12;          // mean lengths in chars (each row varies +-50%)
+    public int descriptionLength = 40;   // 0 = empty description
+    public int doctorLength = 14;
+    public int locationLength = 24;
+
+    private final long today;
+    private final int[] termIds;
+    private int[] cumulative; // term weights, summed
+
+    private static final String[] SYLLABLES = {"am", "ox", "ci", "lin", "de", "pon", "ra", "mi", "pril",
+            "sta", "tin", "met", "for", "zol", "pan", "to", "ce", "tri", "xo", "val", "sar", "ta", "lo", "ne"};
+    private static final String[] WORDS = {"take", "with", "water", "after", "meals", "once", "daily", "twice",
+            "avoid", "alcohol", "&", "food", "<", "500mg", "tablet", "dose", "morning", "evening", "if", "pain"};
+    private static final String[] STREETS = {"Ermou", "Stadiou", "Panepistimiou", "Akadimias", "Patision",
+            "Vasilissis Sofias", "Kifisias", "Syngrou"};
+    private static final String[] CITIES = {"Athens", "Piraeus", "Thessaloniki", "Patras", "Larissa"};
+
+    public LoadGenerator(long today, int... termIds) {
+        if (termIds.length == 0) throw new IllegalArgumentException("At least one time term is needed");
+        this.today = today;
+        this.termIds = termIds.clone();
+        termWeights(null);
+    }
+
+    // Relative frequency of each term id (same order as the constructor's); null = uniform
+    public void termWeights(int[] weights) {
+        if (weights != null && weights.length != termIds.length) {
+            throw new IllegalArgumentException("Need " + termIds.length + " weights, got " + weights.length);
+        }
+        int[] sums = new int[termIds.length];
+        int total = 0;
+        for (int i = 0; i < sums.length; i++) {
+            int w = weights == null ? 1 : weights[i];
+            if (w < 0) throw new IllegalArgumentException("Negative weight for term " + termIds[i]);
+            total += w;
+            sums[i] = total;
+        }
+        if (total == 0) throw new IllegalArgumentException("All term weights are zero");
+        cumulative = sums;
+    }
+
+    // Row number 'index' (0-based); uid is left 0 for the table to assign
+    public PrescriptionDrug drug(int index) {
+        Rng r = new Rng(seed, index);
+        PrescriptionDrug d = new PrescriptionDrug();
+        d.shortName = name(r);
+        d.description = descriptionLength == 0 ? "" : words(r, descriptionLength);
+        d.doctorName = "Dr. " + capitalize(syllables(r, length(r, doctorLength)));
+        d.doctorLocation = location(r);
+        d.timeTermId = term(r);
+
+        double kind = r.nextDouble();
+        if (kind < activeRatio) {
+            d.startDateEpoch = today - r.nextInt(180);
+            d.endDateEpoch = today + r.nextInt(180);
+        } else if (kind < activeRatio + futureRatio) {
+            d.startDateEpoch = today + 1 + r.nextInt(60);
+            d.endDateEpoch = d.startDateEpoch + r.nextInt(90);
+        } else {
+            d.endDateEpoch = today - 1 - r.nextInt(Math.max(1, historyDays));
+            d.startDateEpoch = d.endDateEpoch - r.nextInt(90);
+        }
+        d.isActive = d.isActiveOn(today);
+        if (d.isActive && r.nextDouble() < receivedRatio) {
+            d.hasReceivedToday = true;
+            d.lastDateReceivedEpoch = today;
+        } else if (d.endDateEpoch < today) {
+            d.lastDateReceivedEpoch = d.endDateEpoch; // finished courses were taken to the end
+        }
+        return d;
+    }
+
+    // Rows [0, rows) in chunks of 'chunkRows'
+    public void generate(int rows, int chunkRows, Sink sink) throws IOException {
+        generate(0, rows, chunkRows, sink);
+    }
+
+    // Rows [from, to) in chunks of 'chunkRows'
+    public void generate(int from, int to, int chunkRows, Sink sink) throws IOException {
+        if (chunkRows <= 0) throw new IllegalArgumentException("chunkRows must be > 0");
+        List<PrescriptionDrug> chunk = new ArrayList<>(Math.min(chunkRows, Math.max(0, to - from)));
+        for (int i = from; i < to; i++) {
+            chunk.add(drug(i));
+            if (chunk.size() == chunkRows) {
+                sink.insert(chunk);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) sink.insert(chunk);
+    }
+
+    // One line describing the knobs, for reports
+    public String describe() {
+        return String.format(Locale.ROOT, "seed=%d active=%.2f future=%.2f received=%.2f terms=%s " +
+                        "lengths(name/desc/doctor/location)=%d/%d/%d/%d",
+                seed, activeRatio, futureRatio, receivedRatio, Arrays.toString(termIds),
+                nameLength, descriptionLength, doctorLength, locationLength);
+    }
+
+    private int term(Rng r) {
+        int pick = r.nextInt(cumulative[cumulative.length - 1]);
+        for (int i = 0; i < cumulative.length; i++) {
+            if (pick < cumulative[i]) return termIds[i];
+        }
+        return termIds[termIds.length - 1];
+    }
+
+    // "Amoxilin 500" style: syllables, sometimes a strength
+    private String name(Rng r) {
+        String base = capitalize(syllables(r, length(r, nameLength)));
+        return r.nextInt(3) == 0 ? base : base + " " + (50 * (1 + r.nextInt(20)));
+    }
+
+    private String location(Rng r) {
+        StringBuilder sb = new StringBuilder(STREETS[r.nextInt(STREETS.length)])
+                .append(' ').append(1 + r.nextInt(200))
+                .append(", ").append(CITIES[r.nextInt(CITIES.length)]);
+        int target = length(r, locationLength);
+        if (sb.length() > target) sb.setLength(Math.max(1, target));
+        return sb.toString().trim();
+    }
+
+    private static String syllables(Rng r, int length) {
+        StringBuilder sb = new StringBuilder(length + 4);
+        while (sb.length() < length) sb.append(SYLLABLES[r.nextInt(SYLLABLES.length)]);
+        sb.setLength(Math.max(1, length));
+        return sb.toString();
+    }
+
+    private static String words(Rng r, int mean) {
+        int length = length(r, mean);
+        StringBuilder sb = new StringBuilder(length + 8);
+        while (sb.length() < length) {
+            if (sb.length() > 0) sb.append(' ');
+            sb.append(WORDS[r.nextInt(WORDS.length)]);
+        }
+        return capitalize(sb.toString());
+    }
+
+    // Mean 'mean', spread +-50%
+    private static int length(Rng r, int mean) {
+        if (mean <= 1) return Math.max(mean, 1);
+        return mean / 2 + r.nextInt(mean + 1);
+    }
+
+    private static String capitalize(String s) {
+        return s.isEmpty() ? s : Character.toUpperCase(s.charAt(0)) + s.substring(1);
+    }
+
+    // SplitMix64 stream seeded from (seed, row): cheap, and java.util.SplittableRandom needs API 24
+    private static final class Rng {
+        private long state;
+
+        Rng(long seed, int row) {
+            state = mix(seed ^ (row * 0xD1B54A32D192ED03L));
+        }
+
+        long nextLong() {
+            return mix(state += 0x9E3779B97F4A7C15L);
+        }
+
+        int nextInt(int bound) {
+            return (int) ((nextLong() >>> 33) % bound);
+        }
+
+        double nextDouble() {
+            return (nextLong() >>> 11) * 0x1.0p-53;
+        }
+
+        private static long mix(long z) {
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            return z ^ (z >>> 31);
+        }
+    }
+}
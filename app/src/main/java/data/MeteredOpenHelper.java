@@ -0,0 +1,297 @@
+package data;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.CursorWrapper;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteTransactionListener;
+import android.os.CancellationSignal;
+import android.util.Pair;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteOpenHelper;
+import androidx.sqlite.db.SupportSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteStatement;
+
+import java.util.List;
+import java.util.Locale;
+
+// Open helper that times every statement Room runs (all DAO methods) into QueryMetrics.
+// Queries: the call plus the first window fill (SQLite does the work on the first move/count,
+// not in query()), with the row count; compiled statements (@Insert/@Update/@Delete and
+// UPDATE/DELETE @Query methods): each execute, with the rows changed.
+// While metrics are disabled, cursors are returned unwrapped and statements only check the flag.
+// Callbacks (create, migrations, onOpen) see the unwrapped database.
+final class MeteredOpenHelper implements SupportSQLiteOpenHelper {
+
+    static final class Factory implements SupportSQLiteOpenHelper.Factory {
+        private final SupportSQLiteOpenHelper.Factory delegate;
+
+        Factory(SupportSQLiteOpenHelper.Factory delegate) {
+            this.delegate = delegate;
+        }
+
+        @NonNull @Override
+        public SupportSQLiteOpenHelper create(@NonNull Configuration configuration) {
+            return new MeteredOpenHelper(delegate.create(configuration));
+        }
+    }
+
+    private final SupportSQLiteOpenHelper delegate;
+    private volatile MeteredDatabase wrapped; // wrapper of the delegate's (single) database object
+
+    MeteredOpenHelper(SupportSQLiteOpenHelper delegate) {
+        this.delegate = delegate;
+    }
+
+    @Nullable @Override public String getDatabaseName() { return delegate.getDatabaseName(); }
+
+    @Override public void setWriteAheadLoggingEnabled(boolean enabled) {
+        delegate.setWriteAheadLoggingEnabled(enabled);
+    }
+
+    @NonNull @Override public SupportSQLiteDatabase getWritableDatabase() {
+        return wrap(delegate.getWritableDatabase());
+    }
+
+    @NonNull @Override public SupportSQLiteDatabase getReadableDatabase() {
+        return wrap(delegate.getReadableDatabase());
+    }
+
+    @Override public void close() { delegate.close(); }
+
+    private SupportSQLiteDatabase wrap(SupportSQLiteDatabase db) {
+        MeteredDatabase w = wrapped;
+        if (w == null || w.delegate != db) wrapped = w = new MeteredDatabase(db);
+        return w;
+    }
+
+    // ---- database ----
+
+    private static final class MeteredDatabase implements SupportSQLiteDatabase {
+        final SupportSQLiteDatabase delegate;
+        private final QueryMetrics metrics = QueryMetrics.get();
+
+        MeteredDatabase(SupportSQLiteDatabase delegate) {
+            this.delegate = delegate;
+        }
+
+        // -- timed --
+
+        @NonNull @Override public Cursor query(@NonNull String query) {
+            long t = metrics.start();
+            Cursor c = delegate.query(query);
+            return t == 0 ? c : new MeteredCursor(c, metrics.sqlKey(query), t);
+        }
+
+        @NonNull @Override public Cursor query(@NonNull String query, @NonNull Object[] bindArgs) {
+            long t = metrics.start();
+            Cursor c = delegate.query(query, bindArgs);
+            return t == 0 ? c : new MeteredCursor(c, metrics.sqlKey(query), t);
+        }
+
+        @NonNull @Override public Cursor query(@NonNull SupportSQLiteQuery query) {
+            long t = metrics.start();
+            Cursor c = delegate.query(query);
+            return t == 0 ? c : new MeteredCursor(c, metrics.sqlKey(query.getSql()), t);
+        }
+
+        @NonNull @Override
+        public Cursor query(@NonNull SupportSQLiteQuery query, @Nullable CancellationSignal cancellationSignal) {
+            long t = metrics.start();
+            Cursor c = delegate.query(query, cancellationSignal);
+            return t == 0 ? c : new MeteredCursor(c, metrics.sqlKey(query.getSql()), t);
+        }
+
+        @NonNull @Override public SupportSQLiteStatement compileStatement(@NonNull String sql) {
+            return new MeteredStatement(delegate.compileStatement(sql), sql, metrics);
+        }
+
+        @Override public long insert(@NonNull String table, int conflictAlgorithm, @NonNull ContentValues values)
+                throws SQLException {
+            long t = metrics.start();
+            long id = delegate.insert(table, conflictAlgorithm, values);
+            if (t != 0) metrics.stop(metrics.sqlKey("INSERT INTO " + table + " " + columns(values)), t, id >= 0 ? 1 : 0);
+            return id;
+        }
+
+        @Override public int delete(@NonNull String table, @Nullable String whereClause, @Nullable Object[] whereArgs) {
+            long t = metrics.start();
+            int rows = delegate.delete(table, whereClause, whereArgs);
+            if (t != 0) metrics.stop(metrics.sqlKey("DELETE FROM " + table + where(whereClause)), t, rows);
+            return rows;
+        }
+
+        @Override public int update(@NonNull String table, int conflictAlgorithm, @NonNull ContentValues values,
+                                    @Nullable String whereClause, @Nullable Object[] whereArgs) {
+            long t = metrics.start();
+            int rows = delegate.update(table, conflictAlgorithm, values, whereClause, whereArgs);
+            if (t != 0) {
+                metrics.stop(metrics.sqlKey("UPDATE " + table + " SET " + columns(values) + where(whereClause)), t, rows);
+            }
+            return rows;
+        }
+
+        @Override public void execSQL(@NonNull String sql) throws SQLException {
+            long t = metrics.start();
+            delegate.execSQL(sql);
+            if (t != 0) metrics.stop(metrics.sqlKey(sql), t, 0);
+        }
+
+        @Override public void execSQL(@NonNull String sql, @NonNull Object[] bindArgs) throws SQLException {
+            long t = metrics.start();
+            delegate.execSQL(sql, bindArgs);
+            if (t != 0) metrics.stop(metrics.sqlKey(sql), t, 0);
+        }
+
+        // Column names in a stable order, so the same ContentValues shape gives the same key
+        private static String columns(ContentValues values) {
+            return new java.util.TreeSet<>(values.keySet()).toString();
+        }
+
+        private static String where(String whereClause) {
+            return whereClause == null || whereClause.isEmpty() ? "" : " WHERE " + whereClause;
+        }
+
+        // -- plain delegation --
+
+        @Override public void beginTransaction() { delegate.beginTransaction(); }
+        @Override public void beginTransactionNonExclusive() { delegate.beginTransactionNonExclusive(); }
+        @Override public void beginTransactionWithListener(@NonNull SQLiteTransactionListener listener) {
+            delegate.beginTransactionWithListener(listener);
+        }
+        @Override public void beginTransactionWithListenerNonExclusive(@NonNull SQLiteTransactionListener listener) {
+            delegate.beginTransactionWithListenerNonExclusive(listener);
+        }
+        @Override public void endTransaction() { delegate.endTransaction(); }
+        @Override public void setTransactionSuccessful() { delegate.setTransactionSuccessful(); }
+        @Override public boolean inTransaction() { return delegate.inTransaction(); }
+        @Override public boolean isDbLockedByCurrentThread() { return delegate.isDbLockedByCurrentThread(); }
+        @Override public boolean yieldIfContendedSafely() { return delegate.yieldIfContendedSafely(); }
+        @Override public boolean yieldIfContendedSafely(long sleepAfterYieldDelayMillis) {
+            return delegate.yieldIfContendedSafely(sleepAfterYieldDelayMillis);
+        }
+        @Override public boolean isExecPerConnectionSQLSupported() { return delegate.isExecPerConnectionSQLSupported(); }
+        @Override public void execPerConnectionSQL(@NonNull String sql, @Nullable Object[] bindArgs) {
+            delegate.execPerConnectionSQL(sql, bindArgs);
+        }
+        @Override public int getVersion() { return delegate.getVersion(); }
+        @Override public void setVersion(int version) { delegate.setVersion(version); }
+        @Override public long getMaximumSize() { return delegate.getMaximumSize(); }
+        @Override public long setMaximumSize(long numBytes) { return delegate.setMaximumSize(numBytes); }
+        @Override public long getPageSize() { return delegate.getPageSize(); }
+        @Override public void setPageSize(long numBytes) { delegate.setPageSize(numBytes); }
+        @Override public boolean isReadOnly() { return delegate.isReadOnly(); }
+        @Override public boolean isOpen() { return delegate.isOpen(); }
+        @Override public boolean needUpgrade(int newVersion) { return delegate.needUpgrade(newVersion); }
+        @Nullable @Override public String getPath() { return delegate.getPath(); }
+        @Override public void setLocale(@NonNull Locale locale) { delegate.setLocale(locale); }
+        @Override public void setMaxSqlCacheSize(int cacheSize) { delegate.setMaxSqlCacheSize(cacheSize); }
+        @Override public void setForeignKeyConstraintsEnabled(boolean enabled) {
+            delegate.setForeignKeyConstraintsEnabled(enabled);
+        }
+        @Override public boolean enableWriteAheadLogging() { return delegate.enableWriteAheadLogging(); }
+        @Override public void disableWriteAheadLogging() { delegate.disableWriteAheadLogging(); }
+        @Override public boolean isWriteAheadLoggingEnabled() { return delegate.isWriteAheadLoggingEnabled(); }
+        @Nullable @Override public List<Pair<String, String>> getAttachedDbs() { return delegate.getAttachedDbs(); }
+        @Override public boolean isDatabaseIntegrityOk() { return delegate.isDatabaseIntegrityOk(); }
+        @Override public void close() throws java.io.IOException { delegate.close(); }
+    }
+
+    // ---- cursor: query time + first fill, rows counted; recorded on close ----
+
+    private static final class MeteredCursor extends CursorWrapper {
+        private final String key;
+        private long nanos;
+        private boolean filled, recorded;
+
+        MeteredCursor(Cursor c, String key, long startNanos) {
+            super(c);
+            this.key = key;
+            this.nanos = System.nanoTime() - startNanos;
+        }
+
+        // The first count/move runs the statement and fills the first window
+        private void fill() {
+            if (filled) return;
+            filled = true;
+            long t = System.nanoTime();
+            super.getCount();
+            nanos += System.nanoTime() - t;
+        }
+
+        @Override public int getCount() { fill(); return super.getCount(); }
+        @Override public boolean move(int offset) { fill(); return super.move(offset); }
+        @Override public boolean moveToPosition(int position) { fill(); return super.moveToPosition(position); }
+        @Override public boolean moveToFirst() { fill(); return super.moveToFirst(); }
+        @Override public boolean moveToLast() { fill(); return super.moveToLast(); }
+        @Override public boolean moveToNext() { fill(); return super.moveToNext(); }
+        @Override public boolean moveToPrevious() { fill(); return super.moveToPrevious(); }
+
+        @Override public void close() {
+            if (!recorded) {
+                recorded = true;
+                QueryMetrics.get().record(key, nanos, filled ? super.getCount() : 0);
+            }
+            super.close();
+        }
+    }
+
+    // ---- compiled statement: each execution timed ----
+
+    private static final class MeteredStatement implements SupportSQLiteStatement {
+        private final SupportSQLiteStatement delegate;
+        private final String sql;
+        private final QueryMetrics metrics;
+
+        MeteredStatement(SupportSQLiteStatement delegate, String sql, QueryMetrics metrics) {
+            this.delegate = delegate;
+            this.sql = sql;
+            this.metrics = metrics;
+        }
+
+        @Override public void execute() {
+            long t = metrics.start();
+            delegate.execute();
+            if (t != 0) metrics.stop(metrics.sqlKey(sql), t, 0);
+        }
+
+        @Override public int executeUpdateDelete() {
+            long t = metrics.start();
+            int rows = delegate.executeUpdateDelete();
+            if (t != 0) metrics.stop(metrics.sqlKey(sql), t, rows);
+            return rows;
+        }
+
+        @Override public long executeInsert() {
+            long t = metrics.start();
+            long id = delegate.executeInsert();
+            if (t != 0) metrics.stop(metrics.sqlKey(sql), t, id >= 0 ? 1 : 0);
+            return id;
+        }
+
+        @Override public long simpleQueryForLong() {
+            long t = metrics.start();
+            long v = delegate.simpleQueryForLong();
+            if (t != 0) metrics.stop(metrics.sqlKey(sql), t, 1);
+            return v;
+        }
+
+        @Nullable @Override public String simpleQueryForString() {
+            long t = metrics.start();
+            String v = delegate.simpleQueryForString();
+            if (t != 0) metrics.stop(metrics.sqlKey(sql), t, 1);
+            return v;
+        }
+
+        @Override public void bindNull(int index) { delegate.bindNull(index); }
+        @Override public void bindLong(int index, long value) { delegate.bindLong(index, value); }
+        @Override public void bindDouble(int index, double value) { delegate.bindDouble(index, value); }
+        @Override public void bindString(int index, @NonNull String value) { delegate.bindString(index, value); }
+        @Override public void bindBlob(int index, @NonNull byte[] value) { delegate.bindBlob(index, value); }
+        @Override public void clearBindings() { delegate.clearBindings(); }
+        @Override public void close() throws java.io.IOException { delegate.close(); }
+    }
+}
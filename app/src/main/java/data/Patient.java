@@ -0,0 +1,32 @@
+package data;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.PrimaryKey;
+
+// A person whose medications are managed on this device (a caregiver may have several).
+// Every prescription belongs to one patient; lists, recompute and export work on one patient at a time.
+@Entity(tableName = "patients")
+public class Patient {
+
+    @PrimaryKey(autoGenerate = true)
+    public int id;            // auto id
+
+    @NonNull
+    public String name;       // shown in the patient switcher
+
+    // Patient created with the database (and given every prescription older than patients)
+    public static final int DEFAULT_ID = 1;
+    public static final String DEFAULT_NAME = "Me";
+
+    public Patient(@NonNull String name) {
+        this.name = name;
+    }
+
+    @Ignore
+    public Patient(int id, @NonNull String name) {
+        this.id = id;
+        this.name = name;
+    }
+}
@@ -0,0 +1,39 @@
+package data;
+
+import android.database.Cursor;
+
+import androidx.lifecycle.LiveData;
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.Query;
+import androidx.room.Update;
+
+import java.util.List;
+
+@Dao
+public interface PatientDao {
+
+    // Insert a new patient; returns the new id
+    @Insert
+    long insert(Patient patient);
+
+    // Rename; returns affected row count
+    @Update
+    int update(Patient patient);
+
+    // Delete a patient; their prescriptions (and dose history) go with them (FK cascade)
+    @Query("DELETE FROM patients WHERE id = :id")
+    int deleteById(int id);
+
+    // Live list for the patient switcher, by name
+    @Query("SELECT * FROM patients ORDER BY name COLLATE NOCASE ASC, id ASC")
+    LiveData<List<Patient>> getAll();
+
+    // Synchronous single patient, or null
+    @Query("SELECT * FROM patients WHERE id = :id LIMIT 1")
+    Patient getByIdSync(int id);
+
+    // Every patient, for archive exports (caller must close it)
+    @Query("SELECT * FROM patients ORDER BY id ASC")
+    Cursor allCursor();
+}
@@ -0,0 +1,23 @@
+package data;
+
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+// Change sequence per prescription, kept by triggers on prescription_drugs (see
+// AppDatabase.createChangeTriggers), so every write path is tracked: Room, provider, rollover.
+// Deleted rows stay as tombstones until an archive export has carried them.
+@Entity(tableName = "prescription_changes", indices = @Index("seq"))
+public class PrescriptionChange {
+
+    @PrimaryKey
+    public int uid;            // PrescriptionDrug.uid (no FK: outlives the row when deleted)
+    public long seq;           // app-wide, increasing on every insert/update/delete
+    public boolean deleted;    // tombstone
+
+    public PrescriptionChange(int uid, long seq, boolean deleted) {
+        this.uid = uid;
+        this.seq = seq;
+        this.deleted = deleted;
+    }
+}
@@ -1,6 +1,9 @@
 package data;
 
+import android.database.Cursor;
+
 import androidx.lifecycle.LiveData;
+import androidx.room.ColumnInfo;
 import androidx.room.Dao;
 import androidx.room.Insert;
 import androidx.room.Query;
@@ -15,24 +18,66 @@ public interface PrescriptionDao {
     @Insert
     long insert(PrescriptionDrug drug);
 
+    // Insert many prescriptions in one transaction; returns the new uids in order
+    @Insert
+    List<Long> insertAll(List<PrescriptionDrug> drugs);
+
     // Delete by UID; returns affected row count
     @Query("DELETE FROM prescription_drugs WHERE uid = :uid")
     int deleteById(int uid);
 
-    // Live list of ACTIVE prescriptions joined with time terms, sorted by term then uid
-    @Query("SELECT p.*, t.id AS term_id, t.code AS term_code, t.sortOrder AS term_order " +
-            "FROM prescription_drugs p " +
-            "JOIN time_terms t ON p.timeTermId = t.id " +
-            "WHERE p.isActive = 1 " +
-            "ORDER BY t.sortOrder ASC, p.uid ASC")
-    LiveData<List<PrescriptionWithTerm>> getActiveWithTerm();
+    // Delete a set of UIDs in one statement (keep the list under SQLite's bind-arg limit)
+    @Query("DELETE FROM prescription_drugs WHERE uid IN (:uids)")
+    int deleteByIds(List<Integer> uids);
 
-    // Live single item (by uid) joined with its time term
-    @Query("SELECT p.*, t.id AS term_id, t.code AS term_code, t.sortOrder AS term_order " +
-            "FROM prescription_drugs p " +
-            "JOIN time_terms t ON p.timeTermId = t.id " +
-            "WHERE p.uid = :uid LIMIT 1")
-    LiveData<PrescriptionWithTerm> getByIdWithTerm(int uid);
+    // Live list of one patient's ACTIVE prescriptions, sorted by term id then uid
+    // (terms resolved from TimeTermRegistry; use TimeTermRegistry.inTermOrder for display order)
+    @Query("SELECT * FROM prescription_drugs " +
+            "WHERE patientId = :patientId AND isActive = 1 " +
+            "ORDER BY timeTermId ASC, uid ASC")
+    LiveData<List<PrescriptionWithTerm>> getActiveWithTerm(int patientId);
+
+    // Keyset page of a patient's ACTIVE items inside one time term, after a uid
+    // (index seek on patientId, isActive, timeTermId)
+    @Query("SELECT * FROM prescription_drugs " +
+            "WHERE patientId = :patientId AND isActive = 1 AND timeTermId = :termId AND uid > :afterUid " +
+            "ORDER BY uid ASC LIMIT :limit")
+    List<PrescriptionWithTerm> activePageAfter(int patientId, int termId, int afterUid, int limit);
+
+    // Keyset page of a patient's ACTIVE items inside one time term, before a uid (newest first)
+    @Query("SELECT * FROM prescription_drugs " +
+            "WHERE patientId = :patientId AND isActive = 1 AND timeTermId = :termId AND uid < :beforeUid " +
+            "ORDER BY uid DESC LIMIT :limit")
+    List<PrescriptionWithTerm> activePageBefore(int patientId, int termId, int beforeUid, int limit);
+
+    // ---- Full-text search (prescription_fts; build :match with SearchQuery.match) ----
+    // Driven by the FTS index in rowid (= uid) order, so LIMIT stops the scan early;
+    // other patients' matches are dropped by the uid lookup.
+
+    // Page of a patient's matches after a uid
+    @Query("SELECT prescription_drugs.* FROM prescription_fts " +
+            "JOIN prescription_drugs ON prescription_drugs.uid = prescription_fts.rowid " +
+            "WHERE prescription_fts MATCH :match AND prescription_fts.rowid > :afterUid " +
+            "AND prescription_drugs.patientId = :patientId " +
+            "ORDER BY prescription_fts.rowid ASC LIMIT :limit")
+    List<PrescriptionWithTerm> searchAfter(int patientId, String match, int afterUid, int limit);
+
+    // Page of a patient's matches before a uid (newest first)
+    @Query("SELECT prescription_drugs.* FROM prescription_fts " +
+            "JOIN prescription_drugs ON prescription_drugs.uid = prescription_fts.rowid " +
+            "WHERE prescription_fts MATCH :match AND prescription_fts.rowid < :beforeUid " +
+            "AND prescription_drugs.patientId = :patientId " +
+            "ORDER BY prescription_fts.rowid DESC LIMIT :limit")
+    List<PrescriptionWithTerm> searchBefore(int patientId, String match, int beforeUid, int limit);
+
+    // Synchronous single item (by uid) with its time term (resolved from TimeTermRegistry).
+    // Observe it through PrescriptionRepository.getById, which re-queries only when this row changes.
+    @Query("SELECT * FROM prescription_drugs WHERE uid = :uid LIMIT 1")
+    PrescriptionWithTerm getByIdWithTerm(int uid);
+
+    // Synchronous set of items (by uid) with their terms, for in-place list deltas
+    @Query("SELECT * FROM prescription_drugs WHERE uid IN (:uids)")
+    List<PrescriptionWithTerm> getByIdsWithTerm(int[] uids);
 
     // Mark as received today (sets lastDateReceivedEpoch and hasReceivedToday)
     @Query("UPDATE prescription_drugs " +
@@ -40,29 +85,158 @@ public interface PrescriptionDao {
             "WHERE uid = :uid")
     int markReceivedToday(int uid, long today);
 
-    // Recompute flags for 'today' (isActive, hasReceivedToday)
+    // Mark a set of UIDs as received today in one statement
+    @Query("UPDATE prescription_drugs " +
+            "SET lastDateReceivedEpoch = :today, hasReceivedToday = 1 " +
+            "WHERE uid IN (:uids)")
+    int markAllReceivedToday(List<Integer> uids, long today);
+
+    // Full recompute of flags for 'today' (isActive, hasReceivedToday); rewrites every row.
+    // The hourly job uses the incremental DayRollover queries below instead.
     @Query("UPDATE prescription_drugs " +
             "SET isActive = CASE WHEN :today BETWEEN startDateEpoch AND endDateEpoch THEN 1 ELSE 0 END, " +
             "    hasReceivedToday = CASE WHEN lastDateReceivedEpoch = :today THEN 1 ELSE 0 END")
     void recomputeForToday(long today);
 
-    // Synchronous fetch of ACTIVE items for export (no LiveData)
+    // Same recompute for one patient; only rows whose flags change are written (and logged/re-indexed)
+    @Query("UPDATE prescription_drugs " +
+            "SET isActive = CASE WHEN :today BETWEEN startDateEpoch AND endDateEpoch THEN 1 ELSE 0 END, " +
+            "    hasReceivedToday = CASE WHEN lastDateReceivedEpoch = :today THEN 1 ELSE 0 END " +
+            "WHERE patientId = :patientId " +
+            "AND (isActive <> (CASE WHEN :today BETWEEN startDateEpoch AND endDateEpoch THEN 1 ELSE 0 END) " +
+            "  OR hasReceivedToday <> (CASE WHEN lastDateReceivedEpoch = :today THEN 1 ELSE 0 END))")
+    int recomputeForPatient(int patientId, long today);
+
+    // ---- Incremental day rollover ----
+    // Each statement touches at most :limit rows whose flag actually flips, so the
+    // write lock is held only briefly; callers loop until fewer than :limit rows change.
+    // (The unary '+' keeps SQLite on the endDateEpoch index for the activation query.)
+
+    // Rows whose start boundary was crossed (inactive, but today is inside the range)
+    @Query("UPDATE prescription_drugs SET isActive = 1 WHERE uid IN (" +
+            "SELECT uid FROM prescription_drugs " +
+            "WHERE isActive = 0 AND endDateEpoch >= :today AND +startDateEpoch <= :today " +
+            "LIMIT :limit)")
+    int activateStarted(long today, int limit);
+
+    // Rows whose end boundary was crossed (active, but today is outside the range)
+    @Query("UPDATE prescription_drugs SET isActive = 0 WHERE uid IN (" +
+            "SELECT uid FROM prescription_drugs " +
+            "WHERE isActive = 1 AND (endDateEpoch < :today OR startDateEpoch > :today) " +
+            "LIMIT :limit)")
+    int deactivateEnded(long today, int limit);
+
+    // "Received today" flags left over from a previous day
+    @Query("UPDATE prescription_drugs SET hasReceivedToday = 0 WHERE uid IN (" +
+            "SELECT uid FROM prescription_drugs " +
+            "WHERE hasReceivedToday = 1 " +
+            "AND (lastDateReceivedEpoch IS NULL OR lastDateReceivedEpoch <> :today) " +
+            "LIMIT :limit)")
+    int clearStaleReceived(long today, int limit);
+
+    // Rows received today whose flag was not set (e.g. written through the provider)
+    @Query("UPDATE prescription_drugs SET hasReceivedToday = 1 WHERE uid IN (" +
+            "SELECT uid FROM prescription_drugs " +
+            "WHERE hasReceivedToday = 0 AND lastDateReceivedEpoch = :today " +
+            "LIMIT :limit)")
+    int setMissingReceived(long today, int limit);
+
+    // Synchronous fetch of a patient's ACTIVE items (no LiveData), sorted by term id then uid
+    // (use TimeTermRegistry.inTermOrder for display order)
+    @Query("SELECT * FROM prescription_drugs " +
+            "WHERE patientId = :patientId AND isActive = 1 " +
+            "ORDER BY timeTermId ASC, uid ASC")
+    List<PrescriptionWithTerm> getActiveWithTermNow(int patientId);
+
+    // A patient's ACTIVE rows as a cursor, sorted by term id then uid, for streaming exports
+    // (caller must close it). Term code comes from TimeTermRegistry; valid display order when ids follow sortOrder.
+    @Query("SELECT * FROM prescription_drugs " +
+            "WHERE patientId = :patientId AND isActive = 1 " +
+            "ORDER BY timeTermId ASC, uid ASC")
+    Cursor getActiveCursor(int patientId);
+
+    // Same rows joined with time_terms and sorted by sortOrder (fallback when ids do not follow sortOrder;
+    // caller must close it)
     @Query("SELECT p.*, t.id AS term_id, t.code AS term_code, t.sortOrder AS term_order " +
             "FROM prescription_drugs p " +
             "JOIN time_terms t ON p.timeTermId = t.id " +
-            "WHERE p.isActive = 1 " +
+            "WHERE p.patientId = :patientId AND p.isActive = 1 " +
             "ORDER BY t.sortOrder ASC, p.uid ASC")
-    List<PrescriptionWithTerm> getActiveWithTermNow();
+    Cursor getActiveWithTermCursor(int patientId);
 
     // Update an existing prescription; returns affected row count
     @Update
     int update(PrescriptionDrug drug);
 
+    // Update many rows in one transaction; returns affected row count
+    @Update
+    int updateAll(List<PrescriptionDrug> drugs);
+
     // Synchronous single item (by uid)
     @Query("SELECT * FROM prescription_drugs WHERE uid = :uid LIMIT 1")
     PrescriptionDrug getByIdSync(int uid);
 
-    // Live single item (by uid) – useful for form binding
-    @Query("SELECT * FROM prescription_drugs WHERE uid = :uid LIMIT 1")
-    LiveData<PrescriptionDrug> observeById(int uid);
+    // ---- Archive export (caller must close the cursors) ----
+
+    // Highest change sequence so far (0 when nothing was ever written)
+    @Query("SELECT IFNULL(MAX(seq), 0) FROM prescription_changes")
+    long maxChangeSeq();
+
+    // Every row with its change sequence, by uid
+    @Query("SELECT p.*, IFNULL(c.seq, 0) AS seq FROM prescription_drugs p " +
+            "LEFT JOIN prescription_changes c ON c.uid = p.uid " +
+            "ORDER BY p.uid")
+    Cursor archiveAll();
+
+    // Rows inserted/updated in (fromSeq, toSeq], in change order
+    @Query("SELECT p.*, c.seq AS seq FROM prescription_changes c " +
+            "JOIN prescription_drugs p ON p.uid = c.uid " +
+            "WHERE c.seq > :fromSeq AND c.seq <= :toSeq AND c.deleted = 0 " +
+            "ORDER BY c.seq")
+    Cursor archiveChanged(long fromSeq, long toSeq);
+
+    // Rows deleted in (fromSeq, toSeq]
+    @Query("SELECT uid, seq FROM prescription_changes " +
+            "WHERE seq > :fromSeq AND seq <= :toSeq AND deleted = 1 " +
+            "ORDER BY seq")
+    Cursor archiveDeleted(long fromSeq, long toSeq);
+
+    // Drop tombstones an export already carried (the newest change row is kept: it holds MAX(seq))
+    @Query("DELETE FROM prescription_changes WHERE deleted = 1 AND seq <= :upToSeq " +
+            "AND seq < (SELECT MAX(seq) FROM prescription_changes)")
+    int pruneTombstones(long upToSeq);
+
+    // Content of a patient's rows, for the bulk import's duplicate check (caller must close the cursor)
+    @Query("SELECT shortName, description, startDateEpoch, endDateEpoch, timeTermId, doctorName, " +
+            "doctorLocation FROM prescription_drugs WHERE patientId = :patientId")
+    Cursor importKeys(int patientId);
+
+    // Names of a patient's ACTIVE rows, for the interaction check on save
+    @Query("SELECT uid, shortName FROM prescription_drugs WHERE patientId = :patientId AND isActive = 1")
+    List<ActiveName> activeNames(int patientId);
+
+    // Reminder inputs for every ACTIVE row (no names/descriptions; the scheduler only needs times)
+    @Query("SELECT uid, timeTermId, endDateEpoch, isActive, hasReceivedToday FROM prescription_drugs " +
+            "WHERE isActive = 1")
+    List<ReminderSlot> reminderSlots();
+
+    // Same inputs for a few rows, whatever their state (inactive ones leave the reminder queue)
+    @Query("SELECT uid, timeTermId, endDateEpoch, isActive, hasReceivedToday FROM prescription_drugs " +
+            "WHERE uid IN (:uids)")
+    List<ReminderSlot> reminderSlotsFor(int[] uids);
+
+    // Result row: an active prescription's name
+    class ActiveName {
+        @ColumnInfo(name = "uid")       public int uid;
+        @ColumnInfo(name = "shortName") public String shortName;
+    }
+
+    // Result row: what the reminder scheduler needs from a prescription
+    class ReminderSlot {
+        @ColumnInfo(name = "uid")              public int uid;
+        @ColumnInfo(name = "timeTermId")       public int timeTermId;
+        @ColumnInfo(name = "endDateEpoch")     public long endDateEpoch;
+        @ColumnInfo(name = "isActive")         public boolean isActive;
+        @ColumnInfo(name = "hasReceivedToday") public boolean hasReceivedToday;
+    }
 }
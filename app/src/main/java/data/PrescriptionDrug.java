@@ -1,5 +1,6 @@
 package data;
 
+import androidx.room.ColumnInfo;
 import androidx.room.Entity;
 import androidx.room.ForeignKey;
 import androidx.room.Index;
@@ -7,13 +8,28 @@ import androidx.room.PrimaryKey;
 
 @Entity(
         tableName = "prescription_drugs",
-        foreignKeys = @ForeignKey(
-                entity = TimeTerm.class,
-                parentColumns = "id",
-                childColumns = "timeTermId",
-                onDelete = ForeignKey.RESTRICT // do not allow deleting a term that is in use
-        ),
-        indices = {@Index("timeTermId")} // faster JOIN/filter by term
+        foreignKeys = {
+                @ForeignKey(
+                        entity = TimeTerm.class,
+                        parentColumns = "id",
+                        childColumns = "timeTermId",
+                        onDelete = ForeignKey.RESTRICT // do not allow deleting a term that is in use
+                ),
+                @ForeignKey(
+                        entity = Patient.class,
+                        parentColumns = "id",
+                        childColumns = "patientId",
+                        onDelete = ForeignKey.CASCADE // a patient's prescriptions go with them
+                )
+        },
+        indices = {
+                @Index("timeTermId"),                                  // faster JOIN/filter by term
+                @Index({"patientId", "isActive", "timeTermId"}),       // keyset pages: (term, uid) seeks per patient
+                @Index("patientId"),                                   // one patient's rows in uid order (provider, import)
+                @Index({"isActive", "startDateEpoch"}),                // day rollover: not-yet-started rows
+                @Index({"isActive", "endDateEpoch"}),                  // day rollover: ended / starting rows
+                @Index({"hasReceivedToday", "lastDateReceivedEpoch"})  // day rollover: stale "received" flags
+        }
 )
 public class PrescriptionDrug {
 
@@ -35,4 +51,12 @@ public class PrescriptionDrug {
     public boolean isActive;            // true if today in [start, end]
     public Long lastDateReceivedEpoch;  // nullable; last day taken
     public boolean hasReceivedToday;    // true if lastDateReceivedEpoch == today
+
+    @ColumnInfo(defaultValue = "" + Patient.DEFAULT_ID)
+    public int patientId = Patient.DEFAULT_ID; // FK -> Patient.id; every list/export query is per patient
+
+    // True if the given epoch day is inside [start, end] (value stored in isActive)
+    public boolean isActiveOn(long epochDay) {
+        return epochDay >= startDateEpoch && epochDay <= endDateEpoch;
+    }
 }
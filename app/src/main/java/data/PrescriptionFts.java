@@ -0,0 +1,24 @@
+package data;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Fts4;
+import androidx.room.FtsOptions;
+import androidx.room.PrimaryKey;
+
+// Full-text index over the searchable prescription columns.
+// External-content FTS4 table: the text lives only in prescription_drugs, and Room's sync
+// triggers (see AppDatabase.createFtsTriggers) keep the index in step on insert/update/delete.
+// rowid == prescription_drugs.uid. Prefix indexes make "am*"/"amo*" lookups index reads.
+@Fts4(contentEntity = PrescriptionDrug.class, tokenizer = FtsOptions.TOKENIZER_UNICODE61, prefix = {2, 3})
+@Entity(tableName = "prescription_fts")
+public class PrescriptionFts {
+    @PrimaryKey
+    @ColumnInfo(name = "rowid")
+    public int rowid;                   // = prescription_drugs.uid
+
+    public String shortName;
+    public String description;
+    public String doctorName;
+    public String doctorLocation;
+}
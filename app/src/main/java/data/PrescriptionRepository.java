@@ -3,103 +3,548 @@ package data;
 import android.app.Application;
 import android.net.Uri;
 import android.os.Build;
-import android.os.Handler;
-import android.os.Looper;
 
 import androidx.annotation.RequiresApi;
+import androidx.arch.core.util.Function;
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MediatorLiveData;
+import androidx.paging.LivePagedListBuilder;
+import androidx.paging.PagedList;
+import androidx.sqlite.db.SupportSQLiteDatabase;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.Executors;
 import java.util.function.Consumer;
 
 public class PrescriptionRepository {
-    // DAOs used by the repository
+    // Max UIDs bound into one IN (...) list (SQLite allows 999 args on older devices)
+    static final int MAX_BIND_ARGS = 500;
+
+    // Rows per page for the main list
+    static final int PAGE_SIZE = 50;
+
+    // Database (for multi-statement transactions) and DAOs used by the repository
+    private final AppDatabase db;
     public final PrescriptionDao pDao;
     private final TimeTermDao tDao;
+    private final DoseIntakeDao iDao;
+    private final PatientDao ptDao;
+    private final AdherenceStatDao aDao;
 
     // Application context (used by DB/Exporter)
     private final Application app;
 
+    // Shared DB executors (ordered writer queue, reader pool, main thread)
+    private final AppExecutors executors;
+
     public PrescriptionRepository(Application app) {
         this.app = app;
-        AppDatabase db = AppDatabase.getInstance(app);
+        this.executors = AppExecutors.get();
+        db = AppDatabase.getInstance(app);
         pDao = db.prescriptionDao();
         tDao = db.timeTermDao();
+        iDao = db.doseIntakeDao();
+        ptDao = db.patientDao();
+        aDao = db.adherenceStatDao();
     }
 
     // Live list of time terms (for spinner)
     public LiveData<List<TimeTerm>> getTimeTerms() { return tDao.getAll(); }
 
-    // Live list of active prescriptions joined with term (for the main list)
-    public LiveData<List<PrescriptionWithTerm>> getActive() { return pDao.getActiveWithTerm(); }
+    // ---- Patients ----
+
+    private static final String PATIENT_PREFS = "patients";
+    private static final String KEY_CURRENT = "current_patient";
+
+    // Live list of patients (for the switcher), by name
+    public LiveData<List<Patient>> getPatients() { return ptDao.getAll(); }
+
+    // Patient the main screen showed last (the default patient on first run)
+    public int currentPatientId() {
+        return app.getSharedPreferences(PATIENT_PREFS, android.content.Context.MODE_PRIVATE)
+                .getInt(KEY_CURRENT, Patient.DEFAULT_ID);
+    }
+
+    public void setCurrentPatient(int patientId) {
+        app.getSharedPreferences(PATIENT_PREFS, android.content.Context.MODE_PRIVATE)
+                .edit().putInt(KEY_CURRENT, patientId).apply();
+    }
+
+    // Add a patient on the writer queue; new id posted to main thread
+    @RequiresApi(api = Build.VERSION_CODES.N)
+    public void addPatient(String name, Consumer<Integer> onDone) {
+        executors.diskWrite().execute(() -> {
+            int id = (int) ptDao.insert(new Patient(name));
+            executors.mainThread().execute(() -> {
+                if (onDone != null) onDone.accept(id);
+            });
+        });
+    }
+
+    // Live list of a patient's active prescriptions with their term, in display order
+    public LiveData<List<PrescriptionWithTerm>> getActive(int patientId) {
+        MediatorLiveData<List<PrescriptionWithTerm>> out = new MediatorLiveData<>();
+        out.addSource(pDao.getActiveWithTerm(patientId), rows -> out.setValue(TimeTermRegistry.inTermOrder(rows)));
+        return out;
+    }
 
-    // Insert on a background thread
+    // Keyset-paged active list of one patient: only pages near the visible range are queried and diffed.
+    // 'map' runs on the fetch thread (e.g. to precompute display strings).
+    public <T> LiveData<PagedList<T>> getActivePaged(int patientId, Function<PrescriptionWithTerm, T> map) {
+        return new LivePagedListBuilder<>(new ActiveListDataSource.Factory(db, patientId).map(map), pageConfig())
+                .setFetchExecutor(executors.diskRead())
+                .build();
+    }
+
+    // Keyset-paged full-text search over one patient's prescriptions (match from SearchQuery.match)
+    public <T> LiveData<PagedList<T>> searchPaged(int patientId, String match, Function<PrescriptionWithTerm, T> map) {
+        return new LivePagedListBuilder<>(new SearchDataSource.Factory(db, patientId, match).map(map), pageConfig())
+                .setFetchExecutor(executors.diskRead())
+                .build();
+    }
+
+    private static PagedList.Config pageConfig() {
+        return new PagedList.Config.Builder()
+                .setPageSize(PAGE_SIZE)
+                .setInitialLoadSizeHint(PAGE_SIZE * 2)
+                .setPrefetchDistance(PAGE_SIZE)
+                .setEnablePlaceholders(false) // keyset sources do not know the total count
+                .build();
+    }
+
+    // Insert on the writer queue
     public void insert(PrescriptionDrug d) {
-        Executors.newSingleThreadExecutor().execute(() -> pDao.insert(d));
+        executors.diskWrite().execute(() -> insertNow(d));
+    }
+
+    // Insert synchronously and announce the new row (writer queue only); returns the new uid
+    public long insertNow(PrescriptionDrug d) {
+        long id = pDao.insert(d);
+        RowChanges.get().publish(RowChanges.STRUCTURAL, (int) id);
+        return id;
     }
 
-    // Delete by UID on a background thread
+    // Update synchronously and announce the row (writer queue only).
+    // 'moved' = isActive or timeTermId changed, so lists must reload instead of patching the row.
+    public int updateNow(PrescriptionDrug d, boolean moved) {
+        int rows = pDao.update(d);
+        if (rows > 0) RowChanges.get().publish(moved ? RowChanges.STRUCTURAL : RowChanges.IN_PLACE, d.uid);
+        return rows;
+    }
+
+    // Delete by UID on the writer queue
     @RequiresApi(api = Build.VERSION_CODES.N)
     public void deleteById(int uid, Consumer<Integer> onResult) {
-        Executors.newSingleThreadExecutor().execute(() -> {
+        executors.diskWrite().execute(() -> {
             int rows = pDao.deleteById(uid);
+            if (rows > 0) RowChanges.get().publish(RowChanges.STRUCTURAL, uid);
             if (onResult != null) onResult.accept(rows);
         });
     }
 
-    // One item with term (LiveData) for details screen
+    // Insert many rows in one transaction on the writer queue; new uids posted to main thread
+    @RequiresApi(api = Build.VERSION_CODES.N)
+    public void insertAll(List<PrescriptionDrug> drugs, Consumer<List<Long>> onDone) {
+        executors.diskWrite().execute(() -> {
+            List<Long> ids = pDao.insertAll(drugs);
+            RowChanges.get().publish(RowChanges.STRUCTURAL, ids);
+            DbTuning.afterWrite(writable(), ids.size());
+            executors.mainThread().execute(() -> {
+                if (onDone != null) onDone.accept(ids);
+            });
+        });
+    }
+
+    // Update many rows in one transaction on the writer queue; callback posted to main thread
+    @RequiresApi(api = Build.VERSION_CODES.N)
+    public void updateAll(List<PrescriptionDrug> drugs, Consumer<Integer> onDone) {
+        executors.diskWrite().execute(() -> {
+            int rows = pDao.updateAll(drugs);
+            if (rows > 0) RowChanges.get().publish(RowChanges.STRUCTURAL, uidsOf(drugs));
+            DbTuning.afterWrite(writable(), rows);
+            executors.mainThread().execute(() -> {
+                if (onDone != null) onDone.accept(rows);
+            });
+        });
+    }
+
+    // Delete a set of UIDs in one transaction (chunked IN lists); callback posted to main thread
+    @RequiresApi(api = Build.VERSION_CODES.N)
+    public void deleteByIds(List<Integer> uids, Consumer<Integer> onResult) {
+        executors.diskWrite().execute(() -> {
+            int rows = db.runInTransaction(() -> {
+                int n = 0;
+                for (List<Integer> chunk : chunks(uids)) n += pDao.deleteByIds(chunk);
+                return n;
+            });
+            if (rows > 0) RowChanges.get().publish(RowChanges.STRUCTURAL, uids);
+            DbTuning.afterWrite(writable(), rows);
+            if (onResult != null) executors.mainThread().execute(() -> onResult.accept(rows));
+        });
+    }
+
+    // Mark a set of UIDs as received today in one transaction; callback posted to main thread
+    @RequiresApi(api = Build.VERSION_CODES.N)
+    public void markReceivedToday(List<Integer> uids, long today, Consumer<Integer> onResult) {
+        executors.diskWrite().execute(() -> {
+            int rows = db.runInTransaction(() -> {
+                int n = 0;
+                long now = System.currentTimeMillis();
+                for (List<Integer> chunk : chunks(uids)) {
+                    n += pDao.markAllReceivedToday(chunk, today);
+                    iDao.logForAll(chunk, today, now);
+                }
+                return n;
+            });
+            if (rows > 0) RowChanges.get().publish(RowChanges.IN_PLACE, uids); // flags only: rows keep their place
+            DbTuning.afterWrite(writable(), rows * 2); // flags + intake log rows
+            if (onResult != null) executors.mainThread().execute(() -> onResult.accept(rows));
+        });
+    }
+
+    // Recompute isActive/hasReceivedToday of one patient's rows for 'today' on the writer queue
+    // (only rows whose flags change are written); changed row count posted to main thread.
+    // The daily DayRollover still covers every patient.
+    @RequiresApi(api = Build.VERSION_CODES.N)
+    public void recomputePatient(int patientId, long today, Consumer<Integer> onDone) {
+        executors.diskWrite().execute(() -> {
+            int rows = pDao.recomputeForPatient(patientId, today);
+            if (rows > 0) RowChanges.get().publishAll(); // flags flipped on rows we did not collect
+            DbTuning.afterWrite(writable(), rows);
+            executors.mainThread().execute(() -> {
+                if (onDone != null) onDone.accept(rows);
+            });
+        });
+    }
+
+    // Room's connection, for checkpoints after bulk writes (writer queue only)
+    private SupportSQLiteDatabase writable() {
+        return db.getOpenHelper().getWritableDatabase();
+    }
+
+    // uids of a list of rows
+    private static int[] uidsOf(List<PrescriptionDrug> drugs) {
+        int[] out = new int[drugs.size()];
+        for (int i = 0; i < out.length; i++) out[i] = drugs.get(i).uid;
+        return out;
+    }
+
+    // Split a UID list into sublists small enough for one IN (...) clause
+    static List<List<Integer>> chunks(List<Integer> uids) {
+        List<List<Integer>> out = new ArrayList<>();
+        for (int i = 0; i < uids.size(); i += MAX_BIND_ARGS) {
+            out.add(uids.subList(i, Math.min(uids.size(), i + MAX_BIND_ARGS)));
+        }
+        return out;
+    }
+
+    // One item with term (LiveData) for details screen; re-queried only when this row changes
     public LiveData<PrescriptionWithTerm> getById(int uid) {
-        return pDao.getByIdWithTerm(uid);
+        return new RowLiveData<>(uid, pDao::getByIdWithTerm, executors.diskRead());
+    }
+
+    // Current state of a few rows (synchronous; call off the main thread), for in-place list deltas
+    public List<PrescriptionWithTerm> getByIdsSync(int[] uids) {
+        return pDao.getByIdsWithTerm(uids);
     }
 
-    // Mark "received today" on a background thread; callback posted to main thread
+    // Mark "received today" and append it to the intake log (one transaction, writer queue);
+    // callback posted to main thread
     @RequiresApi(api = Build.VERSION_CODES.N)
     public void markReceivedToday(int uid, long today, Consumer<Integer> onResult) {
-        Executors.newSingleThreadExecutor().execute(() -> {
-            int rows = pDao.markReceivedToday(uid, today);
+        executors.diskWrite().execute(() -> {
+            int rows = markReceivedTodayNow(uid, today);
             if (onResult != null) {
-                new Handler(Looper.getMainLooper()).post(() -> onResult.accept(rows));
+                executors.mainThread().execute(() -> onResult.accept(rows));
             }
         });
     }
 
-    // Export active items to Downloads (HTML/TXT) on a background thread;
-    // result Uri is posted back to the main thread
-    @RequiresApi(api = Build.VERSION_CODES.O)
-    public void exportActive(boolean asHtml, Consumer<Uri> onDone) {
-        Executors.newSingleThreadExecutor().execute(() -> {
-            List<PrescriptionWithTerm> list = pDao.getActiveWithTermNow();
+    // Same write on any API level (the reminder's "Taken" action); 'done' runs on the writer thread
+    public void markReceivedToday(int uid, long today, Runnable done) {
+        executors.diskWrite().execute(() -> {
+            try {
+                markReceivedTodayNow(uid, today);
+            } finally {
+                if (done != null) done.run();
+            }
+        });
+    }
 
+    private int markReceivedTodayNow(int uid, long today) {
+        int rows = db.runInTransaction(() -> {
+            int n = pDao.markReceivedToday(uid, today);
+            if (n > 0) iDao.logFor(uid, today, System.currentTimeMillis());
+            return n;
+        });
+        if (rows > 0) RowChanges.get().publish(RowChanges.IN_PLACE, uid);
+        return rows;
+    }
+
+    // Export a patient's active items to Downloads (HTML/TXT) on the reader pool, streaming rows
+    // from a cursor straight into the file; result Uri is posted back to the main thread.
+    // Below API 29 the Uri is null: use exportActiveTo with a document the user picked.
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    public void exportActive(int patientId, boolean asHtml, Consumer<Uri> onDone) {
+        executors.diskRead().execute(() -> {
             String stamp = ui.Export.nowStamp();
-            String mime  = asHtml ? "text/html" : "text/plain";
+            String mime  = exportMime(asHtml);
             String name  = "meds_active_" + stamp + (asHtml ? ".html" : ".txt");
-            String body  = asHtml ? ui.Export.toHtml(list) : ui.Export.toTxt(list);
 
-            Uri uri = ui.Export.saveToDownloads(app, name, mime, body);
+            Uri uri = ui.Export.saveToDownloads(app, name, mime, os -> writeActive(patientId, asHtml, os));
+
+            executors.mainThread().execute(() -> {
+                if (onDone != null) onDone.accept(uri);
+            });
+        });
+    }
+
+    // Export a patient's active items into a caller-provided Uri (e.g. from ACTION_CREATE_DOCUMENT)
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    public void exportActiveTo(int patientId, Uri target, boolean asHtml, Consumer<Uri> onDone) {
+        executors.diskRead().execute(() -> {
+            Uri uri = ui.Export.writeToUri(app, target, os -> writeActive(patientId, asHtml, os));
+            executors.mainThread().execute(() -> {
+                if (onDone != null) onDone.accept(uri);
+            });
+        });
+    }
+
+    // MIME type of an export
+    public static String exportMime(boolean asHtml) {
+        return asHtml ? "text/html" : "text/plain";
+    }
+
+    public static final String ARCHIVE_MIME = "application/zip";
+
+    // Archive format version written into manifest.json
+    static final int ARCHIVE_VERSION = 1;
 
-            new Handler(Looper.getMainLooper()).post(() -> {
+    private static final String EXPORT_PREFS = "archive_export";
+    private static final String KEY_LAST_SEQ = "last_seq"; // high-water mark of the last archive export
+
+    // Export every table as CSV + JSON in a ZIP, on the reader pool. delta: only prescriptions
+    // changed (and deleted) since the last archive export. Goes to Downloads on API 29+, or into
+    // 'target' when given (SAF). On success the high-water mark moves to what was exported.
+    @RequiresApi(api = Build.VERSION_CODES.N)
+    public void exportArchive(boolean delta, Uri target, Consumer<Uri> onDone) {
+        executors.diskRead().execute(() -> {
+            android.content.SharedPreferences prefs =
+                    app.getSharedPreferences(EXPORT_PREFS, android.content.Context.MODE_PRIVATE);
+            long fromSeq = delta ? prefs.getLong(KEY_LAST_SEQ, 0) : 0;
+            long toSeq = pDao.maxChangeSeq(); // later changes wait for the next delta
+
+            ui.Export.Body body = os -> writeArchive(os, delta, fromSeq, toSeq);
+            Uri uri = target != null ? ui.Export.writeToUri(app, target, body)
+                    : ui.Export.saveToDownloads(app, archiveName(delta), ARCHIVE_MIME, body);
+            if (uri != null) {
+                prefs.edit().putLong(KEY_LAST_SEQ, toSeq).apply();
+                executors.diskWrite().execute(() -> pDao.pruneTombstones(toSeq));
+            }
+            executors.mainThread().execute(() -> {
                 if (onDone != null) onDone.accept(uri);
             });
         });
     }
 
+    public static String archiveName(boolean delta) {
+        return (delta ? "meds_changes_" : "meds_archive_") + ui.Export.nowStamp() + ".zip";
+    }
+
+    // One pass per table, straight from cursors into the ZIP (reader pool)
+    private void writeArchive(java.io.OutputStream os, boolean delta, long fromSeq, long toSeq)
+            throws java.io.IOException {
+        ui.ArchiveWriter w = new ui.ArchiveWriter(os, app.getCacheDir());
+        try (android.database.Cursor c = delta ? pDao.archiveChanged(fromSeq, toSeq) : pDao.archiveAll()) {
+            w.table("prescription_drugs", new ui.Export.CursorRows(c));
+        }
+        if (delta) {
+            try (android.database.Cursor c = pDao.archiveDeleted(fromSeq, toSeq)) {
+                w.table("prescription_drugs_deleted", new ui.Export.CursorRows(c));
+            }
+        }
+        try (android.database.Cursor c = tDao.allCursor()) {
+            w.table("time_terms", new ui.Export.CursorRows(c));
+        }
+        try (android.database.Cursor c = ptDao.allCursor()) {
+            w.table("patients", new ui.Export.CursorRows(c));
+        }
+        java.util.Map<String, Object> manifest = new java.util.LinkedHashMap<>();
+        manifest.put("format", "mymedapp-archive");
+        manifest.put("version", ARCHIVE_VERSION);
+        manifest.put("kind", delta ? "delta" : "full");
+        manifest.put("fromSeq", fromSeq);
+        manifest.put("toSeq", toSeq);
+        manifest.put("exportedAt", System.currentTimeMillis());
+        w.finish(manifest);
+    }
+
+    // Bulk import of a CSV/JSON document (see BulkImport) into one patient's list, on the writer queue: rows go in chunks
+    // of BulkImport.CHUNK_ROWS, one transaction each, staged through compiled statements that are
+    // reused for the whole file. Readers keep going between chunks. Progress and the report are posted to the main thread.
+    @RequiresApi(api = Build.VERSION_CODES.N)
+    public void importFile(int patientId, Uri source, BulkImport.Progress onProgress,
+                           Consumer<BulkImport.Report> onDone) {
+        executors.diskWrite().execute(() -> {
+            BulkImport.Report report;
+            try (java.io.InputStream is = app.getContentResolver().openInputStream(source)) {
+                if (is == null) throw new java.io.IOException("cannot open " + source);
+                report = importNow(patientId, new java.io.InputStreamReader(is, java.nio.charset.StandardCharsets.UTF_8),
+                        (read, inserted) -> executors.mainThread().execute(() -> {
+                            if (onProgress != null) onProgress.onProgress(read, inserted);
+                        }));
+            } catch (java.io.IOException | RuntimeException e) {
+                report = BulkImport.Report.failed(String.valueOf(e.getMessage()));
+            }
+            BulkImport.Report done = report;
+            executors.mainThread().execute(() -> {
+                if (onDone != null) onDone.accept(done);
+            });
+        });
+    }
+
+    // Synchronous import (writer queue only); announces the new rows once at the end
+    private BulkImport.Report importNow(int patientId, java.io.Reader in, BulkImport.Progress progress)
+            throws java.io.IOException {
+        BulkImport imp = new BulkImport(TimeTermRegistry.loaded().ordered,
+                ReminderQueue.epochDay(System.currentTimeMillis(), java.util.TimeZone.getDefault()));
+        try (android.database.Cursor c = pDao.importKeys(patientId)) {
+            while (c.moveToNext()) {
+                imp.addExisting(c.getString(0), c.getString(1), c.getLong(2), c.getLong(3),
+                        c.getInt(4), c.getString(5), c.getString(6));
+            }
+        }
+        List<Integer> uids = new ArrayList<>();
+        BulkImport.Report report;
+        SupportSQLiteDatabase w = writable();
+        w.execSQL(BulkImport.STAGE_CREATE_SQL);
+        try (androidx.sqlite.db.SupportSQLiteStatement stage = w.compileStatement(BulkImport.STAGE_INSERT_SQL);
+             androidx.sqlite.db.SupportSQLiteStatement move = w.compileStatement(BulkImport.STAGE_MOVE_SQL);
+             androidx.sqlite.db.SupportSQLiteStatement clear = w.compileStatement(BulkImport.STAGE_CLEAR_SQL)) {
+            move.bindLong(1, patientId); // the same owner for every chunk
+            report = imp.run(in, chunk -> {
+                long last;
+                try {
+                    last = db.runInTransaction(() -> {
+                        for (PrescriptionDrug d : chunk) {
+                            stage.bindString(1, d.shortName);
+                            stage.bindString(2, d.description);
+                            stage.bindLong(3, d.startDateEpoch);
+                            stage.bindLong(4, d.endDateEpoch);
+                            stage.bindLong(5, d.timeTermId);
+                            stage.bindString(6, d.doctorName);
+                            stage.bindString(7, d.doctorLocation);
+                            stage.bindLong(8, d.isActive ? 1 : 0);
+                            stage.executeInsert();
+                        }
+                        long id = move.executeInsert();
+                        clear.executeUpdateDelete();
+                        return id;
+                    });
+                } catch (RuntimeException e) { // SQLiteException: this chunk was rolled back
+                    throw new java.io.IOException(e.getMessage(), e);
+                }
+                for (long id = last - chunk.size() + 1; id <= last; id++) uids.add((int) id);
+            }, progress);
+        } finally {
+            w.execSQL(BulkImport.STAGE_DROP_SQL);
+        }
+        if (!uids.isEmpty()) {
+            RowChanges.get().publish(RowChanges.STRUCTURAL, uids);
+            DbTuning.afterWrite(writable(), uids.size());
+        }
+        return report;
+    }
+
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    private void writeActive(int patientId, boolean asHtml, java.io.OutputStream os) throws java.io.IOException {
+        // Registry-resolved rows when term ids follow display order; JOIN-sorted fallback otherwise
+        boolean plain = TimeTermRegistry.loaded().idOrderIsSortOrder;
+        try (android.database.Cursor c = plain ? pDao.getActiveCursor(patientId)
+                : pDao.getActiveWithTermCursor(patientId)) {
+            ui.Export.writeActive(c, asHtml, os);
+        }
+    }
+
+    // Days in [fromDay, toDay] up to today the drug was due but not taken (synchronous; call off the main thread)
+    public int missedDaysSync(int uid, long fromDay, long toDay) {
+        PrescriptionDrug d = pDao.getByIdSync(uid);
+        if (d == null) return 0;
+        long today = ReminderQueue.epochDay(System.currentTimeMillis(), java.util.TimeZone.getDefault());
+        long[] due = AdherenceStats.dueRange(fromDay, toDay, d.startDateEpoch, d.endDateEpoch, today);
+        if (due == null) return 0;
+        int expected = (int) (due[1] - due[0] + 1);
+        return expected - iDao.countDaysTaken(uid, due[0], due[1]);
+    }
+
+    // Days taken per drug / drugs taken per day in a range (synchronous; call off the main thread)
+    public List<DoseIntakeDao.DrugDays> daysTakenPerDrugSync(long fromDay, long toDay) {
+        return iDao.daysTakenPerDrug(fromDay, toDay);
+    }
+    public List<DoseIntakeDao.DayDrugs> drugsTakenPerDaySync(long fromDay, long toDay) {
+        return iDao.drugsTakenPerDay(fromDay, toDay);
+    }
+
+    // Known interactions between 'shortName' and the patient's other ACTIVE drugs (the row being
+    // edited, 'exceptUid', is left out), most serious first; posted to the main thread.
+    // An unreadable index means no warnings, never a failed save.
+    @RequiresApi(api = Build.VERSION_CODES.N)
+    public void checkInteractions(int patientId, String shortName, int exceptUid,
+                                  Consumer<List<Interaction>> onDone) {
+        executors.diskRead().execute(() -> {
+            List<Interaction> out = new ArrayList<>();
+            try {
+                InteractionIndex index = Interactions.get(app);
+                List<PrescriptionDao.ActiveName> active = pDao.activeNames(patientId);
+                List<String> names = new ArrayList<>(active.size());
+                for (PrescriptionDao.ActiveName a : active) names.add(a.uid == exceptUid ? "" : a.shortName);
+                for (InteractionIndex.Hit h : index.check(shortName, names)) {
+                    out.add(new Interaction(active.get(h.other).shortName, h));
+                }
+            } catch (java.io.IOException e) {
+                android.util.Log.w("Interactions", "Index unavailable", e); // APK without the asset
+            }
+            executors.mainThread().execute(() -> onDone.accept(out));
+        });
+    }
+
+    // One interaction warning: the other drug (as the user named it) and what clashes
+    public static final class Interaction {
+        public final String otherName;
+        public final InteractionIndex.Hit hit;
+
+        Interaction(String otherName, InteractionIndex.Hit hit) {
+            this.otherName = otherName;
+            this.hit = hit;
+        }
+    }
+
+    // Per-month adherence counters (months are yyyymm, see AdherenceStats.month); reads O(months)
+    // trigger-maintained rows instead of the intake history (synchronous; call off the main thread)
+    public List<AdherenceStat> adherenceForDrugSync(int uid, int fromMonth, int toMonth) {
+        return aDao.forDrug(uid, fromMonth, toMonth);
+    }
+    public List<AdherenceStatDao.MonthTotals> adherenceByMonthSync(int patientId, int fromMonth, int toMonth) {
+        return aDao.totalsByMonth(patientId, fromMonth, toMonth);
+    }
+
     // Synchronous single item (used by edit form)
     public PrescriptionDrug getByIdSync(int uid) {
         return pDao.getByIdSync(uid);
     }
 
-    // Live single item (used by edit form binding)
+    // Live single item (used by edit form binding); re-queried only when this row changes
     public LiveData<PrescriptionDrug> observeById(int uid) {
-        return pDao.observeById(uid);
+        return new RowLiveData<>(uid, pDao::getByIdSync, executors.diskRead());
     }
 
-    // Update on a background thread; callback posted to main thread
+    // Update on the writer queue; callback posted to main thread
     @RequiresApi(api = Build.VERSION_CODES.N)
     public void update(PrescriptionDrug d, Consumer<Integer> onDone) {
-        Executors.newSingleThreadExecutor().execute(() -> {
+        executors.diskWrite().execute(() -> {
             int rows = pDao.update(d);
-            new Handler(Looper.getMainLooper()).post(() -> {
+            if (rows > 0) RowChanges.get().publish(RowChanges.STRUCTURAL, d.uid);
+            executors.mainThread().execute(() -> {
                 if (onDone != null) onDone.accept(rows);
             });
         });
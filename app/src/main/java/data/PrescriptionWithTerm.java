@@ -1,16 +1,31 @@
 package data;
 
-import androidx.room.ColumnInfo;
 import androidx.room.Embedded;
+import androidx.room.Ignore;
 
-// DTO for a JOIN result: the prescription plus selected fields from time_terms
+// A prescription plus its time term. Only prescription_drugs is queried; the term
+// fields point at the shared instances held by TimeTermRegistry (no JOIN, no per-row copies).
 public class PrescriptionWithTerm {
 
     // All columns from prescription_drugs
     @Embedded public PrescriptionDrug drug;
 
-    // Joined term fields (aliased in the query)
-    @ColumnInfo(name = "term_id")    public int termId;    // TimeTerm.id
-    @ColumnInfo(name = "term_code")  public String termCode;  // e.g., "before-breakfast"
-    @ColumnInfo(name = "term_order") public int termOrder; // sortOrder used for list ordering
+    // Term fields resolved from the registry
+    @Ignore public int termId;      // TimeTerm.id
+    @Ignore public String termCode; // e.g., "before-breakfast" (shared String)
+    @Ignore public int termOrder;   // sortOrder used for list ordering
+
+    // Used by Room: resolve the term through the registry
+    public PrescriptionWithTerm(PrescriptionDrug drug) {
+        this(drug, TimeTermRegistry.resolve(drug.timeTermId));
+    }
+
+    // Explicit term (tests, benchmarks, callers that already hold the term)
+    @Ignore
+    public PrescriptionWithTerm(PrescriptionDrug drug, TimeTerm term) {
+        this.drug = drug;
+        this.termId = term.id;
+        this.termCode = term.code;
+        this.termOrder = term.sortOrder;
+    }
 }
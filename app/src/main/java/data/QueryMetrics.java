@@ -0,0 +1,204 @@
+package data;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Per-statement latency histograms, call counts and row counts, keyed by normalized SQL
+// ("sql: SELECT ... WHERE uid = ?") or by provider operation ("provider: query prescriptions/#").
+// Fed by MeteredOpenHelper (every Room DAO statement) and MedProvider; printed by
+// `adb shell dumpsys activity provider <package>/provider.MedProvider` (see MedProvider.dump).
+// Disabled: start() is one volatile read and nothing is recorded or allocated.
+// Plain Java (no android.* imports) so it can be unit tested on the JVM.
+public final class QueryMetrics {
+
+    // Histogram buckets by powers of two of microseconds: bucket 0 < 1 us, bucket i < 2^i us;
+    // the last one takes everything from ~8.4 s up
+    static final int BUCKETS = 24;
+
+    // Distinct keys kept; more go to OVERFLOW_KEY (ad-hoc provider selections could be unbounded)
+    static final int MAX_KEYS = 500;
+    static final String OVERFLOW_KEY = "(other statements)";
+
+    private static final QueryMetrics INSTANCE = new QueryMetrics();
+
+    private volatile boolean enabled;
+    private volatile long sinceMs = System.currentTimeMillis();
+    private final ConcurrentHashMap<String, Stat> stats = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, String> sqlKeys = new ConcurrentHashMap<>(); // raw SQL -> key
+
+    // One statement's numbers; guarded by itself
+    static final class Stat {
+        long calls, rows, totalNanos, maxNanos;
+        final long[] buckets = new long[BUCKETS];
+
+        synchronized void add(long nanos, long rowCount) {
+            calls++;
+            rows += rowCount;
+            totalNanos += nanos;
+            if (nanos > maxNanos) maxNanos = nanos;
+            buckets[bucketOf(nanos)]++;
+        }
+
+        // Upper bound (in ns) of the bucket holding the given quantile
+        synchronized long quantileNanos(double q) {
+            long rank = (long) Math.ceil(q * calls), seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets[i];
+                if (seen >= rank && seen > 0) return Math.min((1L << i) * 1000, maxNanos);
+            }
+            return maxNanos;
+        }
+
+        synchronized long[] snapshot() {
+            return new long[]{calls, rows, totalNanos, maxNanos};
+        }
+    }
+
+    QueryMetrics() {}
+
+    public static QueryMetrics get() { return INSTANCE; }
+
+    public boolean isEnabled() { return enabled; }
+
+    public void setEnabled(boolean on) { enabled = on; }
+
+    // Drop everything recorded so far
+    public void reset() {
+        stats.clear();
+        sinceMs = System.currentTimeMillis();
+    }
+
+    // Start timing: a timestamp, or 0 when disabled (then stop() does nothing)
+    public long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    // Record one call that began at 'startNanos' (from start()) and returned 'rows' rows
+    public void stop(String key, long startNanos, long rows) {
+        if (startNanos == 0) return;
+        record(key, System.nanoTime() - startNanos, rows);
+    }
+
+    public void record(String key, long nanos, long rows) {
+        Stat s = stats.get(key);
+        if (s == null) {
+            if (stats.size() >= MAX_KEYS) key = OVERFLOW_KEY;
+            // get + putIfAbsent, not computeIfAbsent (API 24; minSdk is 21)
+            s = stats.get(key);
+            if (s == null) {
+                Stat fresh = new Stat();
+                s = stats.putIfAbsent(key, fresh);
+                if (s == null) s = fresh;
+            }
+        }
+        s.add(nanos, rows);
+    }
+
+    static int bucketOf(long nanos) {
+        long us = nanos / 1000;
+        int b = 64 - Long.numberOfLeadingZeros(us); // 0 for < 1 us, i for [2^(i-1), 2^i)
+        return Math.min(b, BUCKETS - 1);
+    }
+
+    Stat stat(String key) { return stats.get(key); }
+
+    // Print every statement, slowest total first:
+    //   calls  rows  total ms  mean ms  p50  p95  p99  max  key
+    public void dump(PrintWriter out) {
+        out.printf(Locale.ROOT, "Query metrics: %s, %d statements, since %tF %<tT%n",
+                enabled ? "enabled" : "disabled", stats.size(), sinceMs);
+        List<Map.Entry<String, Stat>> rows = new ArrayList<>(stats.entrySet());
+        List<long[]> snaps = new ArrayList<>(rows.size());
+        for (Map.Entry<String, Stat> e : rows) snaps.add(e.getValue().snapshot());
+        Integer[] order = new Integer[rows.size()];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Long.compare(snaps.get(b)[2], snaps.get(a)[2]));
+
+        out.printf(Locale.ROOT, "%8s %9s %10s %8s %8s %8s %8s %8s  %s%n",
+                "calls", "rows", "total_ms", "mean_ms", "p50_ms", "p95_ms", "p99_ms", "max_ms", "statement");
+        for (int i : order) {
+            long[] s = snaps.get(i);
+            Stat st = rows.get(i).getValue();
+            out.printf(Locale.ROOT, "%8d %9d %10.1f %8.3f %8.3f %8.3f %8.3f %8.3f  %s%n",
+                    s[0], s[1], ms(s[2]), s[0] == 0 ? 0 : ms(s[2]) / s[0],
+                    ms(st.quantileNanos(0.50)), ms(st.quantileNanos(0.95)), ms(st.quantileNanos(0.99)),
+                    ms(s[3]), rows.get(i).getKey());
+        }
+        out.flush();
+    }
+
+    private static double ms(long nanos) {
+        return nanos / 1e6;
+    }
+
+    // Key for a SQL statement (Room's SQL strings are constants, so normalized keys are cached)
+    public String sqlKey(String sql) {
+        String key = sqlKeys.get(sql);
+        if (key == null) {
+            key = "sql: " + normalize(sql);
+            if (sqlKeys.size() < MAX_KEYS * 2) sqlKeys.put(sql, key);
+        }
+        return key;
+    }
+
+    // Same statement shape -> same text: whitespace collapsed, literals become '?', bind lists
+    // "IN (?, ?, ?)" become "IN (?...)" (Room expands list arguments into one '?' per element).
+    static String normalize(String sql) {
+        StringBuilder out = new StringBuilder(sql.length());
+        int n = sql.length();
+        boolean space = false;
+        for (int i = 0; i < n; i++) {
+            char c = sql.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = out.length() > 0;
+                continue;
+            }
+            if (space) {
+                out.append(' ');
+                space = false;
+            }
+            if (c == '\'') { // string literal ('' inside is an escaped quote)
+                int j = i + 1;
+                while (j < n) {
+                    if (sql.charAt(j) == '\'') {
+                        if (j + 1 < n && sql.charAt(j + 1) == '\'') j += 2;
+                        else break;
+                    } else {
+                        j++;
+                    }
+                }
+                out.append('?');
+                i = j;
+            } else if (isDigit(c) && !(i > 0 && isWordChar(sql.charAt(i - 1)))) { // number, not part of a name
+                int j = i;
+                while (j + 1 < n && (isWordChar(sql.charAt(j + 1)) || sql.charAt(j + 1) == '.')) j++;
+                out.append('?');
+                i = j;
+            } else if (c == '?') {
+                out.append('?');
+                while (i + 1 < n && isDigit(sql.charAt(i + 1))) i++; // ?NNN
+            } else {
+                out.append(c);
+            }
+        }
+        return collapseLists(out.toString());
+    }
+
+    private static String collapseLists(String s) {
+        if (s.indexOf("?,") < 0) return s;
+        return s.replaceAll("\\(\\?(?:\\s*,\\s*\\?)+\\)", "(?...)");
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '`' || c == '"' || c == ']';
+    }
+}
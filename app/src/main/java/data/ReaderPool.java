@@ -0,0 +1,71 @@
+package data;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteCursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteQuery;
+
+import java.io.File;
+
+// Read-only handle on meds.db with its own pool of WAL reader connections.
+// Used by MedProvider so external reads never queue behind Room's writer connection:
+// in WAL mode a reader sees the last committed snapshot and never waits for a write to finish.
+public final class ReaderPool {
+
+    private static volatile ReaderPool INSTANCE;
+
+    private final SQLiteDatabase db;
+
+    // The file must already be in WAL mode. Read-only connections never set the journal mode, so
+    // ENABLE_WRITE_AHEAD_LOGGING here only sizes the connection pool; the file is converted by Room's
+    // writer connection (AppDatabase.build: JournalMode.WRITE_AHEAD_LOGGING). On a rollback-journal
+    // file the pooled readers would take shared locks and block writes (and be blocked by them) again.
+    ReaderPool(File path) {
+        db = SQLiteDatabase.openDatabase(path.getPath(), null,
+                SQLiteDatabase.OPEN_READONLY
+                        | SQLiteDatabase.ENABLE_WRITE_AHEAD_LOGGING // pool of reader connections
+                        | SQLiteDatabase.NO_LOCALIZED_COLLATORS);   // no android_metadata writes
+        DbTuning.get().applyReader(db);
+    }
+
+    // Shared pool for meds.db (opens Room first so the file exists, is migrated and is in WAL mode)
+    public static ReaderPool get(Context ctx) {
+        if (INSTANCE == null) {
+            synchronized (ReaderPool.class) {
+                if (INSTANCE == null) {
+                    AppDatabase.getInstance(ctx).getOpenHelper().getWritableDatabase();
+                    INSTANCE = new ReaderPool(ctx.getApplicationContext().getDatabasePath(AppDatabase.NAME));
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    // Run a SELECT with bound values (Long/Integer/Double/String/byte[]/null); caller closes the cursor
+    public Cursor query(String sql, Object[] args) {
+        return db.rawQueryWithFactory((d, driver, table, query) -> {
+            bind(query, args);
+            return new SQLiteCursor(driver, table, query);
+        }, sql, null, null);
+    }
+
+    void close() {
+        db.close();
+    }
+
+    private static void bind(SQLiteQuery q, Object[] args) {
+        if (args == null) return;
+        for (int i = 0; i < args.length; i++) {
+            Object a = args[i];
+            int idx = i + 1;
+            if (a == null) q.bindNull(idx);
+            else if (a instanceof Long || a instanceof Integer || a instanceof Short || a instanceof Byte) {
+                q.bindLong(idx, ((Number) a).longValue());
+            } else if (a instanceof Boolean) q.bindLong(idx, (Boolean) a ? 1 : 0);
+            else if (a instanceof Double || a instanceof Float) q.bindDouble(idx, ((Number) a).doubleValue());
+            else if (a instanceof byte[]) q.bindBlob(idx, (byte[]) a);
+            else q.bindString(idx, a.toString());
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package data;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.TreeSet;
+
+// Next due time per reminder key (a prescription uid, or DAY_ROLLOVER), ordered by time.
+// Exactly one alarm is armed, for the head of the queue; it is re-armed only when the head
+// changes, so updating a row whose dose is not the earliest costs O(log n) and no alarm call.
+public final class ReminderQueue {
+
+    // Key for the midnight recompute of the stored flags (prescription uids are > 0)
+    public static final int DAY_ROLLOVER = -1;
+
+    // Minutes after midnight at which the day rollover runs
+    static final int ROLLOVER_MINUTE = 1;
+
+    // The single platform alarm (AlarmManager on devices, a fake in tests)
+    public interface Alarm {
+        void arm(long atMillis);
+        void cancel();
+    }
+
+    private static final class Entry implements Comparable<Entry> {
+        final int key;
+        final long at;
+
+        Entry(int key, long at) {
+            this.key = key;
+            this.at = at;
+        }
+
+        @Override public int compareTo(Entry o) {
+            int c = Long.compare(at, o.at);
+            return c != 0 ? c : Integer.compare(key, o.key);
+        }
+    }
+
+    private final Alarm alarm;
+
+    // Guarded by this
+    private final TreeSet<Entry> queue = new TreeSet<>();
+    private final Map<Integer, Entry> byKey = new HashMap<>();
+    private long armedAt = -1; // -1: no alarm armed
+    private long updates, arms, cancels;
+
+    public ReminderQueue(Alarm alarm) {
+        this.alarm = alarm;
+    }
+
+    // Set the next due time of a key (at < 0 removes it). Returns true if the alarm moved.
+    public synchronized boolean set(int key, long at) {
+        updates++;
+        Entry old = byKey.remove(key);
+        if (old != null) queue.remove(old);
+        if (at >= 0) {
+            Entry e = new Entry(key, at);
+            queue.add(e);
+            byKey.put(key, e);
+        }
+        return rearm();
+    }
+
+    public synchronized boolean remove(int key) {
+        return set(key, -1);
+    }
+
+    // Replace every entry (negative times are left out). Returns true if the alarm moved.
+    public synchronized boolean replaceAll(Map<Integer, Long> dueAt) {
+        queue.clear();
+        byKey.clear();
+        for (Map.Entry<Integer, Long> d : dueAt.entrySet()) {
+            if (d.getValue() < 0) continue;
+            Entry e = new Entry(d.getKey(), d.getValue());
+            queue.add(e);
+            byKey.put(e.key, e);
+        }
+        updates += dueAt.size();
+        return rearm();
+    }
+
+    // Remove and return the keys due at 'now' (earliest first), then re-arm for what is left
+    public synchronized List<Integer> pollDue(long now) {
+        List<Integer> out = new ArrayList<>();
+        while (!queue.isEmpty() && queue.first().at <= now) {
+            Entry e = queue.pollFirst();
+            byKey.remove(e.key);
+            out.add(e.key);
+        }
+        rearm();
+        return out;
+    }
+
+    // Earliest due time, or -1 when empty
+    public synchronized long headAt() {
+        return queue.isEmpty() ? -1 : queue.first().at;
+    }
+
+    // Due time of one key, or -1
+    public synchronized long dueAt(int key) {
+        Entry e = byKey.get(key);
+        return e == null ? -1 : e.at;
+    }
+
+    public synchronized int size() {
+        return queue.size();
+    }
+
+    // Counters: {queue updates, alarms armed, alarms cancelled}
+    public synchronized long[] stats() {
+        return new long[]{updates, arms, cancels};
+    }
+
+    // The platform alarm may be gone or stale (reboot, exact-alarm permission change): arm the head again
+    public synchronized void rearmNow() {
+        armedAt = -2;
+        rearm();
+    }
+
+    // Arm/cancel the alarm if the head time differs from what is armed
+    private boolean rearm() {
+        long head = queue.isEmpty() ? -1 : queue.first().at;
+        if (head == armedAt) return false;
+        armedAt = head;
+        if (head < 0) {
+            cancels++;
+            alarm.cancel();
+        } else {
+            arms++;
+            alarm.arm(head);
+        }
+        return true;
+    }
+
+    // ---- due-time math (local time, java.util.Calendar so it runs on every API level) ----
+
+    // Next dose of a prescription strictly after 'now', or -1 if none is left before its end day.
+    // Today's dose is skipped once it was received (or its time has passed).
+    public static long nextDose(int minuteOfDay, long endEpochDay, boolean receivedToday,
+                                long now, TimeZone tz) {
+        long today = epochDay(now, tz);
+        for (long day = today; day <= today + 1 && day <= endEpochDay; day++) {
+            if (day == today && receivedToday) continue;
+            long at = millisAt(day, minuteOfDay, tz);
+            if (at > now) return at;
+        }
+        return -1;
+    }
+
+    // When the next day rollover should run (just after local midnight), strictly after 'now'
+    public static long nextRollover(long now, TimeZone tz) {
+        long day = epochDay(now, tz);
+        long at = millisAt(day, ROLLOVER_MINUTE, tz);
+        return at > now ? at : millisAt(day + 1, ROLLOVER_MINUTE, tz);
+    }
+
+    // Local epoch day (same numbering as LocalDate.toEpochDay) of an instant
+    public static long epochDay(long millis, TimeZone tz) {
+        return Math.floorDiv(millis + tz.getOffset(millis), 86_400_000L);
+    }
+
+    // Instant of a local date + minute of day
+    static long millisAt(long epochDay, int minuteOfDay, TimeZone tz) {
+        Calendar cal = new GregorianCalendar(tz);
+        cal.clear();
+        cal.set(1970, Calendar.JANUARY, 1);
+        cal.add(Calendar.DAY_OF_YEAR, (int) epochDay);
+        cal.set(Calendar.HOUR_OF_DAY, minuteOfDay / 60);
+        cal.set(Calendar.MINUTE, minuteOfDay % 60);
+        return cal.getTimeInMillis();
+    }
+}
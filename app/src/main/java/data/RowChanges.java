@@ -0,0 +1,146 @@
+package data;
+
+import java.lang.ref.WeakReference;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Row-level change notifications for prescription_drugs.
+// Writers publish the uids they touched (after the commit); only observers of those uids re-query,
+// instead of every open query on the table as with Room's table-level invalidation.
+// List sources listen too: structural changes reload them, in-place changes arrive as a small delta.
+// Writers that cannot name their rows (day rollover, provider selections, term edits) call publishAll.
+// Plain Java (no android.* imports) so it can be unit tested on the JVM.
+public final class RowChanges {
+
+    // What kind of change a write made
+    public static final int IN_PLACE   = 0; // row fields changed; list membership and order did not
+    public static final int STRUCTURAL = 1; // rows added/removed, or isActive / timeTermId changed
+
+    // In-place changes touching more rows than this reload lists instead of sending a delta
+    static final int DELTA_MAX = 100;
+
+    // Observer of single rows (e.g. a details screen)
+    public interface RowObserver { void onRowChanged(int uid); }
+
+    // Observer of the list as a whole; uids == null means "any row"
+    public interface ListListener { void onRowsChanged(int kind, int[] uids); }
+
+    // List listener that holds its owner weakly and is dropped once the owner is collected.
+    // For paging sources: one whose factory is replaced is never invalidated, so never unregisters.
+    // Subclasses must be static (an inner or anonymous class would hold the owner strongly).
+    public abstract static class WeakListListener<T> implements ListListener {
+        private final WeakReference<T> owner;
+
+        protected WeakListListener(T owner) { this.owner = new WeakReference<>(owner); }
+
+        @Override public final void onRowsChanged(int kind, int[] uids) {
+            T o = owner.get();
+            if (o != null) onRowsChanged(o, kind, uids);
+        }
+
+        protected abstract void onRowsChanged(T owner, int kind, int[] uids);
+
+        boolean isCleared() { return owner.get() == null; }
+    }
+
+    private static final RowChanges INSTANCE = new RowChanges();
+
+    private final Map<Integer, List<RowObserver>> byUid = new ConcurrentHashMap<>();
+    private final List<ListListener> lists = new CopyOnWriteArrayList<>();
+
+    // Counters
+    private final AtomicLong rowsPublished = new AtomicLong();
+    private final AtomicLong rowNotifications = new AtomicLong();
+    private final AtomicLong listDeltas = new AtomicLong();
+    private final AtomicLong listReloads = new AtomicLong();
+
+    RowChanges() {}
+
+    public static RowChanges get() { return INSTANCE; }
+
+    // Registration is rare and locked; publish reads the map without locking
+    public synchronized void observe(int uid, RowObserver o) {
+        List<RowObserver> l = byUid.get(uid);
+        if (l == null) {
+            l = new CopyOnWriteArrayList<>();
+            byUid.put(uid, l);
+        }
+        l.add(o);
+    }
+
+    public synchronized void unobserve(int uid, RowObserver o) {
+        List<RowObserver> l = byUid.get(uid);
+        if (l == null) return;
+        l.remove(o);
+        if (l.isEmpty()) byUid.remove(uid);
+    }
+
+    public void addListListener(ListListener l) { lists.add(l); }
+
+    public void removeListListener(ListListener l) { lists.remove(l); }
+
+    // Announce that these rows changed (call after the transaction committed)
+    public void publish(int kind, int... uids) {
+        if (uids.length == 0) return;
+        rowsPublished.addAndGet(uids.length);
+        for (int uid : uids) {
+            List<RowObserver> obs = byUid.get(uid);
+            if (obs == null) continue;
+            for (RowObserver o : obs) {
+                rowNotifications.incrementAndGet();
+                o.onRowChanged(uid);
+            }
+        }
+        if (kind == IN_PLACE && uids.length <= DELTA_MAX) {
+            listDeltas.incrementAndGet();
+            notifyLists(IN_PLACE, uids);
+        } else {
+            listReloads.incrementAndGet();
+            notifyLists(STRUCTURAL, uids);
+        }
+    }
+
+    public void publish(int kind, Collection<? extends Number> uids) {
+        int[] a = new int[uids.size()];
+        int i = 0;
+        for (Number n : uids) a[i++] = n.intValue();
+        publish(kind, a);
+    }
+
+    // Announce a change to rows the writer cannot name: every row observer and every list reloads
+    public void publishAll() {
+        for (Map.Entry<Integer, List<RowObserver>> e : byUid.entrySet()) {
+            for (RowObserver o : e.getValue()) {
+                rowNotifications.incrementAndGet();
+                o.onRowChanged(e.getKey());
+            }
+        }
+        listReloads.incrementAndGet();
+        notifyLists(STRUCTURAL, null);
+    }
+
+    private void notifyLists(int kind, int[] uids) {
+        for (ListListener l : lists) {
+            if (l instanceof WeakListListener && ((WeakListListener<?>) l).isCleared()) lists.remove(l);
+            else l.onRowsChanged(kind, uids);
+        }
+    }
+
+    // ---- counters ----
+
+    public long rowsPublished()    { return rowsPublished.get(); }    // uids announced by writers
+    public long rowNotifications() { return rowNotifications.get(); } // row observer callbacks (re-queries)
+    public long listDeltas()       { return listDeltas.get(); }       // in-place deltas sent to lists
+    public long listReloads()      { return listReloads.get(); }      // structural changes (lists reload)
+
+    // One-line summary for logs
+    public String stats() {
+        return "rowsPublished=" + rowsPublished() + " rowNotifications=" + rowNotifications()
+                + " listDeltas=" + listDeltas() + " listReloads=" + listReloads()
+                + " observedRows=" + byUid.size() + " listListeners=" + lists.size();
+    }
+}
@@ -0,0 +1,44 @@
+package data;
+
+import androidx.lifecycle.LiveData;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntFunction;
+
+// LiveData for one prescription row, re-queried only when RowChanges reports that uid.
+// Registered while it has active observers; bursts of changes collapse into one pending load.
+final class RowLiveData<T> extends LiveData<T> implements RowChanges.RowObserver {
+
+    private final int uid;
+    private final IntFunction<T> loader; // synchronous query by uid
+    private final Executor executor;
+    private final AtomicBoolean loadPending = new AtomicBoolean(false);
+
+    RowLiveData(int uid, IntFunction<T> loader, Executor executor) {
+        this.uid = uid;
+        this.loader = loader;
+        this.executor = executor;
+    }
+
+    @Override protected void onActive() {
+        RowChanges.get().observe(uid, this);
+        load(); // catch up on anything written while inactive
+    }
+
+    @Override protected void onInactive() {
+        RowChanges.get().unobserve(uid, this);
+    }
+
+    @Override public void onRowChanged(int changedUid) {
+        load();
+    }
+
+    private void load() {
+        if (!loadPending.compareAndSet(false, true)) return;
+        executor.execute(() -> {
+            loadPending.set(false); // a change arriving during the query schedules one more load
+            postValue(loader.apply(uid));
+        });
+    }
+}
@@ -0,0 +1,90 @@
+package data;
+
+import androidx.annotation.NonNull;
+import androidx.paging.DataSource;
+import androidx.paging.ItemKeyedDataSource;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Keyset-paged full-text search results for one patient, in uid order.
+// Each page is driven by the FTS index (rowid > key), so a page costs O(page size)
+// even when the query matches most of the table.
+public class SearchDataSource extends ItemKeyedDataSource<Integer, PrescriptionWithTerm> {
+
+    private final PrescriptionDao dao;
+    private final int patientId;
+    private final String match; // FTS MATCH expression (see SearchQuery.match)
+
+    // Invalidate on any row change: even an in-place edit can change which rows match
+    // (the FTS table follows through its triggers)
+    private final AtomicBoolean registered = new AtomicBoolean(false);
+    private final RowChanges.ListListener listener = new Listener(this);
+
+    SearchDataSource(AppDatabase db, int patientId, String match) {
+        this.dao = db.prescriptionDao();
+        this.patientId = patientId;
+        this.match = match;
+        addInvalidatedCallback(() -> RowChanges.get().removeListListener(listener));
+    }
+
+    @Override
+    public void loadInitial(@NonNull LoadInitialParams<Integer> params,
+                            @NonNull LoadInitialCallback<PrescriptionWithTerm> callback) {
+        registerObserverIfNeeded();
+        Integer k = params.requestedInitialKey;
+        int after = (k == null) ? Integer.MIN_VALUE : k - 1; // start at the key itself
+        callback.onResult(dao.searchAfter(patientId, match, after, params.requestedLoadSize));
+    }
+
+    @Override
+    public void loadAfter(@NonNull LoadParams<Integer> params, @NonNull LoadCallback<PrescriptionWithTerm> callback) {
+        callback.onResult(dao.searchAfter(patientId, match, params.key, params.requestedLoadSize));
+    }
+
+    @Override
+    public void loadBefore(@NonNull LoadParams<Integer> params, @NonNull LoadCallback<PrescriptionWithTerm> callback) {
+        List<PrescriptionWithTerm> page = dao.searchBefore(patientId, match, params.key, params.requestedLoadSize);
+        Collections.reverse(page);
+        callback.onResult(page);
+    }
+
+    @NonNull @Override
+    public Integer getKey(@NonNull PrescriptionWithTerm item) {
+        return item.drug.uid;
+    }
+
+    private void registerObserverIfNeeded() {
+        if (registered.compareAndSet(false, true)) {
+            RowChanges.get().addListListener(listener);
+        }
+    }
+
+    // Weak: the source left behind when the query changes is never invalidated, so never unregisters
+    private static final class Listener extends RowChanges.WeakListListener<SearchDataSource> {
+        Listener(SearchDataSource source) { super(source); }
+
+        @Override protected void onRowsChanged(SearchDataSource source, int kind, int[] uids) {
+            source.invalidate();
+        }
+    }
+
+    // Creates a fresh source (same query) for every invalidation
+    public static class Factory extends DataSource.Factory<Integer, PrescriptionWithTerm> {
+        private final AppDatabase db;
+        private final int patientId;
+        private final String match;
+
+        public Factory(AppDatabase db, int patientId, String match) {
+            this.db = db;
+            this.patientId = patientId;
+            this.match = match;
+        }
+
+        @NonNull @Override
+        public DataSource<Integer, PrescriptionWithTerm> create() {
+            return new SearchDataSource(db, patientId, match);
+        }
+    }
+}
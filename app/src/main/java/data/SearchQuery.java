@@ -0,0 +1,40 @@
+package data;
+
+import java.util.Locale;
+
+// Turns free text from a search box into an FTS4 MATCH expression:
+// every word becomes a prefix term and all of them must match ("amox ermou" -> "amox* ermou*").
+// Only letters and digits survive, so user input can never inject FTS operators or quotes.
+public final class SearchQuery {
+    private SearchQuery() {}
+
+    // Shortest input worth searching; one-letter prefixes match most of the table
+    public static final int MIN_CHARS = 2;
+
+    // Words used from the input (more only narrows an already tiny result)
+    private static final int MAX_TERMS = 8;
+
+    // MATCH expression for the input, or null if it has no searchable words
+    public static String match(String input) {
+        if (input == null) return null;
+        StringBuilder out = new StringBuilder();
+        int terms = 0;
+        int i = 0, n = input.length();
+        while (i < n && terms < MAX_TERMS) {
+            while (i < n && !Character.isLetterOrDigit(input.charAt(i))) i++;
+            int start = i;
+            while (i < n && Character.isLetterOrDigit(input.charAt(i))) i++;
+            if (i > start) {
+                if (terms++ > 0) out.append(' ');
+                // Lower case: FTS4 treats upper-case AND/OR/NOT/NEAR as operators
+                out.append(input.substring(start, i).toLowerCase(Locale.ROOT)).append('*');
+            }
+        }
+        return terms == 0 ? null : out.toString();
+    }
+
+    // True if the input is long enough to run a search (otherwise show the normal list)
+    public static boolean isSearchable(String input) {
+        return input != null && input.trim().length() >= MIN_CHARS && match(input) != null;
+    }
+}
@@ -1,6 +1,8 @@
 package data;
 
+import androidx.room.ColumnInfo;
 import androidx.room.Entity;
+import androidx.room.Ignore;
 import androidx.room.PrimaryKey;
 
 // Time term row (e.g., "before-breakfast"), used to group/order prescriptions
@@ -9,11 +11,22 @@ public class TimeTerm {
     @PrimaryKey public int id;     // stable id
     public String code;            // machine-friendly label
     public int sortOrder;          // list ordering
+    @ColumnInfo(defaultValue = "" + DEFAULT_MINUTE)
+    public int minuteOfDay;        // local time of the dose (minutes after midnight), for reminders
 
-    // Simple constructor for seeding/inserts
-    public TimeTerm(int id, String code, int sortOrder) {
+    // Reminder time for terms created without one (08:00)
+    public static final int DEFAULT_MINUTE = 8 * 60;
+
+    public TimeTerm(int id, String code, int sortOrder, int minuteOfDay) {
         this.id = id;
         this.code = code;
         this.sortOrder = sortOrder;
+        this.minuteOfDay = minuteOfDay;
+    }
+
+    // Simple constructor for seeding/inserts
+    @Ignore
+    public TimeTerm(int id, String code, int sortOrder) {
+        this(id, code, sortOrder, DEFAULT_MINUTE);
     }
 }
@@ -1,5 +1,7 @@
 package data;
 
+import android.database.Cursor;
+
 import androidx.lifecycle.LiveData;
 import androidx.room.Dao;
 import androidx.room.Insert;
@@ -14,4 +16,7 @@ public interface TimeTermDao {
 
     @Query("SELECT * FROM time_terms ORDER BY sortOrder ASC")
     LiveData<List<TimeTerm>> getAll(); // observe all terms sorted for UI (spinner/list)
+
+    @Query("SELECT * FROM time_terms ORDER BY id ASC")
+    Cursor allCursor(); // every term, for archive exports (caller must close it)
 }
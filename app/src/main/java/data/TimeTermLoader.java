@@ -0,0 +1,64 @@
+package data;
+
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
+import androidx.room.InvalidationTracker;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+// Room side of TimeTermRegistry: reads time_terms and reloads the registry when the table changes
+final class TimeTermLoader implements TimeTermRegistry.Source {
+
+    private static final String SQL = "SELECT id, code, sortOrder, minuteOfDay FROM time_terms ORDER BY sortOrder ASC, id ASC";
+
+    private final AppDatabase db;
+
+    private TimeTermLoader(AppDatabase db) {
+        this.db = db;
+    }
+
+    // Hook the registry to the database: reload whenever time_terms changes.
+    // Every row shows its term code and lists sort by term, so a reload counts as a change to all rows.
+    static void attach(AppDatabase database) {
+        use(database);
+        database.getInvalidationTracker().addObserver(new InvalidationTracker.Observer("time_terms") {
+            @Override public void onInvalidated(@NonNull Set<String> tables) {
+                AppExecutors.get().diskRead().execute(() -> {
+                    TimeTermRegistry.reload();
+                    RowChanges.get().publishAll();
+                });
+            }
+        });
+    }
+
+    // Database the registry reloads from (the current AppDatabase instance)
+    static void use(AppDatabase database) {
+        TimeTermRegistry.use(new TimeTermLoader(database));
+    }
+
+    // Load from an open database (used from the Room open callback, before any query runs)
+    static void loadFrom(SupportSQLiteDatabase sdb) {
+        TimeTermRegistry.set(read(sdb));
+    }
+
+    @Override public List<TimeTerm> read() {
+        return read(db.getOpenHelper().getReadableDatabase());
+    }
+
+    @Override public Executor background() {
+        return AppExecutors.get().diskRead();
+    }
+
+    private static List<TimeTerm> read(SupportSQLiteDatabase sdb) {
+        List<TimeTerm> out = new ArrayList<>();
+        try (Cursor c = sdb.query(SQL)) {
+            while (c.moveToNext()) out.add(new TimeTerm(c.getInt(0), c.getString(1), c.getInt(2), c.getInt(3)));
+        }
+        return out;
+    }
+}
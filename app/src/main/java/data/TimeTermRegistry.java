@@ -0,0 +1,137 @@
+package data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Process-wide, immutable view of the (tiny, static) time_terms table.
+// Hot queries read only prescription_drugs and resolve the term here, so every row
+// shares the same TimeTerm/String instances instead of carrying its own JOIN copy.
+// The snapshot is replaced (never mutated) when time_terms changes.
+// Plain Java (no android.* imports) so the bench module can compile it; TimeTermLoader feeds it from Room.
+public final class TimeTermRegistry {
+    private TimeTermRegistry() {}
+
+    // Where the terms come from (TimeTermLoader on devices; none in the bench, which calls set())
+    interface Source {
+        List<TimeTerm> read();  // ordered by (sortOrder, id); background thread only
+        Executor background();  // runs the reload queued by a miss
+    }
+
+    // Largest id kept in the array index; anything above falls back to a linear scan
+    private static final int MAX_ARRAY_ID = 1024;
+
+    private static volatile Snapshot snapshot = new Snapshot(Collections.emptyList());
+    private static volatile Source source; // used to reload on change / on a miss
+
+    // One shared placeholder per unknown id, and at most one pending reload
+    private static final ConcurrentHashMap<Integer, TimeTerm> placeholders = new ConcurrentHashMap<>();
+    private static final AtomicBoolean reloadQueued = new AtomicBoolean();
+
+    // Immutable set of terms: array-indexed by id, plus the list in display order
+    public static final class Snapshot {
+        final TimeTerm[] byId;
+        public final List<TimeTerm> ordered;     // by (sortOrder, id)
+        public final boolean idOrderIsSortOrder; // ORDER BY timeTermId gives display order
+
+        Snapshot(List<TimeTerm> orderedTerms) {
+            this.ordered = Collections.unmodifiableList(orderedTerms);
+            int max = -1;
+            boolean monotonic = true;
+            for (int i = 0; i < orderedTerms.size(); i++) {
+                TimeTerm t = orderedTerms.get(i);
+                if (t.id >= 0 && t.id <= MAX_ARRAY_ID) max = Math.max(max, t.id);
+                if (i > 0) {
+                    TimeTerm prev = orderedTerms.get(i - 1);
+                    if (t.id < prev.id || t.sortOrder == prev.sortOrder) monotonic = false;
+                }
+            }
+            this.byId = new TimeTerm[max + 1];
+            for (TimeTerm t : orderedTerms) {
+                if (t.id >= 0 && t.id <= MAX_ARRAY_ID) byId[t.id] = t;
+            }
+            this.idOrderIsSortOrder = monotonic;
+        }
+
+        // Term for an id, or null if unknown
+        public TimeTerm get(int id) {
+            if (id >= 0 && id < byId.length) return byId[id];
+            if (id > MAX_ARRAY_ID) {
+                for (TimeTerm t : ordered) if (t.id == id) return t;
+            }
+            return null;
+        }
+
+        // Position of a term in display order, or -1 if unknown
+        public int indexOf(int id) {
+            for (int i = 0; i < ordered.size(); i++) if (ordered.get(i).id == id) return i;
+            return -1;
+        }
+    }
+
+    // Source to reload from (the current AppDatabase instance's loader)
+    static void use(Source s) {
+        source = s;
+    }
+
+    // Replace the snapshot with these terms, ordered by (sortOrder, id)
+    public static void set(List<TimeTerm> orderedTerms) {
+        snapshot = new Snapshot(new ArrayList<>(orderedTerms));
+    }
+
+    // Current snapshot (may be empty before the database is first opened)
+    public static Snapshot get() { return snapshot; }
+
+    // Current snapshot, loading it first if it is still empty (background thread only)
+    public static Snapshot loaded() {
+        if (snapshot.ordered.isEmpty()) reload();
+        return snapshot;
+    }
+
+    // Resolve a term id to its shared instance. Called from Room row mapping with a cursor open, so a
+    // miss (e.g. just after seeding) never queries: it returns a shared placeholder and, the first time
+    // an id misses, queues a reload that republishes every row (an id that stays unknown reloads once).
+    public static TimeTerm resolve(int id) {
+        TimeTerm t = snapshot.get(id);
+        if (t != null) return t;
+        t = placeholders.get(id);
+        if (t != null) return t;
+        t = new TimeTerm(id, "term-" + id, Integer.MAX_VALUE); // sorted last
+        TimeTerm prev = placeholders.putIfAbsent(id, t);
+        if (prev != null) return prev;
+        Source s = source;
+        if (s != null && reloadQueued.compareAndSet(false, true)) {
+            s.background().execute(() -> {
+                reloadQueued.set(false);
+                reload();
+                RowChanges.get().publishAll();
+            });
+        }
+        return t;
+    }
+
+    // Re-read time_terms (background thread only)
+    static synchronized void reload() {
+        Source s = source;
+        if (s != null) set(s.read());
+    }
+
+    // Put rows that are already ordered by (timeTermId, uid) into display order (term sortOrder, uid).
+    // A no-op when term ids already follow sortOrder (the seeded terms do); otherwise one bucket pass.
+    public static List<PrescriptionWithTerm> inTermOrder(List<PrescriptionWithTerm> rows) {
+        Snapshot s = snapshot;
+        if (s.idOrderIsSortOrder || rows.size() < 2) return rows;
+        List<List<PrescriptionWithTerm>> buckets = new ArrayList<>(s.ordered.size() + 1);
+        for (int i = 0; i <= s.ordered.size(); i++) buckets.add(new ArrayList<>());
+        for (PrescriptionWithTerm r : rows) {
+            int idx = s.indexOf(r.termId);
+            buckets.get(idx < 0 ? s.ordered.size() : idx).add(r); // unknown terms last
+        }
+        List<PrescriptionWithTerm> out = new ArrayList<>(rows.size());
+        for (List<PrescriptionWithTerm> b : buckets) out.addAll(b);
+        return out;
+    }
+}
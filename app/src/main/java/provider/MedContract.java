@@ -1,5 +1,6 @@
 package provider;
 
+import android.content.ContentUris;
 import android.net.Uri;
 import android.provider.BaseColumns;
 
@@ -14,10 +15,19 @@ public final class MedContract {
     // Path segments
     public static final String PATH_PRESCRIPTIONS = "prescriptions";
     public static final String PATH_TIME_TERMS    = "time_terms";
+    public static final String PATH_SEARCH        = "search"; // prescriptions/search/<text>
+    public static final String PATH_PATIENTS      = "patients"; // also patients/#/prescriptions
+
+    // Query parameters accepted on collection URIs, e.g. prescriptions?after_uid=120&limit=50
+    public static final String PARAM_LIMIT     = "limit";     // max rows
+    public static final String PARAM_OFFSET    = "offset";    // rows to skip (prefer after_uid for deep pages)
+    public static final String PARAM_AFTER_UID = "after_uid"; // keyset: rows with uid > value, in uid order (prescriptions only)
 
     // Prescriptions table/columns and content URI
     public static final class Prescriptions implements BaseColumns {
         public static final Uri CONTENT_URI = BASE_URI.buildUpon().appendPath(PATH_PRESCRIPTIONS).build();
+        // Full-text prefix search: append the (encoded) text; honors projection, selection, limit/offset, after_uid
+        public static final Uri SEARCH_URI = CONTENT_URI.buildUpon().appendPath(PATH_SEARCH).build();
         public static final String TABLE  = "prescription_drugs";
         public static final String COL_UID = "uid";                 // primary key (int)
         public static final String COL_SHORT = "shortName";
@@ -30,6 +40,12 @@ public final class MedContract {
         public static final String COL_ACTIVE= "isActive";
         public static final String COL_TODAY = "hasReceivedToday";
         public static final String COL_LAST  = "lastDateReceivedEpoch";
+        public static final String COL_PATIENT = "patientId";       // owner (Patients.COL_ID); defaults to 1
+
+        // Search URI for a text typed by the user (e.g. "amox ermou")
+        public static Uri searchUri(String text) {
+            return SEARCH_URI.buildUpon().appendPath(text).build();
+        }
     }
 
     // Time terms table/columns and content URI
@@ -39,5 +55,21 @@ public final class MedContract {
         public static final String COL_ID   = "id";
         public static final String COL_CODE = "code";
         public static final String COL_ORDER= "sortOrder";
+        public static final String COL_MINUTE = "minuteOfDay"; // dose time, minutes after local midnight
+    }
+
+    // Patients table/columns and content URIs
+    public static final class Patients implements BaseColumns {
+        public static final Uri CONTENT_URI = BASE_URI.buildUpon().appendPath(PATH_PATIENTS).build();
+        public static final String TABLE = "patients";
+        public static final String COL_ID   = "id";
+        public static final String COL_NAME = "name";
+
+        // One patient's prescriptions: query/insert/update/delete only touch that patient's rows;
+        // honors projection, selection, limit/offset and after_uid like Prescriptions.CONTENT_URI
+        public static Uri prescriptionsUri(long patientId) {
+            return ContentUris.withAppendedId(CONTENT_URI, patientId).buildUpon()
+                    .appendPath(PATH_PRESCRIPTIONS).build();
+        }
     }
 }
@@ -1,8 +1,12 @@
 package provider;
 
 import android.content.ContentProvider;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
+import android.content.ContentResolver;
 import android.content.ContentUris;
 import android.content.ContentValues;
+import android.content.OperationApplicationException;
 import android.content.UriMatcher;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
@@ -12,7 +16,21 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.sqlite.db.SupportSQLiteDatabase;
 
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.TimeZone;
+
 import data.AppDatabase;
+import data.ChangeBus;
+import data.DbTuning;
+import data.QueryMetrics;
+import data.ReaderPool;
+import data.ReminderQueue;
+import data.RowChanges;
+import data.SearchQuery;
 
 public class MedProvider extends ContentProvider {
 
@@ -21,68 +39,120 @@ public class MedProvider extends ContentProvider {
     private static final int P_ID  = 2;
     private static final int T_ALL = 3;
     private static final int T_ID  = 4;
+    private static final int P_SEARCH = 5;
+    private static final int PT_ALL = 6;
+    private static final int PT_ID  = 7;
+    private static final int PT_PRESCRIPTIONS = 8; // patients/#/prescriptions
 
     // Map incoming URIs to match codes
     private static final UriMatcher MATCHER = new UriMatcher(UriMatcher.NO_MATCH);
     static {
         MATCHER.addURI(MedContract.AUTHORITY, MedContract.PATH_PRESCRIPTIONS,        P_ALL);
         MATCHER.addURI(MedContract.AUTHORITY, MedContract.PATH_PRESCRIPTIONS + "/#", P_ID);
+        MATCHER.addURI(MedContract.AUTHORITY,
+                MedContract.PATH_PRESCRIPTIONS + "/" + MedContract.PATH_SEARCH + "/*",      P_SEARCH);
         MATCHER.addURI(MedContract.AUTHORITY, MedContract.PATH_TIME_TERMS,           T_ALL);
         MATCHER.addURI(MedContract.AUTHORITY, MedContract.PATH_TIME_TERMS + "/#",    T_ID);
+        MATCHER.addURI(MedContract.AUTHORITY, MedContract.PATH_PATIENTS,             PT_ALL);
+        MATCHER.addURI(MedContract.AUTHORITY, MedContract.PATH_PATIENTS + "/#",      PT_ID);
+        MATCHER.addURI(MedContract.AUTHORITY,
+                MedContract.PATH_PATIENTS + "/#/" + MedContract.PATH_PRESCRIPTIONS,        PT_PRESCRIPTIONS);
+    }
+
+    // URI pattern per match code, for metric keys ("provider: query prescriptions/#")
+    private static final String[] PATTERNS = {"?",
+            MedContract.PATH_PRESCRIPTIONS, MedContract.PATH_PRESCRIPTIONS + "/#",
+            MedContract.PATH_TIME_TERMS, MedContract.PATH_TIME_TERMS + "/#",
+            MedContract.PATH_PRESCRIPTIONS + "/" + MedContract.PATH_SEARCH + "/*",
+            MedContract.PATH_PATIENTS, MedContract.PATH_PATIENTS + "/#",
+            MedContract.PATH_PATIENTS + "/#/" + MedContract.PATH_PRESCRIPTIONS};
+
+    // Per URI/operation latency (the SQL underneath is also timed, by Room's open helper)
+    private final QueryMetrics metrics = QueryMetrics.get();
+
+    // Low-level DB (via Room) for writes; opened on the first write (see db())
+    private volatile SupportSQLiteDatabase db;
+
+    // Read-only WAL connection pool for queries (opened on first query)
+    private volatile ReaderPool reader;
+
+    // Query SQL built per shape and cached
+    private final ProviderSql queries = new ProviderSql();
+
+    // Changes made by the batch running on this thread (null = no batch).
+    // They are published once after the batch commits.
+    private final ThreadLocal<Pending> pendingNotify = new ThreadLocal<>();
+
+    // Tables and prescription rows touched by a batch
+    private static final class Pending {
+        final Set<String> tables = new LinkedHashSet<>();
+        final Set<Integer> uids = new LinkedHashSet<>();
+        boolean allRows;    // a write by selection: rows unknown
+        boolean structural; // some write may have moved a row in the lists
     }
 
-    // Low-level DB (via Room)
-    private SupportSQLiteDatabase db;
+    // Turns coalesced table changes (from Room or from this provider) into one notification per collection.
+    // Prescription changes also go to patients/ so patients/#/prescriptions cursors (descendants) hear them.
+    private final ChangeBus.Sink uriNotifier = tables -> {
+        if (getContext() == null) return;
+        ContentResolver cr = getContext().getContentResolver();
+        if (tables.contains("prescription_drugs")) cr.notifyChange(MedContract.Prescriptions.CONTENT_URI, null);
+        if (tables.contains("time_terms")) cr.notifyChange(MedContract.TimeTerms.CONTENT_URI, null);
+        if (tables.contains("patients") || tables.contains("prescription_drugs")) {
+            cr.notifyChange(MedContract.Patients.CONTENT_URI, null);
+        }
+    };
 
     @Override public boolean onCreate() {
-        // Open the database for direct SQL queries used by the provider
-        db = AppDatabase.getInstance(getContext()).getOpenHelper().getWritableDatabase();
+        // Providers are created before Application.onCreate: open nothing here (cold start)
+        ChangeBus.get().addSink(uriNotifier);
         return true;
     }
 
+    // Only for instances a test creates itself (attachInfo): take them off the bus again
+    @Override public void shutdown() {
+        ChangeBus.get().removeSink(uriNotifier);
+    }
+
     @Nullable @Override
     public Cursor query(@NonNull Uri uri, @Nullable String[] projection, @Nullable String selection,
                         @Nullable String[] selectionArgs, @Nullable String sortOrder) {
 
+        long t = metrics.start();
         int m = MATCHER.match(uri);
-        String sql;
+        int table;
         switch (m) {
-            case P_ALL:
-                // Alias uid as _id for CursorAdapter compatibility
-                sql = "SELECT " +
-                        "uid AS _id, " +
-                        "uid, shortName, description, startDateEpoch, endDateEpoch, timeTermId, " +
-                        "doctorName, doctorLocation, isActive, hasReceivedToday, lastDateReceivedEpoch " +
-                        "FROM prescription_drugs";
-                if (selection != null && !selection.isEmpty()) sql += " WHERE " + selection;
-                if (sortOrder != null && !sortOrder.isEmpty()) sql += " ORDER BY " + sortOrder;
-                break;
-
-            case P_ID:
-                long id = ContentUris.parseId(uri);
-                sql = "SELECT uid AS _id, uid, shortName, description, startDateEpoch, endDateEpoch, timeTermId, " +
-                        "doctorName, doctorLocation, isActive, hasReceivedToday, lastDateReceivedEpoch " +
-                        "FROM prescription_drugs WHERE uid = " + id + (selection!=null? " AND ("+selection+")":"");
-                break;
-
-            case T_ALL:
-                sql = "SELECT id AS _id, id, code, sortOrder FROM time_terms";
-                if (selection != null && !selection.isEmpty()) sql += " WHERE " + selection;
-                if (sortOrder != null && !sortOrder.isEmpty()) sql += " ORDER BY " + sortOrder;
-                break;
-
-            case T_ID:
-                long tid = ContentUris.parseId(uri);
-                sql = "SELECT id AS _id, id, code, sortOrder FROM time_terms WHERE id = " + tid +
-                        (selection!=null? " AND ("+selection+")":"");
-                break;
-
+            case P_ALL: case P_ID: table = ProviderSql.PRESCRIPTIONS; break;
+            case T_ALL: case T_ID: table = ProviderSql.TIME_TERMS; break;
+            case P_SEARCH:         table = ProviderSql.PRESCRIPTION_SEARCH; break;
+            case PT_ALL: case PT_ID: table = ProviderSql.PATIENTS; break;
+            case PT_PRESCRIPTIONS: table = ProviderSql.PRESCRIPTIONS; break;
             default:
                 throw new IllegalArgumentException("Unknown URI: " + uri);
         }
+        Object key = null; // bound id, patient id or FTS match
+        if (m == P_ID || m == T_ID || m == PT_ID) key = ContentUris.parseId(uri);
+        if (m == PT_PRESCRIPTIONS) key = patientOf(uri);
+        if (m == P_SEARCH) {
+            key = SearchQuery.match(uri.getLastPathSegment());
+            if (key == null) throw new IllegalArgumentException("Nothing to search for: " + uri);
+        }
+        Long afterUid = queryLong(uri, MedContract.PARAM_AFTER_UID);
+        Long limit = queryLong(uri, MedContract.PARAM_LIMIT);
+        Long offset = queryLong(uri, MedContract.PARAM_OFFSET);
 
-        Object[] args = (selectionArgs != null && selectionArgs.length > 0) ? selectionArgs : new Object[0];
-        Cursor c = db.query(sql, args);
+        // Same shape -> same SQL text, so SQLite reuses the compiled statement; values are bound
+        ProviderSql.Shape shape = new ProviderSql.Shape(table, m == P_ID || m == T_ID || m == PT_ID,
+                m == PT_PRESCRIPTIONS, projection, selection, sortOrder,
+                afterUid != null, limit != null, offset != null);
+        String sql = queries.sql(shape);
+        Object[] args = ProviderSql.args(shape, key, selectionArgs, afterUid, limit, offset);
+        Cursor c = reader().query(sql, args); // never waits behind Room's writer
+        if (t != 0) {
+            int rows = c.getCount(); // runs the query now (the first window fill happens here anyway)
+            metrics.stop(metrics.sqlKey(sql), t, rows);
+            metrics.stop(key("query", m), t, rows);
+        }
         // Let observers know which URI this cursor is tied to
         if (getContext() != null) c.setNotificationUri(getContext().getContentResolver(), uri);
         return c;
@@ -94,6 +164,10 @@ public class MedProvider extends ContentProvider {
         switch (MATCHER.match(uri)) {
             case P_ALL: return "vnd.android.cursor.dir/vnd." + MedContract.AUTHORITY + ".prescription";
             case P_ID:  return "vnd.android.cursor.item/vnd." + MedContract.AUTHORITY + ".prescription";
+            case P_SEARCH: return "vnd.android.cursor.dir/vnd." + MedContract.AUTHORITY + ".prescription";
+            case PT_PRESCRIPTIONS: return "vnd.android.cursor.dir/vnd." + MedContract.AUTHORITY + ".prescription";
+            case PT_ALL: return "vnd.android.cursor.dir/vnd." + MedContract.AUTHORITY + ".patient";
+            case PT_ID:  return "vnd.android.cursor.item/vnd." + MedContract.AUTHORITY + ".patient";
             case T_ALL: return "vnd.android.cursor.dir/vnd." + MedContract.AUTHORITY + ".time_term";
             case T_ID:  return "vnd.android.cursor.item/vnd." + MedContract.AUTHORITY + ".time_term";
             default:    throw new IllegalArgumentException("Unknown URI: " + uri);
@@ -102,89 +176,308 @@ public class MedProvider extends ContentProvider {
 
     @Nullable @Override
     public Uri insert(@NonNull Uri uri, @Nullable ContentValues values) {
+        long t = metrics.start();
         int m = MATCHER.match(uri);
         long rowId;
+        Uri base = uri; // collection the new row's item URI is built on
         switch (m) {
             case P_ALL:
+            case PT_PRESCRIPTIONS:
                 if (values == null) values = new ContentValues();
-                // Defaults for flags if not provided
-                if (!values.containsKey("isActive")) values.put("isActive", 0);
-                if (!values.containsKey("hasReceivedToday")) values.put("hasReceivedToday", 0);
-                rowId = db.insert("prescription_drugs", SQLiteDatabase.CONFLICT_ABORT, values);
+                putDayFlags(values);
+                if (m == PT_PRESCRIPTIONS) {
+                    values = new ContentValues(values); // do not change the caller's values
+                    values.put("patientId", patientOf(uri));
+                    base = MedContract.Prescriptions.CONTENT_URI;
+                }
+                rowId = db().insert("prescription_drugs", SQLiteDatabase.CONFLICT_ABORT, values);
                 break;
             case T_ALL:
-                rowId = db.insert("time_terms", SQLiteDatabase.CONFLICT_ABORT, values);
+                rowId = db().insert("time_terms", SQLiteDatabase.CONFLICT_ABORT, values);
+                break;
+            case PT_ALL:
+                rowId = db().insert("patients", SQLiteDatabase.CONFLICT_ABORT, values);
                 break;
             default:
                 throw new IllegalArgumentException("Insert not supported on " + uri);
         }
+        if (t != 0) metrics.stop(key("insert", m), t, rowId == -1 ? 0 : 1);
         if (rowId == -1) return null;
 
-        Uri out = ContentUris.withAppendedId(uri, rowId);
-        notify(uri); // notify observers
+        Uri out = ContentUris.withAppendedId(base, rowId);
+        notify(uri, rowId, true); // announce on the ChangeBus / RowChanges
         return out;
     }
 
     @Override
     public int delete(@NonNull Uri uri, @Nullable String selection, @Nullable String[] selectionArgs) {
+        long t = metrics.start();
         int m = MATCHER.match(uri);
         int rows;
         switch (m) {
             case P_ALL:
-                rows = db.delete("prescription_drugs", selection, selectionArgs);
+                rows = db().delete("prescription_drugs", selection, selectionArgs);
                 break;
             case P_ID:
                 long id = ContentUris.parseId(uri);
-                rows = db.delete("prescription_drugs",
+                rows = db().delete("prescription_drugs",
                         "uid = ?" + (selection!=null? " AND ("+selection+")":""), new String[]{ String.valueOf(id) });
                 break;
             case T_ALL:
-                rows = db.delete("time_terms", selection, selectionArgs);
+                rows = db().delete("time_terms", selection, selectionArgs);
                 break;
             case T_ID:
                 long tid = ContentUris.parseId(uri);
-                rows = db.delete("time_terms",
+                rows = db().delete("time_terms",
                         "id = ?" + (selection!=null? " AND ("+selection+")":""), new String[]{ String.valueOf(tid) });
                 break;
+            case PT_ALL:
+                rows = db().delete("patients", selection, selectionArgs);
+                break;
+            case PT_ID:
+                rows = db().delete("patients", scoped("id", selection),
+                        prepend(ContentUris.parseId(uri), selectionArgs));
+                break;
+            case PT_PRESCRIPTIONS:
+                rows = db().delete("prescription_drugs", scoped("patientId", selection),
+                        prepend(patientOf(uri), selectionArgs));
+                break;
             default:
                 throw new IllegalArgumentException("Delete not supported on " + uri);
         }
-        if (rows > 0) notify(uri);
+        if (t != 0) metrics.stop(key("delete", m), t, rows);
+        if (rows > 0) notify(uri, idOf(uri, m), true);
+        // Deleting a patient cascades to their prescriptions
+        if (rows > 0 && (m == PT_ALL || m == PT_ID)) notify(MedContract.Prescriptions.CONTENT_URI, -1, true);
         return rows;
     }
 
     @Override
     public int update(@NonNull Uri uri, @Nullable ContentValues values, @Nullable String selection, @Nullable String[] selectionArgs) {
+        long t = metrics.start();
         int m = MATCHER.match(uri);
         int rows;
         switch (m) {
             case P_ALL:
-                rows = db.update("prescription_drugs", SQLiteDatabase.CONFLICT_ABORT, values, selection, selectionArgs);
+                rows = db().update("prescription_drugs", SQLiteDatabase.CONFLICT_ABORT, values, selection, selectionArgs);
                 break;
             case P_ID:
                 long id = ContentUris.parseId(uri);
-                rows = db.update("prescription_drugs", SQLiteDatabase.CONFLICT_ABORT, values,
+                rows = db().update("prescription_drugs", SQLiteDatabase.CONFLICT_ABORT, values,
                         "uid = ?" + (selection!=null? " AND ("+selection+")":""), new String[]{ String.valueOf(id) });
                 break;
             case T_ALL:
-                rows = db.update("time_terms", SQLiteDatabase.CONFLICT_ABORT, values, selection, selectionArgs);
+                rows = db().update("time_terms", SQLiteDatabase.CONFLICT_ABORT, values, selection, selectionArgs);
                 break;
             case T_ID:
                 long tid = ContentUris.parseId(uri);
-                rows = db.update("time_terms", SQLiteDatabase.CONFLICT_ABORT, values,
+                rows = db().update("time_terms", SQLiteDatabase.CONFLICT_ABORT, values,
                         "id = ?" + (selection!=null? " AND ("+selection+")":""), new String[]{ String.valueOf(tid) });
                 break;
+            case PT_ALL:
+                rows = db().update("patients", SQLiteDatabase.CONFLICT_ABORT, values, selection, selectionArgs);
+                break;
+            case PT_ID:
+                rows = db().update("patients", SQLiteDatabase.CONFLICT_ABORT, values, scoped("id", selection),
+                        prepend(ContentUris.parseId(uri), selectionArgs));
+                break;
+            case PT_PRESCRIPTIONS:
+                rows = db().update("prescription_drugs", SQLiteDatabase.CONFLICT_ABORT, values,
+                        scoped("patientId", selection), prepend(patientOf(uri), selectionArgs));
+                break;
             default:
                 throw new IllegalArgumentException("Update not supported on " + uri);
         }
-        if (rows > 0) notify(uri);
+        if (t != 0) metrics.stop(key("update", m), t, rows);
+        if (rows > 0) notify(uri, idOf(uri, m), movesRow(values));
         return rows;
     }
 
-    // Helper: fire content change notifications
-    private void notify(Uri uri) {
-        if (getContext() != null) {
-            getContext().getContentResolver().notifyChange(uri, null);
+    // Insert many rows in one transaction; observers get a single notification
+    @Override
+    public int bulkInsert(@NonNull Uri uri, @NonNull ContentValues[] values) {
+        int m = MATCHER.match(uri);
+        if (m != P_ALL && m != T_ALL && m != PT_ALL && m != PT_PRESCRIPTIONS) {
+            throw new IllegalArgumentException("Insert not supported on " + uri);
+        }
+        long t = metrics.start();
+
+        Pending outer = pendingNotify.get();
+        if (outer == null) pendingNotify.set(new Pending());
+        boolean committed = false;
+        int count = 0;
+        db().beginTransaction();
+        try {
+            for (ContentValues v : values) {
+                if (insert(uri, v) != null) count++;
+            }
+            db().setTransactionSuccessful();
+            committed = true;
+        } finally {
+            db().endTransaction();
+            if (outer == null) flushNotifications(committed);
+        }
+        if (outer == null) DbTuning.afterWrite(db(), count); // fold a big batch out of the WAL
+        if (t != 0) metrics.stop(key("bulkInsert", m), t, count);
+        return count;
+    }
+
+    // Run all operations in one transaction; observers get one notification per table
+    @NonNull @Override
+    public ContentProviderResult[] applyBatch(@NonNull ArrayList<ContentProviderOperation> operations)
+            throws OperationApplicationException {
+        long t = metrics.start();
+        Pending outer = pendingNotify.get();
+        if (outer == null) pendingNotify.set(new Pending());
+        boolean committed = false;
+        db().beginTransaction();
+        try {
+            ContentProviderResult[] results = super.applyBatch(operations);
+            db().setTransactionSuccessful();
+            committed = true;
+            metrics.stop("provider: applyBatch", t, results.length);
+            return results;
+        } finally {
+            db().endTransaction();
+            if (outer == null) flushNotifications(committed);
+        }
+    }
+
+    // Query metrics, e.g. `adb shell dumpsys activity provider <package>/provider.MedProvider [on|off|reset]`:
+    // "on"/"off" switch recording, "reset" clears it; the table is printed after the switch is applied
+    @Override
+    public void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        for (String a : args != null ? args : new String[0]) {
+            if (a.equals("on")) metrics.setEnabled(true);
+            else if (a.equals("off")) metrics.setEnabled(false);
+            else if (a.equals("reset")) metrics.reset();
+        }
+        metrics.dump(writer);
+        writer.println("RowChanges: " + RowChanges.get().stats());
+        writer.println("ChangeBus: " + ChangeBus.get().stats());
+        writer.flush();
+    }
+
+    // Helper: metric key for an operation on a URI pattern
+    private static String key(String op, int match) {
+        return "provider: " + op + " " + PATTERNS[match < 0 ? 0 : match];
+    }
+
+    // Helper: Room's writable database, opened on first use
+    private SupportSQLiteDatabase db() {
+        SupportSQLiteDatabase d = db;
+        if (d == null) db = d = AppDatabase.getInstance(getContext()).getOpenHelper().getWritableDatabase();
+        return d;
+    }
+
+    // Helper: shared read-only pool (opened lazily so provider start-up stays cheap)
+    private ReaderPool reader() {
+        ReaderPool r = reader;
+        if (r == null) reader = r = ReaderPool.get(getContext());
+        return r;
+    }
+
+    // Helper: flags the client left out, as of today. DayRollover skips a day it has already processed,
+    // so a 0 default would keep a row that is current today out of the active list until tomorrow.
+    private static void putDayFlags(ContentValues v) {
+        long today = ReminderQueue.epochDay(System.currentTimeMillis(), TimeZone.getDefault());
+        if (!v.containsKey(MedContract.Prescriptions.COL_ACTIVE)) {
+            Long start = v.getAsLong(MedContract.Prescriptions.COL_START);
+            Long end = v.getAsLong(MedContract.Prescriptions.COL_END);
+            boolean active = start != null && end != null && start <= today && today <= end;
+            v.put(MedContract.Prescriptions.COL_ACTIVE, active ? 1 : 0);
+        }
+        if (!v.containsKey(MedContract.Prescriptions.COL_TODAY)) {
+            Long last = v.getAsLong(MedContract.Prescriptions.COL_LAST);
+            v.put(MedContract.Prescriptions.COL_TODAY, last != null && last == today ? 1 : 0);
+        }
+    }
+
+    // Helper: non-negative numeric query parameter, or null if absent
+    private static Long queryLong(Uri uri, String name) {
+        String v = uri.getQueryParameter(name);
+        if (v == null) return null;
+        try {
+            long n = Long.parseLong(v.trim());
+            if (n < 0) throw new IllegalArgumentException(name + " must be >= 0: " + v);
+            return n;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + ": " + v);
+        }
+    }
+
+    // Helper: announce a write on the ChangeBus and, for prescriptions, on RowChanges
+    // (deferred while a batch is running). uid < 0 = rows unknown (write by selection).
+    // The bus coalesces it with Room's own invalidation and notifies the collection URI once.
+    private void notify(Uri uri, long uid, boolean structural) {
+        String table = tableOf(uri);
+        boolean rows = table.equals("prescription_drugs"); // term rows reach RowChanges via TimeTermRegistry
+        Pending pending = pendingNotify.get();
+        if (pending != null) {
+            pending.tables.add(table);
+            if (rows) {
+                if (uid < 0) pending.allRows = true;
+                else pending.uids.add((int) uid);
+                pending.structural |= structural;
+            }
+            return;
+        }
+        ChangeBus.get().publish(ChangeBus.EXTERNAL, table);
+        if (!rows) return;
+        if (uid < 0) RowChanges.get().publishAll();
+        else RowChanges.get().publish(structural ? RowChanges.STRUCTURAL : RowChanges.IN_PLACE, (int) uid);
+    }
+
+    // Helper: end the current batch; publish what it touched once if it committed
+    private void flushNotifications(boolean committed) {
+        Pending pending = pendingNotify.get();
+        pendingNotify.remove();
+        if (!committed || pending == null || pending.tables.isEmpty()) return;
+        ChangeBus.get().publish(ChangeBus.EXTERNAL, pending.tables);
+        if (pending.allRows) {
+            RowChanges.get().publishAll();
+        } else if (!pending.uids.isEmpty()) {
+            RowChanges.get().publish(pending.structural ? RowChanges.STRUCTURAL : RowChanges.IN_PLACE, pending.uids);
+        }
+    }
+
+    // Helper: id of an item URI, or -1 for a collection
+    private static long idOf(Uri uri, int match) {
+        return (match == P_ID || match == T_ID || match == PT_ID) ? ContentUris.parseId(uri) : -1;
+    }
+
+    // Helper: patient id of a patients/#/prescriptions URI
+    private static long patientOf(Uri uri) {
+        return Long.parseLong(uri.getPathSegments().get(1));
+    }
+
+    // Helper: "<column> = ?" AND the caller's selection (if any)
+    private static String scoped(String column, String selection) {
+        return column + " = ?" + (selection != null ? " AND (" + selection + ")" : "");
+    }
+
+    // Helper: selection args with the scoping id in front
+    private static String[] prepend(long id, String[] selectionArgs) {
+        int n = selectionArgs == null ? 0 : selectionArgs.length;
+        String[] out = new String[n + 1];
+        out[0] = String.valueOf(id);
+        if (n > 0) System.arraycopy(selectionArgs, 0, out, 1, n);
+        return out;
+    }
+
+    // Helper: an update may move a row in the lists (or out of them) unless it leaves these columns alone
+    private static boolean movesRow(ContentValues values) {
+        return values == null || values.containsKey("isActive") || values.containsKey("timeTermId")
+                || values.containsKey("uid");
+    }
+
+    // Helper: table behind a provider URI
+    private static String tableOf(Uri uri) {
+        switch (MATCHER.match(uri)) {
+            case P_ALL: case P_ID: case P_SEARCH: case PT_PRESCRIPTIONS: return "prescription_drugs";
+            case T_ALL: case T_ID: return "time_terms";
+            case PT_ALL: case PT_ID: return "patients";
+            default: throw new IllegalArgumentException("Unknown URI: " + uri);
         }
     }
 }
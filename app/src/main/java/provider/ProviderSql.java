@@ -0,0 +1,217 @@
+package provider;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+// SQL text used by MedProvider.query.
+// Every value (ids, keyset/paging numbers, selection args) is bound, so the text depends only on the
+// query's Shape: one compiled statement per shape instead of one per uid. Built texts are cached.
+// Plain Java (no android.* imports) so the exact statements can be benchmarked on the JVM.
+public final class ProviderSql {
+
+    // Tables served by the provider
+    public static final int PRESCRIPTIONS = 0;
+    public static final int TIME_TERMS    = 1;
+    public static final int PRESCRIPTION_SEARCH = 2; // prescriptions matching an FTS query
+    public static final int PATIENTS      = 3;
+
+    // Built statements kept per shape (a client rarely uses more than a handful)
+    private static final int CACHE_MAX = 64;
+
+    // Allowed projection columns -> SELECT expression; uid/id is also exposed as _id for CursorAdapter
+    private static final Map<String, String> PRESCRIPTION_COLUMNS = columns(
+            "_id", "uid AS _id",
+            "uid", "uid",
+            "shortName", "shortName",
+            "description", "description",
+            "startDateEpoch", "startDateEpoch",
+            "endDateEpoch", "endDateEpoch",
+            "timeTermId", "timeTermId",
+            "doctorName", "doctorName",
+            "doctorLocation", "doctorLocation",
+            "isActive", "isActive",
+            "hasReceivedToday", "hasReceivedToday",
+            "lastDateReceivedEpoch", "lastDateReceivedEpoch",
+            "patientId", "patientId");
+
+    private static final Map<String, String> TIME_TERM_COLUMNS = columns(
+            "_id", "id AS _id",
+            "id", "id",
+            "code", "code",
+            "sortOrder", "sortOrder",
+            "minuteOfDay", "minuteOfDay");
+
+    private static final Map<String, String> PATIENT_COLUMNS = columns(
+            "_id", "id AS _id",
+            "id", "id",
+            "name", "name");
+
+    // Everything that changes the SQL text of a query (values are bound separately)
+    public static final class Shape {
+        final int table;           // PRESCRIPTIONS, TIME_TERMS, PRESCRIPTION_SEARCH or PATIENTS
+        final boolean byId;
+        final boolean byPatient;   // prescriptions of one patient (patients/#/prescriptions)
+        final String[] projection; // null = all columns
+        final String selection;
+        final String sortOrder;
+        final boolean afterUid;
+        final boolean limit;
+        final boolean offset;
+        private final int hash;
+
+        public Shape(int table, boolean byId, String[] projection, String selection, String sortOrder,
+                     boolean afterUid, boolean limit, boolean offset) {
+            this(table, byId, false, projection, selection, sortOrder, afterUid, limit, offset);
+        }
+
+        public Shape(int table, boolean byId, boolean byPatient, String[] projection, String selection,
+                     String sortOrder, boolean afterUid, boolean limit, boolean offset) {
+            if (afterUid && (table == TIME_TERMS || table == PATIENTS || byId)) {
+                throw new IllegalArgumentException("after_uid is only supported on the prescriptions collection");
+            }
+            if (byId && table == PRESCRIPTION_SEARCH) throw new IllegalArgumentException("Search has no item URI");
+            if (byPatient && (table != PRESCRIPTIONS || byId)) {
+                throw new IllegalArgumentException("Only the prescriptions collection is scoped by patient");
+            }
+            if (afterUid && !isUidAscending(sortOrder)) {
+                throw new IllegalArgumentException("after_uid requires uid ascending order, got: " + sortOrder);
+            }
+            this.table = table;
+            this.byId = byId;
+            this.byPatient = byPatient;
+            this.projection = (projection == null || projection.length == 0) ? null : projection.clone();
+            this.selection = (selection == null || selection.isEmpty()) ? null : selection;
+            this.sortOrder = afterUid ? null : ((sortOrder == null || sortOrder.isEmpty()) ? null : sortOrder);
+            this.afterUid = afterUid;
+            this.limit = limit;
+            this.offset = offset;
+            this.hash = Arrays.hashCode(new Object[]{table, byId, byPatient, Arrays.hashCode(this.projection),
+                    this.selection, this.sortOrder, afterUid, limit, offset});
+        }
+
+        @Override public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Shape)) return false;
+            Shape s = (Shape) o;
+            return hash == s.hash && table == s.table && byId == s.byId && byPatient == s.byPatient
+                    && afterUid == s.afterUid
+                    && limit == s.limit && offset == s.offset
+                    && Arrays.equals(projection, s.projection)
+                    && eq(selection, s.selection) && eq(sortOrder, s.sortOrder);
+        }
+
+        @Override public int hashCode() { return hash; }
+    }
+
+    private final Map<Shape, String> cache = Collections.synchronizedMap(
+            new LinkedHashMap<Shape, String>(16, 0.75f, true) {
+                @Override protected boolean removeEldestEntry(Map.Entry<Shape, String> e) {
+                    return size() > CACHE_MAX;
+                }
+            });
+
+    // SQL text for a shape (built once, then served from the cache)
+    public String sql(Shape s) {
+        String sql = cache.get(s);
+        if (sql == null) {
+            sql = build(s);
+            cache.put(s, sql);
+        }
+        return sql;
+    }
+
+    // Bind values in placeholder order (nulls are skipped): key (id, patient id or FTS match), selection args,
+    // after_uid, limit, offset. A search binds after_uid before the selection args (it sits in the inner query).
+    public static Object[] args(Shape s, Object key, String[] selectionArgs, Long afterUid, Long limit, Long offset) {
+        int n = (selectionArgs == null ? 0 : selectionArgs.length)
+                + (key != null ? 1 : 0) + (afterUid != null ? 1 : 0) + (limit != null ? 1 : 0) + (offset != null ? 1 : 0);
+        Object[] out = new Object[n];
+        int i = 0;
+        boolean search = s.table == PRESCRIPTION_SEARCH;
+        if (key != null) out[i++] = key;
+        if (search && afterUid != null) out[i++] = afterUid;
+        if (selectionArgs != null) for (String a : selectionArgs) out[i++] = a;
+        if (!search && afterUid != null) out[i++] = afterUid;
+        if (limit != null) out[i++] = limit;
+        if (offset != null) out[i++] = offset;
+        return out;
+    }
+
+    // SELECT <projection> FROM <table> [WHERE id = ? [AND (selection)] [AND uid > ?]] [ORDER BY] [LIMIT ? [OFFSET ?]]
+    // Search reads FROM an FTS-driven subquery (see searchSource); the rest is the same.
+    // A patient's prescriptions filter on patientId = ? first (index on patientId, in uid order).
+    static String build(Shape s) {
+        boolean p = s.table == PRESCRIPTIONS || s.table == PRESCRIPTION_SEARCH;
+        boolean search = s.table == PRESCRIPTION_SEARCH;
+        Map<String, String> columns = p ? PRESCRIPTION_COLUMNS
+                : s.table == PATIENTS ? PATIENT_COLUMNS : TIME_TERM_COLUMNS;
+        String key = p ? "uid" : "id";
+
+        StringBuilder sql = new StringBuilder("SELECT ");
+        if (s.projection == null) {
+            join(sql, columns.values().toArray(new String[0]));
+        } else {
+            String[] exprs = new String[s.projection.length];
+            for (int i = 0; i < exprs.length; i++) {
+                exprs[i] = columns.get(s.projection[i]);
+                if (exprs[i] == null) throw new IllegalArgumentException("Unknown column: " + s.projection[i]);
+            }
+            join(sql, exprs);
+        }
+        sql.append(" FROM ").append(search ? searchSource(s.afterUid) : p ? "prescription_drugs"
+                : s.table == PATIENTS ? "patients" : "time_terms");
+
+        String where = null;
+        if (s.byId) where = key + " = ?";
+        if (s.byPatient) where = "patientId = ?";
+        if (s.selection != null) where = (where == null ? "" : where + " AND ") + "(" + s.selection + ")";
+        if (s.afterUid && !search) where = (where == null ? "" : where + " AND ") + "uid > ?";
+        if (where != null) sql.append(" WHERE ").append(where);
+
+        if (s.afterUid) sql.append(" ORDER BY uid ASC"); // search too: subquery order is not guaranteed
+        else if (s.sortOrder != null) sql.append(" ORDER BY ").append(s.sortOrder);
+
+        if (s.limit) sql.append(" LIMIT ?");
+        else if (s.offset) sql.append(" LIMIT -1"); // SQLite needs a LIMIT before OFFSET
+        if (s.offset) sql.append(" OFFSET ?");
+        return sql.toString();
+    }
+
+    // ---- helpers ----
+
+    // Matching rows, driven by the FTS index (the keyset bound is applied there too). The outer query can use
+    // plain column names (no clash with the FTS columns); a keyset page orders by uid outside, which costs
+    // a top-N sort over the matches.
+    private static String searchSource(boolean afterUid) {
+        return "(SELECT prescription_drugs.* FROM prescription_fts " +
+                "JOIN prescription_drugs ON prescription_drugs.uid = prescription_fts.rowid " +
+                "WHERE prescription_fts MATCH ?" + (afterUid ? " AND prescription_fts.rowid > ?" : "") +
+                " ORDER BY prescription_fts.rowid)";
+    }
+
+    private static boolean isUidAscending(String sortOrder) {
+        if (sortOrder == null || sortOrder.isEmpty()) return true;
+        String s = sortOrder.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+        return s.equals("uid") || s.equals("uid asc") || s.equals("_id") || s.equals("_id asc");
+    }
+
+    private static void join(StringBuilder sb, String[] parts) {
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(parts[i]);
+        }
+    }
+
+    private static Map<String, String> columns(String... pairs) {
+        Map<String, String> m = new LinkedHashMap<>();
+        for (int i = 0; i < pairs.length; i += 2) m.put(pairs[i], pairs[i + 1]);
+        return Collections.unmodifiableMap(m);
+    }
+
+    private static boolean eq(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
@@ -18,7 +18,9 @@ import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 
+import data.InteractionIndex;
 import data.PrescriptionDrug;
+import data.PrescriptionRepository;
 import data.TimeTerm;
 
 @RequiresApi(api = Build.VERSION_CODES.O)
@@ -30,7 +32,8 @@ public class  AddEditActivity extends AppCompatActivity {
     private int editUid = -1;
 
     // UI references
-    private android.widget.EditText etShort, etDesc, etDocName, etDocLoc;
+    private android.widget.AutoCompleteTextView etShort;
+    private android.widget.EditText etDesc, etDocName, etDocLoc;
     private android.widget.TextView tvStart, tvEnd;
     private Spinner spTerm;
     private View btnSave;
@@ -60,6 +63,9 @@ public class  AddEditActivity extends AppCompatActivity {
         spTerm    = findViewById(R.id.spTerm);
         btnSave   = findViewById(R.id.btnSave);
 
+        // Name suggestions from the bundled dictionary (looked up off the main thread by the adapter's filter)
+        etShort.setAdapter(new DrugNameAdapter(this));
+
         // Observe time terms for the spinner
         vm.getTimeTerms().observe(this, list -> {
             terms = list;
@@ -91,7 +97,7 @@ public class  AddEditActivity extends AppCompatActivity {
             vm.observeDrug(editUid).observe(this, d -> {
                 if (d == null) return;
                 current = d;
-                etShort.setText(d.shortName);
+                etShort.setText(d.shortName, false); // prefill without opening the suggestions
                 etDesc.setText(d.description);
                 etDocName.setText(d.doctorName);
                 etDocLoc.setText(d.doctorLocation);
@@ -121,6 +127,20 @@ public class  AddEditActivity extends AppCompatActivity {
         int pos = spTerm.getSelectedItemPosition();
         selectedTermId = (pos >= 0 && pos < terms.size()) ? terms.get(pos).id : 1;
 
+        // Warn about clashes with the patient's other active drugs first (index lookup, off the main thread)
+        btnSave.setEnabled(false);
+        vm.checkInteractions(s, editUid, hits -> {
+            if (isFinishing()) return;
+            if (hits.isEmpty()) {
+                save(s, ds, dn, dl);
+            } else {
+                showInteractions(hits, () -> save(s, ds, dn, dl));
+            }
+        });
+    }
+
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    private void save(String s, String ds, String dn, String dl) {
         if (editUid > 0) {
             // Update existing row
             vm.saveEdit(editUid, s, ds, start, end, selectedTermId, dn, dl, rows -> {
@@ -129,6 +149,7 @@ public class  AddEditActivity extends AppCompatActivity {
                     finish();
                 } else {
                     Toast.makeText(this, "Update failed", Toast.LENGTH_SHORT).show();
+                    btnSave.setEnabled(true);
                 }
             });
         } else {
@@ -139,11 +160,37 @@ public class  AddEditActivity extends AppCompatActivity {
                     finish();
                 } else {
                     Toast.makeText(this, "Save failed", Toast.LENGTH_SHORT).show();
+                    btnSave.setEnabled(true);
                 }
             });
         }
     }
 
+    // "Possible interactions" dialog: one line per clash, most serious first; save anyway or go back
+    private void showInteractions(List<PrescriptionRepository.Interaction> hits, Runnable onConfirm) {
+        StringBuilder msg = new StringBuilder();
+        for (PrescriptionRepository.Interaction it : hits) {
+            if (msg.length() > 0) msg.append("\n\n");
+            msg.append(getString(R.string.interaction_line, it.otherName, severityLabel(it.hit.severity), it.hit.note));
+        }
+        new androidx.appcompat.app.AlertDialog.Builder(this)
+                .setTitle(R.string.interactions_title)
+                .setMessage(msg)
+                .setPositiveButton(R.string.interactions_save_anyway, (d, w) -> onConfirm.run())
+                // Save comes back only on cancel; after "Save anyway" save() re-enables it if the write fails
+                .setNegativeButton(android.R.string.cancel, (d, w) -> btnSave.setEnabled(true))
+                .setOnCancelListener(d -> btnSave.setEnabled(true))
+                .show();
+    }
+
+    private String severityLabel(int severity) {
+        switch (severity) {
+            case InteractionIndex.MAJOR: return getString(R.string.severity_major);
+            case InteractionIndex.MODERATE: return getString(R.string.severity_moderate);
+            default: return getString(R.string.severity_minor);
+        }
+    }
+
     // ---- helpers ----
 
     @RequiresApi(api = Build.VERSION_CODES.O)
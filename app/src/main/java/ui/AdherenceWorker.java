@@ -0,0 +1,32 @@
+package ui;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import data.AdherenceRebuild;
+
+public class AdherenceWorker extends Worker {
+
+    private static final String TAG = "Adherence";
+
+    public AdherenceWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    // Periodic job: check the adherence counters against a recount and repair any drift
+    @NonNull @Override
+    public Result doWork() {
+        try {
+            int drift = AdherenceRebuild.run(getApplicationContext(), true);
+            if (drift > 0) Log.w(TAG, "Repaired " + drift + " drifted adherence row(s)");
+            return Result.success();
+        } catch (Exception e) {
+            // If something transient fails, ask WorkManager to retry
+            return Result.retry();
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package ui;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+// Streams tables into a ZIP archive, each as <table>.csv and <table>.json, plus manifest.json.
+// Each table is read once: rows go straight into the CSV entry while the JSON copy is spilled
+// to a temp file, which is then copied into its own entry (a ZIP is written one entry at a time).
+// Memory stays at a few buffers for any row count.
+// (Plain Java on purpose: no android.* imports, so it can be tested and benchmarked on the JVM.)
+public final class ArchiveWriter {
+
+    private static final int BUFFER_CHARS = 16 * 1024;
+
+    // One table being exported (a Cursor on devices). Values: Long, Double, String or null.
+    public interface Rows {
+        String[] columns();
+        boolean next() throws IOException;
+        Object get(int column);
+    }
+
+    private final ZipOutputStream zip;
+    private final Writer text; // UTF-8 over the current ZIP entry
+    private final File spillDir;
+    private final Map<String, Integer> counts = new LinkedHashMap<>();
+
+    public ArchiveWriter(OutputStream os, File spillDir) {
+        this.zip = new ZipOutputStream(os, StandardCharsets.UTF_8);
+        this.text = new BufferedWriter(new OutputStreamWriter(new EntryStream(zip), StandardCharsets.UTF_8), BUFFER_CHARS);
+        this.spillDir = spillDir;
+    }
+
+    // Write one table as <name>.csv and <name>.json; returns its row count
+    public int table(String name, Rows rows) throws IOException {
+        String[] cols = rows.columns();
+        File spill = File.createTempFile("archive-" + name, ".json", spillDir);
+        int n = 0;
+        try {
+            try (Writer json = new BufferedWriter(
+                    new OutputStreamWriter(new FileOutputStream(spill), StandardCharsets.UTF_8), BUFFER_CHARS)) {
+                zip.putNextEntry(new ZipEntry(name + ".csv"));
+                for (int i = 0; i < cols.length; i++) {
+                    if (i > 0) text.write(',');
+                    csv(text, cols[i]);
+                }
+                text.write("\r\n");
+
+                json.write('[');
+                while (rows.next()) {
+                    json.write(n == 0 ? "\n{" : ",\n{");
+                    for (int i = 0; i < cols.length; i++) {
+                        Object v = rows.get(i);
+                        if (i > 0) text.write(',');
+                        if (v != null) csv(text, v.toString());
+
+                        if (i > 0) json.write(',');
+                        jsonString(json, cols[i]);
+                        json.write(':');
+                        jsonValue(json, v);
+                    }
+                    text.write("\r\n");
+                    json.write('}');
+                    n++;
+                }
+                json.write("\n]\n");
+                closeEntry();
+            }
+            zip.putNextEntry(new ZipEntry(name + ".json"));
+            try (InputStream in = new FileInputStream(spill)) {
+                byte[] buf = new byte[BUFFER_CHARS];
+                int r;
+                while ((r = in.read(buf)) > 0) zip.write(buf, 0, r);
+            }
+            zip.closeEntry();
+        } finally {
+            //noinspection ResultOfMethodCallIgnored
+            spill.delete();
+        }
+        counts.put(name, n);
+        return n;
+    }
+
+    // Write manifest.json (the given fields plus the row count of every table) and finish the ZIP
+    // (the underlying stream is closed by the caller)
+    public void finish(Map<String, Object> fields) throws IOException {
+        zip.putNextEntry(new ZipEntry("manifest.json"));
+        text.write('{');
+        boolean first = true;
+        for (Map.Entry<String, Object> f : fields.entrySet()) {
+            if (!first) text.write(',');
+            first = false;
+            text.write("\n  ");
+            jsonString(text, f.getKey());
+            text.write(": ");
+            jsonValue(text, f.getValue());
+        }
+        text.write(first ? "\n  " : ",\n  ");
+        jsonString(text, "rows");
+        text.write(": {");
+        boolean firstCount = true;
+        for (Map.Entry<String, Integer> c : counts.entrySet()) {
+            if (!firstCount) text.write(", ");
+            firstCount = false;
+            jsonString(text, c.getKey());
+            text.write(": ");
+            text.write(Integer.toString(c.getValue()));
+        }
+        text.write("}\n}\n");
+        closeEntry();
+        zip.finish();
+    }
+
+    private void closeEntry() throws IOException {
+        text.flush();
+        zip.closeEntry();
+    }
+
+    // RFC 4180: quote only when needed, double the quotes inside
+    static void csv(Writer w, String s) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < s.length() && !quote; i++) {
+            char c = s.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            w.write(s);
+            return;
+        }
+        w.write('"');
+        w.write(s.replace("\"", "\"\""));
+        w.write('"');
+    }
+
+    static void jsonValue(Writer w, Object v) throws IOException {
+        if (v == null) w.write("null");
+        else if (v instanceof Number || v instanceof Boolean) w.write(v.toString());
+        else jsonString(w, v.toString());
+    }
+
+    // Escaped string; runs of plain characters are written in one call
+    static void jsonString(Writer w, String s) throws IOException {
+        w.write('"');
+        int start = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') continue;
+            if (i > start) w.write(s, start, i - start);
+            start = i + 1;
+            switch (c) {
+                case '"':  w.write("\\\""); break;
+                case '\\': w.write("\\\\"); break;
+                case '\n': w.write("\\n"); break;
+                case '\r': w.write("\\r"); break;
+                case '\t': w.write("\\t"); break;
+                default:   w.write(String.format("\\u%04x", (int) c));
+            }
+        }
+        if (start < s.length()) w.write(s, start, s.length() - start);
+        w.write('"');
+    }
+
+    // Lets the text writer be flushed into whichever entry is open without closing the ZIP
+    private static final class EntryStream extends OutputStream {
+        private final ZipOutputStream zip;
+
+        EntryStream(ZipOutputStream zip) {
+            this.zip = zip;
+        }
+
+        @Override public void write(int b) throws IOException { zip.write(b); }
+        @Override public void write(byte[] b, int off, int len) throws IOException { zip.write(b, off, len); }
+        @Override public void flush() { } // the ZIP is flushed by finish()
+        @Override public void close() { } // never closes the ZIP
+    }
+}
@@ -18,9 +18,10 @@ import com.example.mymedapp.R;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
-import java.util.List;
 import java.util.Locale;
 
+import data.GeocodeCache;
+import data.GeocodeEntry;
 import data.PrescriptionWithTerm;
 
 @RequiresApi(api = Build.VERSION_CODES.O)
@@ -107,6 +108,7 @@ public class DetailsActivity extends AppCompatActivity {
         String loc = it.drug.doctorLocation == null ? "" : it.drug.doctorLocation.trim();
         btnMap.setEnabled(!loc.isEmpty());
         btnMap.setOnClickListener(v -> openMapWithGeocoderOrSearch(loc));
+        if (!loc.isEmpty()) Geocoding.warm(this, loc); // so the tap finds it in memory
 
         // (Optional duplicate safety: also set edit here if you prefer binding-time wiring)
         Button btnEdit = findViewById(R.id.btnEdit);
@@ -130,32 +132,33 @@ public class DetailsActivity extends AppCompatActivity {
         return LocalDate.ofEpochDay(epochDay).format(DATE_FMT);
     }
 
-    // Try Geocoder for exact pin; fallback to geo search
+    // Exact pin from the geocode cache; fallback to geo search. A cached answer opens the map
+    // with no I/O; otherwise the lookup (table, then Geocoder) runs on the geocode thread.
     private void openMapWithGeocoderOrSearch(String rawLocation) {
         if (rawLocation == null) return;
         final String query = rawLocation.trim();
         if (query.isEmpty()) return;
 
-        new Thread(() -> {
-            try {
-                android.location.Geocoder g = new android.location.Geocoder(this, Locale.getDefault());
-                List<android.location.Address> res = g.getFromLocationName(query, 1);
-                runOnUiThread(() -> {
-                    if (res != null && !res.isEmpty()) {
-                        double lat = res.get(0).getLatitude();
-                        double lng = res.get(0).getLongitude();
-                        String label = query;
-                        Uri uri = Uri.parse("geo:" + lat + "," + lng + "?q=" +
-                                Uri.encode(lat + "," + lng + "(" + label + ")"));
-                        startMapIntent(uri);
-                    } else {
-                        openMapSearch(query); // fallback: text search
-                    }
-                });
-            } catch (Exception e) {
-                runOnUiThread(() -> openMapSearch(query));
-            }
-        }).start();
+        GeocodeCache cache = Geocoding.cache(this);
+        GeocodeEntry hit = cache.peek(query, System.currentTimeMillis());
+        if (hit != null) {
+            openMapFor(query, hit);
+            return;
+        }
+        Geocoding.lookups().execute(() -> {
+            GeocodeEntry e = cache.resolve(query, System.currentTimeMillis());
+            runOnUiThread(() -> openMapFor(query, e));
+        });
+    }
+
+    private void openMapFor(String query, GeocodeEntry e) {
+        if (!e.found) {
+            openMapSearch(query); // no match (or no geocoder): text search
+            return;
+        }
+        Uri uri = Uri.parse("geo:" + e.lat + "," + e.lng + "?q=" +
+                Uri.encode(e.lat + "," + e.lng + "(" + query + ")"));
+        startMapIntent(uri);
     }
 
     // Build a geo search URI; if the query is too generic, append city for better results
@@ -0,0 +1,63 @@
+package ui;
+
+import android.content.Context;
+import android.util.Log;
+import android.widget.ArrayAdapter;
+import android.widget.Filter;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import data.DrugNames;
+
+// Drop-down for AddEditActivity's name field: the top completions from the bundled drug-name
+// dictionary. AutoCompleteTextView runs the Filter on its own worker thread and only publishes the
+// latest keystroke's results, so the main thread just binds at most TOP_K rows.
+public class DrugNameAdapter extends ArrayAdapter<String> {
+
+    static final int TOP_K = 8;
+
+    private final Context app;
+    private List<String> names = Collections.emptyList();
+
+    public DrugNameAdapter(Context ctx) {
+        super(ctx, android.R.layout.simple_dropdown_item_1line);
+        app = ctx.getApplicationContext();
+    }
+
+    @Override public int getCount() { return names.size(); }
+
+    @Override public String getItem(int position) { return names.get(position); }
+
+    @NonNull
+    @Override public Filter getFilter() {
+        return filter;
+    }
+
+    private final Filter filter = new Filter() {
+        @Override protected FilterResults performFiltering(CharSequence typed) {
+            List<String> out = Collections.emptyList();
+            if (typed != null) {
+                try {
+                    out = DrugNames.get(app).complete(typed.toString(), TOP_K);
+                } catch (IOException e) {
+                    Log.w("DrugNames", "Dictionary unavailable", e); // APK without the asset: no suggestions
+                }
+            }
+            FilterResults r = new FilterResults();
+            r.values = out;
+            r.count = out.size();
+            return r;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override protected void publishResults(CharSequence typed, FilterResults results) {
+            names = (List<String>) results.values;
+            if (results.count > 0) notifyDataSetChanged();
+            else notifyDataSetInvalidated();
+        }
+    };
+}
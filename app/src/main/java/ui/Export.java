@@ -3,6 +3,7 @@ package ui;
 import android.annotation.SuppressLint;
 import android.content.ContentValues;
 import android.content.Context;
+import android.database.Cursor;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Environment;
@@ -10,7 +11,11 @@ import android.provider.MediaStore;
 
 import androidx.annotation.RequiresApi;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -21,90 +26,118 @@ import data.PrescriptionWithTerm;
 
 public class Export {
 
+    // Size of the char buffer between the row writer and the UTF-8 encoder
+    private static final int BUFFER_CHARS = 16 * 1024;
+
+    // Writes a document into an open stream (the stream is closed by the caller)
+    public interface Body {
+        void writeTo(OutputStream os) throws IOException;
+    }
+
     // Timestamp used in exported file names
     public static String nowStamp() {
         return new SimpleDateFormat("yyyyMMdd_HHmm", Locale.getDefault()).format(new Date());
     }
 
-    // Build an HTML table with all active prescriptions
+    // Build an HTML table with all active prescriptions (in memory; fine for small lists)
     @RequiresApi(api = Build.VERSION_CODES.O)
     public static String toHtml(List<PrescriptionWithTerm> list) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("<!doctype html><html><head><meta charset='utf-8'><title>Active meds</title>");
-        sb.append("<style>body{font-family:sans-serif}table{border-collapse:collapse;width:100%}th,td{border:1px solid #ccc;padding:6px}th{background:#f5f5f5}</style>");
-        sb.append("</head><body><h2>Active prescriptions</h2>");
-        sb.append("<table><tr>")
-                .append("<th>UID</th><th>Name</th><th>Description</th><th>Time term</th>")
-                .append("<th>Start</th><th>End</th><th>Doctor</th><th>Location</th>")
-                .append("<th>IsActive</th><th>HasReceivedToday</th><th>LastDateReceived</th>")
-                .append("</tr>");
-        for (PrescriptionWithTerm it : list) {
-            sb.append("<tr>")
-                    .append(td(it.drug.uid))
-                    .append(td(esc(it.drug.shortName)))
-                    .append(td(esc(it.drug.description)))
-                    .append(td(esc(it.termCode)))
-                    .append(td(epoch(it.drug.startDateEpoch)))
-                    .append(td(epoch(it.drug.endDateEpoch)))
-                    .append(td(esc(it.drug.doctorName)))
-                    .append(td(esc(it.drug.doctorLocation)))
-                    .append(td(it.drug.isActive ? "true" : "false"))
-                    .append(td(it.drug.hasReceivedToday ? "true" : "false"))
-                    .append(td(it.drug.lastDateReceivedEpoch == null ? "-" : epoch(it.drug.lastDateReceivedEpoch)))
-                    .append("</tr>");
-        }
-        sb.append("</table></body></html>");
-        return sb.toString();
+        return ExportWriter.render(list, true);
     }
-    private static String td(Object x){ return "<td>"+(x==null?"-":x)+"</td>"; }
-    private static String esc(String s){ return s==null?"-":s.replace("&","&amp;").replace("<","&lt;").replace(">","&gt;"); }
-    @RequiresApi(api = Build.VERSION_CODES.O)
-    private static String epoch(long d){ return java.time.LocalDate.ofEpochDay(d).toString(); }
 
-    // Build a plain-text export with all active prescriptions
+    // Build a plain-text export with all active prescriptions (in memory; fine for small lists)
     @RequiresApi(api = Build.VERSION_CODES.O)
     public static String toTxt(List<PrescriptionWithTerm> list) {
-        StringBuilder sb = new StringBuilder();
-        for (PrescriptionWithTerm it : list) {
-            sb.append("UID: ").append(it.drug.uid).append('\n');
-            sb.append("Name: ").append(nz(it.drug.shortName)).append('\n');
-            sb.append("Description: ").append(nz(it.drug.description)).append('\n');
-            sb.append("Time term: ").append(nz(it.termCode)).append('\n');
-            sb.append("Start: ").append(epoch(it.drug.startDateEpoch)).append('\n');
-            sb.append("End: ").append(epoch(it.drug.endDateEpoch)).append('\n');
-            sb.append("Doctor: ").append(nz(it.drug.doctorName)).append('\n');
-            sb.append("Location: ").append(nz(it.drug.doctorLocation)).append('\n');
-            sb.append("IsActive: ").append(it.drug.isActive).append('\n');
-            sb.append("HasReceivedToday: ").append(it.drug.hasReceivedToday).append('\n');
-            sb.append("LastDateReceived: ")
-                    .append(it.drug.lastDateReceivedEpoch==null?"-":epoch(it.drug.lastDateReceivedEpoch)).append('\n');
-            sb.append("----------------------------------------\n");
+        return ExportWriter.render(list, false);
+    }
+
+    // Stream rows from a cursor (PrescriptionDao.getActiveCursor / getActiveWithTermCursor) as HTML/TXT.
+    // Only one row is held at a time; output goes through one reusable buffer.
+    // The term code is read from a term_code column if present, otherwise from TimeTermRegistry.
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    public static void writeActive(Cursor c, boolean asHtml, OutputStream os) throws IOException {
+        Writer out = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8), BUFFER_CHARS);
+        ExportWriter w = new ExportWriter(out, asHtml);
+
+        int iUid   = c.getColumnIndexOrThrow("uid");
+        int iShort = c.getColumnIndexOrThrow("shortName");
+        int iDesc  = c.getColumnIndexOrThrow("description");
+        int iTerm  = c.getColumnIndex("term_code");
+        int iTermId= c.getColumnIndexOrThrow("timeTermId");
+        int iStart = c.getColumnIndexOrThrow("startDateEpoch");
+        int iEnd   = c.getColumnIndexOrThrow("endDateEpoch");
+        int iDoc   = c.getColumnIndexOrThrow("doctorName");
+        int iLoc   = c.getColumnIndexOrThrow("doctorLocation");
+        int iAct   = c.getColumnIndexOrThrow("isActive");
+        int iToday = c.getColumnIndexOrThrow("hasReceivedToday");
+        int iLast  = c.getColumnIndexOrThrow("lastDateReceivedEpoch");
+
+        w.begin();
+        while (c.moveToNext()) {
+            String termCode = iTerm >= 0 ? c.getString(iTerm) : data.TimeTermRegistry.resolve(c.getInt(iTermId)).code;
+            w.row(c.getInt(iUid), c.getString(iShort), c.getString(iDesc), termCode,
+                    c.getLong(iStart), c.getLong(iEnd), c.getString(iDoc), c.getString(iLoc),
+                    c.getInt(iAct) != 0, c.getInt(iToday) != 0,
+                    c.isNull(iLast) ? null : c.getLong(iLast));
+        }
+        w.end(); // flushes the buffer into the stream
+    }
+
+    // A cursor as archive rows (one row held at a time; integers as Long, reals as Double)
+    public static final class CursorRows implements ArchiveWriter.Rows {
+        private final Cursor c;
+        private final String[] columns;
+
+        public CursorRows(Cursor c) {
+            this.c = c;
+            this.columns = c.getColumnNames();
+        }
+
+        @Override public String[] columns() { return columns; }
+        @Override public boolean next() { return c.moveToNext(); }
+
+        @Override public Object get(int i) {
+            switch (c.getType(i)) {
+                case Cursor.FIELD_TYPE_NULL:    return null;
+                case Cursor.FIELD_TYPE_INTEGER: return c.getLong(i);
+                case Cursor.FIELD_TYPE_FLOAT:   return c.getDouble(i);
+                default:                        return c.getString(i);
+            }
         }
-        return sb.toString();
     }
-    private static String nz(String s){ return (s==null||s.trim().isEmpty())?"-":s; }
 
     // Save the given content into Downloads/MyMedApp using MediaStore
-    @SuppressLint("InlinedApi")
     public static Uri saveToDownloads(Context ctx, String displayName, String mime, String content) {
-        if (Build.VERSION.SDK_INT >= 29) {
-            ContentValues values = new ContentValues();
-            values.put(MediaStore.MediaColumns.DISPLAY_NAME, displayName);
-            values.put(MediaStore.MediaColumns.MIME_TYPE, mime);
-            values.put(MediaStore.MediaColumns.RELATIVE_PATH, Environment.DIRECTORY_DOWNLOADS + "/MyMedApp");
-
-            Uri uri = ctx.getContentResolver().insert(MediaStore.Downloads.EXTERNAL_CONTENT_URI, values);
-            if (uri == null) return null;
-            try (OutputStream os = ctx.getContentResolver().openOutputStream(uri)) {
-                if (os == null) return null;
-                os.write(content.getBytes(StandardCharsets.UTF_8));
-                os.flush();
-                return uri;
-            } catch (Exception e) {
-                return null;
-            }
-        } else {
-            // TODO: Add SAF (ACTION_CREATE_DOCUMENT) support for API < 29 if needed
+        return saveToDownloads(ctx, displayName, mime, os -> os.write(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    // Stream a document into Downloads/MyMedApp using MediaStore (API 29+).
+    // Below API 29 returns null: the caller should pick a target with ACTION_CREATE_DOCUMENT
+    // and use writeToUri instead.
+    @SuppressLint("InlinedApi")
+    public static Uri saveToDownloads(Context ctx, String displayName, String mime, Body body) {
+        if (Build.VERSION.SDK_INT < 29) return null;
+
+        ContentValues values = new ContentValues();
+        values.put(MediaStore.MediaColumns.DISPLAY_NAME, displayName);
+        values.put(MediaStore.MediaColumns.MIME_TYPE, mime);
+        values.put(MediaStore.MediaColumns.RELATIVE_PATH, Environment.DIRECTORY_DOWNLOADS + "/MyMedApp");
+
+        Uri uri = ctx.getContentResolver().insert(MediaStore.Downloads.EXTERNAL_CONTENT_URI, values);
+        if (uri == null) return null;
+        if (writeToUri(ctx, uri, body) != null) return uri;
+        ctx.getContentResolver().delete(uri, null, null); // don't leave a half-written file behind
+        return null;
+    }
+
+    // Stream a document into a Uri the user picked (SAF) or MediaStore created
+    public static Uri writeToUri(Context ctx, Uri uri, Body body) {
+        try (OutputStream os = ctx.getContentResolver().openOutputStream(uri, "w")) {
+            if (os == null) return null;
+            body.writeTo(os);
+            os.flush();
+            return uri;
+        } catch (Exception e) {
             return null;
         }
     }
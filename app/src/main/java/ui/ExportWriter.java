@@ -0,0 +1,158 @@
+package ui;
+
+import androidx.annotation.RequiresApi;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import data.PrescriptionWithTerm;
+
+// Streams an export (HTML table or plain text) row by row into a Writer.
+// Nothing is buffered beyond the Writer itself, so memory stays flat for any row count.
+// (Plain Java on purpose: no android.* imports, so it can be benchmarked on the JVM.)
+@RequiresApi(api = 26) // java.time (Build.VERSION_CODES.O)
+public class ExportWriter {
+
+    // Cached epoch-day -> "yyyy-MM-dd" strings (exports repeat the same few dates a lot)
+    private static final int DATE_CACHE_MAX = 4096;
+
+    private final Writer out;
+    private final boolean html;
+    private final Map<Long, String> dates = new HashMap<>();
+
+    public ExportWriter(Writer out, boolean html) {
+        this.out = out;
+        this.html = html;
+    }
+
+    // Render a whole list into a String (backs Export.toHtml / Export.toTxt)
+    public static String render(List<PrescriptionWithTerm> list, boolean html) {
+        StringWriter sw = new StringWriter();
+        try {
+            write(list, new ExportWriter(sw, html));
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // StringWriter does not throw
+        }
+        return sw.toString();
+    }
+
+    // Write a whole document for a list of rows
+    public static void write(List<PrescriptionWithTerm> list, ExportWriter w) throws IOException {
+        w.begin();
+        for (PrescriptionWithTerm it : list) {
+            w.row(it.drug.uid, it.drug.shortName, it.drug.description, it.termCode,
+                    it.drug.startDateEpoch, it.drug.endDateEpoch, it.drug.doctorName, it.drug.doctorLocation,
+                    it.drug.isActive, it.drug.hasReceivedToday, it.drug.lastDateReceivedEpoch);
+        }
+        w.end();
+    }
+
+    // Document start (HTML head + table header; nothing for TXT)
+    public void begin() throws IOException {
+        if (!html) return;
+        out.write("<!doctype html><html><head><meta charset='utf-8'><title>Active meds</title>");
+        out.write("<style>body{font-family:sans-serif}table{border-collapse:collapse;width:100%}th,td{border:1px solid #ccc;padding:6px}th{background:#f5f5f5}</style>");
+        out.write("</head><body><h2>Active prescriptions</h2>");
+        out.write("<table><tr>");
+        out.write("<th>UID</th><th>Name</th><th>Description</th><th>Time term</th>");
+        out.write("<th>Start</th><th>End</th><th>Doctor</th><th>Location</th>");
+        out.write("<th>IsActive</th><th>HasReceivedToday</th><th>LastDateReceived</th>");
+        out.write("</tr>");
+    }
+
+    // One prescription row
+    public void row(int uid, String shortName, String description, String termCode,
+                    long startEpoch, long endEpoch, String doctorName, String doctorLocation,
+                    boolean isActive, boolean hasReceivedToday, Long lastReceivedEpoch) throws IOException {
+        if (html) {
+            out.write("<tr><td>");
+            out.write(Integer.toString(uid));
+            cellEscaped(shortName);
+            cellEscaped(description);
+            cellEscaped(termCode);
+            cell(date(startEpoch));
+            cell(date(endEpoch));
+            cellEscaped(doctorName);
+            cellEscaped(doctorLocation);
+            cell(isActive ? "true" : "false");
+            cell(hasReceivedToday ? "true" : "false");
+            cell(lastReceivedEpoch == null ? "-" : date(lastReceivedEpoch));
+            out.write("</td></tr>");
+        } else {
+            line("UID: ", Integer.toString(uid));
+            line("Name: ", nz(shortName));
+            line("Description: ", nz(description));
+            line("Time term: ", nz(termCode));
+            line("Start: ", date(startEpoch));
+            line("End: ", date(endEpoch));
+            line("Doctor: ", nz(doctorName));
+            line("Location: ", nz(doctorLocation));
+            line("IsActive: ", isActive ? "true" : "false");
+            line("HasReceivedToday: ", hasReceivedToday ? "true" : "false");
+            line("LastDateReceived: ", lastReceivedEpoch == null ? "-" : date(lastReceivedEpoch));
+            out.write("----------------------------------------\n");
+        }
+    }
+
+    // Document end; flushes the Writer (does not close it)
+    public void end() throws IOException {
+        if (html) out.write("</table></body></html>");
+        out.flush();
+    }
+
+    // ---- helpers ----
+
+    // Close the previous cell and write a plain value
+    private void cell(String s) throws IOException {
+        out.write("</td><td>");
+        out.write(s);
+    }
+
+    // Close the previous cell and write an HTML-escaped value in a single pass
+    private void cellEscaped(String s) throws IOException {
+        out.write("</td><td>");
+        if (s == null) { out.write('-'); return; }
+        int from = 0;
+        for (int i = 0, n = s.length(); i < n; i++) {
+            String rep;
+            switch (s.charAt(i)) {
+                case '&': rep = "&amp;"; break;
+                case '<': rep = "&lt;";  break;
+                case '>': rep = "&gt;";  break;
+                default: continue;
+            }
+            out.write(s, from, i - from);
+            out.write(rep);
+            from = i + 1;
+        }
+        out.write(s, from, s.length() - from);
+    }
+
+    private void line(String label, String value) throws IOException {
+        out.write(label);
+        out.write(value);
+        out.write('\n');
+    }
+
+    // Epoch-day to ISO date, cached
+    private String date(long epochDay) {
+        String s = dates.get(epochDay);
+        if (s == null) {
+            if (dates.size() >= DATE_CACHE_MAX) dates.clear();
+            s = java.time.LocalDate.ofEpochDay(epochDay).toString();
+            dates.put(epochDay, s);
+        }
+        return s;
+    }
+
+    // "-" for null/blank, without allocating a trimmed copy
+    private static String nz(String s) {
+        if (s == null) return "-";
+        for (int i = 0, n = s.length(); i < n; i++) if (s.charAt(i) > ' ') return s;
+        return "-";
+    }
+}
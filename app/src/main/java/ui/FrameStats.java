@@ -0,0 +1,87 @@
+package ui;
+
+import android.app.Activity;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.view.FrameMetrics;
+import android.view.Window;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.RequiresApi;
+
+// Jank counters for one window, fed by FrameMetrics (API 24+).
+// A frame is janky when it takes longer than one refresh interval and frozen past 700 ms.
+// Callbacks arrive on a background thread; read the counters with snapshot()/summary().
+@RequiresApi(api = Build.VERSION_CODES.N)
+public final class FrameStats implements Window.OnFrameMetricsAvailableListener {
+
+    static final long FROZEN_NS = 700_000_000L;
+
+    private final Window window;
+    private final long budgetNs;
+    private final HandlerThread thread = new HandlerThread("frame-stats");
+
+    // Guarded by this
+    private long frames, janky, frozen, dropped, totalNs, worstNs;
+
+    private FrameStats(Window window, float refreshRate) {
+        this.window = window;
+        this.budgetNs = (long) (1_000_000_000L / (refreshRate > 1f ? refreshRate : 60f));
+    }
+
+    // Start counting frames of this activity's window
+    public static FrameStats attach(@NonNull Activity a) {
+        @SuppressWarnings("deprecation") // Display from WindowManager: fine for the refresh rate on all levels
+        float rate = a.getWindowManager().getDefaultDisplay().getRefreshRate();
+        FrameStats s = new FrameStats(a.getWindow(), rate);
+        s.thread.start();
+        a.getWindow().addOnFrameMetricsAvailableListener(s, new Handler(s.thread.getLooper()));
+        return s;
+    }
+
+    // Stop counting (counters stay readable)
+    public void detach() {
+        try {
+            window.removeOnFrameMetricsAvailableListener(this);
+        } catch (IllegalArgumentException ignored) {
+            // already removed
+        }
+        thread.quitSafely();
+    }
+
+    @Override
+    public void onFrameMetricsAvailable(Window w, FrameMetrics m, int dropCountSinceLastInvocation) {
+        if (m.getMetric(FrameMetrics.FIRST_DRAW_FRAME) == 1) return; // layout of a new window, not scrolling
+        long ns = m.getMetric(FrameMetrics.TOTAL_DURATION);
+        synchronized (this) {
+            frames++;
+            totalNs += ns;
+            if (ns > budgetNs) janky++;
+            if (ns > FROZEN_NS) frozen++;
+            if (ns > worstNs) worstNs = ns;
+            dropped += dropCountSinceLastInvocation; // reports lost while our thread was busy
+        }
+    }
+
+    public synchronized void reset() {
+        frames = janky = frozen = dropped = totalNs = worstNs = 0;
+    }
+
+    // Counters: {frames, janky, frozen, dropped reports, worst frame ns}
+    public synchronized long[] snapshot() {
+        return new long[]{frames, janky, frozen, dropped, worstNs};
+    }
+
+    // Share of janky frames (0..1)
+    public synchronized double jankRatio() {
+        return frames == 0 ? 0 : (double) janky / frames;
+    }
+
+    // One-line summary for logs
+    public synchronized String summary() {
+        return "frames=" + frames + " janky=" + janky + " frozen=" + frozen + " dropped=" + dropped
+                + " avgMs=" + (frames == 0 ? 0 : totalNs / frames / 1_000_000.0)
+                + " worstMs=" + worstNs / 1_000_000.0 + " budgetMs=" + budgetNs / 1_000_000.0;
+    }
+}
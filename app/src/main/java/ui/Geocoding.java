@@ -0,0 +1,91 @@
+package ui;
+
+import android.content.Context;
+import android.location.Address;
+import android.location.Geocoder;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+import data.AppDatabase;
+import data.AppExecutors;
+import data.GeocodeCache;
+import data.GeocodeDao;
+import data.GeocodeEntry;
+
+// App-wide GeocodeCache over the platform Geocoder and the geocode_cache table.
+// Geocoder calls are network round trips, so they run on their own threads, never on the DB
+// reader pool; table writes go through the ordered writer queue like every other write.
+// Lookups for the screen (warm, map tap) and the start-up prefetch have a thread each, so a tap
+// never waits behind a batch of prefetch round trips.
+final class Geocoding {
+    private Geocoding() {}
+
+    private static volatile GeocodeCache cache;
+    private static final Executor LOOKUPS = Executors.newSingleThreadExecutor(r -> thread(r, "geocode"));
+    private static final Executor PREFETCH = Executors.newSingleThreadExecutor(r -> thread(r, "geocode-prefetch"));
+
+    private static Thread thread(Runnable r, String name) {
+        Thread t = new Thread(r, name);
+        t.setDaemon(true);
+        return t;
+    }
+
+    static GeocodeCache cache(Context ctx) {
+        if (cache == null) {
+            synchronized (Geocoding.class) {
+                if (cache == null) {
+                    Context app = ctx.getApplicationContext();
+                    GeocodeDao dao = AppDatabase.getInstance(app).geocodeDao();
+                    cache = new GeocodeCache(platform(app), store(dao));
+                }
+            }
+        }
+        return cache;
+    }
+
+    // Background executor for lookups the user is waiting on
+    static Executor lookups() {
+        return LOOKUPS;
+    }
+
+    // Resolve one location ahead of a tap (e.g. when the details screen binds)
+    static void warm(Context ctx, String location) {
+        GeocodeCache c = cache(ctx);
+        if (c.peek(location, System.currentTimeMillis()) != null) return;
+        LOOKUPS.execute(() -> c.resolve(location, System.currentTimeMillis()));
+    }
+
+    // Prefetch the doctor locations of active prescriptions and drop expired rows
+    static void prefetchActive(Context ctx) {
+        GeocodeCache c = cache(ctx);
+        GeocodeDao dao = AppDatabase.getInstance(ctx).geocodeDao();
+        PREFETCH.execute(() -> {
+            long now = System.currentTimeMillis();
+            c.prefetch(dao.activeLocations(), now);
+            long cutoff = now - Math.max(GeocodeCache.FOUND_TTL_MS, GeocodeCache.MISS_TTL_MS);
+            AppExecutors.get().diskWrite().execute(() -> dao.deleteOlderThan(cutoff));
+        });
+    }
+
+    private static GeocodeCache.Store store(GeocodeDao dao) {
+        return new GeocodeCache.Store() {
+            @Override public GeocodeEntry get(String key) { return dao.get(key); }
+            @Override public List<GeocodeEntry> getAll(List<String> keys) { return dao.getAll(keys); }
+            @Override public void put(GeocodeEntry e) { AppExecutors.get().diskWrite().execute(() -> dao.put(e)); }
+        };
+    }
+
+    private static GeocodeCache.Geocoder platform(Context app) {
+        return location -> {
+            if (!Geocoder.isPresent()) throw new IOException("no geocoder backend");
+            @SuppressWarnings("deprecation") // blocking variant is fine here: we're on the lookup thread
+            List<Address> res = new Geocoder(app, Locale.getDefault()).getFromLocationName(location, 1);
+            if (res == null || res.isEmpty()) return null;
+            return new double[]{res.get(0).getLatitude(), res.get(0).getLongitude()};
+        };
+    }
+}
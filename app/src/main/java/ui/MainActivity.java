@@ -1,23 +1,34 @@
 package ui;
 
+import android.Manifest;
 import android.content.Intent;
+import android.content.pm.PackageManager;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.text.InputType;
 import android.widget.EditText;
 import android.widget.Toast;
 
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.annotation.NonNull;
 import androidx.annotation.RequiresApi;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.widget.SearchView;
+import androidx.core.content.ContextCompat;
 import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.RecyclerView;
-import androidx.work.OneTimeWorkRequest;
-import androidx.work.WorkManager;
 
 import com.example.mymedapp.R;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import data.Patient;
+import data.PrescriptionRepository;
 import data.PrescriptionWithTerm;
 
 /**
@@ -27,9 +38,33 @@ public class MainActivity extends AppCompatActivity {
 
     private static final String TAG = "PROV"; // Log tag for provider demo
 
+    // Wait this long after the last keystroke before querying
+    private static final long SEARCH_DEBOUNCE_MS = 250;
+
     private MedViewModel vm;
     private PrescriptionAdapter adapter;
 
+    // SAF "save as" pickers for exports below API 29 (no MediaStore Downloads there)
+    private ActivityResultLauncher<String> createHtmlDoc, createTxtDoc;
+    private ActivityResultLauncher<String> createArchiveDoc, createChangesDoc;
+
+    // SAF picker for the bulk import source
+    private ActivityResultLauncher<String[]> openImportDoc;
+
+    // Runtime notification permission for dose reminders (API 33+)
+    private ActivityResultLauncher<String> askNotifications;
+
+    // Debounced search: only the last text typed within SEARCH_DEBOUNCE_MS reaches the ViewModel
+    private final Handler searchHandler = new Handler(Looper.getMainLooper());
+    private String pendingSearch;
+    private final Runnable applySearch = () -> vm.setSearch(pendingSearch);
+
+    // Jank counters while the list is on screen (API 24+; null otherwise)
+    private FrameStats frameStats;
+
+    // Patients for the switcher (by name), kept current by LiveData
+    private List<Patient> patients = new ArrayList<>();
+
     // Set up list, adapter, FAB, and LiveData observer
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -48,8 +83,93 @@ public class MainActivity extends AppCompatActivity {
         findViewById(R.id.fabAdd).setOnClickListener(v ->
                 startActivity(new Intent(this, AddEditActivity.class)));
 
-        // Observe ACTIVE items; UI updates automatically
-        vm.getActive().observe(this, list -> adapter.submitList(list));
+        // Export targets picked by the user (API < 29)
+        createHtmlDoc = registerForActivityResult(
+                new ActivityResultContracts.CreateDocument("text/html"), uri -> exportTo(uri, true));
+        createTxtDoc = registerForActivityResult(
+                new ActivityResultContracts.CreateDocument("text/plain"), uri -> exportTo(uri, false));
+        createArchiveDoc = registerForActivityResult(
+                new ActivityResultContracts.CreateDocument(PrescriptionRepository.ARCHIVE_MIME), uri -> archiveTo(uri, false));
+        createChangesDoc = registerForActivityResult(
+                new ActivityResultContracts.CreateDocument(PrescriptionRepository.ARCHIVE_MIME), uri -> archiveTo(uri, true));
+        openImportDoc = registerForActivityResult(new ActivityResultContracts.OpenDocument(), this::importFrom);
+        // Reminders work without it (nothing is shown), so the answer needs no handling
+        askNotifications = registerForActivityResult(
+                new ActivityResultContracts.RequestPermission(), granted -> { });
+
+        // Observe ACTIVE items (or search results) page by page; UI updates automatically
+        vm.getListed().observe(this, list -> adapter.submitList(list, () -> onListCommitted(recycler)));
+        // In-place row changes arrive as a small delta instead of a reload
+        vm.getRowUpdates().observe(this, rows -> adapter.applyRowUpdates(rows));
+        // Current patient's name as the subtitle
+        vm.getPatients().observe(this, list -> {
+            patients = list;
+            showPatientName();
+        });
+        vm.getPatient().observe(this, id -> showPatientName());
+    }
+
+    private void showPatientName() {
+        if (getSupportActionBar() == null) return;
+        int current = vm.currentPatient();
+        for (Patient p : patients) {
+            if (p.id == current) getSupportActionBar().setSubtitle(p.name);
+        }
+    }
+
+    // Patient switcher: pick a patient, or add one (the lists then show only that patient's rows)
+    @RequiresApi(api = Build.VERSION_CODES.N)
+    private void showPatientDialog() {
+        String[] names = new String[patients.size() + 1];
+        int checked = -1;
+        for (int i = 0; i < patients.size(); i++) {
+            names[i] = patients.get(i).name;
+            if (patients.get(i).id == vm.currentPatient()) checked = i;
+        }
+        names[patients.size()] = getString(R.string.patient_add);
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.menu_patient)
+                .setSingleChoiceItems(names, checked, (d, which) -> {
+                    d.dismiss();
+                    if (which < patients.size()) vm.setPatient(patients.get(which).id);
+                    else showAddPatientDialog();
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    @RequiresApi(api = Build.VERSION_CODES.N)
+    private void showAddPatientDialog() {
+        EditText nameEdit = new EditText(this);
+        nameEdit.setHint(R.string.hint_patient_name);
+        nameEdit.setInputType(InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_FLAG_CAP_WORDS);
+
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.patient_add)
+                .setView(nameEdit)
+                .setPositiveButton(R.string.add, (d, w) -> vm.addPatient(nameEdit.getText().toString(), null))
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    // A list was handed to the adapter; after its first layout pass, close the startup trace once
+    // and start the deferred background work
+    private void onListCommitted(RecyclerView recycler) {
+        recycler.post(() -> {
+            if (!StartupTrace.firstListDrawn()) return;
+            reportFullyDrawn(); // "Fully drawn" in logcat / time to full display in vitals
+            ((MyApp) getApplication()).onFirstListDrawn();
+            askForNotificationsOnce();
+        });
+    }
+
+    // Ask for the notification permission after startup, not on top of the first frame
+    private void askForNotificationsOnce() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.TIRAMISU) return;
+        if (ContextCompat.checkSelfPermission(this, Manifest.permission.POST_NOTIFICATIONS)
+                == PackageManager.PERMISSION_GRANTED) return;
+        if (shouldShowRequestPermissionRationale(Manifest.permission.POST_NOTIFICATIONS)) return; // declined once
+        askNotifications.launch(Manifest.permission.POST_NOTIFICATIONS);
     }
 
     // Open Details for the selected item
@@ -83,53 +203,106 @@ public class MainActivity extends AppCompatActivity {
                 .show();
     }
 
-    // Inflate overflow menu
+    // Inflate overflow menu and wire the search box
     @Override
     public boolean onCreateOptionsMenu(android.view.Menu menu) {
         getMenuInflater().inflate(R.menu.main_menu, menu);
+        // Export needs java.time (O); archive and import need java.util.function (N)
+        boolean o = Build.VERSION.SDK_INT >= Build.VERSION_CODES.O;
+        boolean n = Build.VERSION.SDK_INT >= Build.VERSION_CODES.N;
+        menu.findItem(R.id.action_export_html).setVisible(o);
+        menu.findItem(R.id.action_export_txt).setVisible(o);
+        menu.findItem(R.id.action_export_archive).setVisible(n);
+        menu.findItem(R.id.action_export_changes).setVisible(n);
+        menu.findItem(R.id.action_import).setVisible(n);
+        SearchView search = (SearchView) menu.findItem(R.id.action_search).getActionView();
+        if (search != null) {
+            search.setQueryHint(getString(R.string.hint_search));
+            search.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
+                @Override public boolean onQueryTextSubmit(String q) { searchNow(q); return true; }
+                @Override public boolean onQueryTextChange(String q) { searchLater(q); return true; }
+            });
+        }
         return true;
     }
 
-    // Menu actions: delete-by-UID, recompute, export, provider demo
+    @Override
+    protected void onResume() {
+        super.onResume();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) frameStats = FrameStats.attach(this);
+    }
+
+    @Override
+    protected void onPause() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N && frameStats != null) {
+            frameStats.detach();
+        }
+        super.onPause();
+    }
+
+    // Counters of the current resume session (instrumented jank tests read these)
+    @RequiresApi(api = Build.VERSION_CODES.N)
+    FrameStats frameStats() { return frameStats; }
+
+    @Override
+    protected void onDestroy() {
+        searchHandler.removeCallbacks(applySearch);
+        super.onDestroy();
+    }
+
+    // Restart the debounce timer with the latest text
+    private void searchLater(String q) {
+        pendingSearch = q;
+        searchHandler.removeCallbacks(applySearch);
+        searchHandler.postDelayed(applySearch, SEARCH_DEBOUNCE_MS);
+    }
+
+    // Submit pressed: run immediately
+    private void searchNow(String q) {
+        pendingSearch = q;
+        searchHandler.removeCallbacks(applySearch);
+        applySearch.run();
+    }
+
+    // Menu actions: patient switcher, delete-by-UID, recompute, export, import, provider demo
     @RequiresApi(api = Build.VERSION_CODES.O)
     @Override
     public boolean onOptionsItemSelected(@NonNull android.view.MenuItem item) {
         int id = item.getItemId();
 
-        if (id == R.id.action_delete_uid) {
+        if (id == R.id.action_patient) {
+            showPatientDialog();
+            return true;
+
+        } else if (id == R.id.action_delete_uid) {
             showDeleteByUidDialog();
             return true;
 
         } else if (id == R.id.action_recompute) {
-            WorkManager.getInstance(this)
-                    .enqueue(OneTimeWorkRequest.from(RecomputeWorker.class));
-            Toast.makeText(this, "Recompute scheduled", Toast.LENGTH_SHORT).show();
+            // Current patient only; the daily rollover still covers everyone
+            vm.recomputePatient(rows ->
+                    Toast.makeText(this, getString(R.string.msg_recomputed, rows), Toast.LENGTH_SHORT).show());
             return true;
 
         } else if (id == R.id.action_export_html) {
-            vm.exportActive(true, uri -> {
-                if (uri == null) {
-                    Toast.makeText(this, "Export failed (Android < 10 needs a different flow)", Toast.LENGTH_LONG).show();
-                    return;
-                }
-                Intent i = new Intent(Intent.ACTION_VIEW);
-                i.setDataAndType(uri, "text/html");
-                i.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
-                startActivity(Intent.createChooser(i, "Open export with"));
-            });
+            startExport(true);
             return true;
 
         } else if (id == R.id.action_export_txt) {
-            vm.exportActive(false, uri -> {
-                if (uri == null) {
-                    Toast.makeText(this, "Export failed (Android < 10 needs a different flow)", Toast.LENGTH_LONG).show();
-                    return;
-                }
-                Intent i = new Intent(Intent.ACTION_VIEW);
-                i.setDataAndType(uri, "text/plain");
-                i.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
-                startActivity(Intent.createChooser(i, "Open export with"));
-            });
+            startExport(false);
+            return true;
+
+        } else if (id == R.id.action_export_archive) {
+            startArchive(false);
+            return true;
+
+        } else if (id == R.id.action_export_changes) {
+            startArchive(true);
+            return true;
+
+        } else if (id == R.id.action_import) {
+            openImportDoc.launch(new String[]{"text/csv", "text/comma-separated-values",
+                    "application/json", "text/plain"});
             return true;
 
         } else if (id == R.id.action_provider_demo) {
@@ -140,10 +313,102 @@ public class MainActivity extends AppCompatActivity {
         return super.onOptionsItemSelected(item);
     }
 
-    // In-app ContentProvider demo: INSERT → verify → toast (keeps the row)
+    // Export active items: straight to Downloads on API 29+, otherwise ask where to save
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    private void startExport(boolean asHtml) {
+        if (Build.VERSION.SDK_INT >= 29) {
+            vm.exportActive(asHtml, uri -> onExported(uri, asHtml));
+        } else {
+            String name = "meds_active_" + Export.nowStamp() + (asHtml ? ".html" : ".txt");
+            (asHtml ? createHtmlDoc : createTxtDoc).launch(name);
+        }
+    }
+
+    // SAF result: stream the export into the picked document (null = user cancelled)
+    private void exportTo(android.net.Uri target, boolean asHtml) {
+        if (target == null) return;
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O) { // not offered there; don't leave an empty file
+            discard(target);
+            return;
+        }
+        vm.exportActiveTo(target, asHtml, uri -> onExported(uri, asHtml));
+    }
+
+    // Archive (ZIP of every table): same Downloads / "save as" split as the HTML/TXT export
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    private void startArchive(boolean delta) {
+        if (Build.VERSION.SDK_INT >= 29) {
+            vm.exportArchive(delta, null, uri -> onExported(uri, PrescriptionRepository.ARCHIVE_MIME));
+        } else {
+            (delta ? createChangesDoc : createArchiveDoc).launch(PrescriptionRepository.archiveName(delta));
+        }
+    }
+
+    private void archiveTo(android.net.Uri target, boolean delta) {
+        if (target == null) return;
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N) { // not offered there; don't leave an empty file
+            discard(target);
+            return;
+        }
+        vm.exportArchive(delta, target, uri -> onExported(uri, PrescriptionRepository.ARCHIVE_MIME));
+    }
+
+    // Delete a just-created SAF document that will not be written, and say so
+    private void discard(android.net.Uri target) {
+        try {
+            android.provider.DocumentsContract.deleteDocument(getContentResolver(), target);
+        } catch (Exception e) {
+            android.util.Log.w("Export", "Could not delete " + target, e);
+        }
+        Toast.makeText(this, R.string.msg_export_failed, Toast.LENGTH_LONG).show();
+    }
+
+    // Open the exported file, or report the failure
+    private void onExported(android.net.Uri uri, boolean asHtml) {
+        onExported(uri, PrescriptionRepository.exportMime(asHtml));
+    }
+
+    private void onExported(android.net.Uri uri, String mime) {
+        if (uri == null) {
+            Toast.makeText(this, "Export failed", Toast.LENGTH_LONG).show();
+            return;
+        }
+        Intent i = new Intent(Intent.ACTION_VIEW);
+        i.setDataAndType(uri, mime);
+        i.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+        startActivity(Intent.createChooser(i, "Open export with"));
+    }
+
+    // Bulk import: a progress dialog while chunks commit, then the report (first invalid rows listed)
+    private void importFrom(android.net.Uri source) {
+        if (source == null || Build.VERSION.SDK_INT < Build.VERSION_CODES.N) return;
+        AlertDialog progress = new AlertDialog.Builder(this)
+                .setTitle(R.string.import_title)
+                .setMessage(getString(R.string.import_progress, 0, 0))
+                .setCancelable(false)
+                .show();
+        vm.importFile(source,
+                (read, inserted) -> progress.setMessage(getString(R.string.import_progress, read, inserted)),
+                report -> {
+                    progress.dismiss();
+                    if (isFinishing()) return;
+                    StringBuilder msg = new StringBuilder(report.summary());
+                    int shown = Math.min(report.errors.size(), 20);
+                    for (int i = 0; i < shown; i++) msg.append('\n').append(report.errors.get(i));
+                    if (report.invalid > shown) msg.append("\n…");
+                    new AlertDialog.Builder(this)
+                            .setTitle(R.string.import_title)
+                            .setMessage(msg)
+                            .setPositiveButton(android.R.string.ok, null)
+                            .show();
+                });
+    }
+
+    // In-app ContentProvider demo: INSERT (into the current patient) → verify → toast (keeps the row)
     @RequiresApi(api = Build.VERSION_CODES.O)
     private void runProviderDemo() {
-        java.util.concurrent.Executors.newSingleThreadExecutor().execute(() -> {
+        int patientId = vm.currentPatient();
+        data.AppExecutors.get().diskWrite().execute(() -> {
             try {
                 java.time.LocalDate now = java.time.LocalDate.now();
                 android.content.ContentValues v = new android.content.ContentValues();
@@ -155,7 +420,7 @@ public class MainActivity extends AppCompatActivity {
                 v.put(provider.MedContract.Prescriptions.COL_TODAY,  0);
                 v.put(provider.MedContract.Prescriptions.COL_LAST,   (Long) null);
 
-                android.net.Uri pUri = provider.MedContract.Prescriptions.CONTENT_URI;
+                android.net.Uri pUri = provider.MedContract.Patients.prescriptionsUri(patientId);
                 android.net.Uri rowUri = getContentResolver().insert(pUri, v);
                 if (rowUri == null) throw new IllegalStateException("Insert failed (rowUri == null)");
 
@@ -164,7 +429,7 @@ public class MainActivity extends AppCompatActivity {
 
                 // Optional: trigger recompute
                 androidx.work.WorkManager.getInstance(this)
-                        .enqueue(androidx.work.OneTimeWorkRequest.from(ui.RecomputeWorker.class));
+                        .enqueue(ui.RecomputeWorker.forcedRequest());
 
                 // Verify the inserted row
                 try (android.database.Cursor c = getContentResolver().query(
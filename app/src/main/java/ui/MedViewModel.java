@@ -7,6 +7,9 @@ import androidx.annotation.NonNull;
 import androidx.annotation.RequiresApi;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Transformations;
+import androidx.paging.PagedList;
 
 import data.*;
 import java.time.LocalDate;
@@ -14,18 +17,90 @@ import java.util.List;
 
 public class MedViewModel extends AndroidViewModel {
     private final PrescriptionRepository repo;
+    private final AppExecutors executors = AppExecutors.get(); // shared writer queue + main thread
+    private final MutableLiveData<Integer> patient; // current patient id; every list below follows it
+    private final LiveData<List<Patient>> patients;
     private final LiveData<List<PrescriptionWithTerm>> active;
+    private final LiveData<PagedList<PrescriptionRow>> activePaged;
+    private final MutableLiveData<String> searchMatch = new MutableLiveData<>(null); // FTS match, null = none
+    private final LiveData<PagedList<PrescriptionRow>> listed;
     private final LiveData<List<TimeTerm>> terms;
+    private final MutableLiveData<List<PrescriptionRow>> rowUpdates = new MutableLiveData<>();
+
+    // In-place row changes (e.g. "received today") are re-read and handed to the list as a delta;
+    // structural changes reload the paged sources themselves
+    private final RowChanges.ListListener rowListener = (kind, uids) -> {
+        if (kind != RowChanges.IN_PLACE) return;
+        executors.diskRead().execute(() -> {
+            List<PrescriptionRow> rows = new java.util.ArrayList<>();
+            for (PrescriptionWithTerm it : repo.getByIdsSync(uids)) rows.add(PrescriptionRow.of(it));
+            executors.mainThread().execute(() -> rowUpdates.setValue(rows)); // postValue could drop a delta
+        });
+    };
 
     public MedViewModel(@NonNull Application app) {
         super(app);
         repo = new PrescriptionRepository(app);
-        active = repo.getActive();      // live list for the main screen
+        patient = new MutableLiveData<>(repo.currentPatientId());
+        patients = repo.getPatients();  // live list for the patient switcher
+        // Switching patients swaps in queries over that patient's rows only
+        active = Transformations.switchMap(patient, repo::getActive); // full live list (kept for small callers)
+        activePaged = Transformations.switchMap(patient,
+                id -> repo.getActivePaged(id, PrescriptionRow::of)); // paged live list for the main screen
         terms  = repo.getTimeTerms();   // live list for the spinner
+        // Main screen: search results while a query is typed, otherwise the active list
+        listed = Transformations.switchMap(patient, id -> Transformations.switchMap(searchMatch,
+                m -> m == null ? activePaged : repo.searchPaged(id, m, PrescriptionRow::of)));
+        RowChanges.get().addListListener(rowListener);
+    }
+
+    @Override protected void onCleared() {
+        RowChanges.get().removeListListener(rowListener);
     }
 
     public LiveData<List<PrescriptionWithTerm>> getActive() { return active; }
+    public LiveData<PagedList<PrescriptionRow>> getActivePaged() { return activePaged; }
     public LiveData<List<TimeTerm>> getTimeTerms() { return terms; }
+    public LiveData<PagedList<PrescriptionRow>> getListed() { return listed; }
+    public LiveData<List<PrescriptionRow>> getRowUpdates() { return rowUpdates; }
+    public LiveData<Integer> getPatient() { return patient; }
+    public LiveData<List<Patient>> getPatients() { return patients; }
+
+    // Current patient id (main thread)
+    public int currentPatient() {
+        Integer id = patient.getValue();
+        return id == null ? Patient.DEFAULT_ID : id;
+    }
+
+    // Show another patient's lists (remembered for the next start)
+    public void setPatient(int patientId) {
+        if (patientId == currentPatient()) return;
+        repo.setCurrentPatient(patientId);
+        patient.setValue(patientId);
+    }
+
+    // Add a patient and switch to them; new id via callback (main thread)
+    @RequiresApi(api = Build.VERSION_CODES.N)
+    public void addPatient(String name, java.util.function.Consumer<Integer> onAdded) {
+        if (name == null || name.trim().isEmpty()) return;
+        repo.addPatient(name.trim(), id -> {
+            setPatient(id);
+            if (onAdded != null) onAdded.accept(id);
+        });
+    }
+
+    // Recompute today's flags for the current patient only; changed row count via callback
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    public void recomputePatient(java.util.function.Consumer<Integer> onDone) {
+        repo.recomputePatient(currentPatient(), LocalDate.now().toEpochDay(), onDone);
+    }
+
+    // Set the main-screen search text (already debounced by the caller); null/short = no search
+    public void setSearch(String query) {
+        String m = SearchQuery.isSearchable(query) ? SearchQuery.match(query) : null;
+        if (java.util.Objects.equals(m, searchMatch.getValue())) return; // same query, keep the list
+        searchMatch.setValue(m);
+    }
 
     // Add a new prescription (basic validation, then insert)
     @RequiresApi(api = Build.VERSION_CODES.O)
@@ -43,6 +118,7 @@ public class MedViewModel extends AndroidViewModel {
         d.timeTermId = timeTermId;
         d.doctorName = doctorName == null ? "" : doctorName.trim();
         d.doctorLocation = doctorLocation == null ? "" : doctorLocation.trim();
+        d.patientId = currentPatient();
 
         // Initial flags stored as false/null
         d.isActive = false;
@@ -51,7 +127,7 @@ public class MedViewModel extends AndroidViewModel {
 
         // Compute isActive for today (kept for faster queries)
         long today = LocalDate.now().toEpochDay();
-        d.isActive = (today >= d.startDateEpoch && today <= d.endDateEpoch);
+        d.isActive = d.isActiveOn(today);
 
         repo.insert(d);
     }
@@ -74,10 +150,31 @@ public class MedViewModel extends AndroidViewModel {
         repo.markReceivedToday(uid, today, onResult);
     }
 
-    // Export active items (HTML/TXT)
+    // Export the current patient's active items (HTML/TXT)
     @RequiresApi(api = Build.VERSION_CODES.O)
     public void exportActive(boolean asHtml, java.util.function.Consumer<android.net.Uri> onDone) {
-        repo.exportActive(asHtml, onDone);
+        repo.exportActive(currentPatient(), asHtml, onDone);
+    }
+
+    // Export the current patient's active items into a document the user picked (SAF, used below API 29)
+    @RequiresApi(api = Build.VERSION_CODES.O)
+    public void exportActiveTo(android.net.Uri target, boolean asHtml, java.util.function.Consumer<android.net.Uri> onDone) {
+        repo.exportActiveTo(currentPatient(), target, asHtml, onDone);
+    }
+
+    // Export every table as a ZIP (CSV + JSON); delta: only what changed since the last archive.
+    // target == null: Downloads (API 29+), otherwise the document the user picked
+    @RequiresApi(api = Build.VERSION_CODES.N)
+    public void exportArchive(boolean delta, android.net.Uri target, java.util.function.Consumer<android.net.Uri> onDone) {
+        repo.exportArchive(delta, target, onDone);
+    }
+
+    // Bulk import of a CSV/JSON document the user picked into the current patient's list;
+    // progress and the report on the main thread
+    @RequiresApi(api = Build.VERSION_CODES.N)
+    public void importFile(android.net.Uri source, data.BulkImport.Progress onProgress,
+                           java.util.function.Consumer<data.BulkImport.Report> onDone) {
+        repo.importFile(currentPatient(), source, onProgress, onDone);
     }
 
     // Observe a single row (for Add/Edit binding)
@@ -85,6 +182,13 @@ public class MedViewModel extends AndroidViewModel {
         return repo.observeById(uid);
     }
 
+    // Interactions of a name with the current patient's other active drugs (AddEditActivity, before saving)
+    @RequiresApi(api = Build.VERSION_CODES.N)
+    public void checkInteractions(String shortName, int exceptUid,
+                                  java.util.function.Consumer<List<PrescriptionRepository.Interaction>> onDone) {
+        repo.checkInteractions(currentPatient(), shortName.trim(), exceptUid, onDone);
+    }
+
     // Insert with callback (used by AddEditActivity)
     @RequiresApi(api = Build.VERSION_CODES.O)
     public void saveNew(String shortName, String desc,
@@ -103,16 +207,17 @@ public class MedViewModel extends AndroidViewModel {
         d.timeTermId = timeTermId;
         d.doctorName = doctorName == null ? "" : doctorName.trim();
         d.doctorLocation = doctorLocation == null ? "" : doctorLocation.trim();
+        d.patientId = currentPatient();
 
         long today = java.time.LocalDate.now().toEpochDay();
-        d.isActive = (today >= d.startDateEpoch && today <= d.endDateEpoch);
+        d.isActive = d.isActiveOn(today);
         d.hasReceivedToday = false;
         d.lastDateReceivedEpoch = null;
 
-        // Background insert, then post the new id back to the main thread
-        java.util.concurrent.Executors.newSingleThreadExecutor().execute(() -> {
-            long id = repo.pDao.insert(d); // uses DAO directly; ok for this project setup
-            new android.os.Handler(android.os.Looper.getMainLooper()).post(() -> {
+        // Insert on the writer queue, then post the new id back to the main thread
+        executors.diskWrite().execute(() -> {
+            long id = repo.insertNow(d);
+            executors.mainThread().execute(() -> {
                 if (onInserted != null) onInserted.accept(id);
             });
         });
@@ -127,14 +232,17 @@ public class MedViewModel extends AndroidViewModel {
         if (shortName == null || shortName.trim().isEmpty()) { if (onUpdated!=null) onUpdated.accept(0); return; }
         if (end.isBefore(start)) { if (onUpdated!=null) onUpdated.accept(0); return; }
 
-        java.util.concurrent.Executors.newSingleThreadExecutor().execute(() -> {
+        // Read-modify-write on the writer queue so it cannot interleave with other writes
+        executors.diskWrite().execute(() -> {
             data.PrescriptionDrug cur = repo.getByIdSync(uid);
             if (cur == null) {
-                new android.os.Handler(android.os.Looper.getMainLooper()).post(() -> {
+                executors.mainThread().execute(() -> {
                     if (onUpdated != null) onUpdated.accept(0);
                 });
                 return;
             }
+            boolean wasActive = cur.isActive;
+            int oldTerm = cur.timeTermId;
             // Apply changes
             cur.shortName = shortName.trim();
             cur.description = desc == null ? "" : desc.trim();
@@ -145,11 +253,12 @@ public class MedViewModel extends AndroidViewModel {
             cur.doctorLocation = doctorLocation == null ? "" : doctorLocation.trim();
 
             long today = java.time.LocalDate.now().toEpochDay();
-            cur.isActive = (today >= cur.startDateEpoch && today <= cur.endDateEpoch);
+            cur.isActive = cur.isActiveOn(today);
             // Do not modify lastDateReceivedEpoch / hasReceivedToday here
 
-            int rows = repo.pDao.update(cur);
-            new android.os.Handler(android.os.Looper.getMainLooper()).post(() -> {
+            // Rows that stay in the same list position are patched in place instead of reloading the list
+            int rows = repo.updateNow(cur, cur.isActive != wasActive || cur.timeTermId != oldTerm);
+            executors.mainThread().execute(() -> {
                 if (onUpdated != null) onUpdated.accept(rows);
             });
         });
@@ -1,56 +1,99 @@
 package ui;
 
 import android.app.Application;
+import android.content.pm.ApplicationInfo;
 
 import androidx.annotation.NonNull;
+import androidx.work.Configuration;
 import androidx.work.ExistingPeriodicWorkPolicy;
 import androidx.work.OneTimeWorkRequest;
 import androidx.work.PeriodicWorkRequest;
 import androidx.work.WorkManager;
 
-import java.util.Calendar;
 import java.util.concurrent.TimeUnit;
 
-public class MyApp extends Application {
+// WorkManager is initialized on demand (its startup initializer is removed in the manifest), so
+// nothing here touches it: the schedules are enqueued once the main list has drawn.
+public class MyApp extends Application implements Configuration.Provider {
 
-    // Schedule a periodic worker that recomputes flags once every hour
-    private void scheduleHourlyRecompute() {
-        java.util.concurrent.TimeUnit H = java.util.concurrent.TimeUnit.HOURS;
+    private boolean backgroundWorkScheduled; // main thread only
 
-        androidx.work.PeriodicWorkRequest req =
-                new androidx.work.PeriodicWorkRequest.Builder(ui.RecomputeWorker.class, 1, H)
-                        .addTag("recompute-hourly")
+    // Daily safety net for the flag recompute. The rollover itself runs from the reminder alarm
+    // just after midnight (see Reminders), so this no longer wakes the device every hour.
+    private void scheduleDailyRecompute() {
+        WorkManager wm = WorkManager.getInstance(this);
+        wm.cancelUniqueWork("recomputeHourly"); // schedule used by older versions
+
+        PeriodicWorkRequest req =
+                new PeriodicWorkRequest.Builder(RecomputeWorker.class, 1, TimeUnit.DAYS)
+                        .addTag("recompute-daily")
                         .build();
 
-        androidx.work.WorkManager.getInstance(this).enqueueUniquePeriodicWork(
-                "recomputeHourly",
-                androidx.work.ExistingPeriodicWorkPolicy.KEEP, // keep existing schedule if present
+        wm.enqueueUniquePeriodicWork(
+                "recomputeDaily",
+                ExistingPeriodicWorkPolicy.KEEP, // keep existing schedule if present
+                req
+        );
+    }
+
+    // Weekly check of the trigger-maintained adherence counters (repairs them only if they drifted)
+    private void scheduleAdherenceCheck() {
+        PeriodicWorkRequest req =
+                new PeriodicWorkRequest.Builder(AdherenceWorker.class, 7, TimeUnit.DAYS)
+                        .addTag("adherence-weekly")
+                        .build();
+
+        WorkManager.getInstance(this).enqueueUniquePeriodicWork(
+                "adherenceWeekly",
+                ExistingPeriodicWorkPolicy.KEEP,
                 req
         );
     }
 
     @Override public void onCreate() {
+        StartupTrace.appCreateBegin();
         super.onCreate();
-        // Start hourly schedule
-        scheduleHourlyRecompute();
-        // Also run one immediate recompute on app start
-        androidx.work.WorkManager.getInstance(this)
-                .enqueue(androidx.work.OneTimeWorkRequest.from(ui.RecomputeWorker.class));
+        // Query metrics record by default in debuggable builds only (toggle with dumpsys, see MedProvider.dump)
+        data.QueryMetrics.get().setEnabled((getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0);
+        // Nothing else on the startup path: the database opens on first query,
+        // WorkManager on first use (see onFirstListDrawn)
+        StartupTrace.appCreateEnd();
     }
 
-    // Utility: millis until next specific HH:mm
-    private long millisUntilNext(int hour, int minute) {
-        Calendar cal = Calendar.getInstance();
-        long now = cal.getTimeInMillis();
+    // WorkManager on-demand configuration (used on its first getInstance)
+    @NonNull @Override public Configuration getWorkManagerConfiguration() {
+        return new Configuration.Builder().build();
+    }
 
-        cal.set(Calendar.HOUR_OF_DAY, hour);
-        cal.set(Calendar.MINUTE, minute);
-        cal.set(Calendar.SECOND, 0);
-        cal.set(Calendar.MILLISECOND, 0);
+    // Main list is on screen: start WorkManager, the reminders and the geocode prefetch, off the main thread
+    void onFirstListDrawn() {
+        if (backgroundWorkScheduled) return;
+        backgroundWorkScheduled = true;
+        data.AppExecutors.get().diskRead().execute(() -> {
+            // Start daily schedule
+            scheduleDailyRecompute();
+            scheduleAdherenceCheck();
+            // Also run one immediate recompute on app start
+            WorkManager.getInstance(this).enqueue(OneTimeWorkRequest.from(RecomputeWorker.class));
+        });
+        Reminders.get(this).start(); // loads the reminder queue and arms the next alarm
+        Geocoding.prefetchActive(this); // doctor map pins for active prescriptions
+    }
 
-        if (cal.getTimeInMillis() <= now) {
-            cal.add(Calendar.DAY_OF_YEAR, 1);
+    // App left the foreground: fold the WAL into the main file and shrink it (on the writer queue)
+    @Override public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (level == TRIM_MEMORY_UI_HIDDEN) {
+            data.AppExecutors.get().diskWrite().execute(() ->
+                    data.DbTuning.checkpoint(
+                            data.AppDatabase.getInstance(this).getOpenHelper().getWritableDatabase(),
+                            data.DbTuning.TRUNCATE));
         }
-        return cal.getTimeInMillis() - now;
+    }
+
+    // Emulator-only hook (never called on devices): drain the DB queues before exit
+    @Override public void onTerminate() {
+        data.AppExecutors.get().shutdown();
+        super.onTerminate();
     }
 }
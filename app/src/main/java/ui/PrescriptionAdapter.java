@@ -5,46 +5,70 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.paging.PagedList;
+import androidx.paging.PagedListAdapter;
 import androidx.recyclerview.widget.DiffUtil;
-import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 import com.example.mymedapp.R;
-import data.PrescriptionWithTerm;
 
-// RecyclerView adapter for the prescriptions list (click -> open details)
-public class PrescriptionAdapter extends ListAdapter<PrescriptionWithTerm, PrescriptionAdapter.VH> {
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// RecyclerView adapter for the paged prescriptions list (click -> open details).
+// Binding only assigns precomputed strings (see PrescriptionRow); changed rows are rebound
+// with a field payload, so e.g. toggling "received" touches one view.
+public class PrescriptionAdapter extends PagedListAdapter<PrescriptionRow, PrescriptionAdapter.VH> {
 
     // Simple click callback to bubble item clicks to the Activity
-    public interface OnClick { void onClick(PrescriptionWithTerm item); }
+    public interface OnClick { void onClick(data.PrescriptionWithTerm item); }
 
     private final OnClick onClick;
 
+    // Rows re-read after an in-place change, shown instead of the (older) paged item until the next list
+    private final Map<Integer, PrescriptionRow> patched = new HashMap<>();
+
+    // Copy of the loaded rows for ids and bookkeeping: PagedList.get would move the key the
+    // next refresh starts from. Dropped whenever the current list loads or changes.
+    private List<PrescriptionRow> loaded;
+    private final PagedList.Callback loadedChanged = new PagedList.Callback() {
+        @Override public void onChanged(int position, int count) { loaded = null; }
+        @Override public void onInserted(int position, int count) { loaded = null; }
+        @Override public void onRemoved(int position, int count) { loaded = null; }
+    };
+
     public PrescriptionAdapter(OnClick onClick) {
         super(DIFF);
         this.onClick = onClick;
+        setHasStableIds(true); // uid: RecyclerView can keep holders and animations across reloads
     }
 
-    // Diff logic: same item by uid; content changes tracked by a few key fields
-    private static final DiffUtil.ItemCallback<PrescriptionWithTerm> DIFF =
-            new DiffUtil.ItemCallback<PrescriptionWithTerm>() {
-                @Override public boolean areItemsTheSame(@NonNull PrescriptionWithTerm o, @NonNull PrescriptionWithTerm n) {
-                    return o.drug.uid == n.drug.uid;
+    // Diff logic: same item by uid; the changed-field mask is the payload
+    private static final DiffUtil.ItemCallback<PrescriptionRow> DIFF =
+            new DiffUtil.ItemCallback<PrescriptionRow>() {
+                @Override public boolean areItemsTheSame(@NonNull PrescriptionRow o, @NonNull PrescriptionRow n) {
+                    return PrescriptionDiff.sameItem(o.item, n.item);
+                }
+                @Override public boolean areContentsTheSame(@NonNull PrescriptionRow o, @NonNull PrescriptionRow n) {
+                    return PrescriptionDiff.sameContents(o.item, n.item);
                 }
-                @Override public boolean areContentsTheSame(@NonNull PrescriptionWithTerm o, @NonNull PrescriptionWithTerm n) {
-                    return o.drug.shortName.equals(n.drug.shortName)
-                            && o.termCode.equals(n.termCode)
-                            && o.drug.isActive == n.drug.isActive;
+                @Override public Object getChangePayload(@NonNull PrescriptionRow o, @NonNull PrescriptionRow n) {
+                    return PrescriptionDiff.changes(o.item, n.item);
                 }
             };
 
-    // Holds references to row views
+    // Holds references to row views and the row currently bound
     static class VH extends RecyclerView.ViewHolder {
-        TextView uid, shortName, term;
+        TextView uid, shortName, term, received;
+        PrescriptionRow bound;
         VH(@NonNull View v) {
             super(v);
             uid = v.findViewById(R.id.txtUid);
             shortName = v.findViewById(R.id.txtShort);
             term = v.findViewById(R.id.txtTerm);
+            received = v.findViewById(R.id.txtReceived);
         }
     }
 
@@ -53,20 +77,92 @@ public class PrescriptionAdapter extends ListAdapter<PrescriptionWithTerm, Presc
         // Inflate the row layout
         View row = LayoutInflater.from(parent.getContext())
                 .inflate(R.layout.item_prescription, parent, false);
-        return new VH(row);
+        VH h = new VH(row);
+        // One listener per holder; it reads whatever row is bound at click time
+        row.setOnClickListener(v -> {
+            if (onClick != null && h.bound != null) onClick.onClick(h.bound.item);
+        });
+        return h;
+    }
+
+    @Override
+    public long getItemId(int position) {
+        List<PrescriptionRow> rows = loaded();
+        PrescriptionRow r = position < rows.size() ? rows.get(position) : null;
+        return r == null ? RecyclerView.NO_ID : r.uid();
     }
 
     @Override
     public void onBindViewHolder(@NonNull VH h, int position) {
-        // Bind row data
-        PrescriptionWithTerm it = getItem(position);
-        h.uid.setText("UID: " + it.drug.uid);
-        h.shortName.setText(it.drug.shortName);
-        h.term.setText("Time: " + it.termCode);
-
-        // Forward clicks to the callback
-        h.itemView.setOnClickListener(v -> {
-            if (onClick != null) onClick.onClick(it);
-        });
+        PrescriptionRow r = rowAt(position);
+        if (r == null) return; // placeholders are disabled, but stay safe
+        h.bound = r;
+        h.uid.setText(r.uidText);
+        h.shortName.setText(r.item.drug.shortName);
+        h.term.setText(r.termText);
+        h.received.setVisibility(r.item.drug.hasReceivedToday ? View.VISIBLE : View.GONE);
+    }
+
+    // Partial rebind: only the views whose fields are in the payload masks
+    @Override
+    public void onBindViewHolder(@NonNull VH h, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(h, position);
+            return;
+        }
+        PrescriptionRow r = rowAt(position);
+        if (r == null) return;
+        int mask = 0;
+        for (Object p : payloads) if (p instanceof Integer) mask |= (Integer) p;
+        h.bound = r;
+        if ((mask & PrescriptionDiff.NAME) != 0) h.shortName.setText(r.item.drug.shortName);
+        if ((mask & PrescriptionDiff.TERM) != 0) h.term.setText(r.termText);
+        if ((mask & PrescriptionDiff.RECEIVED) != 0) {
+            h.received.setVisibility(r.item.drug.hasReceivedToday ? View.VISIBLE : View.GONE);
+        }
+    }
+
+    // Apply an in-place delta: rebind only the loaded rows whose uid changed, with their field payload
+    public void applyRowUpdates(List<PrescriptionRow> rows) {
+        if (rows == null || rows.isEmpty()) return;
+        List<PrescriptionRow> list = loaded();
+        Map<Integer, PrescriptionRow> byUid = new HashMap<>();
+        for (PrescriptionRow r : rows) byUid.put(r.uid(), r);
+        for (int i = 0, n = list.size(); i < n; i++) {
+            PrescriptionRow paged = list.get(i);
+            if (paged == null) continue;
+            PrescriptionRow fresh = byUid.get(paged.uid());
+            if (fresh == null) continue;
+            PrescriptionRow shown = patched.get(paged.uid());
+            int mask = PrescriptionDiff.changes((shown != null ? shown : paged).item, fresh.item);
+            patched.put(fresh.uid(), fresh);
+            if (mask != 0) notifyItemChanged(i, mask);
+        }
+    }
+
+    // A new list carries fresh rows: drop the patches
+    @Override
+    public void onCurrentListChanged(@Nullable PagedList<PrescriptionRow> previousList,
+                                     @Nullable PagedList<PrescriptionRow> currentList) {
+        patched.clear();
+        loaded = null;
+        if (previousList != null) previousList.removeWeakCallback(loadedChanged);
+        if (currentList != null) currentList.addWeakCallback(null, loadedChanged);
+    }
+
+    private List<PrescriptionRow> loaded() {
+        if (loaded == null) {
+            PagedList<PrescriptionRow> list = getCurrentList();
+            loaded = list == null ? Collections.<PrescriptionRow>emptyList() : list.snapshot();
+        }
+        return loaded;
+    }
+
+    // Row at a position (a patched row wins over the paged one); getItem also drives page loading
+    private PrescriptionRow rowAt(int position) {
+        PrescriptionRow paged = getItem(position);
+        if (paged == null || patched.isEmpty()) return paged;
+        PrescriptionRow p = patched.get(paged.uid());
+        return p != null ? p : paged;
     }
 }
@@ -0,0 +1,45 @@
+package ui;
+
+import java.util.Objects;
+
+import data.PrescriptionWithTerm;
+
+// Item/content comparison for the prescriptions list (used by PrescriptionAdapter's DiffUtil callback).
+// changes() returns a field mask that doubles as the change payload, so a partial rebind touches
+// only the views whose fields changed.
+// Plain Java so the diff cost can be benchmarked on the JVM.
+public final class PrescriptionDiff {
+    private PrescriptionDiff() {}
+
+    // Change payload bits
+    public static final int NAME     = 1;      // shortName
+    public static final int TERM     = 1 << 1; // time term
+    public static final int RECEIVED = 1 << 2; // hasReceivedToday
+    public static final int DETAILS  = 1 << 3; // fields the row does not show (description, dates, doctor, flags)
+
+    // Same item: same uid
+    public static boolean sameItem(PrescriptionWithTerm o, PrescriptionWithTerm n) {
+        return o.drug.uid == n.drug.uid;
+    }
+
+    // Same contents: no field changed
+    public static boolean sameContents(PrescriptionWithTerm o, PrescriptionWithTerm n) {
+        return changes(o, n) == 0;
+    }
+
+    // Mask of the fields that differ (0 = same contents)
+    public static int changes(PrescriptionWithTerm o, PrescriptionWithTerm n) {
+        int mask = 0;
+        if (!Objects.equals(o.drug.shortName, n.drug.shortName)) mask |= NAME;
+        if (o.termId != n.termId || !Objects.equals(o.termCode, n.termCode)) mask |= TERM;
+        if (o.drug.hasReceivedToday != n.drug.hasReceivedToday) mask |= RECEIVED;
+        if (o.drug.isActive != n.drug.isActive
+                || o.drug.startDateEpoch != n.drug.startDateEpoch
+                || o.drug.endDateEpoch != n.drug.endDateEpoch
+                || !Objects.equals(o.drug.lastDateReceivedEpoch, n.drug.lastDateReceivedEpoch)
+                || !Objects.equals(o.drug.description, n.drug.description)
+                || !Objects.equals(o.drug.doctorName, n.drug.doctorName)
+                || !Objects.equals(o.drug.doctorLocation, n.drug.doctorLocation)) mask |= DETAILS;
+        return mask;
+    }
+}
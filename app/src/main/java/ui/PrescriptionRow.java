@@ -0,0 +1,26 @@
+package ui;
+
+import data.PrescriptionWithTerm;
+
+// One list row: the item plus its display strings, built on the paging fetch thread
+// so binding on the main thread only assigns references.
+// Plain Java so the mapping cost can be benchmarked on the JVM.
+public final class PrescriptionRow {
+
+    public final PrescriptionWithTerm item;
+    public final String uidText;  // "UID: 12"
+    public final String termText; // "Time: before-breakfast"
+
+    private PrescriptionRow(PrescriptionWithTerm item, String uidText, String termText) {
+        this.item = item;
+        this.uidText = uidText;
+        this.termText = termText;
+    }
+
+    // Build a row (call off the main thread; used as the paged list's map function)
+    public static PrescriptionRow of(PrescriptionWithTerm item) {
+        return new PrescriptionRow(item, "UID: " + item.drug.uid, "Time: " + item.termCode);
+    }
+
+    public int uid() { return item.drug.uid; }
+}
@@ -5,27 +5,39 @@ import android.os.Build;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.RequiresApi;
+import androidx.work.Data;
+import androidx.work.OneTimeWorkRequest;
 import androidx.work.Worker;
 import androidx.work.WorkerParameters;
 
 import java.time.LocalDate;
 
-import data.AppDatabase;
+import data.DayRollover;
 
 public class RecomputeWorker extends Worker {
+
+    // Input flag: recompute even if today was already processed
+    public static final String KEY_FORCE = "force";
+
     public RecomputeWorker(@NonNull Context context, @NonNull WorkerParameters params) {
         super(context, params);
     }
 
-    // Periodic job: recompute isActive/hasReceivedToday flags for "today"
+    // One-off request that ignores the "already processed today" check
+    public static OneTimeWorkRequest forcedRequest() {
+        return new OneTimeWorkRequest.Builder(RecomputeWorker.class)
+                .setInputData(new Data.Builder().putBoolean(KEY_FORCE, true).build())
+                .build();
+    }
+
+    // Periodic job: recompute isActive/hasReceivedToday flags when the day changes
     @RequiresApi(api = Build.VERSION_CODES.O)
     @NonNull @Override
     public Result doWork() {
         try {
             long today = LocalDate.now().toEpochDay(); // epoch-day (yyyy-MM-dd)
-            AppDatabase.getInstance(getApplicationContext())
-                    .prescriptionDao()
-                    .recomputeForToday(today);
+            boolean force = getInputData().getBoolean(KEY_FORCE, false);
+            DayRollover.run(getApplicationContext(), today, force);
             return Result.success();
         } catch (Exception e) {
             // If something transient fails, ask WorkManager to retry
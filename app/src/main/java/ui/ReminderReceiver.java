@@ -0,0 +1,48 @@
+package ui;
+
+import android.app.AlarmManager;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+
+// Reminder alarm, the notification's "taken" action, and system events that invalidate the alarm.
+// Work runs on the app executors; goAsync keeps the process alive until it is done.
+public class ReminderReceiver extends BroadcastReceiver {
+
+    static final String ACTION_ALARM = "com.example.mymedapp.action.REMINDER_ALARM";
+    static final String ACTION_TAKEN = "com.example.mymedapp.action.REMINDER_TAKEN";
+    static final String EXTRA_AT  = "at";   // time the alarm was armed for
+    static final String EXTRA_UID = "uid";
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        String action = intent.getAction();
+        if (action == null) return;
+        Reminders r = Reminders.get(context);
+        switch (action) {
+            case ACTION_ALARM: {
+                PendingResult pending = goAsync();
+                r.onAlarm(intent.getLongExtra(EXTRA_AT, System.currentTimeMillis()), pending::finish);
+                break;
+            }
+            case ACTION_TAKEN: {
+                int uid = intent.getIntExtra(EXTRA_UID, -1);
+                if (uid < 0) return;
+                PendingResult pending = goAsync();
+                r.onTaken(uid, pending::finish);
+                break;
+            }
+            case Intent.ACTION_BOOT_COMPLETED:
+            case Intent.ACTION_MY_PACKAGE_REPLACED:
+            case Intent.ACTION_TIME_CHANGED:
+            case Intent.ACTION_TIMEZONE_CHANGED:
+            case AlarmManager.ACTION_SCHEDULE_EXACT_ALARM_PERMISSION_STATE_CHANGED: {
+                PendingResult pending = goAsync();
+                r.onClockChanged(pending::finish); // alarms are gone or due times moved
+                break;
+            }
+            default:
+                break;
+        }
+    }
+}
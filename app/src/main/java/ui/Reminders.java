@@ -0,0 +1,268 @@
+package ui;
+
+import android.Manifest;
+import android.app.AlarmManager;
+import android.app.Application;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.PackageManager;
+import android.os.Build;
+
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.NotificationManagerCompat;
+import androidx.core.content.ContextCompat;
+
+import com.example.mymedapp.R;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+import data.AppDatabase;
+import data.AppExecutors;
+import data.DayRollover;
+import data.PrescriptionDao;
+import data.PrescriptionRepository;
+import data.PrescriptionWithTerm;
+import data.ReminderQueue;
+import data.RowChanges;
+import data.TimeTermRegistry;
+
+// Dose reminders driven by data changes instead of polling.
+// ReminderQueue holds the next dose per active prescription plus the day rollover; one
+// AlarmManager alarm is armed for the earliest entry. Row changes (RowChanges) update only the
+// rows they name; a full rebuild happens only when every row may have changed.
+final class Reminders implements RowChanges.ListListener {
+
+    static final String CHANNEL = "doses";
+
+    // Above this many changed rows, reload every active row instead of looking them up
+    private static final int REBUILD_OVER = 500;
+
+    private static volatile Reminders instance;
+
+    private final Context app;
+    private final AppExecutors executors = AppExecutors.get();
+    private final PrescriptionDao dao;
+    private final PrescriptionRepository repo;
+    private final ReminderQueue queue;
+    // Held while reading rows into the queue (first load, rebuild, refresh): reads run on the
+    // reader pool, and a stale read must not land after a newer one
+    private final Object lock = new Object();
+    private boolean started; // guarded by lock
+
+    private Reminders(Context app) {
+        this.app = app;
+        this.dao = AppDatabase.getInstance(app).prescriptionDao();
+        this.repo = new PrescriptionRepository((Application) app);
+        this.queue = new ReminderQueue(new PlatformAlarm(app));
+    }
+
+    static Reminders get(Context ctx) {
+        if (instance == null) {
+            synchronized (Reminders.class) {
+                if (instance == null) instance = new Reminders(ctx.getApplicationContext());
+            }
+        }
+        return instance;
+    }
+
+    // Load the queue (once per process) and follow row changes
+    void start() {
+        executors.diskRead().execute(() -> ensureStarted(System.currentTimeMillis()));
+    }
+
+    // Background thread only. 'since': doses after this instant are still pending.
+    // Returns false if the queue was already loaded.
+    private boolean ensureStarted(long since) {
+        synchronized (lock) {
+            if (started) return false;
+            started = true;
+            rebuild(since);
+            RowChanges.get().addListListener(this);
+            return true;
+        }
+    }
+
+    // ---- change-driven updates ----
+
+    @Override public void onRowsChanged(int kind, int[] uids) {
+        executors.diskRead().execute(() -> {
+            if (uids == null || uids.length > REBUILD_OVER) rebuild(System.currentTimeMillis());
+            else refresh(uids, System.currentTimeMillis());
+        });
+    }
+
+    // Recompute every entry (terms changed, day rolled over, first load)
+    private void rebuild(long since) {
+        TimeZone tz = TimeZone.getDefault();
+        synchronized (lock) {
+            Map<Integer, Long> due = new HashMap<>();
+            for (PrescriptionDao.ReminderSlot s : dao.reminderSlots()) due.put(s.uid, nextDose(s, since, tz));
+            due.put(ReminderQueue.DAY_ROLLOVER, ReminderQueue.nextRollover(since, tz));
+            queue.replaceAll(due);
+        }
+    }
+
+    // Recompute a few entries: O(log n) each, and the alarm only moves if the head changes
+    private void refresh(int[] uids, long since) {
+        TimeZone tz = TimeZone.getDefault();
+        synchronized (lock) {
+            Map<Integer, Long> due = new HashMap<>();
+            for (int uid : uids) due.put(uid, -1L); // deleted rows leave the queue
+            for (PrescriptionDao.ReminderSlot s : dao.reminderSlotsFor(uids)) due.put(s.uid, nextDose(s, since, tz));
+            for (Map.Entry<Integer, Long> d : due.entrySet()) queue.set(d.getKey(), d.getValue());
+        }
+    }
+
+    private static long nextDose(PrescriptionDao.ReminderSlot s, long since, TimeZone tz) {
+        if (!s.isActive) return -1;
+        int minute = TimeTermRegistry.resolve(s.timeTermId).minuteOfDay;
+        return ReminderQueue.nextDose(minute, s.endDateEpoch, s.hasReceivedToday, since, tz);
+    }
+
+    // ---- alarm / actions (called from ReminderReceiver) ----
+
+    // The alarm armed for 'armedFor' went off: notify what is due, run the rollover if it is due
+    void onAlarm(long armedFor, Runnable done) {
+        executors.diskRead().execute(() -> {
+            try {
+                long now = System.currentTimeMillis();
+                // A fresh process rebuilds from just before the alarm time, so its doses are still due
+                ensureStarted(Math.min(armedFor, now) - 1);
+                List<Integer> due = queue.pollDue(now);
+                int[] uids = new int[due.size()];
+                int n = 0;
+                boolean rollover = false;
+                for (int key : due) {
+                    if (key == ReminderQueue.DAY_ROLLOVER) rollover = true;
+                    else uids[n++] = key;
+                }
+                if (n > 0) {
+                    uids = Arrays.copyOf(uids, n);
+                    for (PrescriptionWithTerm it : dao.getByIdsWithTerm(uids)) {
+                        if (it.drug.isActive && !it.drug.hasReceivedToday) notifyDose(it);
+                    }
+                    refresh(uids, now); // next day's dose
+                }
+                if (rollover) {
+                    queue.set(ReminderQueue.DAY_ROLLOVER, ReminderQueue.nextRollover(now, TimeZone.getDefault()));
+                    executors.diskWrite().execute(() -> {
+                        try {
+                            DayRollover.run(app, ReminderQueue.epochDay(System.currentTimeMillis(),
+                                    TimeZone.getDefault()), false); // publishes all rows -> rebuild
+                        } finally {
+                            done.run();
+                        }
+                    });
+                    return;
+                }
+            } catch (RuntimeException e) {
+                done.run();
+                throw e;
+            }
+            done.run();
+        });
+    }
+
+    // "Taken" from the notification: same write as the details screen
+    void onTaken(int uid, Runnable done) {
+        NotificationManagerCompat.from(app).cancel(uid);
+        long today = ReminderQueue.epochDay(System.currentTimeMillis(), TimeZone.getDefault());
+        repo.markReceivedToday(uid, today, done); // RowChanges -> refresh(uid)
+    }
+
+    // Clock, time zone or alarm permission changed: every due time may be off
+    void onClockChanged(Runnable done) {
+        executors.diskRead().execute(() -> {
+            try {
+                long now = System.currentTimeMillis();
+                if (!ensureStarted(now)) rebuild(now);
+                queue.rearmNow();
+            } finally {
+                done.run();
+            }
+        });
+    }
+
+    // ---- notifications ----
+
+    private void notifyDose(PrescriptionWithTerm it) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU
+                && ContextCompat.checkSelfPermission(app, Manifest.permission.POST_NOTIFICATIONS)
+                != PackageManager.PERMISSION_GRANTED) return;
+        ensureChannel(app);
+        int uid = it.drug.uid;
+
+        Intent open = new Intent(app, DetailsActivity.class)
+                .putExtra(DetailsActivity.EXTRA_UID, uid)
+                .addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+        NotificationCompat.Builder b = new NotificationCompat.Builder(app, CHANNEL)
+                .setSmallIcon(android.R.drawable.ic_popup_reminder)
+                .setContentTitle(it.drug.shortName)
+                .setContentText(app.getString(R.string.reminder_text, it.termCode))
+                .setCategory(NotificationCompat.CATEGORY_REMINDER)
+                .setPriority(NotificationCompat.PRIORITY_HIGH)
+                .setAutoCancel(true)
+                .setContentIntent(PendingIntent.getActivity(app, uid, open, immutable()));
+        Intent taken = new Intent(app, ReminderReceiver.class)
+                .setAction(ReminderReceiver.ACTION_TAKEN)
+                .putExtra(ReminderReceiver.EXTRA_UID, uid);
+        b.addAction(0, app.getString(R.string.reminder_taken),
+                PendingIntent.getBroadcast(app, uid, taken, immutable()));
+        NotificationManagerCompat.from(app).notify(uid, b.build());
+    }
+
+    private static void ensureChannel(Context ctx) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O) return;
+        NotificationManager nm = ctx.getSystemService(NotificationManager.class);
+        if (nm.getNotificationChannel(CHANNEL) != null) return;
+        nm.createNotificationChannel(new NotificationChannel(CHANNEL,
+                ctx.getString(R.string.reminder_channel), NotificationManager.IMPORTANCE_HIGH));
+    }
+
+    static int immutable() {
+        return PendingIntent.FLAG_UPDATE_CURRENT
+                | (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M ? PendingIntent.FLAG_IMMUTABLE : 0);
+    }
+
+    // ---- the one AlarmManager alarm ----
+
+    private static final class PlatformAlarm implements ReminderQueue.Alarm {
+        private final Context ctx;
+        private final AlarmManager am;
+
+        PlatformAlarm(Context ctx) {
+            this.ctx = ctx;
+            this.am = (AlarmManager) ctx.getSystemService(Context.ALARM_SERVICE);
+        }
+
+        // Same request code and action every time, so arming replaces the previous alarm
+        private PendingIntent intent(long at) {
+            Intent i = new Intent(ctx, ReminderReceiver.class)
+                    .setAction(ReminderReceiver.ACTION_ALARM)
+                    .putExtra(ReminderReceiver.EXTRA_AT, at);
+            return PendingIntent.getBroadcast(ctx, 0, i, immutable());
+        }
+
+        @Override public void arm(long at) {
+            PendingIntent pi = intent(at);
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S && !am.canScheduleExactAlarms()) {
+                am.setAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, at, pi); // inexact, no permission needed
+            } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+                am.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, at, pi);
+            } else {
+                am.setExact(AlarmManager.RTC_WAKEUP, at, pi);
+            }
+        }
+
+        @Override public void cancel() {
+            am.cancel(intent(0));
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package ui;
+
+import android.os.Build;
+import android.os.Process;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.Log;
+
+// Cold-start milestones. Application.onCreate is a trace section and "first list render" an async
+// section (API 29+), so both show up in a system trace (Perfetto / systrace, app section names).
+// The same numbers are logged once under the STARTUP tag:
+//   startup: appOnCreate=12ms processToFirstList=480ms appToFirstList=430ms
+final class StartupTrace {
+    private StartupTrace() {}
+
+    private static final String TAG = "STARTUP";
+    private static final String SECTION_APP = "MyApp.onCreate";
+    private static final String SECTION_FIRST_LIST = "startup:first-list";
+    private static final int COOKIE = 1;
+
+    private static long appStart = -1, appEnd = -1; // uptime ms
+    private static boolean listDone;
+
+    // Call first thing in Application.onCreate
+    static void appCreateBegin() {
+        appStart = SystemClock.uptimeMillis();
+        Trace.beginSection(SECTION_APP);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) Trace.beginAsyncSection(SECTION_FIRST_LIST, COOKIE);
+    }
+
+    // Call last thing in Application.onCreate
+    static void appCreateEnd() {
+        Trace.endSection();
+        appEnd = SystemClock.uptimeMillis();
+    }
+
+    // Main screen drew its first list (main thread). Returns true only the first time.
+    static boolean firstListDrawn() {
+        if (listDone) return false;
+        listDone = true;
+        long now = SystemClock.uptimeMillis();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) Trace.endAsyncSection(SECTION_FIRST_LIST, COOKIE);
+        if (appStart < 0) return true; // process was started for something else (e.g. a worker)
+
+        StringBuilder sb = new StringBuilder("startup: appOnCreate=").append(appEnd - appStart).append("ms");
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            sb.append(" processToFirstList=").append(now - Process.getStartUptimeMillis()).append("ms");
+        }
+        sb.append(" appToFirstList=").append(now - appStart).append("ms");
+        Log.i(TAG, sb.toString());
+        return true;
+    }
+}
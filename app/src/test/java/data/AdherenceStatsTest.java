@@ -0,0 +1,53 @@
+package data;
+
+import org.junit.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the month arithmetic behind the adherence counters (checked against java.time).
+ */
+public class AdherenceStatsTest {
+
+    private static int yyyymm(LocalDate d) {
+        return d.getYear() * 100 + d.getMonthValue();
+    }
+
+    @Test
+    public void month_matchesJavaTime_acrossTheCalendar() {
+        long from = LocalDate.of(1969, 12, 1).toEpochDay();
+        long to = LocalDate.of(2200, 1, 31).toEpochDay();
+        for (long day = from; day <= to; day++) {
+            assertEquals(yyyymm(LocalDate.ofEpochDay(day)), AdherenceStats.month(day));
+        }
+    }
+
+    @Test
+    public void firstDayAndPlusMonths() {
+        LocalDate first = LocalDate.of(AdherenceStats.FIRST_YEAR, 1, 1);
+        for (int i = 0; i < AdherenceStats.CALENDAR_MONTHS; i++) {
+            LocalDate d = first.plusMonths(i);
+            int month = yyyymm(d);
+            assertEquals(d.toEpochDay(), AdherenceStats.firstDay(month));
+            assertEquals(yyyymm(d.plusMonths(1)), AdherenceStats.plusMonths(month, 1));
+            assertEquals(yyyymm(d.minusMonths(13)), AdherenceStats.plusMonths(month, -13));
+        }
+        assertEquals(202402, AdherenceStats.plusMonths(202312, 2));
+        assertEquals(196912, AdherenceStats.plusMonths(197001, -1));
+    }
+
+    @Test
+    public void dueRange_stopsAtTheCourseAndAtToday() {
+        long today = 20_000;
+        // Course [19_990, 20_030]; a range running past today only counts up to today
+        assertArrayEquals(new long[]{19_995, today}, AdherenceStats.dueRange(19_995, 20_020, 19_990, 20_030, today));
+        assertArrayEquals(new long[]{19_990, 19_998}, AdherenceStats.dueRange(19_980, 19_998, 19_990, 20_030, today));
+        assertArrayEquals(new long[]{today, today}, AdherenceStats.dueRange(today, 20_010, 19_990, 20_030, today));
+        // Entirely in the future, or outside the course: nothing was due
+        assertNull(AdherenceStats.dueRange(today + 1, 20_020, 19_990, 20_030, today));
+        assertNull(AdherenceStats.dueRange(19_995, 20_020, today + 5, 20_030, today));
+        assertNull(AdherenceStats.dueRange(19_980, 19_985, 19_990, 20_030, today));
+    }
+}
@@ -0,0 +1,129 @@
+package data;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the shared DB executors (no Android classes touched).
+ */
+public class AppExecutorsTest {
+
+    private AppExecutors executors;
+
+    @Before
+    public void setUp() {
+        executors = new AppExecutors(2);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        executors.shutdown();
+        executors.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void writes_runInSubmitOrder_underBurst() throws InterruptedException {
+        final int n = 10_000;
+        List<Integer> seen = Collections.synchronizedList(new ArrayList<>(n));
+
+        // Submit from several threads at once, each with its own ordered sequence
+        int producers = 4;
+        CountDownLatch go = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            final int base = p * n;
+            Thread t = new Thread(() -> {
+                try { go.await(); } catch (InterruptedException ignored) { return; }
+                for (int i = 0; i < n; i++) {
+                    final int v = base + i;
+                    executors.diskWrite().execute(() -> seen.add(v));
+                }
+            });
+            threads.add(t);
+            t.start();
+        }
+        go.countDown();
+        for (Thread t : threads) t.join();
+
+        executors.shutdown();
+        assertTrue(executors.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(producers * n, seen.size());
+
+        // Per producer, values must come out exactly in the order they were submitted
+        int[] last = new int[producers];
+        for (int p = 0; p < producers; p++) last[p] = p * n - 1;
+        for (int v : seen) {
+            int p = v / n;
+            assertEquals("write reordered", last[p] + 1, v);
+            last[p] = v;
+        }
+    }
+
+    @Test
+    public void writes_neverOverlap() throws InterruptedException {
+        final int[] running = {0};
+        final boolean[] overlapped = {false};
+        for (int i = 0; i < 1_000; i++) {
+            executors.diskWrite().execute(() -> {
+                synchronized (running) {
+                    if (++running[0] > 1) overlapped[0] = true;
+                }
+                synchronized (running) { running[0]--; }
+            });
+        }
+        executors.shutdown();
+        assertTrue(executors.awaitTermination(10, TimeUnit.SECONDS));
+        assertFalse(overlapped[0]);
+    }
+
+    @Test
+    public void counters_trackSubmittedCompletedAndFailed() throws InterruptedException {
+        for (int i = 0; i < 100; i++) executors.diskRead().execute(() -> { });
+        executors.diskRead().execute(() -> { throw new IllegalStateException("boom"); });
+
+        executors.shutdown();
+        assertTrue(executors.awaitTermination(10, TimeUnit.SECONDS));
+
+        AppExecutors.Lane read = executors.diskRead();
+        assertEquals(101, read.submitted());
+        assertEquals(101, read.completed());
+        assertEquals(1, read.failed());
+        assertEquals(0, read.queueDepth());
+    }
+
+    @Test
+    public void queueDepth_reportsPendingWrites() throws InterruptedException {
+        CountDownLatch block = new CountDownLatch(1);
+        executors.diskWrite().execute(() -> {
+            try { block.await(); } catch (InterruptedException ignored) { }
+        });
+        for (int i = 0; i < 50; i++) executors.diskWrite().execute(() -> { });
+
+        // First task holds the single writer; the rest wait in the queue
+        long deadline = System.currentTimeMillis() + 2_000;
+        while (executors.diskWrite().queueDepth() != 50 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(50, executors.diskWrite().queueDepth());
+
+        block.countDown();
+        executors.shutdown();
+        assertTrue(executors.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(0, executors.diskWrite().queueDepth());
+    }
+
+    @Test(expected = java.util.concurrent.RejectedExecutionException.class)
+    public void shutdown_rejectsNewWork() {
+        executors.shutdown();
+        executors.diskWrite().execute(() -> { });
+    }
+}
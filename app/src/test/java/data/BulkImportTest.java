@@ -0,0 +1,191 @@
+package data;
+
+import org.junit.Test;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the CSV/JSON bulk import: validation, de-duplication, chunking and the
+ * per-row report.
+ */
+public class BulkImportTest {
+
+    private static final long TODAY = LocalDate.of(2025, 3, 10).toEpochDay();
+
+    private static final List<TimeTerm> TERMS = Arrays.asList(
+            new TimeTerm(1, "before-breakfast", 1, 450),
+            new TimeTerm(2, "at-breakfast", 2, 480),
+            new TimeTerm(3, "after-breakfast", 3, 510));
+
+    // Records every chunk it is given
+    private static final class ListSink implements BulkImport.Sink {
+        final List<List<PrescriptionDrug>> chunks = new ArrayList<>();
+        final List<PrescriptionDrug> rows = new ArrayList<>();
+
+        @Override public void insert(List<PrescriptionDrug> chunk) {
+            chunks.add(new ArrayList<>(chunk));
+            rows.addAll(chunk);
+        }
+    }
+
+    @Test
+    public void csv_validatesDedupsAndChunks() {
+        BulkImport imp = new BulkImport(TERMS, TODAY);
+        imp.chunkRows = 2;
+        imp.addExisting("Existing", "", 20000, 20010, 1, "", "");
+
+        String csv = "\uFEFFName,Start,End,Time Term,Doctor,uid\r\n" +
+                "Amoxil,2025-03-01,2025-03-20,at-breakfast,Dr. A,7\r\n" +
+                ",2025-03-01,2025-03-20,at-breakfast,,\r\n" +            // 2: no name
+                "Bad dates,2025-03-20,2025-03-01,at-breakfast,,\r\n" +   // 3: end < start
+                "\r\n" +                                                 // blank: not a row
+                "No term,2025-03-01,2025-03-20,at-noon,,\r\n" +         // 4: unknown term
+                "\"Depon, 500mg\",20000,20010,AFTER-BREAKFAST,\"Dr. \"\"B\"\"\nAthens\",\n" +
+                "  Amoxil ,2025-03-01,2025-03-20,at-breakfast, Dr. A ,9\r\n" + // 6: same content as 1
+                "Existing,20000,20010,before-breakfast,,\r\n" +          // 7: already in the table
+                "Feb,2025-02-30,2025-03-01,at-breakfast,,\r\n" +         // 8: no such date
+                "Later,2025-04-01,2025-04-30,before-breakfast,,";        // no line break at the end
+
+        ListSink sink = new ListSink();
+        List<int[]> progress = new ArrayList<>();
+        BulkImport.Report r = imp.run(new StringReader(csv), sink, (read, ins) -> progress.add(new int[]{read, ins}));
+
+        assertNull(r.aborted);
+        assertEquals(9, r.rows);
+        assertEquals(3, r.inserted);
+        assertEquals(2, r.duplicates);
+        assertEquals(4, r.invalid);
+        assertEquals("[Row 2: shortName is required, Row 3: end date is before start date, " +
+                "Row 4: unknown time term 'at-noon', Row 8: bad start date '2025-02-30' (use yyyy-MM-dd)]",
+                r.errors.toString());
+
+        assertEquals(2, sink.chunks.size());
+        assertEquals(2, sink.chunks.get(0).size());
+        PrescriptionDrug a = sink.rows.get(0);
+        assertEquals("Amoxil", a.shortName);
+        assertEquals(LocalDate.of(2025, 3, 1).toEpochDay(), a.startDateEpoch);
+        assertEquals(2, a.timeTermId);
+        assertEquals("Dr. A", a.doctorName);
+        assertEquals("", a.description);
+        assertTrue(a.isActive);
+        assertFalse(a.hasReceivedToday);
+        assertEquals(0, a.uid); // the table assigns uids, the CSV column is ignored
+
+        PrescriptionDrug d = sink.rows.get(1);
+        assertEquals("Depon, 500mg", d.shortName);
+        assertEquals("Dr. \"B\"\nAthens", d.doctorName);
+        assertEquals(3, d.timeTermId);
+        assertFalse(d.isActive);
+        assertEquals("Later", sink.rows.get(2).shortName);
+
+        // After each chunk, then once at the end
+        assertEquals(2, progress.size());
+        assertArrayEquals(new int[]{9, 3}, progress.get(1));
+    }
+
+    @Test
+    public void json_archiveRowsReadBack() {
+        BulkImport imp = new BulkImport(TERMS, TODAY);
+        String json = " [\n" +
+                "{\"uid\":1,\"shortName\":\"Say \\\"hi\\\" \\u00fc\",\"description\":null,\"startDateEpoch\":20150," +
+                "\"endDateEpoch\":20170,\"timeTermId\":3,\"isActive\":true,\"lastDateReceivedEpoch\":null,\"seq\":4},\n" +
+                "{\"shortName\":\"x\",\"startDateEpoch\":20150,\"endDateEpoch\":20170,\"timeTermId\":99},\n" +
+                "{}\n]\n";
+        ListSink sink = new ListSink();
+        BulkImport.Report r = imp.run(new StringReader(json), sink, null);
+
+        assertNull(r.aborted);
+        assertEquals(3, r.rows);
+        assertEquals(1, r.inserted);
+        assertEquals("[Row 2: unknown time term id '99', Row 3: shortName is required]", r.errors.toString());
+        PrescriptionDrug d = sink.rows.get(0);
+        assertEquals("Say \"hi\" ü", d.shortName);
+        assertEquals("", d.description);
+        assertEquals(3, d.timeTermId);
+        assertEquals(20170, d.endDateEpoch);
+    }
+
+    @Test
+    public void malformedInput_stopsButKeepsEarlierRows() {
+        BulkImport imp = new BulkImport(TERMS, TODAY);
+        String json = "[{\"name\":\"A\",\"start\":\"2025-03-01\",\"end\":\"2025-03-02\",\"term\":\"at-breakfast\"}," +
+                "{\"name\":\"B\",\"start\":[1]}]";
+        ListSink sink = new ListSink();
+        BulkImport.Report r = imp.run(new StringReader(json), sink, null);
+        assertEquals(1, r.inserted);
+        assertEquals("row 2: nested values are not supported", r.aborted);
+
+        BulkImport.Report csv = new BulkImport(TERMS, TODAY)
+                .run(new StringReader("description,start\nx,1\n"), new ListSink(), null);
+        assertEquals("row 1: no shortName column in the CSV header", csv.aborted);
+        assertEquals(0, csv.inserted);
+    }
+
+    @Test
+    public void writeFailure_stopsTheImport() {
+        BulkImport imp = new BulkImport(TERMS, TODAY);
+        imp.chunkRows = 1;
+        StringBuilder csv = new StringBuilder("name,start,end,term\n");
+        for (int i = 0; i < 5; i++) csv.append("D").append(i).append(",1,2,at-breakfast\n");
+        int[] calls = {0};
+        BulkImport.Report r = imp.run(new StringReader(csv.toString()), chunk -> {
+            if (++calls[0] == 3) throw new java.io.IOException("disk full");
+        }, null);
+        assertEquals(2, r.inserted);
+        assertEquals(3, calls[0]);
+        assertEquals("write failed: disk full", r.aborted);
+    }
+
+    @Test
+    public void epochDay_matchesJavaTime() {
+        for (LocalDate d = LocalDate.of(1899, 12, 1); d.getYear() < 2101; d = d.plusDays(13)) {
+            assertEquals(d.toString(), d.toEpochDay(), BulkImport.day(d.toString(), "start"));
+        }
+        assertEquals(LocalDate.of(2024, 2, 29).toEpochDay(), BulkImport.day("2024-02-29", "start"));
+        try {
+            BulkImport.day("2023-02-29", "end");
+            fail();
+        } catch (IllegalArgumentException expected) {
+            assertEquals("bad end date '2023-02-29' (use yyyy-MM-dd)", expected.getMessage());
+        }
+    }
+
+    @Test
+    public void manyRows_streamed() {
+        final int n = 100_000;
+        // Generated on the fly: the whole file is never in memory
+        Reader csv = new Reader() {
+            private final StringBuilder line = new StringBuilder("name,start,end,term\n");
+            private int next, pos;
+
+            @Override public int read(char[] buf, int off, int len) {
+                if (pos == line.length()) {
+                    if (next == n) return -1;
+                    next++;
+                    line.setLength(0);
+                    line.append("Drug ").append(next % (n / 2)).append(",20000,20010,at-breakfast\n");
+                    pos = 0;
+                }
+                int k = Math.min(len, line.length() - pos);
+                line.getChars(pos, pos + k, buf, off);
+                pos += k;
+                return k;
+            }
+
+            @Override public void close() { }
+        };
+        int[] chunks = {0};
+        BulkImport.Report r = new BulkImport(TERMS, TODAY).run(csv, chunk -> chunks[0]++, null);
+        assertEquals(n, r.rows);
+        assertEquals(n / 2, r.inserted);
+        assertEquals(n / 2, r.duplicates);
+        assertEquals(n / 2 / BulkImport.CHUNK_ROWS, chunks[0]);
+    }
+}
@@ -0,0 +1,113 @@
+package data;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the coalescing change bus.
+ */
+public class ChangeBusTest {
+
+    private ChangeBus bus;
+    private final List<Set<String>> deliveries = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        bus = new ChangeBus(Executors.newSingleThreadScheduledExecutor());
+        bus.setWindowMs(50);
+        bus.addSink(tables -> {
+            synchronized (deliveries) {
+                deliveries.add(new HashSet<>(tables));
+                deliveries.notifyAll();
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        bus.shutdown();
+    }
+
+    @Test
+    public void burst_isDeliveredOnce() throws Exception {
+        for (int i = 0; i < 500; i++) bus.publish(ChangeBus.EXTERNAL, "prescription_drugs");
+        bus.publish(ChangeBus.ROOM, "time_terms");
+
+        awaitDeliveries(1);
+        assertEquals(1, deliveries.size());
+        assertEquals(new HashSet<>(Arrays.asList("prescription_drugs", "time_terms")), deliveries.get(0));
+        assertEquals(501, bus.published());
+        assertEquals(1, bus.delivered());
+        assertEquals(500, bus.suppressed());
+    }
+
+    @Test
+    public void externalWrites_refreshRoom_roomEchoIsFolded() throws Exception {
+        AtomicInteger refreshes = new AtomicInteger();
+        // Room's tracker answers a refresh with its own invalidation, inside the open window
+        bus.setRoomRefresher(() -> {
+            refreshes.incrementAndGet();
+            bus.publish(ChangeBus.ROOM, "prescription_drugs");
+        });
+
+        bus.publish(ChangeBus.EXTERNAL, "prescription_drugs");
+        awaitDeliveries(1);
+
+        assertEquals(1, refreshes.get());
+        assertEquals(1, bus.roomRefreshes());
+        assertEquals(1, bus.delivered());
+        assertEquals(1, bus.suppressed());
+    }
+
+    @Test
+    public void separateWindows_areDeliveredSeparately() throws Exception {
+        bus.publish(ChangeBus.ROOM, "prescription_drugs");
+        awaitDeliveries(1);
+        bus.publish(ChangeBus.ROOM, "dose_intakes");
+        awaitDeliveries(2);
+
+        assertEquals(2, bus.delivered());
+        assertEquals(0, bus.suppressed());
+        assertEquals(0, bus.roomRefreshes()); // Room-origin changes never loop back into Room
+        assertEquals(new HashSet<>(Arrays.asList("dose_intakes")), deliveries.get(1));
+    }
+
+    @Test
+    public void failingSink_isCounted_othersStillDelivered() throws Exception {
+        bus.addSink(tables -> { throw new IllegalStateException("boom"); });
+        List<Set<String>> late = new CopyOnWriteArrayList<>();
+        bus.addSink(late::add); // after the failing one
+
+        bus.publish(ChangeBus.ROOM, "prescription_drugs");
+        awaitDeliveries(1);
+        bus.publish(ChangeBus.ROOM, "dose_intakes");
+        awaitDeliveries(2); // the timer keeps delivering after a failure
+
+        assertEquals(2, bus.sinkFailures());
+        assertEquals(2, late.size());
+    }
+
+    private void awaitDeliveries(int n) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        synchronized (deliveries) {
+            while (deliveries.size() < n) {
+                long left = deadline - System.currentTimeMillis();
+                if (left <= 0) fail("expected " + n + " deliveries, got " + deliveries.size());
+                deliveries.wait(left);
+            }
+        }
+        Thread.sleep(100); // nothing else may follow
+    }
+}
@@ -0,0 +1,119 @@
+package data;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the drug-name dictionary: ranking, case and blank handling on a small list,
+ * and every prefix of a generated list (many blocks) against a brute-force scan.
+ */
+public class DrugNameIndexTest {
+
+    private static DrugNameIndex mapped(DrugNameIndexWriter w) throws IOException {
+        File f = File.createTempFile("drug_names", ".idx");
+        f.deleteOnExit();
+        Files.write(f.toPath(), w.toBytes());
+        try (FileChannel ch = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+            return DrugNameIndex.map(ch, 0, ch.size());
+        }
+    }
+
+    private static DrugNameIndex of(String csv) throws IOException {
+        DrugNameIndexWriter w = new DrugNameIndexWriter();
+        w.readNames(new StringReader(csv));
+        return mapped(w);
+    }
+
+    @Test
+    public void complete_mostCommonFirst_caseAndBlanksIgnored() throws IOException {
+        DrugNameIndex index = of("# comment\n" +
+                "Amoxicillin,90\nAmoxil,40\nAmlodipine,80\nAmiodarone\nAspirin,100\n" +
+                "Co-Amoxiclav,50\nIsosorbide  Mononitrate,10\nIsosorbide Dinitrate,20\nIsoniazid\n" +
+                "amoxil,60\n"); // same name in other case: one entry, highest weight
+        assertEquals(9, index.count());
+        assertEquals(Arrays.asList("Aspirin", "Amoxicillin", "Amlodipine", "Amoxil", "Amiodarone"),
+                index.complete("a", 10));
+        assertEquals(Arrays.asList("Amoxicillin", "Amoxil"), index.complete("AMOX", 10));
+        assertEquals(Collections.singletonList("Amoxicillin"), index.complete("amox", 1));
+        assertEquals(Collections.singletonList("Co-Amoxiclav"), index.complete("co-", 10));
+        assertEquals(Arrays.asList("Isosorbide Dinitrate", "Isosorbide Mononitrate"),
+                index.complete("  isosorbide ", 10));
+        assertEquals(Collections.singletonList("Isosorbide Mononitrate"), index.complete("isosorbide   m", 10));
+        assertEquals(Arrays.asList("Isosorbide Dinitrate", "Isosorbide Mononitrate", "Isoniazid"),
+                index.complete("iso", 10)); // equal weight: shorter first
+        assertTrue(index.complete("amoxicillins", 10).isEmpty());
+        assertTrue(index.complete("zz", 10).isEmpty());
+        assertTrue(index.complete("Ωμέγα", 10).isEmpty());
+        assertTrue(index.complete(" ", 10).isEmpty());
+    }
+
+    @Test
+    public void complete_matchesBruteForce_acrossBlocks() throws IOException {
+        LoadGenerator gen = new LoadGenerator(20000, 1);
+        gen.nameLength = 6;
+        DrugNameIndexWriter w = new DrugNameIndexWriter();
+        for (int i = 0; i < 3000; i++) w.add(gen.drug(i).shortName, (i * 7919) % 500);
+        DrugNameIndex index = mapped(w);
+
+        // Expected: the same dedupe and ranking, by scanning everything
+        List<String> all = new ArrayList<>();
+        for (int i = 0; i < index.count(); i++) all.add(index.name(i));
+        int[] weight = new int[all.size()];
+        for (int i = 0; i < 3000; i++) {
+            int p = Collections.binarySearch(all, gen.drug(i).shortName, String.CASE_INSENSITIVE_ORDER);
+            weight[p] = Math.max(weight[p], (i * 7919) % 500);
+        }
+        for (int i = 0; i < all.size(); i++) {
+            String name = all.get(i).toLowerCase(Locale.ROOT);
+            for (int len = 1; len <= Math.min(4, name.length()); len++) {
+                String prefix = name.substring(0, len);
+                List<Integer> matches = new ArrayList<>();
+                for (int j = 0; j < all.size(); j++) {
+                    if (all.get(j).toLowerCase(Locale.ROOT).startsWith(prefix)) matches.add(j);
+                }
+                Collections.sort(matches, (a, b) -> weight[a] != weight[b] ? weight[b] - weight[a]
+                        : all.get(a).length() != all.get(b).length() ? all.get(a).length() - all.get(b).length()
+                        : all.get(a).compareToIgnoreCase(all.get(b)));
+                List<String> expected = new ArrayList<>();
+                for (int j = 0; j < Math.min(8, matches.size()); j++) expected.add(all.get(matches.get(j)));
+                assertEquals(prefix, expected, index.complete(prefix, 8));
+            }
+        }
+    }
+
+    @Test
+    public void writer_rejectsBadData() throws IOException {
+        char[] tooLong = new char[DrugNameIndex.MAX_LENGTH + 1];
+        Arrays.fill(tooLong, 'a');
+        String[] bad = {"Aspirin,often\n", "Aspirin,-1\n", "Ωμέγα 3\n", new String(tooLong) + "\n", ",5\n"};
+        for (String b : bad) {
+            try {
+                new DrugNameIndexWriter().readNames(new StringReader(b));
+                fail(b);
+            } catch (IOException expected) {
+                // rejected at build time, never shipped
+            }
+        }
+        try {
+            new DrugNameIndex(ByteBuffer.allocate(64));
+            fail();
+        } catch (IOException expected) {
+            assertEquals("Not a drug-name index", expected.getMessage());
+        }
+        assertTrue(mapped(new DrugNameIndexWriter()).complete("a", 8).isEmpty());
+    }
+}
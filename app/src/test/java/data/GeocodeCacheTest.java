@@ -0,0 +1,160 @@
+package data;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the geocode cache tiers (memory LRU, table, geocoder) with fakes for
+ * the platform geocoder and the geocode_cache table.
+ */
+public class GeocodeCacheTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    // Counts lookups; "nowhere" has no match, "offline" throws
+    private static final class FakeGeocoder implements GeocodeCache.Geocoder {
+        final List<String> calls = new ArrayList<>();
+
+        @Override public double[] lookup(String location) throws IOException {
+            calls.add(location);
+            if (location.contains("offline")) throw new IOException("no backend");
+            if (location.contains("nowhere")) return null;
+            return new double[]{37.97, 23.73};
+        }
+    }
+
+    private static final class FakeStore implements GeocodeCache.Store {
+        final Map<String, GeocodeEntry> rows = new HashMap<>();
+        int reads;
+        int largestBatch;
+
+        @Override public GeocodeEntry get(String key) { reads++; return rows.get(key); }
+        @Override public List<GeocodeEntry> getAll(List<String> keys) {
+            reads++;
+            largestBatch = Math.max(largestBatch, keys.size());
+            List<GeocodeEntry> out = new ArrayList<>();
+            for (String k : keys) if (rows.containsKey(k)) out.add(rows.get(k));
+            return out;
+        }
+        @Override public void put(GeocodeEntry e) { rows.put(e.key, e); }
+    }
+
+    @Test
+    public void repeatLookup_isServedFromMemory() {
+        FakeGeocoder g = new FakeGeocoder();
+        FakeStore s = new FakeStore();
+        GeocodeCache c = new GeocodeCache(g, s);
+
+        assertNull(c.peek("Ermou 1, Athens", NOW));
+        GeocodeEntry e = c.resolve("Ermou 1, Athens", NOW);
+        assertTrue(e.found);
+        assertEquals(1, g.calls.size());
+        assertTrue(s.rows.containsKey("ermou 1, athens"));
+
+        // Same place typed differently: memory hit, no table read, no geocoder call
+        int reads = s.reads;
+        assertSame(e, c.peek("  ERMOU 1 ,Athens ", NOW + 1000));
+        assertSame(e, c.resolve("ermou  1, athens", NOW + 1000));
+        assertEquals(reads, s.reads);
+        assertEquals(1, g.calls.size());
+    }
+
+    @Test
+    public void tableHit_andExpiry() {
+        FakeGeocoder g = new FakeGeocoder();
+        FakeStore s = new FakeStore();
+        s.rows.put("ermou 1", new GeocodeEntry("ermou 1", 1, 2, true, NOW));
+
+        GeocodeCache c = new GeocodeCache(g, s);
+        assertEquals(1.0, c.resolve("Ermou 1", NOW + 1000).lat, 0);
+        assertEquals(0, g.calls.size());
+
+        // Past the TTL the geocoder is asked again and the row is refreshed
+        long later = NOW + GeocodeCache.FOUND_TTL_MS + 1;
+        assertNull(c.peek("Ermou 1", later));
+        assertEquals(37.97, c.resolve("Ermou 1", later).lat, 0);
+        assertEquals(1, g.calls.size());
+        assertEquals(later, s.rows.get("ermou 1").resolvedAt);
+    }
+
+    @Test
+    public void negativeResults_areCached_errorsOnlyInMemory() {
+        FakeGeocoder g = new FakeGeocoder();
+        FakeStore s = new FakeStore();
+        GeocodeCache c = new GeocodeCache(g, s);
+
+        assertFalse(c.resolve("nowhere street", NOW).found);
+        assertFalse(c.resolve("nowhere street", NOW + 1).found);
+        assertEquals(1, g.calls.size());
+        assertFalse(s.rows.get("nowhere street").found);
+
+        GeocodeEntry err = c.resolve("offline place", NOW);
+        assertTrue(err.failed);
+        assertFalse(s.rows.containsKey("offline place")); // a new process retries
+        assertNotNull(c.peek("offline place", NOW + 1000)); // this one doesn't, for a while
+        assertNull(c.peek("offline place", NOW + GeocodeCache.ERROR_TTL_MS));
+        assertEquals(1, c.stats()[3]);
+    }
+
+    @Test
+    public void prefetch_dedupsAndUsesOneTableRead() {
+        FakeGeocoder g = new FakeGeocoder();
+        FakeStore s = new FakeStore();
+        s.rows.put("a 1", new GeocodeEntry("a 1", 1, 1, true, NOW));
+        GeocodeCache c = new GeocodeCache(g, s);
+
+        int calls = c.prefetch(Arrays.asList("A 1", "b 2", "B  2", "", "c 3"), NOW);
+        assertEquals(2, calls); // b 2 and c 3
+        assertEquals(1, s.reads);
+        assertNotNull(c.peek("a 1", NOW));
+        assertNotNull(c.peek("b 2", NOW));
+
+        // Everything is warm now
+        assertEquals(0, c.prefetch(Arrays.asList("a 1", "b 2", "c 3"), NOW + 1));
+        assertEquals(1, s.reads);
+    }
+
+    @Test
+    public void prefetch_readsTheTableInBindSizedChunks() {
+        FakeStore s = new FakeStore();
+        List<String> locations = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            String key = "street " + i;
+            s.rows.put(key, new GeocodeEntry(key, 1, 1, true, NOW));
+            locations.add(key);
+        }
+        GeocodeCache c = new GeocodeCache(new FakeGeocoder(), s);
+
+        assertEquals(0, c.prefetch(locations, NOW)); // every key found in the table
+        assertEquals(3, s.reads);
+        assertEquals(GeocodeCache.MAX_BIND_ARGS, s.largestBatch);
+    }
+
+    @Test
+    public void prefetch_stopsAtFirstError() {
+        FakeGeocoder g = new FakeGeocoder();
+        GeocodeCache c = new GeocodeCache(g, new FakeStore());
+        assertEquals(1, c.prefetch(Arrays.asList("offline 1", "offline 2", "x 3"), NOW));
+        assertEquals(1, g.calls.size());
+    }
+
+    @Test
+    public void memoryIsBounded_evictedEntriesComeBackFromTheTable() {
+        FakeGeocoder g = new FakeGeocoder();
+        FakeStore s = new FakeStore();
+        GeocodeCache c = new GeocodeCache(g, s);
+        for (int i = 0; i <= GeocodeCache.MEMORY_ENTRIES; i++) c.resolve("street " + i, NOW);
+        assertNull(c.peek("street 0", NOW)); // least recently used went first
+        c.resolve("street 0", NOW);
+        assertEquals(GeocodeCache.MEMORY_ENTRIES + 1, g.calls.size()); // table hit, not a new lookup
+        assertEquals(1, c.stats()[1]);
+    }
+}
@@ -0,0 +1,129 @@
+package data;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the interaction index: the writer on a small fixture dataset
+ * (test resources), read back through a memory-mapped file like the bundled asset.
+ */
+public class InteractionIndexTest {
+
+    private static InteractionIndex index;
+
+    private static Reader resource(String name) {
+        return new InputStreamReader(InteractionIndexTest.class.getResourceAsStream("/interactions/" + name),
+                StandardCharsets.UTF_8);
+    }
+
+    @BeforeClass
+    public static void compileFixture() throws IOException {
+        InteractionIndexWriter w = new InteractionIndexWriter();
+        try (Reader names = resource("names.csv"); Reader pairs = resource("interactions.csv")) {
+            w.readNames(names);
+            w.readInteractions(pairs);
+        }
+        File f = File.createTempFile("interactions", ".idx");
+        f.deleteOnExit();
+        Files.write(f.toPath(), w.toBytes());
+        try (FileChannel ch = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+            index = InteractionIndex.map(ch, 0, ch.size());
+        }
+    }
+
+    private String[] ingredients(String drugName) {
+        int[] ids = index.ingredientsOf(drugName);
+        String[] out = new String[ids.length];
+        for (int i = 0; i < ids.length; i++) out[i] = index.ingredientName(ids[i]);
+        return out;
+    }
+
+    @Test
+    public void namesBrandsCombinationsAndMultiWordNames() {
+        assertArrayEquals(new String[]{"warfarin"}, ingredients("Warfarin 5mg"));
+        assertArrayEquals(new String[]{"warfarin"}, ingredients("COUMADIN"));
+        assertArrayEquals(new String[]{"ibuprofen", "nsaid"}, ingredients("Nurofen 200 (ibuprofen)"));
+        assertArrayEquals(new String[]{"trimethoprim", "sulfamethoxazole"}, ingredients("Co-Trimoxazole 960"));
+        assertArrayEquals(new String[]{"isosorbide mononitrate", "nitrate"}, ingredients("isosorbide  mononitrate 20"));
+        assertArrayEquals(new String[]{"nitrate"}, ingredients("nitrate")); // classes are names too
+        assertArrayEquals(new String[0], ingredients("Isosorbide"));       // half a two-word name
+        assertArrayEquals(new String[0], ingredients("Vitamin D3 / Ωμέγα 3"));
+        assertArrayEquals(new String[0], ingredients(""));
+    }
+
+    @Test
+    public void pairs_eitherOrder() {
+        int warfarin = index.ingredientsOf("warfarin")[0];
+        int aspirin = index.ingredientsOf("aspirin")[0];
+        int paracetamol = index.ingredientsOf("paracetamol")[0];
+        assertEquals(InteractionIndex.MAJOR, index.severity(warfarin, aspirin));
+        assertEquals(InteractionIndex.MAJOR, index.severity(aspirin, warfarin));
+        assertEquals("Increased bleeding risk", index.note(aspirin, warfarin));
+        assertEquals(0, index.severity(warfarin, paracetamol));
+        assertNull(index.note(warfarin, paracetamol));
+        assertEquals(6, index.pairCount());
+    }
+
+    @Test
+    public void check_againstActiveDrugs_mostSeriousFirst() {
+        List<String> active = Arrays.asList("Paracetamol 500", "Naproxen 250", "Aspirin 100", "Bactrim");
+        List<InteractionIndex.Hit> hits = index.check("Nurofen 400", active);
+        assertEquals(2, hits.size());
+        assertEquals(1, hits.get(0).other);                       // naproxen: nsaid + nsaid
+        assertEquals(InteractionIndex.MODERATE, hits.get(0).severity);
+        assertEquals("nsaid", hits.get(0).ingredient);
+        assertEquals(2, hits.get(1).other);                       // aspirin
+        assertEquals(InteractionIndex.MINOR, hits.get(1).severity);
+
+        hits = index.check("Warfarin", active);
+        assertEquals(2, hits.size());
+        assertEquals("nsaid", hits.get(0).otherIngredient);
+        assertEquals("Bleeding, and stomach irritation", hits.get(0).note); // notes keep their commas
+        assertEquals("aspirin", hits.get(1).otherIngredient);
+
+        assertTrue(index.check("Paracetamol", active).isEmpty());
+        assertTrue(index.check("Unknown drug", active).isEmpty());
+    }
+
+    @Test
+    public void writer_rejectsBadData() throws IOException {
+        String[][] bad = {
+                {"warfarin\n", "warfarin,aspirin,severe,x\n"},                  // unknown severity
+                {"warfarin\n", "warfarin,aspirin,major\naspirin,warfarin,minor\n"}, // duplicate pair
+                {"ωμέγα\n", ""},                                                  // not ASCII
+                {"one two three four\n", ""},                                     // too many words
+        };
+        for (String[] b : bad) {
+            try {
+                InteractionIndexWriter w = new InteractionIndexWriter();
+                w.readNames(new StringReader(b[0]));
+                w.readInteractions(new StringReader(b[1]));
+                w.toBytes();
+                fail(b[0] + b[1]);
+            } catch (IOException expected) {
+                // rejected at build time, never shipped
+            }
+        }
+        try {
+            new InteractionIndex(ByteBuffer.allocate(64));
+            fail();
+        } catch (IOException expected) {
+            assertEquals("Not an interaction index", expected.getMessage());
+        }
+    }
+}
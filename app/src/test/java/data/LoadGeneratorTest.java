@@ -0,0 +1,97 @@
+package data;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the synthetic load generator: determinism, chunking and the knobs.
+ */
+public class LoadGeneratorTest {
+
+    private static final long TODAY = 20_000;
+
+    private static List<PrescriptionDrug> all(LoadGenerator g, int from, int to, int chunk) throws Exception {
+        List<PrescriptionDrug> out = new ArrayList<>();
+        g.generate(from, to, chunk, out::addAll);
+        return out;
+    }
+
+    private static String key(PrescriptionDrug d) {
+        return d.shortName + "|" + d.description + "|" + d.startDateEpoch + "|" + d.endDateEpoch + "|" +
+                d.timeTermId + "|" + d.doctorName + "|" + d.doctorLocation + "|" + d.isActive + "|" +
+                d.hasReceivedToday + "|" + d.lastDateReceivedEpoch;
+    }
+
+    @Test
+    public void sameSeed_sameRows_inAnyRangeOrChunking() throws Exception {
+        List<PrescriptionDrug> whole = all(new LoadGenerator(TODAY, 1, 2, 3), 0, 1000, 64);
+        List<PrescriptionDrug> parts = all(new LoadGenerator(TODAY, 1, 2, 3), 0, 400, 1000);
+        parts.addAll(all(new LoadGenerator(TODAY, 1, 2, 3), 400, 1000, 7));
+        assertEquals(1000, whole.size());
+        for (int i = 0; i < whole.size(); i++) assertEquals(key(whole.get(i)), key(parts.get(i)));
+
+        LoadGenerator other = new LoadGenerator(TODAY, 1, 2, 3);
+        other.seed = 43;
+        assertNotEquals(key(whole.get(0)), key(other.drug(0)));
+    }
+
+    @Test
+    public void ratiosTermsAndLengths() {
+        LoadGenerator g = new LoadGenerator(TODAY, 4, 7, 9);
+        g.activeRatio = 0.25;
+        g.futureRatio = 0;
+        g.receivedRatio = 1;
+        g.termWeights(new int[]{3, 1, 0});
+        g.nameLength = 20;
+        g.descriptionLength = 0;
+
+        int n = 20_000, active = 0, term4 = 0, nameChars = 0;
+        for (int i = 0; i < n; i++) {
+            PrescriptionDrug d = g.drug(i);
+            assertEquals(d.isActiveOn(TODAY), d.isActive);
+            assertTrue(d.startDateEpoch <= d.endDateEpoch);
+            assertEquals("", d.description);
+            assertNotEquals(9, d.timeTermId);
+            if (d.isActive) {
+                active++;
+                assertTrue(d.hasReceivedToday);
+                assertEquals(Long.valueOf(TODAY), d.lastDateReceivedEpoch);
+            } else {
+                assertTrue("no future rows", d.endDateEpoch < TODAY);
+                assertFalse(d.hasReceivedToday);
+            }
+            if (d.timeTermId == 4) term4++;
+            nameChars += d.shortName.split(" ")[0].length();
+        }
+        assertEquals(0.25, active / (double) n, 0.02);
+        assertEquals(0.75, term4 / (double) n, 0.02);
+        assertEquals(20, nameChars / (double) n, 1.0);
+    }
+
+    @Test
+    public void badKnobs_rejected() {
+        try {
+            new LoadGenerator(TODAY);
+            fail();
+        } catch (IllegalArgumentException expected) {
+            // no terms
+        }
+        LoadGenerator g = new LoadGenerator(TODAY, 1, 2);
+        try {
+            g.termWeights(new int[]{1});
+            fail();
+        } catch (IllegalArgumentException expected) {
+            assertEquals("Need 2 weights, got 1", expected.getMessage());
+        }
+        try {
+            g.termWeights(new int[]{0, 0});
+            fail();
+        } catch (IllegalArgumentException expected) {
+            assertEquals("All term weights are zero", expected.getMessage());
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package data;
+
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the per-statement query metrics: SQL normalization, histograms and the dump.
+ */
+public class QueryMetricsTest {
+
+    @Test
+    public void normalize_sameShapeSameKey() {
+        assertEquals("SELECT * FROM prescription_drugs WHERE uid = ? LIMIT ?",
+                QueryMetrics.normalize("SELECT * FROM prescription_drugs\n   WHERE uid = 42 LIMIT 1"));
+        assertEquals("SELECT * FROM t WHERE uid IN (?...) AND name = ?",
+                QueryMetrics.normalize("SELECT * FROM t WHERE uid IN (?,?, ?) AND name = 'it''s'"));
+        assertEquals(QueryMetrics.normalize("DELETE FROM t WHERE uid IN (?)"),
+                QueryMetrics.normalize("DELETE FROM t WHERE uid IN (?)"));
+        // Digits inside names and ?NNN parameters
+        assertEquals("SELECT t1.x2 FROM `t3` WHERE a = ? AND b > ?",
+                QueryMetrics.normalize("SELECT t1.x2 FROM `t3` WHERE a = ?1 AND b > 1.5e3"));
+    }
+
+    @Test
+    public void disabled_recordsNothing() {
+        QueryMetrics m = new QueryMetrics();
+        long t = m.start();
+        assertEquals(0, t);
+        m.stop("k", t, 10);
+        assertNull(m.stat("k"));
+
+        m.setEnabled(true);
+        t = m.start();
+        assertTrue(t != 0);
+        m.stop("k", t, 10);
+        assertEquals(1, m.stat("k").snapshot()[0]);
+        assertEquals(10, m.stat("k").snapshot()[1]);
+    }
+
+    @Test
+    public void histogram_quantilesAndDump() {
+        QueryMetrics m = new QueryMetrics();
+        for (int i = 0; i < 98; i++) m.record("sql: fast", 3_000, 1);      // 3 us
+        m.record("sql: fast", 2_000_000, 1);                               // 2 ms
+        m.record("sql: fast", 40_000_000, 1);                              // 40 ms
+        m.record("provider: query prescriptions", 5_000_000, 7);
+
+        QueryMetrics.Stat s = m.stat("sql: fast");
+        assertEquals(4_000, s.quantileNanos(0.50));       // bucket [2, 4) us
+        assertEquals(4_000, s.quantileNanos(0.95));
+        assertEquals(2_048_000, s.quantileNanos(0.99));   // bucket [1024, 2048) us
+        assertEquals(40_000_000, s.quantileNanos(1.0));   // capped at the max
+        assertEquals(0, QueryMetrics.bucketOf(999));
+        assertEquals(QueryMetrics.BUCKETS - 1, QueryMetrics.bucketOf(Long.MAX_VALUE));
+
+        StringWriter out = new StringWriter();
+        m.dump(new PrintWriter(out));
+        String[] lines = out.toString().split("\n");
+        assertTrue(lines[0].startsWith("Query metrics: disabled, 2 statements"));
+        assertTrue(lines[1].contains("p95_ms"));
+        assertTrue(lines[2], lines[2].endsWith("  sql: fast"));          // slowest total first
+        String[] cols = lines[2].trim().split("\\s+");
+        assertEquals("100", cols[0]);       // calls
+        assertEquals("100", cols[1]);       // rows
+        assertEquals("42.3", cols[2]);      // total ms
+        assertEquals("40.000", cols[7]);    // max ms
+        assertTrue(lines[3], lines[3].endsWith("  provider: query prescriptions"));
+
+        m.reset();
+        assertNull(m.stat("sql: fast"));
+    }
+
+    @Test
+    public void keyCount_isBounded() {
+        QueryMetrics m = new QueryMetrics();
+        for (int i = 0; i < QueryMetrics.MAX_KEYS + 10; i++) m.record("sql: q" + i, 1000, 0);
+        assertEquals(10, m.stat(QueryMetrics.OVERFLOW_KEY).snapshot()[0]);
+        assertEquals("sql: SELECT * FROM t WHERE a = ?", m.sqlKey("SELECT *  FROM t WHERE a = 5"));
+    }
+}
@@ -0,0 +1,101 @@
+package data;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the reminder queue: one alarm for the head, re-armed only when it moves.
+ */
+public class ReminderQueueTest {
+
+    private static final TimeZone ATHENS = TimeZone.getTimeZone("Europe/Athens");
+
+    // Records every platform call
+    private static final class FakeAlarm implements ReminderQueue.Alarm {
+        final List<Long> armed = new ArrayList<>();
+        int cancelled;
+
+        @Override public void arm(long atMillis) { armed.add(atMillis); }
+        @Override public void cancel() { cancelled++; }
+    }
+
+    @Test
+    public void onlyHeadChangesTouchTheAlarm() {
+        FakeAlarm alarm = new FakeAlarm();
+        ReminderQueue q = new ReminderQueue(alarm);
+
+        assertTrue(q.set(1, 500));
+        assertFalse(q.set(2, 900));  // behind the head
+        assertFalse(q.set(3, 700));
+        assertFalse(q.set(2, 800));  // moved, still behind
+        assertEquals(Arrays.asList(500L), alarm.armed);
+
+        assertTrue(q.set(3, 100));   // new head
+        assertTrue(q.remove(3));     // head removed: back to 500
+        assertFalse(q.remove(2));
+        assertEquals(Arrays.asList(500L, 100L, 500L), alarm.armed);
+
+        assertTrue(q.remove(1));
+        assertEquals(0, q.size());
+        assertEquals(1, alarm.cancelled);
+    }
+
+    @Test
+    public void pollDue_returnsDueKeysInOrderAndArmsTheNext() {
+        FakeAlarm alarm = new FakeAlarm();
+        ReminderQueue q = new ReminderQueue(alarm);
+        Map<Integer, Long> due = new HashMap<>();
+        due.put(7, 300L);
+        due.put(4, 200L);
+        due.put(9, 900L);
+        due.put(5, -1L); // nothing left for this row
+        q.replaceAll(due);
+        assertEquals(3, q.size());
+        assertEquals(200L, q.headAt());
+
+        assertEquals(Arrays.asList(4, 7), q.pollDue(300));
+        assertEquals(900L, q.headAt());
+        assertEquals(Arrays.asList(200L, 900L), alarm.armed);
+        assertTrue(q.pollDue(899).isEmpty());
+    }
+
+    @Test
+    public void manyUpdates_armOncePerHeadChange() {
+        FakeAlarm alarm = new FakeAlarm();
+        ReminderQueue q = new ReminderQueue(alarm);
+        q.set(ReminderQueue.DAY_ROLLOVER, 10);
+        for (int uid = 1; uid <= 10_000; uid++) q.set(uid, 1_000 + uid);
+        for (int uid = 1; uid <= 10_000; uid++) q.set(uid, 2_000 + uid); // e.g. all edited
+        assertEquals(Arrays.asList(10L), alarm.armed);
+        assertEquals(20_001, q.stats()[0]);
+    }
+
+    @Test
+    public void nextDose_skipsTakenAndPastDoses() {
+        long day = 20_000; // 2024-10-04
+        long morning = ReminderQueue.millisAt(day, 8 * 60, ATHENS);
+        assertEquals(ReminderQueue.epochDay(morning, ATHENS), day);
+
+        // before the dose: today's time; already taken: tomorrow's
+        assertEquals(morning, ReminderQueue.nextDose(480, day + 5, false, morning - 60_000, ATHENS));
+        assertEquals(ReminderQueue.millisAt(day + 1, 480, ATHENS),
+                ReminderQueue.nextDose(480, day + 5, true, morning - 60_000, ATHENS));
+        // time passed: tomorrow's, unless the course ends today
+        assertEquals(ReminderQueue.millisAt(day + 1, 480, ATHENS),
+                ReminderQueue.nextDose(480, day + 5, false, morning, ATHENS));
+        assertEquals(-1, ReminderQueue.nextDose(480, day, false, morning, ATHENS));
+
+        // rollover: just after the coming midnight
+        long rollover = ReminderQueue.nextRollover(morning, ATHENS);
+        assertEquals(ReminderQueue.millisAt(day + 1, 1, ATHENS), rollover);
+        assertEquals(rollover, ReminderQueue.nextRollover(rollover - 1, ATHENS));
+    }
+}
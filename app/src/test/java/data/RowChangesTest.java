@@ -0,0 +1,118 @@
+package data;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for row-level invalidation: counts the re-queries each write causes.
+ */
+public class RowChangesTest {
+
+    private RowChanges changes;
+    private final Map<Integer, Integer> requeries = new HashMap<>(); // uid -> detail re-queries
+    private final List<String> listEvents = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        changes = new RowChanges();
+        // Three open detail screens (uids 1..3) and the main list
+        for (int uid = 1; uid <= 3; uid++) {
+            requeries.put(uid, 0);
+            changes.observe(uid, u -> requeries.merge(u, 1, Integer::sum));
+        }
+        changes.addListListener((kind, uids) -> listEvents.add(
+                (kind == RowChanges.IN_PLACE ? "delta" : "reload") + (uids == null ? "" : ":" + uids.length)));
+    }
+
+    @Test
+    public void inPlaceWrite_requeriesOnlyThatRow_andSendsDelta() {
+        changes.publish(RowChanges.IN_PLACE, 2); // e.g. markReceivedToday(2)
+
+        assertEquals(0, (int) requeries.get(1));
+        assertEquals(1, (int) requeries.get(2));
+        assertEquals(0, (int) requeries.get(3));
+        assertEquals(1, changes.rowNotifications());
+        assertEquals(List.of("delta:1"), listEvents);
+        assertEquals(0, changes.listReloads());
+    }
+
+    @Test
+    public void insertOfUnobservedRow_requeriesNoDetail_butReloadsList() {
+        changes.publish(RowChanges.STRUCTURAL, 42);
+
+        assertEquals(0, changes.rowNotifications());
+        assertEquals(List.of("reload:1"), listEvents);
+    }
+
+    @Test
+    public void largeInPlaceWrite_reloadsListInsteadOfDelta() {
+        int[] uids = new int[RowChanges.DELTA_MAX + 1];
+        for (int i = 0; i < uids.length; i++) uids[i] = 1000 + i;
+        changes.publish(RowChanges.IN_PLACE, uids);
+
+        assertEquals(0, changes.rowNotifications());
+        assertEquals(List.of("reload:" + uids.length), listEvents);
+    }
+
+    @Test
+    public void unknownRows_requeryEveryObserverOnce() {
+        changes.publishAll(); // e.g. day rollover
+
+        for (int uid = 1; uid <= 3; uid++) assertEquals(1, (int) requeries.get(uid));
+        assertEquals(List.of("reload"), listEvents);
+    }
+
+    @Test
+    public void removedObserver_isNotRequeried() {
+        RowChanges.RowObserver extra = u -> fail("removed observer was called");
+        changes.observe(2, extra);
+        changes.unobserve(2, extra);
+
+        changes.publish(RowChanges.IN_PLACE, 2);
+        assertEquals(1, (int) requeries.get(2));
+    }
+
+    @Test
+    public void weakListener_isDroppedOnceItsOwnerIsCollected() throws InterruptedException {
+        List<String> events = new ArrayList<>();
+        Object owner = new Object();
+        changes.addListListener(new Listing(owner, events));
+        changes.publish(RowChanges.STRUCTURAL, 7);
+        assertEquals(List.of("reload"), events);
+        assertTrue(changes.stats().endsWith("listListeners=2"));
+
+        WeakReference<Object> probe = new WeakReference<>(owner);
+        owner = null;
+        for (int i = 0; i < 50 && probe.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull("owner not collected", probe.get());
+
+        changes.publish(RowChanges.STRUCTURAL, 8);
+        assertEquals(List.of("reload"), events);
+        assertTrue(changes.stats().endsWith("listListeners=1"));
+    }
+
+    // Static, so it holds the owner only through the weak reference
+    private static final class Listing extends RowChanges.WeakListListener<Object> {
+        private final List<String> events;
+
+        Listing(Object owner, List<String> events) {
+            super(owner);
+            this.events = events;
+        }
+
+        @Override protected void onRowsChanged(Object owner, int kind, int[] uids) {
+            events.add("reload");
+        }
+    }
+}
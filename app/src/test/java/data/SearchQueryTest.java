@@ -0,0 +1,31 @@
+package data;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for turning search-box text into an FTS MATCH expression.
+ */
+public class SearchQueryTest {
+
+    @Test
+    public void words_becomePrefixTerms() {
+        assertEquals("amox* ermou*", SearchQuery.match("  Amox, Ermou "));
+        assertEquals("παρακεταμόλη*", SearchQuery.match("Παρακεταμόλη"));
+    }
+
+    @Test
+    public void operatorsAndQuotes_areNotPassedThrough() {
+        assertEquals("a* or* b*", SearchQuery.match("a OR \"b\""));
+        assertEquals("x* near* 2* y*", SearchQuery.match("x NEAR/2 -y*"));
+    }
+
+    @Test
+    public void emptyOrShortInput_doesNotSearch() {
+        assertNull(SearchQuery.match(null));
+        assertNull(SearchQuery.match(" -*\" "));
+        assertFalse(SearchQuery.isSearchable("a"));
+        assertTrue(SearchQuery.isSearchable("am"));
+    }
+}
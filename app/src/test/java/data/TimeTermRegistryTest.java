@@ -0,0 +1,68 @@
+package data;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the term registry: shared instances, placeholders for unknown ids, and the
+ * single reload a miss queues on its source.
+ */
+public class TimeTermRegistryTest {
+
+    // Terms served by the fake source; reload tasks wait in 'queued' until run by hand
+    private List<TimeTerm> table = new ArrayList<>();
+    private final List<Runnable> queued = new ArrayList<>();
+    private int reads;
+
+    private final TimeTermRegistry.Source source = new TimeTermRegistry.Source() {
+        @Override public List<TimeTerm> read() {
+            reads++;
+            return table;
+        }
+        @Override public Executor background() { return queued::add; }
+    };
+
+    @After
+    public void tearDown() {
+        TimeTermRegistry.use(null);
+        TimeTermRegistry.set(Collections.emptyList());
+    }
+
+    @Test
+    public void resolve_returnsTheSharedInstances() {
+        TimeTerm breakfast = new TimeTerm(1, "before-breakfast", 1, 450);
+        TimeTerm lunch = new TimeTerm(4, "before-lunch", 4, 750);
+        TimeTermRegistry.set(Arrays.asList(breakfast, lunch));
+
+        assertSame(breakfast, TimeTermRegistry.resolve(1));
+        assertSame(lunch, TimeTermRegistry.resolve(4));
+        assertTrue(TimeTermRegistry.get().idOrderIsSortOrder);
+    }
+
+    @Test
+    public void miss_sharesOnePlaceholder_andQueuesOneReload() {
+        TimeTermRegistry.use(source);
+        TimeTermRegistry.set(Collections.emptyList());
+
+        TimeTerm first = TimeTermRegistry.resolve(7);
+        assertSame(first, TimeTermRegistry.resolve(7));
+        assertEquals(Integer.MAX_VALUE, first.sortOrder); // sorted last
+        TimeTermRegistry.resolve(8);
+        assertEquals(1, queued.size()); // one reload for any number of misses
+        assertEquals(0, reads); // nothing read while resolving
+
+        TimeTerm dinner = new TimeTerm(7, "before-dinner", 7, 1170);
+        table = Collections.singletonList(dinner);
+        queued.remove(0).run();
+        assertEquals(1, reads);
+        assertSame(dinner, TimeTermRegistry.resolve(7));
+    }
+}
@@ -0,0 +1,102 @@
+package provider;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the provider's SQL builder (no Android classes touched).
+ */
+public class ProviderSqlTest {
+
+    private static ProviderSql.Shape prescriptions(String[] projection, String selection, String sort,
+                                                   boolean after, boolean limit, boolean offset) {
+        return new ProviderSql.Shape(ProviderSql.PRESCRIPTIONS, false, projection, selection, sort, after, limit, offset);
+    }
+
+    @Test
+    public void allColumns_matchPreviousStatement() {
+        assertEquals("SELECT uid AS _id, uid, shortName, description, startDateEpoch, endDateEpoch, timeTermId, " +
+                        "doctorName, doctorLocation, isActive, hasReceivedToday, lastDateReceivedEpoch, patientId " +
+                        "FROM prescription_drugs WHERE (isActive = ?) ORDER BY shortName",
+                ProviderSql.build(prescriptions(null, "isActive = ?", "shortName", false, false, false)));
+    }
+
+    @Test
+    public void projection_isPushedDown() {
+        assertEquals("SELECT uid AS _id, shortName FROM prescription_drugs",
+                ProviderSql.build(prescriptions(new String[]{"_id", "shortName"}, null, null, false, false, false)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void projection_rejectsUnknownColumns() {
+        ProviderSql.build(prescriptions(new String[]{"shortName", "(SELECT 1)"}, null, null, false, false, false));
+    }
+
+    @Test
+    public void byId_isBound_soEveryIdSharesOneStatement() {
+        ProviderSql sql = new ProviderSql();
+        String a = sql.sql(new ProviderSql.Shape(ProviderSql.PRESCRIPTIONS, true, null, "isActive = 1", null, false, false, false));
+        String b = sql.sql(new ProviderSql.Shape(ProviderSql.PRESCRIPTIONS, true, null, "isActive = 1", null, false, false, false));
+        assertSame(a, b);
+        assertTrue(a.endsWith("FROM prescription_drugs WHERE uid = ? AND (isActive = 1)"));
+        assertArrayEquals(new Object[]{5L, "x"}, ProviderSql.args(
+                new ProviderSql.Shape(ProviderSql.PRESCRIPTIONS, true, null, "x", null, false, false, false),
+                5L, new String[]{"x"}, null, null, null));
+    }
+
+    @Test
+    public void keysetAndPaging_areBoundInPlaceholderOrder() {
+        ProviderSql.Shape shape = prescriptions(new String[]{"uid"}, "isActive = ?", "_id ASC", true, true, true);
+        assertEquals("SELECT uid FROM prescription_drugs WHERE (isActive = ?) AND uid > ? ORDER BY uid ASC LIMIT ? OFFSET ?",
+                ProviderSql.build(shape));
+        assertArrayEquals(new Object[]{"1", 120L, 50L, 10L},
+                ProviderSql.args(shape, null, new String[]{"1"}, 120L, 50L, 10L));
+    }
+
+    @Test
+    public void search_isDrivenByTheFtsIndex_withKeysetInside() {
+        ProviderSql.Shape shape = new ProviderSql.Shape(ProviderSql.PRESCRIPTION_SEARCH, false,
+                new String[]{"_id", "shortName"}, "isActive = ?", null, true, true, false);
+        assertEquals("SELECT uid AS _id, shortName FROM (SELECT prescription_drugs.* FROM prescription_fts " +
+                        "JOIN prescription_drugs ON prescription_drugs.uid = prescription_fts.rowid " +
+                        "WHERE prescription_fts MATCH ? AND prescription_fts.rowid > ? ORDER BY prescription_fts.rowid) " +
+                        "WHERE (isActive = ?) ORDER BY uid ASC LIMIT ?",
+                ProviderSql.build(shape));
+        assertArrayEquals(new Object[]{"amox*", 120L, "1", 50L},
+                ProviderSql.args(shape, "amox*", new String[]{"1"}, 120L, 50L, null));
+    }
+
+    @Test
+    public void patientPrescriptions_filterOnPatientFirst_withKeyset() {
+        ProviderSql.Shape shape = new ProviderSql.Shape(ProviderSql.PRESCRIPTIONS, false, true,
+                new String[]{"_id"}, "isActive = ?", null, true, true, false);
+        assertEquals("SELECT uid AS _id FROM prescription_drugs WHERE patientId = ? AND (isActive = ?) AND uid > ? " +
+                        "ORDER BY uid ASC LIMIT ?",
+                ProviderSql.build(shape));
+        assertArrayEquals(new Object[]{2L, "1", 120L, 50L},
+                ProviderSql.args(shape, 2L, new String[]{"1"}, 120L, 50L, null));
+        assertNotEquals(shape, new ProviderSql.Shape(ProviderSql.PRESCRIPTIONS, false,
+                new String[]{"_id"}, "isActive = ?", null, true, true, false));
+        assertEquals("SELECT id AS _id, id, name FROM patients WHERE id = ?",
+                ProviderSql.build(new ProviderSql.Shape(ProviderSql.PATIENTS, true, null, null, null,
+                        false, false, false)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void byPatient_onlyOnThePrescriptionsCollection() {
+        new ProviderSql.Shape(ProviderSql.PRESCRIPTION_SEARCH, false, true, null, null, null, false, false, false);
+    }
+
+    @Test
+    public void offsetWithoutLimit_isValidSql() {
+        assertEquals("SELECT id FROM time_terms LIMIT -1 OFFSET ?",
+                ProviderSql.build(new ProviderSql.Shape(ProviderSql.TIME_TERMS, false, new String[]{"id"},
+                        null, null, false, false, true)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void afterUid_rejectsOtherSortOrders() {
+        prescriptions(null, null, "shortName", true, false, false);
+    }
+}
@@ -0,0 +1,84 @@
+package ui;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the streaming export writer.
+ */
+public class ExportWriterTest {
+
+    @Test
+    public void html_escapesInOnePassAndKeepsLayout() throws IOException {
+        StringWriter sw = new StringWriter();
+        ExportWriter w = new ExportWriter(sw, true);
+        w.begin();
+        w.row(7, "A&B <x>", null, "at-lunch", 0, 1, "Dr", "", true, false, null);
+        w.end();
+
+        String html = sw.toString();
+        assertTrue(html.startsWith("<!doctype html>"));
+        assertTrue(html.endsWith("</table></body></html>"));
+        assertTrue(html.contains("<tr><td>7</td><td>A&amp;B &lt;x&gt;</td><td>-</td><td>at-lunch</td>"
+                + "<td>1970-01-01</td><td>1970-01-02</td><td>Dr</td><td></td>"
+                + "<td>true</td><td>false</td><td>-</td></tr>"));
+    }
+
+    @Test
+    public void txt_dashesBlankFields() throws IOException {
+        StringWriter sw = new StringWriter();
+        ExportWriter w = new ExportWriter(sw, false);
+        w.begin();
+        w.row(1, "Aspirin", "  ", null, 0, 0, null, "Athens", false, true, 0L);
+        w.end();
+
+        assertEquals("UID: 1\nName: Aspirin\nDescription: -\nTime term: -\n"
+                + "Start: 1970-01-01\nEnd: 1970-01-01\nDoctor: -\nLocation: Athens\n"
+                + "IsActive: false\nHasReceivedToday: true\nLastDateReceived: 1970-01-01\n"
+                + "----------------------------------------\n", sw.toString());
+    }
+
+    @Test
+    public void heapStaysFlat_from10To100kRows() throws IOException {
+        long small = heapGrowthFor(10);
+        long large = heapGrowthFor(100_000);
+        // 100k rows are ~20 MB of HTML; a writer holding rows or output would retain most of it
+        assertTrue("heap grew by " + large + " bytes", large < small + 4L * 1024 * 1024);
+    }
+
+    // Heap retained after writing 'rows' rows, measured while the writer is still live (end() comes after)
+    private static long heapGrowthFor(int rows) throws IOException {
+        CountingWriter sink = new CountingWriter();
+        ExportWriter w = new ExportWriter(sink, true);
+        long before = usedHeap();
+        w.begin();
+        for (int i = 0; i < rows; i++) {
+            w.row(i, "Drug " + i, "Desc " + i, "at-lunch", 19_000 + (i & 63), 20_000,
+                    "Dr " + i, "Athens", true, false, null);
+        }
+        long during = usedHeap();
+        w.end();
+        assertTrue(sink.chars > rows * 100L);
+        return Math.max(0, during - before);
+    }
+
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    // Writer that only counts characters
+    private static final class CountingWriter extends Writer {
+        long chars;
+        @Override public void write(char[] buf, int off, int len) { chars += len; }
+        @Override public void write(String s, int off, int len) { chars += len; }
+        @Override public void flush() { }
+        @Override public void close() { }
+    }
+}
@@ -0,0 +1,49 @@
+package ui;
+
+import org.junit.Test;
+
+import data.PrescriptionDrug;
+import data.PrescriptionWithTerm;
+import data.TimeTerm;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the list diff and its field payloads.
+ */
+public class PrescriptionDiffTest {
+
+    private static PrescriptionWithTerm row(int uid, String name, boolean received) {
+        PrescriptionDrug d = new PrescriptionDrug();
+        d.uid = uid;
+        d.shortName = name;
+        d.description = "desc";
+        d.startDateEpoch = 10;
+        d.endDateEpoch = 20;
+        d.timeTermId = 1;
+        d.isActive = true;
+        d.hasReceivedToday = received;
+        return new PrescriptionWithTerm(d, new TimeTerm(1, "at-lunch", 5));
+    }
+
+    @Test
+    public void receivedToggle_isOnlyThatField() {
+        PrescriptionWithTerm o = row(7, "Amoxil", false), n = row(7, "Amoxil", true);
+        assertTrue(PrescriptionDiff.sameItem(o, n));
+        assertFalse(PrescriptionDiff.sameContents(o, n));
+        assertEquals(PrescriptionDiff.RECEIVED, PrescriptionDiff.changes(o, n));
+    }
+
+    @Test
+    public void hiddenFields_stillCountAsChanges() {
+        PrescriptionWithTerm o = row(7, "Amoxil", false), n = row(7, "Amoxil", false);
+        assertEquals(0, PrescriptionDiff.changes(o, n));
+
+        n.drug.endDateEpoch = 25;
+        n.drug.description = null;
+        assertEquals(PrescriptionDiff.DETAILS, PrescriptionDiff.changes(o, n));
+
+        n.drug.shortName = "Augmentin";
+        assertEquals(PrescriptionDiff.NAME | PrescriptionDiff.DETAILS, PrescriptionDiff.changes(o, n));
+    }
+}
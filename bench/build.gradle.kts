@@ -0,0 +1,102 @@
+// JVM micro-benchmarks (JMH) for the app's hot code paths.
+//
+//   ./gradlew :bench:jmh
+//   ./gradlew :bench:jmh -PjmhIncludes=ScaleBenchmark -PjmhProfilers=gc   (one class, with allocation rates)
+//   ./gradlew :bench:test                                                  (throughput floors, run in CI)
+//
+// Results are written as JSON to bench/build/results/jmh/results.json; keep a copy per
+// commit and compare them (e.g. with jmh.morethan.io or any JSON diff).
+//
+// The app is an Android application module, so it cannot be a JVM dependency. Instead the
+// plain-Java sources listed below are compiled straight from app/src/main/java, and the
+// DAO source is bundled as a resource so the SQL benchmarks run the exact @Query text.
+plugins {
+    `java-library`
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+val appSrc = rootProject.file("app/src/main/java")
+
+// App classes under test (must not import android.*)
+val appSources = tasks.register<Sync>("appSources") {
+    from(appSrc) {
+        include(
+            "data/AdherenceStats.java",
+            "data/BulkImport.java",
+            "data/DrugNameIndex.java",
+            "data/DrugNameIndexWriter.java",
+            "data/InteractionIndex.java",
+            "data/InteractionIndexWriter.java",
+            "data/LoadGenerator.java",
+            "data/Patient.java",
+            "data/PrescriptionDrug.java",
+            "data/PrescriptionWithTerm.java",
+            "data/RowChanges.java",
+            "data/SearchQuery.java",
+            "data/TimeTerm.java",
+            "data/TimeTermRegistry.java",
+            "provider/ProviderSql.java",
+            "ui/ArchiveWriter.java",
+            "ui/ExportWriter.java",
+            "ui/PrescriptionDiff.java",
+            "ui/PrescriptionRow.java",
+        )
+    }
+    into(layout.buildDirectory.dir("generated/appSources"))
+}
+
+// DAO sources read at runtime by the SQL benchmarks, and the bundled interaction dataset
+val appSql = tasks.register<Sync>("appSql") {
+    from(appSrc) {
+        include("data/DoseIntakeDao.java", "data/PrescriptionDao.java")
+    }
+    from(rootProject.file("app/src/main")) {
+        include("interactions/*.csv")
+    }
+    into(layout.buildDirectory.dir("generated/appSql"))
+}
+
+sourceSets {
+    main {
+        java.srcDir(appSources)
+    }
+    named("jmh") {
+        resources.srcDir(appSql)
+    }
+    // JUnit checks with floors the build can fail on, reusing the benchmark fixtures
+    test {
+        compileClasspath += sourceSets["jmh"].output
+        runtimeClasspath += sourceSets["jmh"].output
+    }
+}
+
+dependencies {
+    // Annotations used by the copied app sources
+    compileOnly(libs.room.common)
+    compileOnly(libs.androidx.annotation)
+    jmhImplementation(libs.room.common)
+    jmhImplementation(libs.androidx.annotation)
+
+    jmhImplementation(libs.sqlite.jdbc)
+
+    testImplementation(libs.junit)
+    testImplementation(libs.sqlite.jdbc)
+    testImplementation(libs.room.common)
+}
+
+jmh {
+    warmupIterations.set(3)
+    iterations.set(5)
+    fork.set(1)
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("results/jmh/results.json"))
+
+    // Optional filters, e.g. -PjmhIncludes=ScaleBenchmark -PjmhProfilers=gc
+    (findProperty("jmhIncludes") as String?)?.let { includes.add(it) }
+    (findProperty("jmhProfilers") as String?)?.let { profilers.addAll(it.split(",")) }
+}
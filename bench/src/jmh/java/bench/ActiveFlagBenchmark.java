@@ -0,0 +1,41 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import data.PrescriptionDrug;
+
+// isActive computation done by MedViewModel.saveNew / saveEdit
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ActiveFlagBenchmark {
+
+    private PrescriptionDrug drug;
+
+    @Setup
+    public void setUp() {
+        drug = Fixtures.drug(1, new Random(7));
+    }
+
+    // Range check alone
+    @Benchmark
+    public boolean isActiveOn() {
+        return drug.isActiveOn(Fixtures.TODAY);
+    }
+
+    // What saveNew/saveEdit actually run: read today's date, then the range check
+    @Benchmark
+    public boolean isActiveToday() {
+        return drug.isActiveOn(LocalDate.now().toEpochDay());
+    }
+}
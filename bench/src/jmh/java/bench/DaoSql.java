@@ -0,0 +1,72 @@
+package bench;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// @Query statements read from a DAO source file (bundled as a resource by bench/build.gradle.kts),
+// so the benchmarks run exactly the SQL the app ships. ':name' arguments become '?' placeholders.
+final class DaoSql {
+
+    // @Query("..." + "...") followed by the method declaration
+    private static final Pattern QUERY = Pattern.compile(
+            "@Query\\(((?:\\s*\"(?:[^\"\\\\]|\\\\.)*\"\\s*\\+?)+)\\)\\s*[\\w<>,\\s]+?\\s(\\w+)\\s*\\(");
+    private static final Pattern LITERAL = Pattern.compile("\"((?:[^\"\\\\]|\\\\.)*)\"");
+    private static final Pattern ARG = Pattern.compile(":(\\w+)");
+
+    // One statement: JDBC SQL plus the argument names in placeholder order
+    static final class Statement {
+        final String sql;
+        final List<String> args;
+
+        Statement(String sql, List<String> args) {
+            this.sql = sql;
+            this.args = Collections.unmodifiableList(args);
+        }
+    }
+
+    private final Map<String, Statement> byMethod = new HashMap<>();
+
+    DaoSql(String resource) {
+        String src;
+        try (InputStream in = DaoSql.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) throw new IllegalStateException("Missing resource " + resource);
+            src = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        Matcher m = QUERY.matcher(src);
+        while (m.find()) {
+            StringBuilder sql = new StringBuilder();
+            Matcher lit = LITERAL.matcher(m.group(1));
+            while (lit.find()) sql.append(lit.group(1).replace("\\\"", "\""));
+            byMethod.put(m.group(2), toJdbc(sql.toString()));
+        }
+    }
+
+    // Statement for a DAO method name
+    Statement get(String method) {
+        Statement s = byMethod.get(method);
+        if (s == null) throw new IllegalArgumentException("No @Query for " + method);
+        return s;
+    }
+
+    private static Statement toJdbc(String sql) {
+        List<String> args = new ArrayList<>();
+        Matcher m = ARG.matcher(sql);
+        StringBuffer out = new StringBuffer();
+        while (m.find()) {
+            args.add(m.group(1));
+            m.appendReplacement(out, "?");
+        }
+        m.appendTail(out);
+        return new Statement(out.toString(), args);
+    }
+}
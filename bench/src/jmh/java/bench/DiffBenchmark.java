@@ -0,0 +1,62 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import data.PrescriptionWithTerm;
+import ui.PrescriptionDiff;
+import ui.PrescriptionRow;
+
+// PrescriptionAdapter's DIFF callback over a whole list (what DiffUtil does per item on a reload),
+// and the per-row display strings now built on the fetch thread instead of in onBindViewHolder
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DiffBenchmark {
+
+    @Param({"100", "10000"})
+    public int rows;
+
+    private List<PrescriptionWithTerm> before, after;
+
+    @Setup
+    public void setUp() {
+        before = Fixtures.rows(rows, 42);
+        after = Fixtures.rows(rows, 42); // equal contents, distinct instances (like a re-query)
+        after.get(rows / 2).drug.shortName = "Changed"; // one real change
+        after.get(rows / 3).drug.hasReceivedToday = !after.get(rows / 3).drug.hasReceivedToday;
+    }
+
+    @Benchmark
+    public int sameItemAndContents() {
+        int changed = 0;
+        for (int i = 0; i < rows; i++) {
+            PrescriptionWithTerm o = before.get(i), n = after.get(i);
+            if (PrescriptionDiff.sameItem(o, n) && !PrescriptionDiff.sameContents(o, n)) changed++;
+        }
+        return changed;
+    }
+
+    @Benchmark
+    public int changePayloads() {
+        int mask = 0;
+        for (int i = 0; i < rows; i++) mask |= PrescriptionDiff.changes(before.get(i), after.get(i));
+        return mask;
+    }
+
+    @Benchmark
+    public Object mapRows() {
+        Object last = null;
+        for (int i = 0; i < rows; i++) last = PrescriptionRow.of(after.get(i));
+        return last;
+    }
+}
@@ -0,0 +1,126 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import data.DrugNameIndex;
+import data.DrugNameIndexWriter;
+import data.LoadGenerator;
+
+// Autocomplete on the name field (DrugNameAdapter's filter): top 8 completions of a typed prefix
+// from a generated dictionary of 'names' names with skewed weights, compiled and memory-mapped like
+// the APK asset. Short prefixes match thousands of names; the rank tree keeps them as cheap as
+// long ones. Against an on-heap TreeMap that scans the whole prefix range for the top 8.
+//
+// Memory: setup prints the mapped file size next to the heap the TreeMap baseline holds. The
+// mapped index keeps nothing on the heap beyond a few header fields; a lookup pages in only the
+// blocks it reads (run with -prof gc for per-lookup allocation).
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DrugNameBenchmark {
+
+    private static final int TOP_K = 8; // DrugNameAdapter.TOP_K
+    private static final int PREFIXES = 256;
+
+    @Param({"100000"})
+    public int names;
+
+    @Param({"1", "2", "4", "8"})
+    public int typed;
+
+    private File file;
+    private FileChannel channel;
+    private DrugNameIndex index;
+    private TreeMap<String, Integer> heap; // lower-case name -> weight
+    private String[] prefixes;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        LoadGenerator gen = new LoadGenerator(20000, 1);
+        DrugNameIndexWriter w = new DrugNameIndexWriter();
+        List<String> all = new ArrayList<>(names);
+        int[] weights = new int[names];
+        for (int i = 0; i < names; i++) {
+            String name = gen.drug(i).shortName;
+            all.add(name);
+            weights[i] = 1_000_000 / (1 + (int) ((i * 2654435761L) % names)); // Zipf-like, shuffled
+            w.add(name, weights[i]);
+        }
+        file = File.createTempFile("drug_names", ".idx");
+        Files.write(file.toPath(), w.toBytes());
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        index = DrugNameIndex.map(channel, 0, channel.size());
+
+        long before = usedHeap();
+        heap = new TreeMap<>();
+        for (int i = 0; i < names; i++) heap.merge(all.get(i).toLowerCase(Locale.ROOT), weights[i], Math::max);
+        long heapBytes = usedHeap() - before;
+        System.out.printf("%n%d names: index %d bytes mapped, TreeMap baseline ~%d bytes of heap%n",
+                index.count(), channel.size(), heapBytes);
+
+        // Prefixes users would type: the starts of names across the dictionary
+        prefixes = new String[PREFIXES];
+        for (int i = 0; i < PREFIXES; i++) {
+            String name = all.get((int) ((i * 40503L) % names));
+            prefixes[i] = name.substring(0, Math.min(typed, name.length()));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        channel.close();
+        file.delete();
+    }
+
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    private String prefix() {
+        return prefixes[next++ & (PREFIXES - 1)];
+    }
+
+    @Benchmark
+    public List<String> mappedIndex() {
+        return index.complete(prefix(), TOP_K);
+    }
+
+    // Baseline: sorted on-heap map, top 8 by weight over every name in the prefix range
+    @Benchmark
+    public List<String> heapTreeMap() {
+        String p = DrugNameIndex.normalize(prefix());
+        PriorityQueue<Map.Entry<String, Integer>> top = new PriorityQueue<>(TOP_K + 1,
+                (a, b) -> Integer.compare(a.getValue(), b.getValue()));
+        for (Map.Entry<String, Integer> e : heap.subMap(p, p + Character.MAX_VALUE).entrySet()) {
+            top.add(e);
+            if (top.size() > TOP_K) top.poll();
+        }
+        List<String> out = new ArrayList<>(top.size());
+        while (!top.isEmpty()) out.add(0, top.poll().getKey());
+        return out;
+    }
+}
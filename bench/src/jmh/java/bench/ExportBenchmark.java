@@ -0,0 +1,120 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import data.PrescriptionWithTerm;
+import ui.ArchiveWriter;
+import ui.ExportWriter;
+
+// Export.toHtml / Export.toTxt (both are ExportWriter.render), the streaming path and the ZIP archive
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ExportBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int rows;
+
+    private List<PrescriptionWithTerm> list;
+    private File spillDir;
+
+    @Setup
+    public void setUp() throws IOException {
+        list = Fixtures.rows(rows, 42);
+        spillDir = Files.createTempDirectory("archive-bench").toFile();
+        spillDir.deleteOnExit();
+    }
+
+    @Benchmark
+    public String toHtml() {
+        return ExportWriter.render(list, true);
+    }
+
+    @Benchmark
+    public String toTxt() {
+        return ExportWriter.render(list, false);
+    }
+
+    // Streaming into a sink: cost of formatting/escaping without building the document
+    @Benchmark
+    public long streamHtml() throws IOException {
+        CountingWriter sink = new CountingWriter();
+        ExportWriter.write(list, new ExportWriter(sink, true));
+        return sink.chars;
+    }
+
+    // Archive export of prescription_drugs (CSV + JSON entries, deflated) into a sink
+    @Benchmark
+    public long archive() throws IOException {
+        CountingStream sink = new CountingStream();
+        ArchiveWriter w = new ArchiveWriter(sink, spillDir);
+        w.table("prescription_drugs", new ListRows(list));
+        w.finish(Collections.emptyMap());
+        return sink.bytes;
+    }
+
+    // Rows as the archive sees a prescription_drugs cursor
+    static final class ListRows implements ArchiveWriter.Rows {
+        private static final String[] COLUMNS = {"uid", "shortName", "description", "startDateEpoch",
+                "endDateEpoch", "timeTermId", "doctorName", "doctorLocation", "isActive",
+                "lastDateReceivedEpoch", "hasReceivedToday", "seq"};
+        private final List<PrescriptionWithTerm> list;
+        private int pos = -1;
+
+        ListRows(List<PrescriptionWithTerm> list) { this.list = list; }
+
+        @Override public String[] columns() { return COLUMNS; }
+        @Override public boolean next() { return ++pos < list.size(); }
+
+        @Override public Object get(int i) {
+            data.PrescriptionDrug d = list.get(pos).drug;
+            switch (i) {
+                case 0:  return (long) d.uid;
+                case 1:  return d.shortName;
+                case 2:  return d.description;
+                case 3:  return d.startDateEpoch;
+                case 4:  return d.endDateEpoch;
+                case 5:  return (long) d.timeTermId;
+                case 6:  return d.doctorName;
+                case 7:  return d.doctorLocation;
+                case 8:  return d.isActive ? 1L : 0L;
+                case 9:  return d.lastDateReceivedEpoch;
+                case 10: return d.hasReceivedToday ? 1L : 0L;
+                default: return (long) d.uid;
+            }
+        }
+    }
+
+    // Stream that only counts bytes
+    static final class CountingStream extends OutputStream {
+        long bytes;
+        @Override public void write(int b) { bytes++; }
+        @Override public void write(byte[] b, int off, int len) { bytes += len; }
+    }
+
+    // Writer that only counts characters
+    static final class CountingWriter extends Writer {
+        long chars;
+        @Override public void write(char[] buf, int off, int len) { chars += len; }
+        @Override public void write(String s, int off, int len) { chars += len; }
+        @Override public void write(int c) { chars++; }
+        @Override public void flush() { }
+        @Override public void close() { }
+    }
+}
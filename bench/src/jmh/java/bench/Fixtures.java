@@ -0,0 +1,63 @@
+package bench;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import data.PrescriptionDrug;
+import data.PrescriptionWithTerm;
+import data.TimeTerm;
+import data.TimeTermRegistry;
+
+// Deterministic in-memory rows shared by the benchmarks
+final class Fixtures {
+    private Fixtures() {}
+
+    static final long TODAY = 20_000; // fixed epoch day so runs are comparable
+
+    // Same rows as the seeded time_terms table (AppDatabase.SEED_TIME_TERMS), ids 1..9 in sort order
+    static final List<TimeTerm> TERMS = Arrays.asList(
+            new TimeTerm(1, "before-breakfast", 1, 450),
+            new TimeTerm(2, "at-breakfast", 2, 480),
+            new TimeTerm(3, "after-breakfast", 3, 510),
+            new TimeTerm(4, "before-lunch", 4, 750),
+            new TimeTerm(5, "at-lunch", 5, 780),
+            new TimeTerm(6, "after-lunch", 6, 810),
+            new TimeTerm(7, "before-dinner", 7, 1170),
+            new TimeTerm(8, "at-dinner", 8, 1200),
+            new TimeTerm(9, "after-dinner", 9, 1230));
+
+    // The app's registry, loaded as the Room open callback would (no database behind it here)
+    static {
+        TimeTermRegistry.set(TERMS);
+    }
+
+    // One prescription; same seed -> same row
+    static PrescriptionDrug drug(int uid, Random r) {
+        PrescriptionDrug d = new PrescriptionDrug();
+        d.uid = uid;
+        d.shortName = "Drug " + uid;
+        d.description = (r.nextInt(4) == 0) ? "Take with water & food <after meals>" : "Daily dose";
+        d.startDateEpoch = TODAY - r.nextInt(60);
+        d.endDateEpoch = TODAY + r.nextInt(60) - 10;
+        d.timeTermId = 1 + r.nextInt(TERMS.size());
+        d.doctorName = "Dr. " + (char) ('A' + r.nextInt(26));
+        d.doctorLocation = "Ermou " + r.nextInt(100) + ", Athens";
+        d.isActive = d.isActiveOn(TODAY);
+        d.hasReceivedToday = r.nextBoolean();
+        d.lastDateReceivedEpoch = d.hasReceivedToday ? TODAY : null;
+        return d;
+    }
+
+    // A list of rows with their terms, as the UI and export see them
+    static List<PrescriptionWithTerm> rows(int n, long seed) {
+        Random r = new Random(seed);
+        List<PrescriptionWithTerm> out = new ArrayList<>(n);
+        for (int i = 1; i <= n; i++) {
+            PrescriptionDrug d = drug(i, r);
+            out.add(new PrescriptionWithTerm(d, TimeTermRegistry.resolve(d.timeTermId)));
+        }
+        return out;
+    }
+}
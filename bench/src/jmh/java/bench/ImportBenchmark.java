@@ -0,0 +1,129 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import data.BulkImport;
+import data.PrescriptionDrug;
+import data.TimeTerm;
+import data.TimeTermRegistry;
+
+// BulkImport of a CSV file into a fresh database: parse, validate, de-duplicate and insert in
+// chunked transactions through reused prepared statements and the TEMP staging table (what
+// PrescriptionRepository.importFile does with compiled SupportSQLiteStatements), with the app's
+// FTS and change-log triggers in place. The table already holds 'existing' rows.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ImportBenchmark {
+
+    @Param({"1000", "100000"})
+    public int rows;
+
+    @Param({"1000"})
+    public int existing;
+
+    private String csv;
+    private List<TimeTerm> terms;
+    private SqliteFixture db;
+
+    @Setup
+    public void setUp() {
+        terms = Fixtures.TERMS;
+
+        // Same rows the fixture seeds (so the first 'existing' are duplicates), some with end < start
+        StringBuilder sb = new StringBuilder("shortName,description,start,end,timeTerm,doctorName,doctorLocation\n");
+        Random r = new Random(42);
+        for (int i = 1; i <= rows; i++) {
+            PrescriptionDrug d = Fixtures.drug(i, r);
+            sb.append(d.shortName).append(",\"").append(d.description).append("\",")
+                    .append(d.startDateEpoch).append(',').append(d.endDateEpoch).append(',')
+                    .append(TimeTermRegistry.resolve(d.timeTermId).code).append(',')
+                    .append(d.doctorName).append(",\"").append(d.doctorLocation).append("\"\n");
+        }
+        csv = sb.toString();
+    }
+
+    @Setup(Level.Iteration)
+    public void openDb() throws SQLException, IOException {
+        db = new SqliteFixture(existing);
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeDb() throws SQLException {
+        db.close();
+    }
+
+    @Benchmark
+    public int importCsv() throws SQLException {
+        BulkImport imp = new BulkImport(terms, Fixtures.TODAY);
+        try (Statement st = db.conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT shortName, description, startDateEpoch, endDateEpoch, " +
+                     "timeTermId, doctorName, doctorLocation FROM prescription_drugs WHERE patientId = " +
+                     SqliteFixture.PATIENT_ID)) {
+            while (rs.next()) {
+                imp.addExisting(rs.getString(1), rs.getString(2), rs.getLong(3), rs.getLong(4),
+                        rs.getInt(5), rs.getString(6), rs.getString(7));
+            }
+        }
+        try (Statement st = db.conn.createStatement()) {
+            st.execute(BulkImport.STAGE_CREATE_SQL);
+        }
+        db.conn.setAutoCommit(false);
+        try (PreparedStatement stage = db.conn.prepareStatement(BulkImport.STAGE_INSERT_SQL);
+             PreparedStatement move = db.conn.prepareStatement(BulkImport.STAGE_MOVE_SQL);
+             PreparedStatement clear = db.conn.prepareStatement(BulkImport.STAGE_CLEAR_SQL)) {
+            move.setInt(1, SqliteFixture.PATIENT_ID);
+            BulkImport.Report report = imp.run(new StringReader(csv), chunk -> {
+                try {
+                    for (PrescriptionDrug d : chunk) {
+                        stage.setString(1, d.shortName);
+                        stage.setString(2, d.description);
+                        stage.setLong(3, d.startDateEpoch);
+                        stage.setLong(4, d.endDateEpoch);
+                        stage.setInt(5, d.timeTermId);
+                        stage.setString(6, d.doctorName);
+                        stage.setString(7, d.doctorLocation);
+                        stage.setInt(8, d.isActive ? 1 : 0);
+                        stage.executeUpdate();
+                    }
+                    move.executeUpdate();
+                    clear.executeUpdate();
+                    db.conn.commit();
+                } catch (SQLException e) {
+                    try {
+                        db.conn.rollback();
+                    } catch (SQLException ignored) {
+                        // the original error is the one to report
+                    }
+                    throw new IOException(e);
+                }
+            }, null);
+            if (report.aborted != null) throw new IllegalStateException(report.aborted);
+            return report.inserted;
+        } finally {
+            db.conn.setAutoCommit(true);
+            try (Statement st = db.conn.createStatement()) {
+                st.execute(BulkImport.STAGE_DROP_SQL);
+            }
+        }
+    }
+}
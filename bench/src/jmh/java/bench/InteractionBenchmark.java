@@ -0,0 +1,100 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import data.InteractionIndex;
+import data.InteractionIndexWriter;
+import data.LoadGenerator;
+
+// The save-time interaction check (PrescriptionRepository.checkInteractions minus the DAO query):
+// the bundled dataset compiled and memory-mapped like the APK asset, one new drug checked against
+// a patient's active list. One in four active names is known to the dataset, the rest are
+// generated names that miss (most of a real list is not in a small interaction set).
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class InteractionBenchmark {
+
+    private static final String[] KNOWN = {"Nurofen 400", "Paracetamol 500", "Sintrom 4mg", "Zoloft 50",
+            "Isosorbide mononitrate 20", "Lisinopril 10", "Tramadol 50", "Clarithromycin 500"};
+
+    @Param({"10", "50", "200"})
+    public int active;
+
+    private File file;
+    private FileChannel channel;
+    private MappedByteBuffer mapped;
+    private InteractionIndex index;
+    private List<String> names;
+
+    @Setup
+    public void setUp() throws IOException {
+        InteractionIndexWriter w = new InteractionIndexWriter();
+        try (Reader n = resource("names.csv"); Reader i = resource("interactions.csv")) {
+            w.readNames(n);
+            w.readInteractions(i);
+        }
+        file = File.createTempFile("interactions", ".idx");
+        Files.write(file.toPath(), w.toBytes());
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        index = new InteractionIndex(mapped);
+
+        LoadGenerator gen = new LoadGenerator(20000, 1);
+        names = new ArrayList<>(active);
+        for (int i = 0; i < active; i++) {
+            names.add(i % 4 == 0 ? KNOWN[(i / 4) % KNOWN.length] : gen.drug(i).shortName);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        channel.close();
+        file.delete();
+    }
+
+    private static Reader resource(String name) {
+        return new InputStreamReader(InteractionBenchmark.class.getResourceAsStream("/interactions/" + name),
+                StandardCharsets.UTF_8);
+    }
+
+    // A drug with several major interactions (warfarin vs nsaid, ssri, macrolide, ...)
+    @Benchmark
+    public Object checkWithHits() {
+        return index.check("Coumadin 5mg", names);
+    }
+
+    // A drug with none: the common case
+    @Benchmark
+    public Object checkNoHits() {
+        return index.check("Omeprazole 20", names);
+    }
+
+    // Opening a mapped index reads only the header (mapping itself is once per process, in
+    // Interactions.get; re-mapping per call would pile up mappings until GC)
+    @Benchmark
+    public Object open() throws IOException {
+        return new InteractionIndex(mapped);
+    }
+}
@@ -0,0 +1,168 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import data.LoadGenerator;
+import data.PrescriptionDrug;
+import data.PrescriptionWithTerm;
+import data.SearchQuery;
+import data.TimeTermRegistry;
+import provider.ProviderSql;
+import ui.ExportWriter;
+
+// How the main read/write paths scale with table size, on LoadGenerator data (30% active,
+// the rest mostly years of ended courses, like a long-time caregiver install).
+// Latency is the score; run with the GC profiler for memory (bytes allocated per call):
+//
+//   ./gradlew :bench:jmh -PjmhIncludes=ScaleBenchmark -PjmhProfilers=gc
+//
+// 1M rows take a few seconds to seed per trial and Export.toHtml then builds a ~100 MB string.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class ScaleBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int rows;
+
+    private SqliteFixture db;
+    private DaoSql dao;
+    private final ProviderSql providerSql = new ProviderSql();
+    private List<PrescriptionWithTerm> active; // what Export.toHtml is given
+    private int next;
+
+    @Setup
+    public void setUp() throws Exception {
+        db = new SqliteFixture(new LoadGenerator(Fixtures.TODAY, SqliteFixture.termIds()), rows);
+        dao = new DaoSql("data/PrescriptionDao.java");
+        active = new ArrayList<>();
+        try (PreparedStatement ps = db.prepare(dao.get("getActiveWithTermNow"), SqliteFixture.patientArgs());
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                PrescriptionDrug d = SqliteFixture.readDrug(rs);
+                active.add(new PrescriptionWithTerm(d, TimeTermRegistry.resolve(d.timeTermId)));
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        db.close();
+    }
+
+    // The ACTIVE list, mapped like Room's generated code
+    @Benchmark
+    public List<PrescriptionWithTerm> getActiveWithTermNow() throws SQLException {
+        List<PrescriptionWithTerm> out = new ArrayList<>();
+        try (PreparedStatement ps = db.prepare(dao.get("getActiveWithTermNow"), SqliteFixture.patientArgs());
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                PrescriptionDrug d = SqliteFixture.readDrug(rs);
+                out.add(new PrescriptionWithTerm(d, TimeTermRegistry.resolve(d.timeTermId)));
+            }
+        }
+        return out;
+    }
+
+    // Full rewrite of the flags for a day (same day every call, so the rows it touches stay the same)
+    @Benchmark
+    public int recomputeForToday() throws SQLException {
+        Map<String, Object> args = new HashMap<>();
+        args.put("today", Fixtures.TODAY);
+        try (PreparedStatement ps = db.prepare(dao.get("recomputeForToday"), args)) {
+            return ps.executeUpdate();
+        }
+    }
+
+    // Export.toHtml of the active list
+    @Benchmark
+    public String exportToHtml() {
+        return ExportWriter.render(active, true);
+    }
+
+    // MedProvider.query(prescriptions) with no selection: every row, every column
+    @Benchmark
+    public void providerQueryAll(Blackhole bh) throws SQLException {
+        ProviderSql.Shape shape = new ProviderSql.Shape(ProviderSql.PRESCRIPTIONS, false, null, null, null,
+                false, false, false);
+        try (PreparedStatement ps = prepare(providerSql.sql(shape),
+                ProviderSql.args(shape, null, null, null, null, null));
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) bh.consume(SqliteFixture.readDrug(rs));
+        }
+    }
+
+    // MedProvider.query(prescriptions, "isActive = ?", {"1"}): a typical third-party selection
+    @Benchmark
+    public void providerQueryActive(Blackhole bh) throws SQLException {
+        ProviderSql.Shape shape = new ProviderSql.Shape(ProviderSql.PRESCRIPTIONS, false, null, "isActive = ?",
+                null, false, false, false);
+        try (PreparedStatement ps = prepare(providerSql.sql(shape),
+                ProviderSql.args(shape, null, new String[]{"1"}, null, null, null));
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) bh.consume(SqliteFixture.readDrug(rs));
+        }
+    }
+
+    // MedProvider.query(prescriptions?after_uid=..&limit=50) with a two-column projection
+    @Benchmark
+    public void providerKeysetPage(Blackhole bh) throws SQLException {
+        ProviderSql.Shape shape = new ProviderSql.Shape(ProviderSql.PRESCRIPTIONS, false,
+                new String[]{"_id", "shortName"}, null, null, true, true, false);
+        try (PreparedStatement ps = prepare(providerSql.sql(shape),
+                ProviderSql.args(shape, null, null, (long) nextUid(), 50L, null));
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                bh.consume(rs.getLong(1));
+                bh.consume(rs.getString(2));
+            }
+        }
+    }
+
+    // MedProvider.query(prescriptions/search/ermou?limit=50)
+    @Benchmark
+    public void providerSearchPage(Blackhole bh) throws SQLException {
+        ProviderSql.Shape shape = new ProviderSql.Shape(ProviderSql.PRESCRIPTION_SEARCH, false, null, null, null,
+                false, true, false);
+        try (PreparedStatement ps = prepare(providerSql.sql(shape),
+                ProviderSql.args(shape, SearchQuery.match("ermou"), null, null, 50L, null));
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) bh.consume(SqliteFixture.readDrug(rs));
+        }
+    }
+
+    private PreparedStatement prepare(String sql, Object[] args) throws SQLException {
+        PreparedStatement ps = db.conn.prepareStatement(sql);
+        for (int i = 0; i < args.length; i++) ps.setObject(i + 1, args[i]);
+        return ps;
+    }
+
+    private int nextUid() {
+        next = next * 1103515245 + 12345;
+        return (next >>> 1) % rows;
+    }
+}
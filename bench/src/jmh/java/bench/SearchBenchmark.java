@@ -0,0 +1,89 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import data.SearchQuery;
+
+// Full-text search pages (PrescriptionDao.searchAfter) against the LIKE '%x%' scan they replace.
+// Queries range from rare ("water": ~1/4 of rows) to matching every row ("ermou athens").
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SearchBenchmark {
+
+    private static final int PAGE = 50; // PrescriptionRepository.PAGE_SIZE
+
+    @Param({"1000", "100000"})
+    public int rows;
+
+    @Param({"wa", "water", "ermou athens", "zzz"})
+    public String query;
+
+    private SqliteFixture db;
+    private DaoSql dao;
+    private String match;
+
+    @Setup
+    public void setUp() throws Exception {
+        db = new SqliteFixture(rows);
+        dao = new DaoSql("data/PrescriptionDao.java");
+        match = SearchQuery.match(query);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        db.close();
+    }
+
+    // First page of results
+    @Benchmark
+    public void ftsFirstPage(Blackhole bh) throws SQLException {
+        search(Integer.MIN_VALUE, bh);
+    }
+
+    // A page from the middle of the result set (keyset seek)
+    @Benchmark
+    public void ftsMiddlePage(Blackhole bh) throws SQLException {
+        search(rows / 2, bh);
+    }
+
+    // What a naive search would run: substring scan over the four columns
+    @Benchmark
+    public void likeFirstPage(Blackhole bh) throws SQLException {
+        String like = "%" + query.split(" ")[0] + "%";
+        try (PreparedStatement ps = db.conn.prepareStatement("SELECT * FROM prescription_drugs " +
+                "WHERE shortName LIKE ? OR description LIKE ? OR doctorName LIKE ? OR doctorLocation LIKE ? " +
+                "ORDER BY uid ASC LIMIT ?")) {
+            for (int i = 1; i <= 4; i++) ps.setString(i, like);
+            ps.setInt(5, PAGE);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) bh.consume(SqliteFixture.readDrug(rs));
+            }
+        }
+    }
+
+    private void search(int afterUid, Blackhole bh) throws SQLException {
+        Map<String, Object> args = SqliteFixture.patientArgs();
+        args.put("match", match);
+        args.put("afterUid", afterUid);
+        args.put("limit", PAGE);
+        try (PreparedStatement ps = db.prepare(dao.get("searchAfter"), args); ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) bh.consume(SqliteFixture.readDrug(rs));
+        }
+    }
+}
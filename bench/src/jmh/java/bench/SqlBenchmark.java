@@ -0,0 +1,245 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import data.PrescriptionDrug;
+import data.PrescriptionWithTerm;
+import data.TimeTermRegistry;
+import provider.ProviderSql;
+
+// DAO and ContentProvider SQL on a real SQLite file (sqlite-jdbc), mapped to the app's entities.
+// Absolute numbers differ from a device; use them to compare commits, not to predict frame times.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SqlBenchmark {
+
+    // Same chunk size as DayRollover.CHUNK
+    private static final int CHUNK = 500;
+
+    // Intake history for the adherence aggregates: 5 years of 50 drugs (~78k dose_intakes rows)
+    private static final int HISTORY_DRUGS = 50;
+    private static final int HISTORY_DAYS = 5 * 365;
+
+    @Param({"1000", "100000"})
+    public int rows;
+
+    private SqliteFixture db;
+    private DaoSql dao;
+    private DaoSql intakes;
+    private final ProviderSql providerSql = new ProviderSql();
+    private int next; // rotates lookups / days across invocations
+
+    @Setup
+    public void setUp() throws Exception {
+        db = new SqliteFixture(rows);
+        dao = new DaoSql("data/PrescriptionDao.java");
+        intakes = new DaoSql("data/DoseIntakeDao.java");
+        db.seedIntakes(HISTORY_DRUGS, HISTORY_DAYS, Fixtures.TODAY);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        db.close();
+    }
+
+    // Whole ACTIVE list as the list/export code reads it
+    @Benchmark
+    public void getActiveWithTermNow(Blackhole bh) throws SQLException {
+        readRows(dao.get("getActiveWithTermNow"), SqliteFixture.patientArgs(), bh);
+    }
+
+    // JOIN fallback used by the export when term ids do not follow sortOrder
+    @Benchmark
+    public void getActiveWithTermCursor(Blackhole bh) throws SQLException {
+        try (PreparedStatement ps = db.prepare(dao.get("getActiveWithTermCursor"), SqliteFixture.patientArgs());
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                bh.consume(SqliteFixture.readDrug(rs));
+                bh.consume(rs.getString("term_code"));
+            }
+        }
+    }
+
+    // Detail screen lookup
+    @Benchmark
+    public void getByIdWithTerm(Blackhole bh) throws SQLException {
+        Map<String, Object> args = new HashMap<>();
+        args.put("uid", nextUid());
+        readRows(dao.get("getByIdWithTerm"), args, bh);
+    }
+
+    // One 50-row keyset page inside a term
+    @Benchmark
+    public void activePageAfter(Blackhole bh) throws SQLException {
+        Map<String, Object> args = SqliteFixture.patientArgs();
+        args.put("termId", 1 + (next % Fixtures.TERMS.size()));
+        args.put("afterUid", nextUid() / 2);
+        args.put("limit", 50);
+        readRows(dao.get("activePageAfter"), args, bh);
+    }
+
+    // Full rewrite of the flags (the old hourly job)
+    @Benchmark
+    public int recomputeForToday() throws SQLException {
+        Map<String, Object> args = new HashMap<>();
+        args.put("today", Fixtures.TODAY);
+        try (PreparedStatement ps = db.prepare(dao.get("recomputeForToday"), args)) {
+            return ps.executeUpdate();
+        }
+    }
+
+    // Per-patient recompute: same day every call, so after the first one no row changes and nothing is written
+    @Benchmark
+    public int recomputeForPatient() throws SQLException {
+        Map<String, Object> args = SqliteFixture.patientArgs();
+        args.put("today", Fixtures.TODAY);
+        try (PreparedStatement ps = db.prepare(dao.get("recomputeForPatient"), args)) {
+            return ps.executeUpdate();
+        }
+    }
+
+    // Incremental rollover when nothing flips (the common hourly case)
+    @Benchmark
+    public int rolloverSameDay() throws SQLException {
+        return rollover(Fixtures.TODAY);
+    }
+
+    // Incremental rollover across a day boundary (alternates between two days so rows flip every time)
+    @Benchmark
+    public int rolloverNewDay() throws SQLException {
+        return rollover((next++ & 1) == 0 ? Fixtures.TODAY : Fixtures.TODAY + 30);
+    }
+
+    // Adherence over the whole 5-year history: days taken per drug (DoseIntakeDao.daysTakenPerDrug)
+    @Benchmark
+    public void intakeDaysPerDrug(Blackhole bh) throws SQLException {
+        readInts(intakes.get("daysTakenPerDrug"), historyArgs(), bh);
+    }
+
+    // Drugs taken per day over 5 years (DoseIntakeDao.drugsTakenPerDay)
+    @Benchmark
+    public void intakeDrugsPerDay(Blackhole bh) throws SQLException {
+        readInts(intakes.get("drugsTakenPerDay"), historyArgs(), bh);
+    }
+
+    // One drug's taken days over 5 years (DoseIntakeDao.countDaysTaken)
+    @Benchmark
+    public void intakeCountDaysTaken(Blackhole bh) throws SQLException {
+        Map<String, Object> args = historyArgs();
+        args.put("uid", 1 + (nextUid() % HISTORY_DRUGS));
+        readInts(intakes.get("countDaysTaken"), args, bh);
+    }
+
+    // MedProvider.query(prescriptions) with no selection
+    @Benchmark
+    public void providerQueryAll(Blackhole bh) throws SQLException {
+        ProviderSql.Shape shape = new ProviderSql.Shape(ProviderSql.PRESCRIPTIONS, false, null, null, "uid ASC",
+                false, false, false);
+        providerQuery(shape, ProviderSql.args(shape, null, null, null, null, null), bh);
+    }
+
+    // MedProvider.query(prescriptions/#): SQL from the shape cache, id bound
+    @Benchmark
+    public void providerQueryById(Blackhole bh) throws SQLException {
+        ProviderSql.Shape shape = new ProviderSql.Shape(ProviderSql.PRESCRIPTIONS, true, null, null, null,
+                false, false, false);
+        providerQuery(shape, ProviderSql.args(shape, (long) nextUid(), null, null, null, null), bh);
+    }
+
+    // MedProvider.query(prescriptions?after_uid=..&limit=50) with a two-column projection
+    @Benchmark
+    public void providerKeysetPage(Blackhole bh) throws SQLException {
+        ProviderSql.Shape shape = new ProviderSql.Shape(ProviderSql.PRESCRIPTIONS, false,
+                new String[]{"_id", "shortName"}, null, null, true, true, false);
+        try (PreparedStatement ps = prepare(providerSql.sql(shape),
+                ProviderSql.args(shape, null, null, (long) nextUid() / 2, 50L, null));
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                bh.consume(rs.getLong(1));
+                bh.consume(rs.getString(2));
+            }
+        }
+    }
+
+    // ---- helpers ----
+
+    // Run a SELECT and map every row into PrescriptionWithTerm, like Room's generated code
+    private void readRows(DaoSql.Statement s, Map<String, Object> args, Blackhole bh) throws SQLException {
+        try (PreparedStatement ps = db.prepare(s, args); ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                PrescriptionDrug d = SqliteFixture.readDrug(rs);
+                bh.consume(new PrescriptionWithTerm(d, TimeTermRegistry.resolve(d.timeTermId)));
+            }
+        }
+    }
+
+    // Run an aggregate and read each row's columns as longs
+    private void readInts(DaoSql.Statement s, Map<String, Object> args, Blackhole bh) throws SQLException {
+        try (PreparedStatement ps = db.prepare(s, args); ResultSet rs = ps.executeQuery()) {
+            int columns = rs.getMetaData().getColumnCount();
+            while (rs.next()) {
+                for (int c = 1; c <= columns; c++) bh.consume(rs.getLong(c));
+            }
+        }
+    }
+
+    private static Map<String, Object> historyArgs() {
+        Map<String, Object> args = new HashMap<>();
+        args.put("fromDay", Fixtures.TODAY - HISTORY_DAYS);
+        args.put("toDay", Fixtures.TODAY - 1);
+        return args;
+    }
+
+    // Run a provider query and map every row (all columns)
+    private void providerQuery(ProviderSql.Shape shape, Object[] args, Blackhole bh) throws SQLException {
+        try (PreparedStatement ps = prepare(providerSql.sql(shape), args); ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) bh.consume(SqliteFixture.readDrug(rs));
+        }
+    }
+
+    private PreparedStatement prepare(String sql, Object[] args) throws SQLException {
+        PreparedStatement ps = db.conn.prepareStatement(sql);
+        for (int i = 0; i < args.length; i++) ps.setObject(i + 1, args[i]);
+        return ps;
+    }
+
+    // Same loop as DayRollover.run
+    private int rollover(long today) throws SQLException {
+        int changed = 0;
+        for (String q : new String[]{"deactivateEnded", "activateStarted", "clearStaleReceived", "setMissingReceived"}) {
+            Map<String, Object> args = new HashMap<>();
+            args.put("today", today);
+            args.put("limit", CHUNK);
+            int n;
+            do {
+                try (PreparedStatement ps = db.prepare(dao.get(q), args)) {
+                    n = ps.executeUpdate();
+                }
+                changed += n;
+            } while (n == CHUNK);
+        }
+        return changed;
+    }
+
+    private int nextUid() {
+        next = next * 1103515245 + 12345;
+        return 1 + ((next >>> 1) % rows);
+    }
+}
@@ -0,0 +1,288 @@
+package bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import data.AdherenceStats;
+import data.LoadGenerator;
+import data.PrescriptionDrug;
+import data.TimeTerm;
+
+// File-backed SQLite database with the app's current schema (same DDL Room generates for
+// AppDatabase; keep in sync with the entities and migrations) and a deterministic data set.
+final class SqliteFixture implements AutoCloseable {
+
+    private static final String[] DDL = {
+            "CREATE TABLE IF NOT EXISTS `time_terms` (`id` INTEGER NOT NULL, `code` TEXT, " +
+                    "`sortOrder` INTEGER NOT NULL, `minuteOfDay` INTEGER NOT NULL DEFAULT 480, PRIMARY KEY(`id`))",
+            "CREATE TABLE IF NOT EXISTS `prescription_drugs` (`uid` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                    "`shortName` TEXT, `description` TEXT, `startDateEpoch` INTEGER NOT NULL, " +
+                    "`endDateEpoch` INTEGER NOT NULL, `timeTermId` INTEGER NOT NULL, `doctorName` TEXT, " +
+                    "`doctorLocation` TEXT, `isActive` INTEGER NOT NULL, `lastDateReceivedEpoch` INTEGER, " +
+                    "`hasReceivedToday` INTEGER NOT NULL, `patientId` INTEGER NOT NULL DEFAULT 1, " +
+                    "FOREIGN KEY(`timeTermId`) REFERENCES `time_terms`(`id`) ON UPDATE NO ACTION ON DELETE RESTRICT , " +
+                    "FOREIGN KEY(`patientId`) REFERENCES `patients`(`id`) ON UPDATE NO ACTION ON DELETE CASCADE )",
+            "CREATE INDEX IF NOT EXISTS `index_prescription_drugs_timeTermId` ON `prescription_drugs` (`timeTermId`)",
+            "CREATE INDEX IF NOT EXISTS `index_prescription_drugs_patientId_isActive_timeTermId` " +
+                    "ON `prescription_drugs` (`patientId`, `isActive`, `timeTermId`)",
+            "CREATE INDEX IF NOT EXISTS `index_prescription_drugs_patientId` ON `prescription_drugs` (`patientId`)",
+            "CREATE INDEX IF NOT EXISTS `index_prescription_drugs_isActive_startDateEpoch` " +
+                    "ON `prescription_drugs` (`isActive`, `startDateEpoch`)",
+            "CREATE INDEX IF NOT EXISTS `index_prescription_drugs_isActive_endDateEpoch` " +
+                    "ON `prescription_drugs` (`isActive`, `endDateEpoch`)",
+            "CREATE INDEX IF NOT EXISTS `index_prescription_drugs_hasReceivedToday_lastDateReceivedEpoch` " +
+                    "ON `prescription_drugs` (`hasReceivedToday`, `lastDateReceivedEpoch`)",
+            "CREATE TABLE IF NOT EXISTS `dose_intakes` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                    "`uid` INTEGER NOT NULL, `epochDay` INTEGER NOT NULL, `timeTermId` INTEGER NOT NULL, " +
+                    "`timestamp` INTEGER NOT NULL, FOREIGN KEY(`uid`) REFERENCES `prescription_drugs`(`uid`) " +
+                    "ON UPDATE NO ACTION ON DELETE CASCADE )",
+            "CREATE INDEX IF NOT EXISTS `index_dose_intakes_uid_epochDay` ON `dose_intakes` (`uid`, `epochDay`)",
+            "CREATE INDEX IF NOT EXISTS `index_dose_intakes_epochDay_uid` ON `dose_intakes` (`epochDay`, `uid`)",
+            "CREATE TABLE IF NOT EXISTS `geocode_cache` (`key` TEXT NOT NULL, `lat` REAL NOT NULL, " +
+                    "`lng` REAL NOT NULL, `found` INTEGER NOT NULL, `resolvedAt` INTEGER NOT NULL, PRIMARY KEY(`key`))",
+            "CREATE TABLE IF NOT EXISTS `patients` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                    "`name` TEXT NOT NULL)",
+            "INSERT INTO patients (id, name) VALUES (1, 'Me')",
+            "CREATE TABLE IF NOT EXISTS `prescription_changes` (`uid` INTEGER NOT NULL, `seq` INTEGER NOT NULL, " +
+                    "`deleted` INTEGER NOT NULL, PRIMARY KEY(`uid`))",
+            "CREATE INDEX IF NOT EXISTS `index_prescription_changes_seq` ON `prescription_changes` (`seq`)",
+            "CREATE TRIGGER IF NOT EXISTS prescription_changes_AFTER_INSERT AFTER INSERT ON `prescription_drugs` BEGIN " +
+                    bumpChange("NEW", 0) + " END",
+            "CREATE TRIGGER IF NOT EXISTS prescription_changes_AFTER_UPDATE AFTER UPDATE OF shortName, description, " +
+                    "startDateEpoch, endDateEpoch, timeTermId, doctorName, doctorLocation, patientId ON `prescription_drugs` BEGIN " +
+                    bumpChange("NEW", 0) + " END",
+            "CREATE TRIGGER IF NOT EXISTS prescription_changes_AFTER_DELETE AFTER DELETE ON `prescription_drugs` BEGIN " +
+                    bumpChange("OLD", 1) + " END",
+            "CREATE VIRTUAL TABLE IF NOT EXISTS `prescription_fts` USING FTS4(`shortName` TEXT, `description` TEXT, " +
+                    "`doctorName` TEXT, `doctorLocation` TEXT, tokenize=unicode61, content=`prescription_drugs`, " +
+                    "prefix=`2,3`)",
+            "CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_prescription_fts_BEFORE_UPDATE BEFORE UPDATE " +
+                    "ON `prescription_drugs` BEGIN DELETE FROM `prescription_fts` WHERE `docid`=OLD.`rowid`; END",
+            "CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_prescription_fts_BEFORE_DELETE BEFORE DELETE " +
+                    "ON `prescription_drugs` BEGIN DELETE FROM `prescription_fts` WHERE `docid`=OLD.`rowid`; END",
+            "CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_prescription_fts_AFTER_UPDATE AFTER UPDATE " +
+                    "ON `prescription_drugs` BEGIN INSERT INTO `prescription_fts`(`docid`, `shortName`, " +
+                    "`description`, `doctorName`, `doctorLocation`) VALUES (NEW.`rowid`, NEW.`shortName`, " +
+                    "NEW.`description`, NEW.`doctorName`, NEW.`doctorLocation`); END",
+            "CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_prescription_fts_AFTER_INSERT AFTER INSERT " +
+                    "ON `prescription_drugs` BEGIN INSERT INTO `prescription_fts`(`docid`, `shortName`, " +
+                    "`description`, `doctorName`, `doctorLocation`) VALUES (NEW.`rowid`, NEW.`shortName`, " +
+                    "NEW.`description`, NEW.`doctorName`, NEW.`doctorLocation`); END",
+            "CREATE TABLE IF NOT EXISTS `calendar_months` (`month` INTEGER NOT NULL, `firstDay` INTEGER NOT NULL, " +
+                    "`lastDay` INTEGER NOT NULL, PRIMARY KEY(`month`))",
+            "CREATE INDEX IF NOT EXISTS `index_calendar_months_firstDay` ON `calendar_months` (`firstDay`)",
+            "CREATE TABLE IF NOT EXISTS `adherence_stats` (`uid` INTEGER NOT NULL, `month` INTEGER NOT NULL, " +
+                    "`courseDays` INTEGER NOT NULL, `taken` INTEGER NOT NULL, PRIMARY KEY(`uid`, `month`))",
+            AdherenceStats.SEED_CALENDAR,
+    };
+
+    // Same body as AppDatabase's change triggers
+    private static String bumpChange(String row, int deleted) {
+        String next = "(SELECT IFNULL(MAX(seq), 0) + 1 FROM prescription_changes)";
+        return "UPDATE prescription_changes SET seq = " + next + ", deleted = " + deleted +
+                " WHERE uid = " + row + ".uid; " +
+                "INSERT INTO prescription_changes (uid, seq, deleted) SELECT " + row + ".uid, " + next + ", " + deleted +
+                " WHERE NOT EXISTS (SELECT 1 FROM prescription_changes WHERE uid = " + row + ".uid);";
+    }
+
+    // Owner of every seeded row (the seeded default patient)
+    static final int PATIENT_ID = 1;
+
+    final Connection conn;
+    private final File file;
+
+    static final String COLUMNS = "shortName, description, startDateEpoch, endDateEpoch, timeTermId, " +
+            "doctorName, doctorLocation, isActive, lastDateReceivedEpoch, hasReceivedToday";
+
+    // Rows staged per INSERT ... SELECT when seeding from a LoadGenerator (FTS4 flushes per statement)
+    private static final int SEED_CHUNK = 50_000;
+
+    SqliteFixture(int rows) throws SQLException, IOException {
+        this();
+        seed(rows);
+        analyze();
+    }
+
+    // 'rows' rows from the load generator (all time terms of the registry)
+    SqliteFixture(LoadGenerator gen, int rows) throws SQLException, IOException {
+        this();
+        seed(gen, rows);
+        analyze();
+    }
+
+    private SqliteFixture() throws SQLException, IOException {
+        file = File.createTempFile("meds-bench", ".db");
+        conn = DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath());
+        try (Statement st = conn.createStatement()) {
+            for (String sql : DDL) st.execute(sql);
+            for (String sql : AdherenceStats.TRIGGERS) st.execute(sql);
+        }
+    }
+
+    private void analyze() throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.execute("ANALYZE");
+        }
+    }
+
+    private void seed(int rows) throws SQLException {
+        conn.setAutoCommit(false);
+        seedTerms();
+        try (PreparedStatement p = conn.prepareStatement("INSERT INTO prescription_drugs (" + COLUMNS + ") " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+            Random r = new Random(42);
+            for (int i = 1; i <= rows; i++) {
+                bind(p, Fixtures.drug(i, r));
+                p.addBatch();
+                if (i % 10_000 == 0) p.executeBatch();
+            }
+            p.executeBatch();
+        }
+        conn.commit();
+        conn.setAutoCommit(true);
+    }
+
+    // Staged in a TEMP table and moved SEED_CHUNK rows at a time (a 1M-row seed in seconds, not minutes)
+    private void seed(LoadGenerator gen, int rows) throws SQLException, IOException {
+        try (Statement st = conn.createStatement()) {
+            st.execute("CREATE TEMP TABLE seed AS SELECT " + COLUMNS + " FROM prescription_drugs WHERE 0");
+        }
+        conn.setAutoCommit(false);
+        seedTerms();
+        try (PreparedStatement stage = conn.prepareStatement("INSERT INTO temp.seed (" + COLUMNS + ") " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+             PreparedStatement move = conn.prepareStatement("INSERT INTO prescription_drugs (" + COLUMNS + ") " +
+                     "SELECT " + COLUMNS + " FROM temp.seed ORDER BY rowid");
+             PreparedStatement clear = conn.prepareStatement("DELETE FROM temp.seed")) {
+            gen.generate(rows, SEED_CHUNK, chunk -> {
+                try {
+                    for (PrescriptionDrug d : chunk) {
+                        bind(stage, d);
+                        stage.addBatch();
+                    }
+                    stage.executeBatch();
+                    move.executeUpdate();
+                    clear.executeUpdate();
+                } catch (SQLException e) {
+                    throw new IOException(e);
+                }
+            });
+        }
+        conn.commit();
+        conn.setAutoCommit(true);
+        try (Statement st = conn.createStatement()) {
+            st.execute("DROP TABLE temp.seed");
+        }
+    }
+
+    // Intake history: uids 1..drugs, each taken on ~85% of the 'days' days before 'today', one dose a day
+    void seedIntakes(int drugs, int days, long today) throws SQLException {
+        conn.setAutoCommit(false);
+        try (PreparedStatement p = conn.prepareStatement("INSERT INTO dose_intakes (uid, epochDay, timeTermId, " +
+                "timestamp) SELECT uid, ?, timeTermId, ? FROM prescription_drugs WHERE uid = ?")) {
+            Random r = new Random(42);
+            for (long day = today - days; day < today; day++) {
+                for (int uid = 1; uid <= drugs; uid++) {
+                    if (r.nextInt(100) >= 85) continue;
+                    p.setLong(1, day);
+                    p.setLong(2, day * 86_400_000L);
+                    p.setInt(3, uid);
+                    p.addBatch();
+                }
+                p.executeBatch();
+            }
+        }
+        conn.commit();
+        conn.setAutoCommit(true);
+        analyze();
+    }
+
+    // Every seeded term id
+    static int[] termIds() {
+        int[] ids = new int[Fixtures.TERMS.size()];
+        for (int i = 0; i < ids.length; i++) ids[i] = i + 1;
+        return ids;
+    }
+
+    private void seedTerms() throws SQLException {
+        try (PreparedStatement t = conn.prepareStatement("INSERT INTO time_terms VALUES (?, ?, ?, ?)")) {
+            for (TimeTerm term : Fixtures.TERMS) {
+                t.setInt(1, term.id);
+                t.setString(2, term.code);
+                t.setInt(3, term.sortOrder);
+                t.setInt(4, term.minuteOfDay);
+                t.addBatch();
+            }
+            t.executeBatch();
+        }
+    }
+
+    // Bind the COLUMNS of a row, in order
+    static void bind(PreparedStatement p, PrescriptionDrug d) throws SQLException {
+        p.setString(1, d.shortName);
+        p.setString(2, d.description);
+        p.setLong(3, d.startDateEpoch);
+        p.setLong(4, d.endDateEpoch);
+        p.setInt(5, d.timeTermId);
+        p.setString(6, d.doctorName);
+        p.setString(7, d.doctorLocation);
+        p.setInt(8, d.isActive ? 1 : 0);
+        if (d.lastDateReceivedEpoch == null) p.setNull(9, Types.INTEGER);
+        else p.setLong(9, d.lastDateReceivedEpoch);
+        p.setInt(10, d.hasReceivedToday ? 1 : 0);
+    }
+
+    // Arguments map with ':patientId' already set (every list query is per patient)
+    static Map<String, Object> patientArgs() {
+        Map<String, Object> args = new HashMap<>();
+        args.put("patientId", PATIENT_ID);
+        return args;
+    }
+
+    // Prepare a DAO statement and bind its ':name' arguments from 'args'
+    PreparedStatement prepare(DaoSql.Statement s, Map<String, ?> args) throws SQLException {
+        PreparedStatement ps = conn.prepareStatement(s.sql);
+        for (int i = 0; i < s.args.size(); i++) {
+            String name = s.args.get(i);
+            if (!args.containsKey(name)) throw new IllegalArgumentException("Missing argument :" + name);
+            ps.setObject(i + 1, args.get(name));
+        }
+        return ps;
+    }
+
+    // Map a prescription_drugs row the way Room's generated adapter does (columns by name)
+    static PrescriptionDrug readDrug(ResultSet rs) throws SQLException {
+        PrescriptionDrug d = new PrescriptionDrug();
+        d.uid = rs.getInt("uid");
+        d.shortName = rs.getString("shortName");
+        d.description = rs.getString("description");
+        d.startDateEpoch = rs.getLong("startDateEpoch");
+        d.endDateEpoch = rs.getLong("endDateEpoch");
+        d.timeTermId = rs.getInt("timeTermId");
+        d.doctorName = rs.getString("doctorName");
+        d.doctorLocation = rs.getString("doctorLocation");
+        d.isActive = rs.getInt("isActive") != 0;
+        long last = rs.getLong("lastDateReceivedEpoch");
+        d.lastDateReceivedEpoch = rs.wasNull() ? null : last;
+        d.hasReceivedToday = rs.getInt("hasReceivedToday") != 0;
+        d.patientId = rs.getInt("patientId");
+        return d;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        conn.close();
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+    }
+}
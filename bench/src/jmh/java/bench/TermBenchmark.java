@@ -0,0 +1,75 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import data.PrescriptionDrug;
+import data.PrescriptionWithTerm;
+import data.TimeTerm;
+import data.TimeTermRegistry;
+
+// One ACTIVE list load, before and after TimeTermRegistry: joining time_terms and copying the term
+// out of every row, against reading prescription_drugs alone and pointing each row at the shared term.
+// Latency is the score; run with the GC profiler for bytes allocated per load:
+//
+//   ./gradlew :bench:jmh -PjmhIncludes=TermBenchmark -PjmhProfilers=gc
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TermBenchmark {
+
+    @Param({"1000", "10000"})
+    public int rows;
+
+    private SqliteFixture db;
+    private DaoSql dao;
+
+    @Setup
+    public void setUp() throws Exception {
+        db = new SqliteFixture(rows);
+        dao = new DaoSql("data/PrescriptionDao.java");
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        db.close();
+    }
+
+    // Before: JOIN time_terms, ORDER BY sortOrder, a term code String and term per row
+    @Benchmark
+    public void joinPerRowTerm(Blackhole bh) throws SQLException {
+        try (PreparedStatement ps = db.prepare(dao.get("getActiveWithTermCursor"), SqliteFixture.patientArgs());
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                PrescriptionDrug d = SqliteFixture.readDrug(rs);
+                TimeTerm t = new TimeTerm(rs.getInt("term_id"), rs.getString("term_code"), rs.getInt("term_order"));
+                bh.consume(new PrescriptionWithTerm(d, t));
+            }
+        }
+    }
+
+    // After: prescription_drugs only, term resolved from the registry (what Room's mapping does)
+    @Benchmark
+    public void registryTerm(Blackhole bh) throws SQLException {
+        try (PreparedStatement ps = db.prepare(dao.get("getActiveWithTermNow"), SqliteFixture.patientArgs());
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                PrescriptionDrug d = SqliteFixture.readDrug(rs);
+                bh.consume(new PrescriptionWithTerm(d, TimeTermRegistry.resolve(d.timeTermId)));
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import data.PrescriptionDrug;
+
+// Insert throughput in rows/s: one auto-committed INSERT per row (what a loop of single
+// PrescriptionDao.insert calls, or MedProvider.insert per row, costs) against the same rows in one
+// transaction (PrescriptionDao.insertAll, MedProvider.bulkInsert), with the app's triggers in place.
+// WAL + synchronous=NORMAL like the app (Room's default journal, DbTuning's default sync).
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class WriteBenchmark {
+
+    private static final int ROWS = 1000;
+    static final String INSERT = "INSERT INTO prescription_drugs (" + SqliteFixture.COLUMNS + ") " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private List<PrescriptionDrug> drugs;
+    private SqliteFixture db;
+
+    @Setup
+    public void setUp() {
+        drugs = new ArrayList<>(ROWS);
+        Random r = new Random(42);
+        for (int i = 1; i <= ROWS; i++) drugs.add(Fixtures.drug(i, r));
+    }
+
+    @Setup(Level.Iteration)
+    public void openDb() throws SQLException, IOException {
+        db = new SqliteFixture(0);
+        try (Statement st = db.conn.createStatement()) {
+            st.execute("PRAGMA journal_mode=WAL");
+            st.execute("PRAGMA synchronous=NORMAL");
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeDb() throws SQLException {
+        db.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void perRowCommit() throws SQLException {
+        try (PreparedStatement p = db.conn.prepareStatement(INSERT)) {
+            for (PrescriptionDrug d : drugs) {
+                SqliteFixture.bind(p, d);
+                p.executeUpdate();
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void oneTransaction() throws SQLException {
+        db.conn.setAutoCommit(false);
+        try (PreparedStatement p = db.conn.prepareStatement(INSERT)) {
+            for (PrescriptionDrug d : drugs) {
+                SqliteFixture.bind(p, d);
+                p.executeUpdate();
+            }
+            db.conn.commit();
+        } finally {
+            db.conn.setAutoCommit(true);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package bench;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import data.PrescriptionDrug;
+
+import static org.junit.Assert.*;
+
+/**
+ * Insert throughput floor (rows/s) with the app's schema and triggers: the same rows in one
+ * transaction (insertAll, MedProvider.bulkInsert) against one auto-committed INSERT per row.
+ * WriteBenchmark has the detailed numbers; this only fails when batching stops paying off.
+ */
+public class WriteThroughputTest {
+
+    private static final int ROWS = 2000;
+
+    // 2.5-3x on a laptop SSD; the floor leaves room for slow CI disks
+    private static final double MIN_SPEEDUP = 1.5;
+
+    @Test
+    public void oneTransaction_beatsPerRowCommits() throws SQLException, IOException {
+        List<PrescriptionDrug> drugs = new ArrayList<>(ROWS);
+        Random r = new Random(42);
+        for (int i = 1; i <= ROWS; i++) drugs.add(Fixtures.drug(i, r));
+
+        double perRow = 0, batched = 0;
+        for (int run = 0; run < 3; run++) { // best of three: the first run includes JIT warm-up
+            perRow = Math.max(perRow, rowsPerSecond(drugs, false));
+            batched = Math.max(batched, rowsPerSecond(drugs, true));
+        }
+        System.out.printf("per-row commit: %.0f rows/s, one transaction: %.0f rows/s%n", perRow, batched);
+        assertTrue("one transaction " + (long) batched + " rows/s vs per-row " + (long) perRow + " rows/s",
+                batched >= MIN_SPEEDUP * perRow);
+    }
+
+    // Insert every row into a fresh database (WAL + synchronous=NORMAL, like the app)
+    private static double rowsPerSecond(List<PrescriptionDrug> drugs, boolean oneTransaction)
+            throws SQLException, IOException {
+        try (SqliteFixture db = new SqliteFixture(0)) {
+            try (Statement st = db.conn.createStatement()) {
+                st.execute("PRAGMA journal_mode=WAL");
+                st.execute("PRAGMA synchronous=NORMAL");
+            }
+            long start = System.nanoTime();
+            db.conn.setAutoCommit(!oneTransaction);
+            try (PreparedStatement p = db.conn.prepareStatement(WriteBenchmark.INSERT)) {
+                for (PrescriptionDrug d : drugs) {
+                    SqliteFixture.bind(p, d);
+                    p.executeUpdate();
+                }
+            }
+            if (oneTransaction) db.conn.commit();
+            return drugs.size() * 1e9 / (System.nanoTime() - start);
+        }
+    }
+}